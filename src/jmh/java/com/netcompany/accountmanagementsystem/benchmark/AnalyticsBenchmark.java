@@ -0,0 +1,64 @@
+package com.netcompany.accountmanagementsystem.benchmark;
+
+import com.netcompany.accountmanagementsystem.analytics.GlobalAggregate;
+import com.netcompany.accountmanagementsystem.analytics.TransactionAnalytics;
+import com.netcompany.accountmanagementsystem.store.TransactionStore;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The fork/join scan behind the global analytics, with pools of different
+ * sizes to see how it scales with cores. The store is filled directly, so
+ * large sizes such as {@code -p transactions=50000000} need no CSV files,
+ * only a heap of about 2 GB.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AnalyticsBenchmark {
+
+    @Param({"1000000", "10000000"})
+    public int transactions;
+
+    @Param({"1", "2", "4", "8"})
+    public int parallelism;
+
+    private TransactionStore store;
+    private ForkJoinPool pool;
+    private TransactionAnalytics analytics;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        store = new TransactionStore();
+        store.ensureCapacity(transactions);
+        SplittableRandom random = new SplittableRandom(11);
+        int accounts = Math.max(1, transactions / 6);
+        int firstDay = (int) LocalDate.of(2023, 1, 1).toEpochDay();
+        for (int i = 0; i < transactions; i++) {
+            store.append(i + 1, 1 + random.nextInt(accounts), 1 + random.nextInt(100_000),
+                    random.nextBoolean() ? TransactionStore.DEPOSIT : TransactionStore.WITHDRAWAL,
+                    firstDay + random.nextInt(730));
+        }
+        store.publish();
+
+        pool = new ForkJoinPool(parallelism);
+        analytics = new TransactionAnalytics(pool);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public GlobalAggregate scan() {
+        return analytics.scan(store, store.size());
+    }
+}
@@ -0,0 +1,95 @@
+package com.netcompany.accountmanagementsystem.benchmark;
+
+import com.netcompany.accountmanagementsystem.config.CacheProperties;
+import com.netcompany.accountmanagementsystem.config.DataProperties;
+import com.netcompany.accountmanagementsystem.config.LogProperties;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Generated datasets shared by the benchmarks. Each size and skew is written
+ * once under {@code target/jmh-data} and reused by later runs.
+ */
+final class BenchmarkDatasets {
+
+    /** Beneficiaries that receive the heavy share in the {@code heavy} skew. */
+    static final int HEAVY_BENEFICIARIES = 10;
+    static final double HEAVY_SHARE = 0.3;
+
+    private BenchmarkDatasets() {
+    }
+
+    /**
+     * Returns the directory of the dataset, generating it first if needed.
+     * {@code skew} is {@code uniform} or {@code heavy}.
+     */
+    static Path get(long transactions, String skew) throws IOException {
+        Path directory = Path.of("target", "jmh-data", transactions + "-" + skew).toAbsolutePath();
+        if (Files.exists(directory.resolve("transactions.csv"))) {
+            return directory;
+        }
+
+        DatasetGenerator generator = switch (skew) {
+            case "uniform" -> DatasetGenerator.forTransactions(transactions, 0, 0);
+            case "heavy" -> DatasetGenerator.forTransactions(transactions, HEAVY_BENEFICIARIES, HEAVY_SHARE);
+            default -> throw new IllegalArgumentException("Unknown skew " + skew);
+        };
+
+        // Write next to the final directory, so an interrupted run leaves no partial dataset behind
+        Path partial = directory.resolveSibling(directory.getFileName() + ".partial");
+        delete(partial);
+        generator.writeTo(partial);
+        Files.move(partial, directory, StandardCopyOption.ATOMIC_MOVE);
+        return directory;
+    }
+
+    /**
+     * Data properties reading the dataset's CSV files, with the snapshot in
+     * the dataset directory when {@code snapshot} is set and disabled otherwise.
+     */
+    static DataProperties properties(Path directory, boolean snapshot) {
+        DataProperties properties = new DataProperties();
+        properties.setBeneficiaries(directory.resolve("beneficiaries.csv").toUri().toString());
+        properties.setAccounts(directory.resolve("accounts.csv").toUri().toString());
+        properties.setTransactions(directory.resolve("transactions.csv").toUri().toString());
+        properties.setSnapshotPath(snapshot ? directory.resolve("snapshot.bin").toString() : null);
+        return properties;
+    }
+
+    static CacheProperties cache(int maximumSize) {
+        CacheProperties properties = new CacheProperties();
+        properties.setMaximumSize(maximumSize);
+        return properties;
+    }
+
+    /**
+     * Log properties for a transaction log in {@code directory/log}. With
+     * {@code fresh} any earlier log there is removed, so it is seeded again.
+     */
+    static LogProperties log(Path directory, boolean sync, boolean fresh) throws IOException {
+        Path logDirectory = directory.resolve("log");
+        if (fresh) {
+            delete(logDirectory);
+        }
+        LogProperties properties = new LogProperties();
+        properties.setDirectory(logDirectory.toString());
+        properties.setSync(sync);
+        return properties;
+    }
+
+    private static void delete(Path directory) throws IOException {
+        if (!Files.exists(directory)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.netcompany.accountmanagementsystem.benchmark;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.SplittableRandom;
+
+/**
+ * Writes synthetic beneficiaries, accounts and transactions CSV files in the
+ * format of the bundled sample. The output depends only on the settings and
+ * the seed, so the same dataset can be regenerated on any machine.
+ * <p>
+ * By default the proportions follow the sample: one beneficiary per ten
+ * transactions and 1.8 accounts per beneficiary. Skew is added by giving
+ * {@code heavyBeneficiaries} beneficiaries {@code heavyShare} of all
+ * transactions between them.
+ */
+public class DatasetGenerator {
+
+    private static final String[] FIRST_NAMES = {"Elsie", "Estell", "Marta", "Jonas", "Ida", "Kai", "Lena", "Omar"};
+    private static final String[] LAST_NAMES = {"Myrilla", "Suanne", "Berg", "Holm", "Dahl", "Lund", "Friis", "Moe"};
+    private static final LocalDate FIRST_DATE = LocalDate.of(2023, 1, 1);
+    private static final int DAYS = 731;
+
+    private final long transactions;
+    private final int beneficiaries;
+    private final int accounts;
+    private final int heavyBeneficiaries;
+    private final double heavyShare;
+    private final long seed;
+
+    public DatasetGenerator(long transactions, int beneficiaries, int accounts, int heavyBeneficiaries,
+                            double heavyShare, long seed) {
+        if (beneficiaries < 1 || accounts < beneficiaries || heavyBeneficiaries > beneficiaries) {
+            throw new IllegalArgumentException("Every beneficiary needs an account and heavy beneficiaries must exist");
+        }
+        this.transactions = transactions;
+        this.beneficiaries = beneficiaries;
+        this.accounts = accounts;
+        this.heavyBeneficiaries = heavyBeneficiaries;
+        this.heavyShare = heavyShare;
+        this.seed = seed;
+    }
+
+    /**
+     * A dataset with the sample's proportions for the given number of
+     * transactions.
+     */
+    public static DatasetGenerator forTransactions(long transactions, int heavyBeneficiaries, double heavyShare) {
+        int beneficiaries = (int) Math.max(1, Math.min(Integer.MAX_VALUE / 2, transactions / 10));
+        return new DatasetGenerator(transactions, beneficiaries, beneficiaries * 9 / 5,
+                heavyBeneficiaries, heavyShare, 42);
+    }
+
+    /**
+     * Writes {@code beneficiaries.csv}, {@code accounts.csv} and
+     * {@code transactions.csv} into the directory.
+     */
+    public void writeTo(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        SplittableRandom random = new SplittableRandom(seed);
+
+        try (BufferedWriter writer = writer(directory.resolve("beneficiaries.csv"))) {
+            writer.write("beneficiaryId,firstName,lastName");
+            for (int id = 1; id <= beneficiaries; id++) {
+                writer.write('\n');
+                writer.write(id + "," + FIRST_NAMES[random.nextInt(FIRST_NAMES.length)]
+                        + "," + LAST_NAMES[random.nextInt(LAST_NAMES.length)]);
+            }
+        }
+
+        // The first accounts give every beneficiary one, the rest are spread at random
+        int[] owners = new int[accounts + 1];
+        int heavyAccountCount = 0;
+        for (int id = 1; id <= accounts; id++) {
+            owners[id] = id <= beneficiaries ? id : 1 + random.nextInt(beneficiaries);
+            if (owners[id] <= heavyBeneficiaries) {
+                heavyAccountCount++;
+            }
+        }
+        int[] heavyAccounts = new int[heavyAccountCount];
+        for (int id = 1, i = 0; id <= accounts; id++) {
+            if (owners[id] <= heavyBeneficiaries) {
+                heavyAccounts[i++] = id;
+            }
+        }
+
+        try (BufferedWriter writer = writer(directory.resolve("accounts.csv"))) {
+            writer.write("accountId,beneficiaryId");
+            for (int id = 1; id <= accounts; id++) {
+                writer.write('\n');
+                writer.write(id + "," + owners[id]);
+            }
+        }
+
+        String[] dates = new String[DAYS];
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MM/dd/yy");
+        for (int day = 0; day < DAYS; day++) {
+            dates[day] = FIRST_DATE.plusDays(day).format(formatter);
+        }
+
+        try (BufferedWriter writer = writer(directory.resolve("transactions.csv"))) {
+            writer.write("transactionId,accountId,amount,type,date");
+            StringBuilder line = new StringBuilder(48);
+            for (long id = 1; id <= transactions; id++) {
+                int accountId = heavyAccounts.length > 0 && random.nextDouble() < heavyShare
+                        ? heavyAccounts[random.nextInt(heavyAccounts.length)]
+                        : 1 + random.nextInt(accounts);
+                int tenths = 10 + random.nextInt(4_990);
+
+                line.setLength(0);
+                line.append('\n').append(id).append(',').append(accountId).append(',')
+                        .append(tenths / 10).append('.').append(tenths % 10).append(',')
+                        .append(random.nextBoolean() ? "deposit" : "withdrawal").append(',')
+                        .append(dates[random.nextInt(DAYS)]);
+                writer.append(line);
+            }
+        }
+    }
+
+    private static BufferedWriter writer(Path path) throws IOException {
+        return Files.newBufferedWriter(path, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Generates a dataset from the command line:
+     * {@code <transactions> <directory> [heavyBeneficiaries] [heavyShare]}.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: DatasetGenerator <transactions> <directory> [heavyBeneficiaries] [heavyShare]");
+            System.exit(1);
+        }
+        long transactions = Long.parseLong(args[0]);
+        int heavyBeneficiaries = args.length > 2 ? Integer.parseInt(args[2]) : 0;
+        double heavyShare = args.length > 3 ? Double.parseDouble(args[3]) : 0;
+
+        long start = System.nanoTime();
+        forTransactions(transactions, heavyBeneficiaries, heavyShare).writeTo(Path.of(args[1]));
+        System.out.printf("Wrote %d transactions to %s in %d ms%n", transactions, args[1],
+                (System.nanoTime() - start) / 1_000_000);
+    }
+}
@@ -0,0 +1,55 @@
+package com.netcompany.accountmanagementsystem.benchmark;
+
+import com.netcompany.accountmanagementsystem.config.DataProperties;
+import com.netcompany.accountmanagementsystem.config.LogProperties;
+import com.netcompany.accountmanagementsystem.service.AccountManagementService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Startup of {@link AccountManagementService}: parsing the CSV files,
+ * reading the binary snapshot written by an earlier start, or recovering from
+ * the transaction log and its checkpoint.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LoadBenchmark {
+
+    @Param({"10000", "1000000"})
+    public long transactions;
+
+    @Param({"csv", "snapshot", "log"})
+    public String source;
+
+    private DataProperties properties;
+    private LogProperties log;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        Path directory = BenchmarkDatasets.get(transactions, "uniform");
+        properties = BenchmarkDatasets.properties(directory, source.equals("snapshot"));
+        log = source.equals("log") ? BenchmarkDatasets.log(directory, true, true) : new LogProperties();
+
+        // Make sure the snapshot or the log exists and matches the CSV files
+        if (!source.equals("csv")) {
+            load();
+        }
+    }
+
+    @Benchmark
+    public AccountManagementService load() {
+        AccountManagementService service = new AccountManagementService(properties, BenchmarkDatasets.cache(0), log,
+                new SimpleMeterRegistry());
+        // Release the log for the next invocation
+        service.close();
+        return service;
+    }
+}
@@ -0,0 +1,93 @@
+package com.netcompany.accountmanagementsystem.benchmark;
+
+import com.netcompany.accountmanagementsystem.store.Money;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Amount handling with {@link Money} against the BigDecimal conversions it
+ * replaced: reading API amounts to cents, parsing amount text, and turning
+ * cent totals into the doubles the API returns. Run with {@code -prof gc} to
+ * compare the allocation rates.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MoneyBenchmark {
+
+    private static final int AMOUNTS = 10_000;
+
+    private final long[] cents = new long[AMOUNTS];
+    private final double[] amounts = new double[AMOUNTS];
+    private final String[] texts = new String[AMOUNTS];
+
+    @Setup(Level.Trial)
+    public void setup() {
+        SplittableRandom random = new SplittableRandom(22);
+        for (int i = 0; i < AMOUNTS; i++) {
+            cents[i] = random.nextLong(1, 100_000_000);
+            amounts[i] = cents[i] / 100.0;
+            texts[i] = BigDecimal.valueOf(cents[i], 2).toPlainString();
+        }
+    }
+
+    @Benchmark
+    public long ofDoubleBigDecimal() {
+        long total = 0;
+        for (double amount : amounts) {
+            total += BigDecimal.valueOf(amount).movePointRight(2).longValueExact();
+        }
+        return total;
+    }
+
+    @Benchmark
+    public long ofDoubleMoney() {
+        long total = 0;
+        for (double amount : amounts) {
+            total += Money.ofDouble(amount);
+        }
+        return total;
+    }
+
+    @Benchmark
+    public long parseBigDecimal() {
+        long total = 0;
+        for (String text : texts) {
+            total += new BigDecimal(text).movePointRight(2).longValueExact();
+        }
+        return total;
+    }
+
+    @Benchmark
+    public long parseMoney() {
+        long total = 0;
+        for (String text : texts) {
+            total += Money.parse(text);
+        }
+        return total;
+    }
+
+    @Benchmark
+    public double toDoubleBigDecimal() {
+        double total = 0;
+        for (long value : cents) {
+            total += BigDecimal.valueOf(value, 2).doubleValue();
+        }
+        return total;
+    }
+
+    @Benchmark
+    public double toDoubleMoney() {
+        double total = 0;
+        for (long value : cents) {
+            total += Money.toDouble(value);
+        }
+        return total;
+    }
+}
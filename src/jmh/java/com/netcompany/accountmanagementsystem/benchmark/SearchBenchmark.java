@@ -0,0 +1,83 @@
+package com.netcompany.accountmanagementsystem.benchmark;
+
+import com.netcompany.accountmanagementsystem.index.SearchIndex;
+import com.netcompany.accountmanagementsystem.store.TransactionStore;
+import org.openjdk.jmh.annotations.*;
+import org.roaringbitmap.FastAggregation;
+import org.roaringbitmap.PeekableIntIterator;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.time.LocalDate;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A selective search, withdrawals over 990.00 in the last quarter of 2023
+ * (about 0.06% of the rows), answered by intersecting the search bitmaps and
+ * by a full scan of the columns. The store is filled directly like in the
+ * {@link AnalyticsBenchmark}, so {@code -p transactions=50000000} needs a heap
+ * of about 2.5 GB.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SearchBenchmark {
+
+    private static final long MIN_CENTS = 99_000;
+    private static final int FROM_DAY = (int) LocalDate.of(2023, 10, 1).toEpochDay();
+    private static final int TO_DAY = (int) LocalDate.of(2023, 12, 31).toEpochDay();
+
+    @Param({"1000000", "10000000"})
+    public int transactions;
+
+    private TransactionStore store;
+    private SearchIndex.Bitmaps bitmaps;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        store = new TransactionStore();
+        store.ensureCapacity(transactions);
+        SplittableRandom random = new SplittableRandom(11);
+        int accounts = Math.max(1, transactions / 6);
+        int firstDay = (int) LocalDate.of(2023, 1, 1).toEpochDay();
+        for (int i = 0; i < transactions; i++) {
+            store.append(i + 1, 1 + random.nextInt(accounts), 1 + random.nextInt(100_000),
+                    random.nextBoolean() ? TransactionStore.DEPOSIT : TransactionStore.WITHDRAWAL,
+                    firstDay + random.nextInt(730));
+        }
+        store.publish();
+        bitmaps = new SearchIndex().get(store, store.size());
+    }
+
+    @Benchmark
+    public long bitmaps() {
+        SearchIndex.Selection amounts = bitmaps.ofAmounts(MIN_CENTS, Long.MAX_VALUE);
+        SearchIndex.Selection days = bitmaps.ofDays(FROM_DAY, TO_DAY);
+        RoaringBitmap candidates = FastAggregation.and(bitmaps.ofType(TransactionStore.WITHDRAWAL),
+                amounts.rows(), days.rows());
+        long matches = 0;
+        PeekableIntIterator rows = candidates.getIntIterator();
+        while (rows.hasNext()) {
+            if (store.getAmountCents(rows.next()) >= MIN_CENTS) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+
+    @Benchmark
+    public long scan() {
+        long matches = 0;
+        for (int row = 0; row < store.size(); row++) {
+            int epochDay = store.getEpochDay(row);
+            if (store.getType(row) == TransactionStore.WITHDRAWAL && store.getAmountCents(row) >= MIN_CENTS
+                    && epochDay >= FROM_DAY && epochDay <= TO_DAY) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+}
@@ -0,0 +1,241 @@
+package com.netcompany.accountmanagementsystem.benchmark;
+
+import com.netcompany.accountmanagementsystem.config.LogProperties;
+import com.netcompany.accountmanagementsystem.model.Account;
+import com.netcompany.accountmanagementsystem.model.SummarySection;
+import com.netcompany.accountmanagementsystem.model.TransactionFilter;
+import com.netcompany.accountmanagementsystem.model.VolumeGranularity;
+import com.netcompany.accountmanagementsystem.service.AccountManagementService;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+/**
+ * Read queries of {@link AccountManagementService}. With the {@code uniform}
+ * skew every beneficiary is queried; with {@code heavy} only the few heavy
+ * beneficiaries are, which is the worst case for per-beneficiary work.
+ * <p>
+ * The query cache is off by default so that the queries themselves are
+ * measured; run with {@code -p cacheSize=10000} to measure cache hits.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ServiceBenchmark {
+
+    private static final TransactionFilter WITHDRAWALS = new TransactionFilter("withdrawal", null, null);
+    private static final LocalDate FROM = LocalDate.of(2023, 3, 1);
+    private static final LocalDate TO = LocalDate.of(2023, 9, 30);
+    private static final int BATCH_SIZE = 1000;
+    private static final Set<SummarySection> ALL_SECTIONS = EnumSet.allOf(SummarySection.class);
+
+    @Param({"10000", "1000000"})
+    public long transactions;
+
+    @Param({"uniform", "heavy"})
+    public String skew;
+
+    @Param({"0"})
+    public int cacheSize;
+
+    /** {@code off} denies every meter, to measure the cost of the instrumentation. */
+    @Param({"on"})
+    public String metrics;
+
+    /** {@code on} serves the transactions from a memory-mapped transaction log instead of the heap. */
+    @Param({"off"})
+    public String log;
+
+    private AccountManagementService service;
+    private long[] beneficiaryIds;
+    private long[] accountIds;
+    private List<Long> batch;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        if (metrics.equals("off")) {
+            registry.config().meterFilter(MeterFilter.deny());
+        }
+        Path directory = BenchmarkDatasets.get(transactions, skew);
+        service = new AccountManagementService(
+                BenchmarkDatasets.properties(directory, log.equals("off")),
+                BenchmarkDatasets.cache(cacheSize),
+                log.equals("off") ? new LogProperties() : BenchmarkDatasets.log(directory, false, false),
+                registry);
+
+        long beneficiaries = skew.equals("heavy") ? BenchmarkDatasets.HEAVY_BENEFICIARIES
+                : Math.max(1, transactions / 10);
+        beneficiaryIds = LongStream.rangeClosed(1, beneficiaries).toArray();
+        shuffle(beneficiaryIds);
+
+        List<Long> accounts = new ArrayList<>();
+        for (long beneficiaryId : beneficiaryIds) {
+            for (Account account : service.getAccountsForBeneficiary(beneficiaryId)) {
+                accounts.add(account.getAccountId());
+            }
+        }
+        accountIds = accounts.stream().mapToLong(Long::longValue).toArray();
+        shuffle(accountIds);
+
+        batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            batch.add(beneficiaryIds[i % beneficiaryIds.length]);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        service.close();
+    }
+
+    /**
+     * Cycles through the ids of the run, separately for each thread.
+     */
+    @State(Scope.Thread)
+    public static class Picker {
+        private int next;
+
+        long next(long[] ids) {
+            if (next == ids.length) {
+                next = 0;
+            }
+            return ids[next++];
+        }
+    }
+
+    @Benchmark
+    public Object beneficiaryDetails(Picker picker) {
+        return service.getBeneficiaryDetails(picker.next(beneficiaryIds));
+    }
+
+    @Benchmark
+    public Object accountsForBeneficiary(Picker picker) {
+        return service.getAccountsForBeneficiary(picker.next(beneficiaryIds));
+    }
+
+    @Benchmark
+    public Object transactionsForBeneficiary(Picker picker) {
+        return service.getTransactionsForBeneficiary(picker.next(beneficiaryIds));
+    }
+
+    @Benchmark
+    public Object transactionsPage(Picker picker) {
+        return service.getTransactionsPage(picker.next(beneficiaryIds), WITHDRAWALS, null, 100);
+    }
+
+    @Benchmark
+    public void streamTransactions(Picker picker, Blackhole blackhole) {
+        service.streamTransactions(picker.next(beneficiaryIds), null).forEach(blackhole::consume);
+    }
+
+    @Benchmark
+    public double totalBalance(Picker picker) {
+        return service.getTotalBalanceForBeneficiary(picker.next(beneficiaryIds));
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Object totalBalances() {
+        return service.getTotalBalances(batch);
+    }
+
+    @Benchmark
+    public Object accountBalance(Picker picker) {
+        return service.getAccountBalanceAsBigDecimal(picker.next(accountIds));
+    }
+
+    @Benchmark
+    public Object accountBalances(Picker picker) {
+        return service.getAccountBalancesForBeneficiary(picker.next(beneficiaryIds));
+    }
+
+    @Benchmark
+    public Object largestWithdrawalLastMonth(Picker picker) {
+        return service.getLargestWithdrawalLastMonth(picker.next(beneficiaryIds));
+    }
+
+    @Benchmark
+    public Object largestWithdrawal(Picker picker) {
+        return service.getLargestWithdrawal(picker.next(beneficiaryIds), FROM, TO);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Object largestWithdrawals() {
+        return service.getLargestWithdrawals(batch, FROM, TO);
+    }
+
+    @Benchmark
+    public Object beneficiarySummary(Picker picker) {
+        return service.getBeneficiarySummary(picker.next(beneficiaryIds), ALL_SECTIONS);
+    }
+
+    /** The scan behind the analytics runs once; this measures ranking the kept aggregate. */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Object topBeneficiariesByBalance() {
+        return service.getTopBeneficiariesByBalance(100);
+    }
+
+    @Benchmark
+    public Object monthlyVolume() {
+        return service.getVolume(VolumeGranularity.MONTH, null, null);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Object negativeBalanceAccounts() {
+        return service.getNegativeBalanceAccounts();
+    }
+
+    @Benchmark
+    public Object accountBalanceAsOf(Picker picker) {
+        return service.getAccountBalanceAsOf(picker.next(accountIds), LocalDate.of(2024, 1, 15));
+    }
+
+    @Benchmark
+    public Object monthlyStatements(Picker picker) {
+        return service.getStatements(picker.next(accountIds), VolumeGranularity.MONTH, null, null);
+    }
+
+    @Benchmark
+    public Object eTag(Picker picker) {
+        return service.getETag(picker.next(beneficiaryIds));
+    }
+
+    @Benchmark
+    public long beneficiaryVersion(Picker picker) {
+        return service.getBeneficiaryVersion(picker.next(beneficiaryIds));
+    }
+
+    @Benchmark
+    public Object cacheStats() {
+        return service.getCacheStats();
+    }
+
+    private static void shuffle(long[] ids) {
+        SplittableRandom random = new SplittableRandom(7);
+        for (int i = ids.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            long id = ids[i];
+            ids[i] = ids[j];
+            ids[j] = id;
+        }
+    }
+}
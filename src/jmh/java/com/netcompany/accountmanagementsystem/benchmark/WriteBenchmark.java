@@ -0,0 +1,71 @@
+package com.netcompany.accountmanagementsystem.benchmark;
+
+import com.netcompany.accountmanagementsystem.model.Transaction;
+import com.netcompany.accountmanagementsystem.service.AccountManagementService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Appending transactions through {@link AccountManagementService#addTransactions}.
+ * The service is reloaded from its snapshot before every iteration, so the
+ * store does not keep growing across iterations. With {@code log} set to
+ * {@code sync} or {@code nosync} the transactions go to a fresh transaction
+ * log, forced to disk with every batch or not.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WriteBenchmark {
+
+    private static final LocalDate DATE = LocalDate.of(2024, 1, 2);
+
+    @Param({"10000", "1000000"})
+    public long transactions;
+
+    @Param({"off", "sync", "nosync"})
+    public String log;
+
+    private AccountManagementService service;
+    private List<Transaction> single;
+    private List<Transaction> batch;
+
+    @Setup(Level.Iteration)
+    public void setup() throws IOException {
+        Path directory = BenchmarkDatasets.get(transactions, "uniform");
+        service = log.equals("off")
+                ? new AccountManagementService(BenchmarkDatasets.properties(directory, true), BenchmarkDatasets.cache(0))
+                : new AccountManagementService(BenchmarkDatasets.properties(directory, false), BenchmarkDatasets.cache(0),
+                BenchmarkDatasets.log(directory, log.equals("sync"), true), new SimpleMeterRegistry());
+
+        single = List.of(new Transaction(null, 1L, 41.2, "deposit", DATE));
+        batch = new ArrayList<>(100);
+        for (long accountId = 1; accountId <= 100; accountId++) {
+            batch.add(new Transaction(null, accountId, 12.5, accountId % 2 == 0 ? "deposit" : "withdrawal", DATE));
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        service.close();
+    }
+
+    @Benchmark
+    public Object addTransaction() {
+        return service.addTransactions(single);
+    }
+
+    @Benchmark
+    public Object addTransactions100() {
+        return service.addTransactions(batch);
+    }
+}
@@ -0,0 +1,112 @@
+package com.netcompany.accountmanagementsystem.loadtest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Log-linear latency histogram in the style of HdrHistogram. Values below 128
+ * get a bucket each; above that every power of two is split into 64 buckets,
+ * so a recorded value is off by less than 1.6%. Recording is a couple of
+ * shifts and one array increment, and the memory used is fixed.
+ * <p>
+ * Not thread-safe: give every thread its own histogram and {@link #add} them
+ * up afterwards.
+ */
+class LatencyHistogram {
+
+    private static final int LINEAR = 128;
+    private static final int SUB_BUCKETS = 64;
+    private static final int SUB_BUCKET_BITS = 6;
+
+    private final long[] counts = new long[LINEAR + 57 * SUB_BUCKETS];
+    private long count;
+    private long total;
+    private long min = Long.MAX_VALUE;
+    private long max;
+
+    void record(long value) {
+        long v = Math.max(0, value);
+        counts[index(v)]++;
+        count++;
+        total += v;
+        min = Math.min(min, v);
+        max = Math.max(max, v);
+    }
+
+    void add(LatencyHistogram other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        total += other.total;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    long getCount() {
+        return count;
+    }
+
+    long getMax() {
+        return max;
+    }
+
+    long getMin() {
+        return count == 0 ? 0 : min;
+    }
+
+    double getMean() {
+        return count == 0 ? 0 : (double) total / count;
+    }
+
+    /**
+     * Highest value of the bucket holding the given percentile (0 to 100),
+     * capped at the largest recorded value.
+     */
+    long getValueAtPercentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(highestValue(i), max);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * The non-empty buckets as {@code [highest value, count]} pairs, in
+     * ascending order.
+     */
+    List<long[]> getBuckets() {
+        List<long[]> buckets = new ArrayList<>();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                buckets.add(new long[]{highestValue(i), counts[i]});
+            }
+        }
+        return buckets;
+    }
+
+    static int index(long value) {
+        if (value < LINEAR) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) - SUB_BUCKETS;
+        return LINEAR + (shift - 1) * SUB_BUCKETS + subBucket;
+    }
+
+    static long highestValue(int index) {
+        if (index < LINEAR) {
+            return index;
+        }
+        int shift = (index - LINEAR) / SUB_BUCKETS + 1;
+        long subBucket = (index - LINEAR) % SUB_BUCKETS + SUB_BUCKETS;
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,168 @@
+package com.netcompany.accountmanagementsystem.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Results of one load test run. The JSON report has the same layout for
+ * every run: the options, then per concurrency level the overall and the
+ * per-endpoint throughput, latency percentiles and full histograms, with all
+ * latencies in microseconds.
+ */
+class LoadReport {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    private final String url;
+    private final Map<String, String> options;
+    private final String startedAt = Instant.now().toString();
+    private final List<Level> levels = new ArrayList<>();
+
+    LoadReport(String url, Map<String, String> options) {
+        this.url = url;
+        this.options = options;
+    }
+
+    void add(Level level) {
+        levels.add(level);
+    }
+
+    void write(Path file) throws IOException {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("startedAt", startedAt);
+        report.put("url", url);
+        report.put("options", options);
+        report.put("javaVersion", System.getProperty("java.version"));
+        report.put("availableProcessors", Runtime.getRuntime().availableProcessors());
+
+        List<Object> levelReports = new ArrayList<>();
+        for (Level level : levels) {
+            Map<String, Object> levelReport = new LinkedHashMap<>();
+            levelReport.put("concurrency", level.concurrency);
+            levelReport.put("all", summary(level.total(), level.totalErrors(), level.durationSeconds));
+            Map<String, Object> endpoints = new LinkedHashMap<>();
+            level.histograms.forEach((endpoint, histogram) ->
+                    endpoints.put(endpoint, summary(histogram, level.errors.get(endpoint), level.durationSeconds)));
+            levelReport.put("endpoints", endpoints);
+            levelReports.add(levelReport);
+        }
+        report.put("levels", levelReports);
+
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        MAPPER.writeValue(file.toFile(), report);
+    }
+
+    private static Map<String, Object> summary(LatencyHistogram histogram, long errors, int durationSeconds) {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("requests", histogram.getCount());
+        summary.put("errors", errors);
+        summary.put("throughput", (double) histogram.getCount() / durationSeconds);
+        summary.put("mean", histogram.getMean());
+        summary.put("min", histogram.getMin());
+        for (double percentile : PERCENTILES) {
+            summary.put(percentileName(percentile), histogram.getValueAtPercentile(percentile));
+        }
+        summary.put("max", histogram.getMax());
+        summary.put("histogram", histogram.getBuckets());
+        return summary;
+    }
+
+    private static String percentileName(double percentile) {
+        return "p" + (percentile == Math.rint(percentile)
+                ? String.valueOf((int) percentile) : String.valueOf(percentile).replace(".", ""));
+    }
+
+    void print(PrintStream out) {
+        out.printf("%n%-11s %-19s %9s %7s %10s %9s %9s %9s %9s %9s%n", "concurrency", "endpoint", "requests",
+                "errors", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (Level level : levels) {
+            printRow(out, level.concurrency, "all", level.total(), level.totalErrors(), level.durationSeconds);
+            level.histograms.forEach((endpoint, histogram) -> printRow(out, level.concurrency, endpoint, histogram,
+                    level.errors.get(endpoint), level.durationSeconds));
+        }
+    }
+
+    private static void printRow(PrintStream out, int concurrency, String endpoint, LatencyHistogram histogram,
+                                 long errors, int durationSeconds) {
+        out.printf("%-11d %-19s %9d %7d %10.1f %9.3f %9.3f %9.3f %9.3f %9.3f%n", concurrency, endpoint,
+                histogram.getCount(), errors, (double) histogram.getCount() / durationSeconds,
+                histogram.getValueAtPercentile(50) / 1000.0, histogram.getValueAtPercentile(90) / 1000.0,
+                histogram.getValueAtPercentile(99) / 1000.0, histogram.getValueAtPercentile(99.9) / 1000.0,
+                histogram.getMax() / 1000.0);
+    }
+
+    /**
+     * Prints the change in throughput and p99 latency against an earlier
+     * report, for every concurrency level and endpoint both runs have.
+     */
+    void compare(Path baselineFile, PrintStream out) throws IOException {
+        JsonNode baseline = MAPPER.readTree(baselineFile.toFile());
+        out.printf("%nCompared with %s (%s)%n", baselineFile, baseline.path("startedAt").asText());
+        out.printf("%-11s %-19s %12s %12s%n", "concurrency", "endpoint", "req/s", "p99");
+        for (Level level : levels) {
+            for (JsonNode baselineLevel : baseline.path("levels")) {
+                if (baselineLevel.path("concurrency").asInt() != level.concurrency) {
+                    continue;
+                }
+                printChange(out, level.concurrency, "all", level.total(), level.durationSeconds, baselineLevel.path("all"));
+                level.histograms.forEach((endpoint, histogram) -> printChange(out, level.concurrency, endpoint,
+                        histogram, level.durationSeconds, baselineLevel.path("endpoints").path(endpoint)));
+            }
+        }
+    }
+
+    private static void printChange(PrintStream out, int concurrency, String endpoint, LatencyHistogram histogram,
+                                    int durationSeconds, JsonNode baseline) {
+        if (baseline.isMissingNode()) {
+            return;
+        }
+        out.printf("%-11d %-19s %+11.1f%% %+11.1f%%%n", concurrency, endpoint,
+                change((double) histogram.getCount() / durationSeconds, baseline.path("throughput").asDouble()),
+                change(histogram.getValueAtPercentile(99), baseline.path("p99").asDouble()));
+    }
+
+    private static double change(double value, double baseline) {
+        return baseline == 0 ? 0 : (value - baseline) / baseline * 100;
+    }
+
+    /**
+     * Measured results of one concurrency level.
+     */
+    static final class Level {
+        private final int concurrency;
+        private final int durationSeconds;
+        private final Map<String, LatencyHistogram> histograms;
+        private final Map<String, Long> errors;
+
+        Level(int concurrency, int durationSeconds, Map<String, LatencyHistogram> histograms, Map<String, Long> errors) {
+            this.concurrency = concurrency;
+            this.durationSeconds = durationSeconds;
+            this.histograms = histograms;
+            this.errors = errors;
+        }
+
+        LatencyHistogram total() {
+            LatencyHistogram total = new LatencyHistogram();
+            histograms.values().forEach(total::add);
+            return total;
+        }
+
+        long totalErrors() {
+            return errors.values().stream().mapToLong(Long::longValue).sum();
+        }
+    }
+}
@@ -0,0 +1,301 @@
+package com.netcompany.accountmanagementsystem.loadtest;
+
+import com.netcompany.accountmanagementsystem.AccountManagementSystemApplication;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Load generator for the {@code /api/beneficiary/**} endpoints. Without
+ * {@code --url} it starts the application in this JVM on a free port.
+ * <p>
+ * The run starts once the server reports itself ready. Each concurrency level
+ * runs a warm-up and then a measured phase. Every worker thread sends one
+ * request at a time over its own connection; with {@code --rate} the workers
+ * follow a fixed schedule instead, and latency is measured from the scheduled
+ * start so that a stalled server is not hidden by requests that were never
+ * sent.
+ * <p>
+ * Options, all {@code --name=value}:
+ * <ul>
+ *     <li>{@code url}: base URL of a running server</li>
+ *     <li>{@code concurrency}: comma-separated worker counts, default {@code 1,4,16,64}</li>
+ *     <li>{@code duration} and {@code warmup}: seconds per level, default 10 and 3</li>
+ *     <li>{@code rate}: total requests per second, default 0 for as fast as possible</li>
+ *     <li>{@code mix}: {@code endpoint=weight} pairs, default {@link #DEFAULT_MIX}</li>
+ *     <li>{@code ids}: range of beneficiary ids, default {@code 1-1000}</li>
+ *     <li>{@code report}: report file, default {@code target/loadtest/report-<time>.json}</li>
+ *     <li>{@code baseline}: earlier report to compare the results with</li>
+ * </ul>
+ * Any other option is passed to the embedded application, for example
+ * {@code --account-management.cache.maximum-size=0}.
+ */
+public class LoadTest {
+
+    static final Map<String, String> ENDPOINTS = new LinkedHashMap<>();
+
+    static {
+        ENDPOINTS.put("details", "/api/beneficiary/%d");
+        ENDPOINTS.put("accounts", "/api/beneficiary/%d/accounts");
+        ENDPOINTS.put("transactions", "/api/beneficiary/%d/transactions");
+        ENDPOINTS.put("total-balance", "/api/beneficiary/%d/total-balance");
+        ENDPOINTS.put("account-balances", "/api/beneficiary/%d/account-balances");
+        ENDPOINTS.put("largest-withdrawal", "/api/beneficiary/%d/largest-withdrawal");
+        ENDPOINTS.put("summary", "/api/beneficiary/%d/summary");
+    }
+
+    static final String DEFAULT_MIX =
+            "details=1,accounts=1,transactions=2,total-balance=3,account-balances=2,largest-withdrawal=2";
+
+    private static final Duration READY_TIMEOUT = Duration.ofMinutes(5);
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        List<String> applicationArgs = new ArrayList<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            String name = arg.startsWith("--") && separator > 2 ? arg.substring(2, separator) : null;
+            if (name != null && List.of("url", "concurrency", "duration", "warmup", "rate", "mix", "ids", "report",
+                    "baseline").contains(name)) {
+                options.put(name, arg.substring(separator + 1));
+            } else {
+                applicationArgs.add(arg);
+            }
+        }
+
+        ConfigurableApplicationContext context = null;
+        String url = options.get("url");
+        if (url == null) {
+            // A devtools restart would run the application a second time in another thread
+            System.setProperty("spring.devtools.restart.enabled", "false");
+            applicationArgs.add("--server.port=0");
+            context = SpringApplication.run(AccountManagementSystemApplication.class,
+                    applicationArgs.toArray(String[]::new));
+            url = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+        }
+
+        try {
+            awaitReady(url);
+            LoadTest loadTest = new LoadTest(url, parseMix(options.getOrDefault("mix", DEFAULT_MIX)),
+                    options.getOrDefault("ids", "1-1000"),
+                    Integer.parseInt(options.getOrDefault("duration", "10")),
+                    Integer.parseInt(options.getOrDefault("warmup", "3")),
+                    Double.parseDouble(options.getOrDefault("rate", "0")));
+
+            LoadReport report = new LoadReport(url, options);
+            for (String level : options.getOrDefault("concurrency", "1,4,16,64").split(",")) {
+                report.add(loadTest.run(Integer.parseInt(level.trim())));
+            }
+
+            Path file = Path.of(options.getOrDefault("report",
+                    "target/loadtest/report-" + System.currentTimeMillis() + ".json"));
+            report.write(file);
+            report.print(System.out);
+            if (options.containsKey("baseline")) {
+                report.compare(Path.of(options.get("baseline")), System.out);
+            }
+            System.out.println("Report written to " + file.toAbsolutePath());
+        } finally {
+            if (context != null) {
+                context.close();
+            }
+        }
+    }
+
+    private final String url;
+    private final String[] mixEndpoints;
+    private final long firstId;
+    private final long lastId;
+    private final int durationSeconds;
+    private final int warmupSeconds;
+    private final double rate;
+
+    LoadTest(String url, Map<String, Integer> mix, String ids, int durationSeconds, int warmupSeconds, double rate) {
+        this.url = url;
+        List<String> endpoints = new ArrayList<>();
+        mix.forEach((endpoint, weight) -> {
+            for (int i = 0; i < weight; i++) {
+                endpoints.add(endpoint);
+            }
+        });
+        this.mixEndpoints = endpoints.toArray(String[]::new);
+        String[] range = ids.split("-");
+        this.firstId = Long.parseLong(range[0]);
+        this.lastId = Long.parseLong(range[range.length - 1]);
+        this.durationSeconds = durationSeconds;
+        this.warmupSeconds = warmupSeconds;
+        this.rate = rate;
+    }
+
+    /**
+     * Waits until the server reports itself ready, so the data is loaded
+     * before anything is measured. A server without the readiness probe is
+     * taken as ready.
+     */
+    static void awaitReady(String url) throws IOException, InterruptedException {
+        HttpClient client = HttpClient.newHttpClient();
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url + "/actuator/health/readiness")).build();
+        long deadline = System.nanoTime() + READY_TIMEOUT.toNanos();
+        while (true) {
+            int status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+            if (status == 200 || status == 404) {
+                return;
+            }
+            if (System.nanoTime() > deadline) {
+                throw new IllegalStateException(url + " was not ready after " + READY_TIMEOUT.toSeconds() + " s");
+            }
+            Thread.sleep(100);
+        }
+    }
+
+    static Map<String, Integer> parseMix(String mix) {
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.trim().split("=");
+            if (!ENDPOINTS.containsKey(parts[0])) {
+                throw new IllegalArgumentException("Unknown endpoint " + parts[0] + ", expected one of " + ENDPOINTS.keySet());
+            }
+            weights.put(parts[0], parts.length > 1 ? Integer.parseInt(parts[1]) : 1);
+        }
+        return weights;
+    }
+
+    /**
+     * Runs the warm-up and the measured phase with the given number of
+     * workers and returns the measured results.
+     */
+    LoadReport.Level run(int concurrency) throws InterruptedException {
+        System.out.printf("Running %d workers for %ds after %ds of warm-up%n", concurrency, durationSeconds, warmupSeconds);
+        long start = System.nanoTime();
+        long measureFrom = start + Duration.ofSeconds(warmupSeconds).toNanos();
+        long end = measureFrom + Duration.ofSeconds(durationSeconds).toNanos();
+
+        Worker[] workers = new Worker[concurrency];
+        CountDownLatch done = new CountDownLatch(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            // With a target rate, each worker takes every concurrency-th slot of the schedule
+            long interval = rate > 0 ? (long) (1e9 * concurrency / rate) : 0;
+            workers[i] = new Worker(new SplittableRandom(31L * concurrency + i), start + (interval * i) / concurrency,
+                    interval, measureFrom, end, done);
+            Thread thread = new Thread(workers[i], "load-" + concurrency + "-" + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        done.await();
+
+        Map<String, LatencyHistogram> histograms = new LinkedHashMap<>();
+        Map<String, Long> errors = new LinkedHashMap<>();
+        for (String endpoint : ENDPOINTS.keySet()) {
+            LatencyHistogram histogram = new LatencyHistogram();
+            long endpointErrors = 0;
+            for (Worker worker : workers) {
+                histogram.add(worker.histograms.get(endpoint));
+                endpointErrors += worker.errors.get(endpoint);
+            }
+            if (histogram.getCount() > 0 || endpointErrors > 0) {
+                histograms.put(endpoint, histogram);
+                errors.put(endpoint, endpointErrors);
+            }
+        }
+        return new LoadReport.Level(concurrency, durationSeconds, histograms, errors);
+    }
+
+    /**
+     * One client thread. Latencies are recorded in microseconds, for the
+     * measured phase only.
+     */
+    private final class Worker implements Runnable {
+        private final HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        private final Map<String, LatencyHistogram> histograms = new LinkedHashMap<>();
+        private final Map<String, Long> errors = new LinkedHashMap<>();
+        private final SplittableRandom random;
+        private final long interval;
+        private final long measureFrom;
+        private final long end;
+        private final CountDownLatch done;
+        private long next;
+
+        private Worker(SplittableRandom random, long first, long interval, long measureFrom, long end,
+                       CountDownLatch done) {
+            this.random = random;
+            this.next = first;
+            this.interval = interval;
+            this.measureFrom = measureFrom;
+            this.end = end;
+            this.done = done;
+            for (String endpoint : ENDPOINTS.keySet()) {
+                histograms.put(endpoint, new LatencyHistogram());
+                errors.put(endpoint, 0L);
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                long now;
+                while ((now = System.nanoTime()) < end) {
+                    long intendedStart = now;
+                    if (interval > 0) {
+                        if (next > now) {
+                            LockSupport.parkNanos(next - now);
+                        }
+                        intendedStart = next;
+                        next += interval;
+                    }
+
+                    String endpoint = mixEndpoints[random.nextInt(mixEndpoints.length)];
+                    long beneficiaryId = firstId + random.nextLong(lastId - firstId + 1);
+                    boolean failed = !send(endpoint, beneficiaryId);
+                    long finished = System.nanoTime();
+
+                    if (intendedStart >= measureFrom && finished <= end) {
+                        histograms.get(endpoint).record((finished - intendedStart) / 1_000);
+                        if (failed) {
+                            errors.merge(endpoint, 1L, Long::sum);
+                        }
+                    }
+                }
+            } finally {
+                done.countDown();
+            }
+        }
+
+        /**
+         * Sends one request and reads the whole response. A 404 for an unknown
+         * beneficiary is a valid answer; only server errors and I/O failures
+         * count as errors.
+         */
+        private boolean send(String endpoint, long beneficiaryId) {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(url + ENDPOINTS.get(endpoint).formatted(beneficiaryId)))
+                    .timeout(Duration.ofSeconds(30))
+                    .GET()
+                    .build();
+            try {
+                HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+                return response.statusCode() < 500;
+            } catch (IOException e) {
+                return false;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.netcompany.accountmanagementsystem.analytics;
+
+import com.netcompany.accountmanagementsystem.store.TransactionStore;
+
+import java.util.Arrays;
+
+/**
+ * Totals over a range of transaction rows: the balance of every account and
+ * the deposit and withdrawal volume of every day. One instance is filled per
+ * partition of a scan without any sharing, and the partial results are
+ * merged at the end.
+ *
+ * <p>Balances are indexed by the account reference of the
+ * {@link TransactionStore}. Daily volumes are indexed by epoch day relative to
+ * {@link #getFirstDay()} and grow in either direction as days are seen.
+ */
+public final class GlobalAggregate {
+
+    private static final int INITIAL_DAYS = 32;
+
+    private final long[] balanceCents;
+    private int rows;
+    private int firstDay;
+    private int dayCount;
+    private long[] depositCents = new long[0];
+    private long[] withdrawalCents = new long[0];
+    private long[] depositCounts = new long[0];
+    private long[] withdrawalCounts = new long[0];
+
+    GlobalAggregate(int accountCount) {
+        this(new long[accountCount]);
+    }
+
+    private GlobalAggregate(long[] balanceCents) {
+        this.balanceCents = balanceCents;
+    }
+
+    /**
+     * Returns a copy with room for {@code accountCount} accounts, at least as
+     * many as this one has.
+     */
+    GlobalAggregate copy(int accountCount) {
+        GlobalAggregate copy = new GlobalAggregate(Arrays.copyOf(balanceCents, accountCount));
+        copy.rows = rows;
+        copy.firstDay = firstDay;
+        copy.dayCount = dayCount;
+        copy.depositCents = depositCents.clone();
+        copy.withdrawalCents = withdrawalCents.clone();
+        copy.depositCounts = depositCounts.clone();
+        copy.withdrawalCounts = withdrawalCounts.clone();
+        return copy;
+    }
+
+    void add(int accountRef, byte type, long amountCents, int epochDay) {
+        int day = dayIndex(epochDay);
+        if (type == TransactionStore.DEPOSIT) {
+            balanceCents[accountRef] += amountCents;
+            depositCents[day] += amountCents;
+            depositCounts[day]++;
+        } else if (type == TransactionStore.WITHDRAWAL) {
+            balanceCents[accountRef] -= amountCents;
+            withdrawalCents[day] += amountCents;
+            withdrawalCounts[day]++;
+        }
+        rows++;
+    }
+
+    /**
+     * Adds the other aggregate into this one and returns this one.
+     */
+    GlobalAggregate merge(GlobalAggregate other) {
+        for (int ref = 0; ref < balanceCents.length; ref++) {
+            balanceCents[ref] += other.balanceCents[ref];
+        }
+        if (other.dayCount > 0) {
+            dayIndex(other.firstDay);
+            dayIndex(other.firstDay + other.dayCount - 1);
+            int offset = other.firstDay - firstDay;
+            for (int i = 0; i < other.dayCount; i++) {
+                depositCents[offset + i] += other.depositCents[i];
+                withdrawalCents[offset + i] += other.withdrawalCents[i];
+                depositCounts[offset + i] += other.depositCounts[i];
+                withdrawalCounts[offset + i] += other.withdrawalCounts[i];
+            }
+        }
+        rows += other.rows;
+        return this;
+    }
+
+    /**
+     * Returns the index of the day in the volume arrays, growing them first
+     * if the day lies outside.
+     */
+    private int dayIndex(int epochDay) {
+        if (dayCount == 0) {
+            firstDay = epochDay;
+            dayCount = 1;
+            resize(0, INITIAL_DAYS);
+            return 0;
+        }
+        if (epochDay < firstDay) {
+            int shift = firstDay - epochDay;
+            int needed = dayCount + shift;
+            resize(shift, needed > depositCents.length ? Math.max(depositCents.length * 2, needed) : depositCents.length);
+            firstDay = epochDay;
+            dayCount += shift;
+        } else if (epochDay - firstDay >= dayCount) {
+            dayCount = epochDay - firstDay + 1;
+            if (dayCount > depositCents.length) {
+                resize(0, Math.max(depositCents.length * 2, dayCount));
+            }
+        }
+        return epochDay - firstDay;
+    }
+
+    private void resize(int shift, int capacity) {
+        depositCents = shifted(depositCents, shift, capacity);
+        withdrawalCents = shifted(withdrawalCents, shift, capacity);
+        depositCounts = shifted(depositCounts, shift, capacity);
+        withdrawalCounts = shifted(withdrawalCounts, shift, capacity);
+    }
+
+    private static long[] shifted(long[] values, int shift, int capacity) {
+        if (shift == 0) {
+            return Arrays.copyOf(values, capacity);
+        }
+        long[] copy = new long[capacity];
+        System.arraycopy(values, 0, copy, shift, Math.min(values.length, capacity - shift));
+        return copy;
+    }
+
+    /**
+     * Number of rows aggregated.
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    public int getAccountCount() {
+        return balanceCents.length;
+    }
+
+    public long getBalanceCents(int accountRef) {
+        return balanceCents[accountRef];
+    }
+
+    /**
+     * Earliest epoch day with a transaction; only meaningful if
+     * {@link #getDayCount()} is not zero.
+     */
+    public int getFirstDay() {
+        return firstDay;
+    }
+
+    /**
+     * Number of days from the first to the last day with a transaction.
+     */
+    public int getDayCount() {
+        return dayCount;
+    }
+
+    public long getDepositCents(int epochDay) {
+        return inRange(epochDay) ? depositCents[epochDay - firstDay] : 0L;
+    }
+
+    public long getWithdrawalCents(int epochDay) {
+        return inRange(epochDay) ? withdrawalCents[epochDay - firstDay] : 0L;
+    }
+
+    public long getDepositCount(int epochDay) {
+        return inRange(epochDay) ? depositCounts[epochDay - firstDay] : 0L;
+    }
+
+    public long getWithdrawalCount(int epochDay) {
+        return inRange(epochDay) ? withdrawalCounts[epochDay - firstDay] : 0L;
+    }
+
+    private boolean inRange(int epochDay) {
+        return dayCount > 0 && epochDay >= firstDay && epochDay - firstDay < dayCount;
+    }
+}
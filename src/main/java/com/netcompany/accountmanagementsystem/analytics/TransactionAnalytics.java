@@ -0,0 +1,118 @@
+package com.netcompany.accountmanagementsystem.analytics;
+
+import com.netcompany.accountmanagementsystem.store.TransactionStore;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Aggregates the whole transaction store with a fork/join scan. The rows are
+ * split into a few partitions per worker of the pool; each partition fills
+ * its own {@link GlobalAggregate} without touching shared state, and the
+ * partial aggregates are merged pairwise as the tasks join.
+ *
+ * <p>The last aggregate is kept with the number of rows it covers. Since rows
+ * are only ever appended, a later request that sees the same number of
+ * published rows gets it back without scanning again, and one that sees more
+ * only scans the rows added since and merges them into a copy of it.
+ */
+public class TransactionAnalytics {
+
+    private static final int PARTITIONS_PER_WORKER = 2;
+    private static final int MIN_PARTITION_ROWS = 16_384;
+
+    private final ForkJoinPool pool;
+    private final int minPartitionRows;
+    private volatile Scan latest;
+
+    private static final class Scan {
+        private final TransactionStore store;
+        private final int limit;
+        private final GlobalAggregate aggregate;
+
+        private Scan(TransactionStore store, int limit, GlobalAggregate aggregate) {
+            this.store = store;
+            this.limit = limit;
+            this.aggregate = aggregate;
+        }
+    }
+
+    public TransactionAnalytics() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public TransactionAnalytics(ForkJoinPool pool) {
+        this(pool, MIN_PARTITION_ROWS);
+    }
+
+    TransactionAnalytics(ForkJoinPool pool, int minPartitionRows) {
+        this.pool = pool;
+        this.minPartitionRows = minPartitionRows;
+    }
+
+    /**
+     * Returns the aggregate of the first {@code limit} rows of the store. The
+     * result is shared and must not be modified.
+     */
+    public GlobalAggregate aggregate(TransactionStore store, int limit) {
+        Scan scan = latest;
+        if (scan != null && scan.store == store && scan.limit == limit) {
+            return scan.aggregate;
+        }
+        if (scan != null && scan.store == store && scan.limit > limit) {
+            // A reader of an older view; the newer aggregate stays cached
+            return scan(store, limit);
+        }
+        GlobalAggregate aggregate = scan == null || scan.store != store
+                ? scan(store, limit)
+                : scan.aggregate.copy(store.getAccountCount()).merge(scan(store, scan.limit, limit));
+        latest = new Scan(store, limit, aggregate);
+        return aggregate;
+    }
+
+    /**
+     * Scans the first {@code limit} rows of the store, always afresh.
+     */
+    public GlobalAggregate scan(TransactionStore store, int limit) {
+        return scan(store, 0, limit);
+    }
+
+    private GlobalAggregate scan(TransactionStore store, int from, int to) {
+        // Rows below the limit only refer to accounts already in the dictionary
+        int accountCount = store.getAccountCount();
+        int partitions = pool.getParallelism() * PARTITIONS_PER_WORKER;
+        int partitionRows = Math.max(minPartitionRows, (to - from + partitions - 1) / partitions);
+        return pool.invoke(new PartitionTask(store, accountCount, from, to, partitionRows));
+    }
+
+    private static final class PartitionTask extends RecursiveTask<GlobalAggregate> {
+        private final TransactionStore store;
+        private final int accountCount;
+        private final int from;
+        private final int to;
+        private final int partitionRows;
+
+        private PartitionTask(TransactionStore store, int accountCount, int from, int to, int partitionRows) {
+            this.store = store;
+            this.accountCount = accountCount;
+            this.from = from;
+            this.to = to;
+            this.partitionRows = partitionRows;
+        }
+
+        @Override
+        protected GlobalAggregate compute() {
+            if (to - from <= partitionRows) {
+                GlobalAggregate aggregate = new GlobalAggregate(accountCount);
+                store.scan(from, to, (row, accountRef, type, amountCents, epochDay) ->
+                        aggregate.add(accountRef, type, amountCents, epochDay));
+                return aggregate;
+            }
+            int middle = (from + to) >>> 1;
+            PartitionTask left = new PartitionTask(store, accountCount, from, middle, partitionRows);
+            left.fork();
+            GlobalAggregate right = new PartitionTask(store, accountCount, middle, to, partitionRows).compute();
+            return left.join().merge(right);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.netcompany.accountmanagementsystem.cache;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Counters of a {@link QueryCache} since it was created. A miss that joined a
+ * computation already running for the same key is not counted as a load.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CacheStats {
+    private long hits;
+    private long misses;
+    private long loads;
+    private long evictions;
+    private int size;
+
+    public double getHitRate() {
+        long requests = hits + misses;
+        return requests == 0 ? 0 : (double) hits / requests;
+    }
+}
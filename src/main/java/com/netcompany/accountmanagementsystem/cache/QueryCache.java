@@ -0,0 +1,173 @@
+package com.netcompany.accountmanagementsystem.cache;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Bounded cache of query results. Each result is stored with the version of
+ * the data it was computed from; a lookup with a newer version misses, so
+ * callers invalidate a key by bumping its version rather than by removing it.
+ * <p>
+ * Results are evicted least recently used first once more than
+ * {@code maximumSize} are held, and expire {@code timeToLive} after they were
+ * computed. Concurrent misses for the same key and version share a single
+ * computation.
+ * <p>
+ * A hit takes no lock: it only stamps the entry with the time it was used.
+ * Inserts that overflow the cache evict the least recently used entries in a
+ * batch of a sixteenth of the cache, so the entries are only sorted by their
+ * stamps once every so many misses.
+ */
+public class QueryCache<K, V> {
+
+    private static final int EVICTION_BATCH_DIVISOR = 16;
+
+    private final int maximumSize;
+    private final long timeToLiveNanos;
+    private final ConcurrentHashMap<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final Object evictionLock = new Object();
+    private final ConcurrentHashMap<Flight<K>, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public QueryCache(int maximumSize, Duration timeToLive) {
+        this.maximumSize = maximumSize;
+        this.timeToLiveNanos = timeToLive.toNanos();
+    }
+
+    /**
+     * Returns the result cached for the key at this version, or computes it
+     * with the loader. Exceptions thrown by the loader are passed on to every
+     * caller waiting for it and nothing is cached.
+     */
+    public V get(K key, long version, Supplier<V> loader) {
+        if (maximumSize <= 0) {
+            return loader.get();
+        }
+
+        long now = System.nanoTime();
+        Entry<V> entry = entries.get(key);
+        if (entry != null && entry.version == version && now - entry.loadedAt < timeToLiveNanos) {
+            entry.usedAt = now;
+            hits.increment();
+            return entry.value;
+        }
+        misses.increment();
+
+        // Join the computation already running for this key and version, if any
+        Flight<K> flight = new Flight<>(key, version);
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> running = inFlight.putIfAbsent(flight, future);
+        if (running != null) {
+            return join(running);
+        }
+
+        try {
+            loads.increment();
+            V value = loader.get();
+            Entry<V> loaded = new Entry<>(value, version, System.nanoTime());
+            // Never replace a result of newer data
+            entries.merge(key, loaded, (current, added) -> current.version <= version ? added : current);
+            if (entries.size() > maximumSize) {
+                evict();
+            }
+            future.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(flight, future);
+        }
+    }
+
+    /**
+     * Removes the least recently used entries until the cache is a batch
+     * below its maximum size. Only inserts evict, one at a time.
+     */
+    private void evict() {
+        synchronized (evictionLock) {
+            int excess = entries.size() - maximumSize;
+            if (excess <= 0) {
+                return;
+            }
+            // The stamps are read once, as hits keep changing them
+            List<Used<K, V>> used = new ArrayList<>(entries.size());
+            entries.forEach((key, entry) -> used.add(new Used<>(key, entry, entry.usedAt)));
+            used.sort(Comparator.comparingLong(Used::usedAt));
+            int count = Math.min(used.size(), excess + maximumSize / EVICTION_BATCH_DIVISOR);
+            for (int i = 0; i < count; i++) {
+                if (entries.remove(used.get(i).key(), used.get(i).entry())) {
+                    evictions.increment();
+                }
+            }
+        }
+    }
+
+    public CacheStats getStats() {
+        return new CacheStats(hits.sum(), misses.sum(), loads.sum(), evictions.sum(), entries.size());
+    }
+
+    private static <V> V join(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private static final class Entry<V> {
+        private final V value;
+        private final long version;
+        private final long loadedAt;
+        // Written by hits without a lock; a lost update only makes the entry look a little older
+        private volatile long usedAt;
+
+        private Entry(V value, long version, long loadedAt) {
+            this.value = value;
+            this.version = version;
+            this.loadedAt = loadedAt;
+            this.usedAt = loadedAt;
+        }
+    }
+
+    private record Used<K, V>(K key, Entry<V> entry, long usedAt) {
+    }
+
+    private static final class Flight<K> {
+        private final K key;
+        private final long version;
+
+        private Flight(K key, long version) {
+            this.key = key;
+            this.version = version;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Flight<?> other && version == other.version && key.equals(other.key);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(key, version);
+        }
+    }
+}
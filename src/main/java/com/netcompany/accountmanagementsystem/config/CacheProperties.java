@@ -0,0 +1,26 @@
+package com.netcompany.accountmanagementsystem.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Limits of the query result cache, bound to
+ * {@code account-management.cache.*}.
+ */
+@Data
+@ConfigurationProperties(prefix = "account-management.cache")
+public class CacheProperties {
+
+    /**
+     * Most results kept at once; the least recently used are evicted first.
+     * Caching is disabled when zero.
+     */
+    private int maximumSize = 10000;
+
+    /**
+     * How long a result is kept after it was computed.
+     */
+    private Duration timeToLive = Duration.ofMinutes(10);
+}
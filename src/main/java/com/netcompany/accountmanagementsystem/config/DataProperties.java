@@ -0,0 +1,49 @@
+package com.netcompany.accountmanagementsystem.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Where the service reads its data from, bound to
+ * {@code account-management.data.*}.
+ */
+@Data
+@ConfigurationProperties(prefix = "account-management.data")
+public class DataProperties {
+
+    private String beneficiaries = "classpath:beneficiaries.csv";
+    private String accounts = "classpath:accounts.csv";
+    private String transactions = "classpath:transactions.csv";
+
+    /**
+     * Binary snapshot written after loading the CSV files and used instead of
+     * them on the next start while they are unchanged. Disabled when empty.
+     */
+    private String snapshotPath;
+
+    /**
+     * External directory holding {@code beneficiaries.csv},
+     * {@code accounts.csv} and {@code transactions.csv}. When set it replaces
+     * the three locations above and the snapshot, and changes to the files
+     * are applied without a restart.
+     */
+    private String directory;
+
+    /**
+     * Whether to watch {@link #directory} for changed files.
+     */
+    private boolean watch = true;
+
+    /**
+     * How long the directory must be quiet before changed files are reloaded.
+     */
+    private Duration reloadDelay = Duration.ofSeconds(2);
+
+    /**
+     * Whether to load the data on a background thread, so the application
+     * starts without waiting for it and reports itself ready once loaded.
+     */
+    private boolean background;
+}
@@ -0,0 +1,37 @@
+package com.netcompany.accountmanagementsystem.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * The durable transaction log, bound to {@code account-management.log.*}.
+ */
+@Data
+@ConfigurationProperties(prefix = "account-management.log")
+public class LogProperties {
+
+    /**
+     * Directory of the log segments and checkpoint. The log is seeded from the
+     * transactions CSV file on the first start and is the source of the
+     * transactions from then on. Disabled when empty.
+     */
+    private String directory;
+
+    /**
+     * Rows per segment file of a new log, a power of two.
+     */
+    private int segmentRows = 1 << 21;
+
+    /**
+     * Whether every batch of transactions is forced to disk before it is
+     * acknowledged. Without it, a batch survives a crash of the process but
+     * not of the machine.
+     */
+    private boolean sync = true;
+
+    /**
+     * Transactions added after which a new checkpoint is written in the
+     * background.
+     */
+    private int checkpointInterval = 1_000_000;
+}
@@ -0,0 +1,23 @@
+package com.netcompany.accountmanagementsystem.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.netcompany.accountmanagementsystem.shard.ShardMap;
+import com.netcompany.accountmanagementsystem.shard.ShardRouter;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class ShardConfig {
+
+    @Bean
+    public FilterRegistrationBean<ShardRouter> shardRouter(ShardProperties shardProperties, ObjectMapper objectMapper) {
+        ShardMap shards = new ShardMap(shardProperties);
+        FilterRegistrationBean<ShardRouter> registration =
+                new FilterRegistrationBean<>(new ShardRouter(shards, objectMapper, shardProperties.getTimeout()));
+        registration.addUrlPatterns("/api/*");
+        // Only a router forwards requests; a shard answers them itself
+        registration.setEnabled(shards.isRouter());
+        return registration;
+    }
+}
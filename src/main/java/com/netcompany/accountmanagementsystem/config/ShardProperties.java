@@ -0,0 +1,51 @@
+package com.netcompany.accountmanagementsystem.config;
+
+import com.netcompany.accountmanagementsystem.shard.ShardStrategy;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splitting the beneficiaries over several instances, bound to
+ * {@code account-management.shard.*}. An instance either serves one shard or,
+ * with {@link #nodes} set, routes requests to all of them.
+ */
+@Data
+@ConfigurationProperties(prefix = "account-management.shard")
+public class ShardProperties {
+
+    /**
+     * Number of shards. A single shard holds all the data.
+     */
+    private int count = 1;
+
+    /**
+     * Shard this instance serves, from 0.
+     */
+    private int index;
+
+    /**
+     * How beneficiaries are assigned to shards.
+     */
+    private ShardStrategy strategy = ShardStrategy.HASH;
+
+    /**
+     * With the range strategy, the first beneficiary id of every shard but the
+     * first, ascending.
+     */
+    private List<Long> boundaries = new ArrayList<>();
+
+    /**
+     * Base URLs of all shards in index order. When set, this instance holds
+     * no data and routes the API requests to the shards.
+     */
+    private List<String> nodes = new ArrayList<>();
+
+    /**
+     * How long the router waits for a shard to answer.
+     */
+    private Duration timeout = Duration.ofSeconds(30);
+}
@@ -0,0 +1,22 @@
+package com.netcompany.accountmanagementsystem.config;
+
+import com.netcompany.accountmanagementsystem.controller.WarmUpInterceptor;
+import com.netcompany.accountmanagementsystem.service.AccountManagementService;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    private final AccountManagementService accountService;
+
+    public WebConfig(AccountManagementService accountService) {
+        this.accountService = accountService;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new WarmUpInterceptor(accountService)).addPathPatterns("/api/**");
+    }
+}
@@ -1,23 +1,56 @@
 package com.netcompany.accountmanagementsystem.controller;
 
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.netcompany.accountmanagementsystem.cache.CacheStats;
 import com.netcompany.accountmanagementsystem.model.Account;
+import com.netcompany.accountmanagementsystem.model.AccountBalance;
 import com.netcompany.accountmanagementsystem.model.Beneficiary;
+import com.netcompany.accountmanagementsystem.model.BeneficiaryBalance;
+import com.netcompany.accountmanagementsystem.model.BeneficiarySummary;
+import com.netcompany.accountmanagementsystem.model.LargestWithdrawalResult;
+import com.netcompany.accountmanagementsystem.model.StatementEntry;
+import com.netcompany.accountmanagementsystem.model.SummarySection;
+import com.netcompany.accountmanagementsystem.model.TotalBalanceResult;
 import com.netcompany.accountmanagementsystem.model.Transaction;
+import com.netcompany.accountmanagementsystem.model.TransactionFilter;
+import com.netcompany.accountmanagementsystem.model.TransactionPage;
+import com.netcompany.accountmanagementsystem.model.TransactionSearch;
+import com.netcompany.accountmanagementsystem.model.TransactionSearchResult;
+import com.netcompany.accountmanagementsystem.model.TransactionSort;
+import com.netcompany.accountmanagementsystem.model.VolumeEntry;
+import com.netcompany.accountmanagementsystem.model.VolumeGranularity;
 import com.netcompany.accountmanagementsystem.service.AccountManagementService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 @RestController
 @RequestMapping("/api")
 public class AccountManagementController {
 
+    private static final String NDJSON = "application/x-ndjson";
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int MAX_BATCH_SIZE = 10000;
+    private static final int DEFAULT_TOP_SIZE = 10;
+    private static final ObjectWriter NDJSON_WRITER = Jackson2ObjectMapperBuilder.json().build().writerFor(Transaction.class);
+
     private final AccountManagementService accountService;
     private static final Logger logger = LoggerFactory.getLogger(AccountManagementController.class);
 
@@ -54,7 +87,31 @@ public class AccountManagementController {
     }
 
     @GetMapping("/beneficiary/{beneficiaryId}/transactions")
-    public ResponseEntity<?> getTransactions(@PathVariable Long beneficiaryId) {
+    public ResponseEntity<?> getTransactions(
+            @PathVariable Long beneficiaryId,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) String type,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            WebRequest request) {
+        if (request.checkNotModified(eTag(beneficiaryId))) {
+            return null;
+        }
+
+        // Paging or filtering was requested, return one page
+        if (limit != null || cursor != null || type != null || from != null || to != null) {
+            int pageSize = limit != null ? limit : DEFAULT_PAGE_SIZE;
+            if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(
+                        Map.of("error", "The limit must be between 1 and " + MAX_PAGE_SIZE)
+                );
+            }
+            TransactionPage page = accountService.getTransactionsPage(beneficiaryId,
+                    new TransactionFilter(type, from, to), cursor, pageSize);
+            return ResponseEntity.ok(page);
+        }
+
         List<Transaction> transactions = accountService.getTransactionsForBeneficiary(beneficiaryId);
         if (transactions.isEmpty()) {
             logger.warn("No transactions found for Beneficiary with ID {}", beneficiaryId);
@@ -65,8 +122,37 @@ public class AccountManagementController {
         return ResponseEntity.ok(transactions);
     }
 
+    @GetMapping(value = "/beneficiary/{beneficiaryId}/transactions", produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> streamTransactions(
+            @PathVariable Long beneficiaryId,
+            @RequestParam(required = false) String type,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        // Validated before the stream starts, so errors still get a status and a JSON body
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new IllegalArgumentException("The from date must not be after the to date");
+        }
+        Stream<Transaction> transactions = accountService.streamTransactions(beneficiaryId,
+                new TransactionFilter(type, from, to));
+
+        // Write each transaction as one JSON line as soon as it is produced
+        StreamingResponseBody body = outputStream -> {
+            try (transactions) {
+                Iterator<Transaction> iterator = transactions.iterator();
+                while (iterator.hasNext()) {
+                    outputStream.write(NDJSON_WRITER.writeValueAsBytes(iterator.next()));
+                    outputStream.write('\n');
+                }
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(NDJSON)).body(body);
+    }
+
     @GetMapping("/beneficiary/{beneficiaryId}/total-balance")
-    public ResponseEntity<?> getTotalBalanceForBeneficiary(@PathVariable Long beneficiaryId) {
+    public ResponseEntity<?> getTotalBalanceForBeneficiary(@PathVariable Long beneficiaryId, WebRequest request) {
+        if (request.checkNotModified(eTag(beneficiaryId))) {
+            return null;
+        }
         List<Account> accounts = accountService.getAccountsForBeneficiary(beneficiaryId);
 
         // If no accounts found, return 404
@@ -83,11 +169,46 @@ public class AccountManagementController {
         return ResponseEntity.ok(Map.of("beneficiaryId", String.valueOf(beneficiaryId), "totalBalance", totalBalance));
     }
 
+    @GetMapping("/beneficiary/{beneficiaryId}/account-balances")
+    public ResponseEntity<?> getAccountBalancesForBeneficiary(@PathVariable Long beneficiaryId, WebRequest request) {
+        if (request.checkNotModified(eTag(beneficiaryId))) {
+            return null;
+        }
+        Map<Long, BigDecimal> accountBalances = accountService.getAccountBalancesForBeneficiary(beneficiaryId);
+
+        // If no accounts found, return 404
+        if (accountBalances.isEmpty()) {
+            logger.warn("No accounts found for Beneficiary with ID {}", beneficiaryId);
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(
+                    Map.of("error", "No accounts found for Beneficiary with ID " + beneficiaryId)
+            );
+        }
+
+        return ResponseEntity.ok(Map.of("beneficiaryId", String.valueOf(beneficiaryId), "accountBalances", accountBalances));
+    }
+
 
 
     @GetMapping("/beneficiary/{beneficiaryId}/largest-withdrawal")
-    public ResponseEntity<?> getLargestWithdrawal(@PathVariable Long beneficiaryId) {
-        Optional<Transaction> largestWithdrawal = accountService.getLargestWithdrawalLastMonth(beneficiaryId);
+    public ResponseEntity<?> getLargestWithdrawal(
+            @PathVariable Long beneficiaryId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            WebRequest request) {
+        // Without a start date, the window starts one month ago
+        LocalDate windowStart = from != null ? from : defaultWindowStart();
+        if (to != null && windowStart.isAfter(to)) {
+            return invalidWindow();
+        }
+
+        // The default window moves every day, so the tag includes its start
+        if (request.checkNotModified(eTag(beneficiaryId) + "-" + windowStart)) {
+            return null;
+        }
+
+        Optional<Transaction> largestWithdrawal = from == null && to == null
+                ? accountService.getLargestWithdrawalLastMonth(beneficiaryId)
+                : accountService.getLargestWithdrawal(beneficiaryId, windowStart, to);
 
         // If transaction is found, return the Transaction with 200 OK
         if (largestWithdrawal.isPresent()) {
@@ -100,4 +221,210 @@ public class AccountManagementController {
                 Map.of("error", "No withdrawals found for Beneficiary with ID " + beneficiaryId)
         );
     }
+
+    @GetMapping("/beneficiary/{beneficiaryId}/summary")
+    public ResponseEntity<?> getBeneficiarySummary(
+            @PathVariable Long beneficiaryId,
+            @RequestParam(required = false) List<String> sections,
+            WebRequest request) {
+        Set<SummarySection> selected = SummarySection.parse(sections);
+
+        // The largest withdrawal covers the last month, which moves every day
+        if (request.checkNotModified(eTag(beneficiaryId) + "-" + LocalDate.now())) {
+            return null;
+        }
+
+        Optional<BeneficiarySummary> summary = accountService.getBeneficiarySummary(beneficiaryId, selected);
+        if (summary.isEmpty()) {
+            logger.warn("Beneficiary with ID {} not found", beneficiaryId);
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(
+                    Map.of("error", "Beneficiary with ID " + beneficiaryId + " not found")
+            );
+        }
+        return ResponseEntity.ok(summary.get());
+    }
+
+    @GetMapping("/account/{accountId}/balance")
+    public ResponseEntity<?> getAccountBalanceAsOf(
+            @PathVariable Long accountId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        LocalDate asOf = date != null ? date : LocalDate.now();
+        Optional<BigDecimal> balance = accountService.getAccountBalanceAsOf(accountId, asOf);
+        if (balance.isEmpty()) {
+            return accountNotFound(accountId);
+        }
+        return ResponseEntity.ok(Map.of("accountId", String.valueOf(accountId), "date", asOf.toString(),
+                "balance", balance.get()));
+    }
+
+    @GetMapping("/account/{accountId}/statements")
+    public ResponseEntity<?> getStatements(
+            @PathVariable Long accountId,
+            @RequestParam(defaultValue = "month") String granularity,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        if (from != null && to != null && from.isAfter(to)) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(
+                    Map.of("error", "The from date must not be after the to date")
+            );
+        }
+        Optional<List<StatementEntry>> statements =
+                accountService.getStatements(accountId, VolumeGranularity.of(granularity), from, to);
+        if (statements.isEmpty()) {
+            return accountNotFound(accountId);
+        }
+        return ResponseEntity.ok(statements.get());
+    }
+
+    private static ResponseEntity<?> accountNotFound(Long accountId) {
+        logger.warn("Account with ID {} not found", accountId);
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(
+                Map.of("error", "Account with ID " + accountId + " not found")
+        );
+    }
+
+    @PostMapping("/beneficiaries/total-balance")
+    public ResponseEntity<?> getTotalBalances(@RequestBody List<Long> beneficiaryIds) {
+        if (beneficiaryIds.size() > MAX_BATCH_SIZE) {
+            return batchTooLarge();
+        }
+        List<TotalBalanceResult> results = accountService.getTotalBalances(beneficiaryIds);
+        return ResponseEntity.ok(results);
+    }
+
+    @PostMapping("/beneficiaries/largest-withdrawal")
+    public ResponseEntity<?> getLargestWithdrawals(
+            @RequestBody List<Long> beneficiaryIds,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        if (beneficiaryIds.size() > MAX_BATCH_SIZE) {
+            return batchTooLarge();
+        }
+        // Without a start date, the window starts one month ago
+        LocalDate windowStart = from != null ? from : defaultWindowStart();
+        if (to != null && windowStart.isAfter(to)) {
+            return invalidWindow();
+        }
+
+        List<LargestWithdrawalResult> results = accountService.getLargestWithdrawals(beneficiaryIds, windowStart, to);
+        return ResponseEntity.ok(results);
+    }
+
+    private static LocalDate defaultWindowStart() {
+        return LocalDate.now().minusMonths(1).plusDays(1);
+    }
+
+    private static ResponseEntity<?> invalidWindow() {
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(
+                Map.of("error", "The from date must not be after the to date")
+        );
+    }
+
+    @PostMapping("/accounts")
+    public ResponseEntity<List<Account>> getAccounts(@RequestBody List<Long> accountIds) {
+        return ResponseEntity.ok(accountService.getAccounts(accountIds));
+    }
+
+    private static ResponseEntity<?> batchTooLarge() {
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(
+                Map.of("error", "A batch must not contain more than " + MAX_BATCH_SIZE + " beneficiary ids")
+        );
+    }
+
+    @PostMapping("/transactions")
+    public ResponseEntity<?> addTransaction(@RequestBody Transaction transaction) {
+        List<Transaction> stored = accountService.addTransactions(List.of(transaction));
+        return ResponseEntity.status(HttpStatus.CREATED).body(stored.get(0));
+    }
+
+    @PostMapping("/transactions/bulk")
+    public ResponseEntity<?> addTransactions(@RequestBody List<Transaction> transactions) {
+        List<Transaction> stored = accountService.addTransactions(transactions);
+        return ResponseEntity.status(HttpStatus.CREATED).body(stored);
+    }
+
+    @GetMapping("/transactions/search")
+    public ResponseEntity<?> searchTransactions(
+            @RequestParam(required = false) String type,
+            @RequestParam(required = false) BigDecimal minAmount,
+            @RequestParam(required = false) BigDecimal maxAmount,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) List<Long> accountId,
+            @RequestParam(required = false) String sort,
+            @RequestParam(defaultValue = "asc") String order,
+            @RequestParam(required = false) Integer limit) {
+        int size = limit != null ? limit : DEFAULT_PAGE_SIZE;
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(
+                    Map.of("error", "The limit must be between 1 and " + MAX_PAGE_SIZE)
+            );
+        }
+        if (from != null && to != null && from.isAfter(to)) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(
+                    Map.of("error", "The from date must not be after the to date")
+            );
+        }
+        if (!order.equals("asc") && !order.equals("desc")) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(
+                    Map.of("error", "The order must be asc or desc")
+            );
+        }
+        TransactionSearch search = new TransactionSearch(type, minAmount, maxAmount, from, to, accountId,
+                sort != null ? TransactionSort.of(sort) : null, order.equals("desc"), size);
+        TransactionSearchResult result = accountService.searchTransactions(search);
+        return ResponseEntity.ok(result);
+    }
+
+    @GetMapping("/analytics/top-balances")
+    public ResponseEntity<?> getTopBalances(@RequestParam(required = false) Integer limit) {
+        int size = limit != null ? limit : DEFAULT_TOP_SIZE;
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(
+                    Map.of("error", "The limit must be between 1 and " + MAX_PAGE_SIZE)
+            );
+        }
+        List<BeneficiaryBalance> ranking = accountService.getTopBeneficiariesByBalance(size);
+        return ResponseEntity.ok(ranking);
+    }
+
+    @GetMapping("/analytics/volume")
+    public ResponseEntity<?> getVolume(
+            @RequestParam(defaultValue = "day") String granularity,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        if (from != null && to != null && from.isAfter(to)) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(
+                    Map.of("error", "The from date must not be after the to date")
+            );
+        }
+        List<VolumeEntry> volume = accountService.getVolume(VolumeGranularity.of(granularity), from, to);
+        return ResponseEntity.ok(volume);
+    }
+
+    @GetMapping("/analytics/negative-balances")
+    public ResponseEntity<List<AccountBalance>> getNegativeBalances() {
+        return ResponseEntity.ok(accountService.getNegativeBalanceAccounts());
+    }
+
+    @GetMapping("/cache/stats")
+    public ResponseEntity<CacheStats> getCacheStats() {
+        return ResponseEntity.ok(accountService.getCacheStats());
+    }
+
+    /**
+     * Tag of the beneficiary's current data. A request whose If-None-Match
+     * still matches it gets a 304 before any query runs.
+     */
+    private String eTag(Long beneficiaryId) {
+        return accountService.getETag(beneficiaryId);
+    }
+
+    // The content type is set explicitly, as the error is JSON even for a request that accepts only NDJSON
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<?> handleInvalidRequest(IllegalArgumentException e) {
+        logger.warn("Rejected request: {}", e.getMessage());
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).contentType(MediaType.APPLICATION_JSON)
+                .body(Map.of("error", e.getMessage()));
+    }
 }
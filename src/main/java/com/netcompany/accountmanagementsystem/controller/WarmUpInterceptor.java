@@ -0,0 +1,50 @@
+package com.netcompany.accountmanagementsystem.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.netcompany.accountmanagementsystem.service.AccountManagementService;
+import com.netcompany.accountmanagementsystem.service.WarmUp;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Answers API requests with 503 Service Unavailable until the data is loaded,
+ * rather than from partly loaded data.
+ */
+public class WarmUpInterceptor implements HandlerInterceptor {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final String RETRY_AFTER_SECONDS = "1";
+
+    private final AccountManagementService accountService;
+
+    public WarmUpInterceptor(AccountManagementService accountService) {
+        this.accountService = accountService;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+            throws IOException {
+        WarmUp warmUp = accountService.getWarmUp();
+        if (warmUp.isReady()) {
+            return true;
+        }
+        String error = warmUp.getPhase() == WarmUp.Phase.FAILED
+                ? "The data could not be loaded"
+                : "The data is still loading, " + warmUp.getIndexedRows() + " of " + warmUp.getTotalRows()
+                        + " transactions indexed";
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        if (warmUp.getPhase() != WarmUp.Phase.FAILED) {
+            response.setHeader(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS);
+        }
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        MAPPER.writeValue(response.getOutputStream(), Map.of("error", error));
+        return false;
+    }
+}
@@ -0,0 +1,57 @@
+package com.netcompany.accountmanagementsystem.health;
+
+import com.netcompany.accountmanagementsystem.service.AccountManagementService;
+import com.netcompany.accountmanagementsystem.service.WarmUp;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.LivenessState;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps the application's readiness state refusing traffic until the data is
+ * loaded, and accepts traffic once it is. A failed load breaks liveness, so
+ * the platform restarts the instance.
+ */
+@Component
+@Lazy(false)
+public class WarmUpAvailability {
+
+    private static final Logger logger = LoggerFactory.getLogger(WarmUpAvailability.class);
+
+    private final WarmUp warmUp;
+    private final ApplicationEventPublisher publisher;
+
+    public WarmUpAvailability(AccountManagementService accountService, ApplicationEventPublisher publisher) {
+        this.warmUp = accountService.getWarmUp();
+        this.publisher = publisher;
+    }
+
+    // Synchronized with onWarmUpCompleted, so a refusal never overtakes the acceptance that follows the load
+    @EventListener
+    public synchronized void onReadinessChanged(AvailabilityChangeEvent<ReadinessState> event) {
+        if (event.getState() == ReadinessState.ACCEPTING_TRAFFIC && !warmUp.isReady()) {
+            AvailabilityChangeEvent.publish(publisher, this, ReadinessState.REFUSING_TRAFFIC);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        warmUp.getCompletion().whenComplete((ignored, failure) -> onWarmUpCompleted(failure));
+    }
+
+    private synchronized void onWarmUpCompleted(Throwable failure) {
+        if (failure == null) {
+            logger.info("Data loaded in {} ms, accepting traffic", warmUp.getElapsedMillis());
+            AvailabilityChangeEvent.publish(publisher, this, ReadinessState.ACCEPTING_TRAFFIC);
+        } else {
+            AvailabilityChangeEvent.publish(publisher, this, LivenessState.BROKEN);
+            AvailabilityChangeEvent.publish(publisher, this, ReadinessState.REFUSING_TRAFFIC);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.netcompany.accountmanagementsystem.health;
+
+import com.netcompany.accountmanagementsystem.service.AccountManagementService;
+import com.netcompany.accountmanagementsystem.service.WarmUp;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reports the progress of loading the data: out of service while loading, up
+ * once ready and down if loading failed.
+ */
+@Component
+public class WarmUpHealthIndicator implements HealthIndicator {
+
+    private final AccountManagementService accountService;
+
+    public WarmUpHealthIndicator(AccountManagementService accountService) {
+        this.accountService = accountService;
+    }
+
+    @Override
+    public Health health() {
+        WarmUp warmUp = accountService.getWarmUp();
+        Health.Builder builder = switch (warmUp.getPhase()) {
+            case READY -> Health.up();
+            case FAILED -> Health.down(warmUp.getFailure());
+            default -> Health.outOfService();
+        };
+        return builder.withDetail("phase", warmUp.getPhase())
+                .withDetail("indexedRows", warmUp.getIndexedRows())
+                .withDetail("totalRows", warmUp.getTotalRows())
+                .withDetail("elapsedMillis", warmUp.getElapsedMillis())
+                .build();
+    }
+}
@@ -0,0 +1,183 @@
+package com.netcompany.accountmanagementsystem.index;
+
+import com.netcompany.accountmanagementsystem.store.TransactionStore;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * Immutable daily and monthly deposit and withdrawal totals of a range of one
+ * account's postings. Totals are kept as prefix sums over the periods in date
+ * order, so the balance as of a date or the totals of any run of periods take
+ * a binary search and a subtraction.
+ */
+public final class AccountRollup {
+
+    private final int count;
+    private final Buckets days;
+    private final Buckets months;
+
+    private AccountRollup(int count, Buckets days, Buckets months) {
+        this.count = count;
+        this.days = days;
+        this.months = months;
+    }
+
+    /**
+     * Builds the rollup of the postings {@code [from, to)} of an account.
+     */
+    public static AccountRollup build(RowPostings postings, int from, int to, TransactionStore transactions) {
+        int count = to - from;
+        long[] keys = new long[count];
+        for (int i = 0; i < count; i++) {
+            int row = postings.get(from + i);
+            keys[i] = (long) transactions.getEpochDay(row) << 32 | row;
+        }
+        Arrays.sort(keys);
+
+        Buckets days = new Buckets(count);
+        Buckets months = new Buckets(count);
+        for (long key : keys) {
+            int row = (int) key;
+            int epochDay = (int) (key >> 32);
+            long amount = transactions.getAmountCents(row);
+            boolean withdrawal = transactions.getType(row) == TransactionStore.WITHDRAWAL;
+            days.add(epochDay, amount, withdrawal);
+            months.add(monthOf(epochDay), amount, withdrawal);
+        }
+        return new AccountRollup(count, days.trim(), months.trim());
+    }
+
+    /**
+     * Key of the month of an epoch day: the year times 12 plus the zero-based
+     * month.
+     */
+    public static int monthOf(int epochDay) {
+        LocalDate date = LocalDate.ofEpochDay(epochDay);
+        return date.getYear() * 12 + date.getMonthValue() - 1;
+    }
+
+    /**
+     * Number of postings the rollup covers.
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Totals per day, keyed by epoch day.
+     */
+    public Buckets getDays() {
+        return days;
+    }
+
+    /**
+     * Totals per month, keyed by {@link #monthOf}.
+     */
+    public Buckets getMonths() {
+        return months;
+    }
+
+    /**
+     * Net amount of the postings dated on or before the epoch day.
+     */
+    public long balanceThrough(int epochDay) {
+        return days.netBefore(epochDay == Integer.MAX_VALUE ? days.size() : days.lowerBound(epochDay + 1));
+    }
+
+    /**
+     * Periods with at least one posting, in ascending key order, with prefix
+     * sums of their totals.
+     */
+    public static final class Buckets {
+        private int size;
+        private int[] keys;
+        private long[] depositCents;
+        private long[] withdrawalCents;
+        private long[] depositCounts;
+        private long[] withdrawalCounts;
+
+        private Buckets(int capacity) {
+            keys = new int[capacity];
+            depositCents = new long[capacity + 1];
+            withdrawalCents = new long[capacity + 1];
+            depositCounts = new long[capacity + 1];
+            withdrawalCounts = new long[capacity + 1];
+        }
+
+        private void add(int key, long amount, boolean withdrawal) {
+            if (size == 0 || keys[size - 1] != key) {
+                keys[size] = key;
+                size++;
+                depositCents[size] = depositCents[size - 1];
+                withdrawalCents[size] = withdrawalCents[size - 1];
+                depositCounts[size] = depositCounts[size - 1];
+                withdrawalCounts[size] = withdrawalCounts[size - 1];
+            }
+            if (withdrawal) {
+                withdrawalCents[size] += amount;
+                withdrawalCounts[size]++;
+            } else {
+                depositCents[size] += amount;
+                depositCounts[size]++;
+            }
+        }
+
+        private Buckets trim() {
+            keys = Arrays.copyOf(keys, size);
+            depositCents = Arrays.copyOf(depositCents, size + 1);
+            withdrawalCents = Arrays.copyOf(withdrawalCents, size + 1);
+            depositCounts = Arrays.copyOf(depositCounts, size + 1);
+            withdrawalCounts = Arrays.copyOf(withdrawalCounts, size + 1);
+            return this;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public int getKey(int index) {
+            return keys[index];
+        }
+
+        public long getDepositCents(int index) {
+            return depositCents[index + 1] - depositCents[index];
+        }
+
+        public long getWithdrawalCents(int index) {
+            return withdrawalCents[index + 1] - withdrawalCents[index];
+        }
+
+        public long getDepositCount(int index) {
+            return depositCounts[index + 1] - depositCounts[index];
+        }
+
+        public long getWithdrawalCount(int index) {
+            return withdrawalCounts[index + 1] - withdrawalCounts[index];
+        }
+
+        /**
+         * Net amount of the periods before {@code index}.
+         */
+        public long netBefore(int index) {
+            return depositCents[index] - withdrawalCents[index];
+        }
+
+        /**
+         * Index of the first period whose key is at least {@code key}.
+         */
+        public int lowerBound(int key) {
+            int lo = 0;
+            int hi = size;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (keys[mid] < key) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.netcompany.accountmanagementsystem.index;
+
+import com.netcompany.accountmanagementsystem.store.TransactionStore;
+
+import java.util.Arrays;
+
+/**
+ * Immutable date-ordered view of the withdrawals among a range of one
+ * account's postings. A segment tree over the amounts answers
+ * "largest withdrawal between two dates" in logarithmic time.
+ *
+ * <p>Ties on the amount go to the lower row, i.e. the transaction loaded
+ * first.
+ */
+public final class AccountTimeline {
+
+    private final int count;
+    private final int[] epochDays;
+    private final int[] rows;
+    private final long[] amounts;
+    private final int[] tree;
+
+    private AccountTimeline(int count, int[] epochDays, int[] rows, long[] amounts) {
+        this.count = count;
+        this.epochDays = epochDays;
+        this.rows = rows;
+        this.amounts = amounts;
+
+        int size = rows.length;
+        tree = new int[2 * size];
+        for (int i = 0; i < size; i++) {
+            tree[size + i] = i;
+        }
+        for (int node = size - 1; node > 0; node--) {
+            tree[node] = better(tree[2 * node], tree[2 * node + 1]);
+        }
+    }
+
+    /**
+     * Builds the timeline of the postings {@code [from, to)} of an account.
+     */
+    public static AccountTimeline build(RowPostings postings, int from, int to, TransactionStore transactions) {
+        int count = to - from;
+        long[] keys = new long[count];
+        int withdrawals = 0;
+        for (int i = from; i < to; i++) {
+            int row = postings.get(i);
+            if (transactions.getType(row) == TransactionStore.WITHDRAWAL) {
+                // Sort by date, then by row; both fit in 32 bits
+                keys[withdrawals++] = (long) transactions.getEpochDay(row) << 32 | row;
+            }
+        }
+        Arrays.sort(keys, 0, withdrawals);
+
+        int[] epochDays = new int[withdrawals];
+        int[] rows = new int[withdrawals];
+        long[] amounts = new long[withdrawals];
+        for (int i = 0; i < withdrawals; i++) {
+            epochDays[i] = (int) (keys[i] >> 32);
+            rows[i] = (int) keys[i];
+            amounts[i] = transactions.getAmountCents(rows[i]);
+        }
+        return new AccountTimeline(count, epochDays, rows, amounts);
+    }
+
+    /**
+     * Number of the account's postings the timeline covers.
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the row of the largest withdrawal dated within
+     * {@code [fromDay, toDay]}, or -1 if there is none.
+     */
+    public int largestWithdrawal(int fromDay, int toDay) {
+        int lo = lowerBound(fromDay);
+        int hi = toDay == Integer.MAX_VALUE ? rows.length : lowerBound(toDay + 1);
+        if (lo >= hi) {
+            return -1;
+        }
+
+        int best = -1;
+        for (lo += rows.length, hi += rows.length; lo < hi; lo >>= 1, hi >>= 1) {
+            if ((lo & 1) == 1) {
+                best = best < 0 ? tree[lo] : better(best, tree[lo]);
+                lo++;
+            }
+            if ((hi & 1) == 1) {
+                hi--;
+                best = best < 0 ? tree[hi] : better(best, tree[hi]);
+            }
+        }
+        return rows[best];
+    }
+
+    private int lowerBound(int epochDay) {
+        int lo = 0;
+        int hi = epochDays.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (epochDays[mid] < epochDay) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private int better(int a, int b) {
+        if (amounts[a] != amounts[b]) {
+            return amounts[a] > amounts[b] ? a : b;
+        }
+        return rows[a] < rows[b] ? a : b;
+    }
+}
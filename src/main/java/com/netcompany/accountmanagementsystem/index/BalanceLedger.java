@@ -0,0 +1,105 @@
+package com.netcompany.accountmanagementsystem.index;
+
+import com.netcompany.accountmanagementsystem.store.TransactionStore;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Running balance per account, updated as each transaction is applied so a
+ * balance query never has to revisit the transactions themselves. Balances
+ * are kept in cents and indexed by the account reference of the
+ * {@link TransactionStore}.
+ *
+ * <p>Each balance records how many of the account's postings it covers. A
+ * reader that saw fewer published rows than the writer has applied corrects
+ * the balance with the few postings in between, so it never sees a
+ * half-applied batch.
+ */
+public class BalanceLedger {
+
+    private volatile AtomicReferenceArray<Entry> entries;
+
+    private static final class Entry {
+        private final long balanceCents;
+        private final int count;
+
+        private Entry(long balanceCents, int count) {
+            this.balanceCents = balanceCents;
+            this.count = count;
+        }
+    }
+
+    public BalanceLedger() {
+        entries = new AtomicReferenceArray<>(64);
+    }
+
+    /**
+     * Creates a ledger over precomputed balances in cents and the number of
+     * postings each covers, both indexed by account reference.
+     */
+    public BalanceLedger(long[] balances, int[] counts) {
+        entries = new AtomicReferenceArray<>(Math.max(balances.length, 64));
+        for (int ref = 0; ref < balances.length; ref++) {
+            entries.set(ref, new Entry(balances[ref], counts[ref]));
+        }
+    }
+
+    /**
+     * Adds the transaction to the balance. It must already be in the
+     * account's postings.
+     */
+    public void apply(int accountRef, byte type, long amountCents) {
+        AtomicReferenceArray<Entry> current = entries;
+        if (accountRef >= current.length()) {
+            AtomicReferenceArray<Entry> grown = new AtomicReferenceArray<>(Math.max(current.length() * 2, accountRef + 1));
+            for (int ref = 0; ref < current.length(); ref++) {
+                grown.set(ref, current.get(ref));
+            }
+            entries = grown;
+            current = grown;
+        }
+        Entry entry = current.get(accountRef);
+        long balance = entry == null ? 0 : entry.balanceCents;
+        int count = entry == null ? 0 : entry.count;
+        if (type == TransactionStore.DEPOSIT) {
+            balance += amountCents;
+        } else if (type == TransactionStore.WITHDRAWAL) {
+            balance -= amountCents;
+        }
+        current.set(accountRef, new Entry(balance, count + 1));
+    }
+
+    /**
+     * Returns the balance in cents with every applied transaction, or zero for
+     * an unknown reference. Only meaningful while no writer is active.
+     */
+    public long getBalanceCents(int accountRef) {
+        Entry entry = entry(accountRef);
+        return entry == null ? 0L : entry.balanceCents;
+    }
+
+    /**
+     * Returns the balance in cents as of the first {@code limit} published
+     * rows of the store.
+     */
+    public long getBalanceCents(int accountRef, RowPostings postings, TransactionStore transactions, int limit) {
+        Entry entry = entry(accountRef);
+        if (entry == null || postings == null) {
+            return 0L;
+        }
+        long balance = entry.balanceCents;
+        int visible = postings.countBelow(limit);
+        for (int i = visible; i < entry.count; i++) {
+            balance -= transactions.getSignedAmountCents(postings.get(i));
+        }
+        for (int i = entry.count; i < visible; i++) {
+            balance += transactions.getSignedAmountCents(postings.get(i));
+        }
+        return balance;
+    }
+
+    private Entry entry(int accountRef) {
+        AtomicReferenceArray<Entry> current = entries;
+        return accountRef >= 0 && accountRef < current.length() ? current.get(accountRef) : null;
+    }
+}
@@ -0,0 +1,147 @@
+package com.netcompany.accountmanagementsystem.index;
+
+import com.netcompany.accountmanagementsystem.model.Account;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Secondary indexes over the loaded data: beneficiaryId to its accounts and
+ * accountId to the positions of its transactions in the transaction list.
+ * Lookups cost time proportional to the size of the answer instead of the
+ * size of the whole data set.
+ *
+ * <p>Accounts are added while loading and fixed once the index is shared;
+ * {@link #withAccounts} derives a new index instead. Transaction rows may be
+ * added by one writer while readers look them up; readers pass the number of
+ * published rows they work with and only see rows below it.
+ */
+public class BeneficiaryIndex {
+
+    private final Map<Long, List<Account>> accountsByBeneficiary;
+    private final Map<Long, RowPostings> rowsByAccount;
+
+    public BeneficiaryIndex() {
+        this(new HashMap<>(), new ConcurrentHashMap<>());
+    }
+
+    private BeneficiaryIndex(Map<Long, List<Account>> accountsByBeneficiary, Map<Long, RowPostings> rowsByAccount) {
+        this.accountsByBeneficiary = accountsByBeneficiary;
+        this.rowsByAccount = rowsByAccount;
+    }
+
+    /**
+     * Returns an index where the given beneficiaries own the given accounts,
+     * or none for an empty list. It shares the transaction rows and all other
+     * beneficiaries' accounts with this index, which is left unchanged.
+     */
+    public BeneficiaryIndex withAccounts(Map<Long, List<Account>> accountsByBeneficiary) {
+        Map<Long, List<Account>> accounts = new HashMap<>(this.accountsByBeneficiary);
+        accountsByBeneficiary.forEach((beneficiaryId, owned) -> {
+            if (owned.isEmpty()) {
+                accounts.remove(beneficiaryId);
+            } else {
+                accounts.put(beneficiaryId, new ArrayList<>(owned));
+            }
+        });
+        return new BeneficiaryIndex(accounts, rowsByAccount);
+    }
+
+    /**
+     * Returns an index with the same accounts and no transaction rows, for
+     * loading the transactions again.
+     */
+    public BeneficiaryIndex withoutRows() {
+        return new BeneficiaryIndex(accountsByBeneficiary, new ConcurrentHashMap<>());
+    }
+
+    public void addAccount(Account account) {
+        accountsByBeneficiary
+                .computeIfAbsent(account.getBeneficiaryId(), id -> new ArrayList<>())
+                .add(account);
+    }
+
+    public void removeAccount(Account account) {
+        List<Account> owned = accountsByBeneficiary.get(account.getBeneficiaryId());
+        if (owned != null) {
+            owned.removeIf(candidate -> candidate.getAccountId().equals(account.getAccountId()));
+            if (owned.isEmpty()) {
+                accountsByBeneficiary.remove(account.getBeneficiaryId());
+            }
+        }
+    }
+
+    /**
+     * Registers the transaction stored at {@code row}. Rows must be added in
+     * ascending order, by one writer at a time.
+     */
+    public void addTransaction(Long accountId, int row) {
+        rowsByAccount.computeIfAbsent(accountId, id -> new RowPostings()).add(row);
+    }
+
+    /**
+     * Sets the rows of an account in one go, for example from precomputed
+     * postings.
+     */
+    public void setRows(Long accountId, RowPostings rows) {
+        rowsByAccount.put(accountId, rows);
+    }
+
+    public List<Account> getAccounts(Long beneficiaryId) {
+        return accountsByBeneficiary.getOrDefault(beneficiaryId, Collections.emptyList());
+    }
+
+    public RowPostings getRows(Long accountId) {
+        return rowsByAccount.get(accountId);
+    }
+
+    /**
+     * Returns the rows below {@code limit} of all transactions of the
+     * beneficiary's accounts, sorted ascending so they come back in load order.
+     */
+    public int[] getRowsForBeneficiary(Long beneficiaryId, int limit) {
+        List<Account> accounts = getAccounts(beneficiaryId);
+        int[] counts = new int[accounts.size()];
+        int total = 0;
+        for (int i = 0; i < accounts.size(); i++) {
+            RowPostings postings = rowsByAccount.get(accounts.get(i).getAccountId());
+            if (postings != null) {
+                counts[i] = postings.countBelow(limit);
+                total += counts[i];
+            }
+        }
+
+        int[] rows = new int[total];
+        int offset = 0;
+        for (int i = 0; i < accounts.size(); i++) {
+            if (counts[i] > 0) {
+                rowsByAccount.get(accounts.get(i).getAccountId()).copyTo(counts[i], rows, offset);
+                offset += counts[i];
+            }
+        }
+        if (accounts.size() > 1) {
+            Arrays.sort(rows);
+        }
+        return rows;
+    }
+
+    /**
+     * Returns a merger over the rows of the beneficiary's accounts that are
+     * greater than {@code afterRow} and below {@code limit}.
+     */
+    public RowMerger mergeRowsForBeneficiary(Long beneficiaryId, int afterRow, int limit) {
+        List<RowPostings> postings = new ArrayList<>();
+        for (Account account : getAccounts(beneficiaryId)) {
+            RowPostings rows = rowsByAccount.get(account.getAccountId());
+            if (rows != null) {
+                postings.add(rows);
+            }
+        }
+        return new RowMerger(postings, afterRow, limit);
+    }
+}
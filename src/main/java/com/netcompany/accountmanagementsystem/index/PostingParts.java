@@ -0,0 +1,160 @@
+package com.netcompany.accountmanagementsystem.index;
+
+import com.netcompany.accountmanagementsystem.store.TransactionStore;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Per-account structures, each built over a range of the account's postings.
+ * An account's first part is built on first use. From then on the writer adds
+ * a part for the postings of each published batch and merges the newest
+ * parts while the last is at least half as long as the one before, so an
+ * account has a logarithmic number of parts and readers only combine them.
+ *
+ * @param <T> the structure built over a range of postings
+ */
+public class PostingParts<T> {
+
+    /**
+     * Builds the structure of the postings {@code [from, to)} of an account.
+     */
+    @FunctionalInterface
+    public interface Builder<T> {
+        T build(RowPostings postings, int from, int to, TransactionStore transactions);
+    }
+
+    private final Builder<T> builder;
+    private final Map<Long, Parts<T>> parts = new ConcurrentHashMap<>();
+    // Accounts with parts and new postings since the last publish; only used by the writer
+    private final Set<Long> changed = new HashSet<>();
+
+    public PostingParts(Builder<T> builder) {
+        this.builder = builder;
+    }
+
+    /**
+     * Returns the account's parts, building the first one over its
+     * {@code visible} postings if it has none yet. The parts may cover fewer
+     * postings than are visible, or more if the reader's view is older than
+     * the last batch; the reader covers the difference itself.
+     */
+    public Parts<T> get(Long accountId, RowPostings postings, TransactionStore transactions, int visible) {
+        Parts<T> current = parts.get(accountId);
+        if (current != null || visible == 0) {
+            return current == null ? Parts.empty() : current;
+        }
+        Parts<T> built = new Parts<>(new int[]{0, visible}, List.of(builder.build(postings, 0, visible, transactions)));
+        return parts.merge(accountId, built, (existing, added) -> existing.getEnd() >= added.getEnd() ? existing : added);
+    }
+
+    /**
+     * Notes a posting appended by the writer to the account.
+     */
+    public void append(Long accountId) {
+        if (parts.containsKey(accountId)) {
+            changed.add(accountId);
+        }
+    }
+
+    /**
+     * Adds the published postings of the accounts appended to since the last
+     * call to their parts. Called by the writer after publishing the rows.
+     */
+    public void publish(Function<Long, RowPostings> postingsOf, TransactionStore transactions) {
+        int limit = transactions.size();
+        for (Long accountId : changed) {
+            RowPostings postings = postingsOf.apply(accountId);
+            parts.computeIfPresent(accountId,
+                    (id, current) -> current.extend(postings, postings.countBelow(limit), transactions, builder));
+        }
+        changed.clear();
+    }
+
+    /**
+     * Number of accounts with parts.
+     */
+    public int size() {
+        return parts.size();
+    }
+
+    /**
+     * Structures over consecutive ranges of an account's postings, oldest
+     * first. Never changed once built.
+     */
+    public static final class Parts<T> {
+        private static final Parts<?> EMPTY = new Parts<>(new int[]{0}, List.of());
+
+        // Part i covers the postings [bounds[i], bounds[i + 1])
+        private final int[] bounds;
+        private final List<T> parts;
+
+        private Parts(int[] bounds, List<T> parts) {
+            this.bounds = bounds;
+            this.parts = parts;
+        }
+
+        @SuppressWarnings("unchecked")
+        static <T> Parts<T> empty() {
+            return (Parts<T>) EMPTY;
+        }
+
+        private Parts<T> extend(RowPostings postings, int end, TransactionStore transactions, Builder<T> builder) {
+            if (end <= getEnd()) {
+                return this;
+            }
+            int[] newBounds = Arrays.copyOf(bounds, bounds.length + 1);
+            newBounds[bounds.length] = end;
+            List<T> newParts = new ArrayList<>(parts);
+            newParts.add(builder.build(postings, getEnd(), end, transactions));
+
+            int count = newParts.size();
+            while (count >= 2 && length(newBounds, count - 2) <= 2 * length(newBounds, count - 1)) {
+                newParts.remove(count - 1);
+                newParts.set(count - 2, builder.build(postings, newBounds[count - 2], newBounds[count], transactions));
+                newBounds[count - 1] = newBounds[count];
+                count--;
+            }
+            return new Parts<>(Arrays.copyOf(newBounds, count + 1), List.copyOf(newParts));
+        }
+
+        private static int length(int[] bounds, int part) {
+            return bounds[part + 1] - bounds[part];
+        }
+
+        public int size() {
+            return parts.size();
+        }
+
+        public T get(int part) {
+            return parts.get(part);
+        }
+
+        /**
+         * Position of the first posting the part covers.
+         */
+        public int getStart(int part) {
+            return bounds[part];
+        }
+
+        /**
+         * Position after the last posting the part covers.
+         */
+        public int getEnd(int part) {
+            return bounds[part + 1];
+        }
+
+        /**
+         * Number of the account's postings the parts cover.
+         */
+        public int getEnd() {
+            return bounds[bounds.length - 1];
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.netcompany.accountmanagementsystem.index;
+
+import com.netcompany.accountmanagementsystem.store.TransactionStore;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Per-account {@link AccountRollup}s, kept as {@link PostingParts} like the
+ * {@link TimelineIndex}: built on first use and then extended by the writer
+ * with each published batch, so a query only combines an account's few
+ * rollups.
+ */
+public class RollupIndex {
+
+    private final PostingParts<AccountRollup> rollups = new PostingParts<>(AccountRollup::build);
+
+    /**
+     * Returns rollups that together cover exactly the account's postings among
+     * the first {@code limit} published rows, oldest first. Empty if the
+     * account has no such postings.
+     */
+    public List<AccountRollup> get(Long accountId, RowPostings postings, TransactionStore transactions, int limit) {
+        int visible = postings == null ? 0 : postings.countBelow(limit);
+        if (visible == 0) {
+            return List.of();
+        }
+        PostingParts.Parts<AccountRollup> parts = rollups.get(accountId, postings, transactions, visible);
+
+        List<AccountRollup> covering = new ArrayList<>(parts.size() + 1);
+        int covered = 0;
+        for (int i = 0; i < parts.size() && parts.getEnd(i) <= visible; i++) {
+            covering.add(parts.get(i));
+            covered = parts.getEnd(i);
+        }
+        if (covered < visible) {
+            // Postings the usable rollups miss, only left when the reader's view is not the latest
+            covering.add(AccountRollup.build(postings, covered, visible, transactions));
+        }
+        return covering;
+    }
+
+    /**
+     * Notes a posting appended by the writer to the account.
+     */
+    public void append(Long accountId) {
+        rollups.append(accountId);
+    }
+
+    /**
+     * Extends the rollups of the accounts appended to with their published
+     * postings. Called by the writer after publishing the rows.
+     */
+    public void publish(Function<Long, RowPostings> postingsOf, TransactionStore transactions) {
+        rollups.publish(postingsOf, transactions);
+    }
+
+    /**
+     * Number of accounts with a built rollup.
+     */
+    public int size() {
+        return rollups.size();
+    }
+}
@@ -0,0 +1,81 @@
+package com.netcompany.accountmanagementsystem.index;
+
+import java.util.List;
+
+/**
+ * Walks the rows of several accounts in ascending order, i.e. load order,
+ * with a k-way merge of their postings. Memory use depends only on the number
+ * of accounts, not on the number of rows.
+ */
+public class RowMerger {
+
+    private final RowPostings[] postings;
+    private final int[] positions;
+    private final int[] ends;
+    private final int[] heap;
+    private int heapSize;
+
+    /**
+     * @param afterRow only rows greater than this are returned; -1 for all
+     * @param limit    only rows below this are returned
+     */
+    public RowMerger(List<RowPostings> accountPostings, int afterRow, int limit) {
+        int accounts = accountPostings.size();
+        postings = accountPostings.toArray(new RowPostings[0]);
+        positions = new int[accounts];
+        ends = new int[accounts];
+        heap = new int[accounts];
+
+        for (int i = 0; i < accounts; i++) {
+            positions[i] = postings[i].countBelow(afterRow + 1);
+            ends[i] = postings[i].countBelow(limit);
+            if (positions[i] < ends[i]) {
+                heap[heapSize++] = i;
+            }
+        }
+        for (int i = heapSize / 2 - 1; i >= 0; i--) {
+            siftDown(i);
+        }
+    }
+
+    /**
+     * Returns the next row, or -1 once all rows have been returned.
+     */
+    public int next() {
+        if (heapSize == 0) {
+            return -1;
+        }
+        int account = heap[0];
+        int row = postings[account].get(positions[account]++);
+        if (positions[account] == ends[account]) {
+            heap[0] = heap[--heapSize];
+        }
+        siftDown(0);
+        return row;
+    }
+
+    private int head(int account) {
+        return postings[account].get(positions[account]);
+    }
+
+    private void siftDown(int index) {
+        while (true) {
+            int smallest = index;
+            int left = 2 * index + 1;
+            int right = left + 1;
+            if (left < heapSize && head(heap[left]) < head(heap[smallest])) {
+                smallest = left;
+            }
+            if (right < heapSize && head(heap[right]) < head(heap[smallest])) {
+                smallest = right;
+            }
+            if (smallest == index) {
+                return;
+            }
+            int swap = heap[index];
+            heap[index] = heap[smallest];
+            heap[smallest] = swap;
+            index = smallest;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.netcompany.accountmanagementsystem.index;
+
+import java.util.Arrays;
+
+/**
+ * Growable list of transaction row positions belonging to one account.
+ * Rows are appended in load order, so the list is always sorted ascending.
+ *
+ * <p>One writer may add rows while readers iterate without locking: a reader
+ * reads {@link #size()} before the rows, and a grown array always holds a copy
+ * of every row added before it replaced the old one.
+ */
+public class RowPostings {
+
+    private static final int INITIAL_CAPACITY = 8;
+
+    private volatile int[] rows;
+    private volatile int size;
+
+    public RowPostings() {
+        rows = new int[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Creates postings over {@code rows[from]} up to {@code rows[to]}, which
+     * must already be sorted.
+     */
+    public RowPostings(int[] rows, int from, int to) {
+        int[] copy = new int[Math.max(to - from, 1)];
+        System.arraycopy(rows, from, copy, 0, to - from);
+        this.rows = copy;
+        this.size = to - from;
+    }
+
+    public void add(int row) {
+        int count = size;
+        int[] current = rows;
+        if (count == current.length) {
+            current = Arrays.copyOf(current, Math.max(count * 2, INITIAL_CAPACITY));
+            rows = current;
+        }
+        current[count] = row;
+        size = count + 1;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int get(int index) {
+        return rows[index];
+    }
+
+    /**
+     * Returns how many rows are below {@code limit}, i.e. visible to a reader
+     * that saw {@code limit} published rows.
+     */
+    public int countBelow(int limit) {
+        int count = size;
+        int[] current = rows;
+        if (count == 0 || current[count - 1] < limit) {
+            return count;
+        }
+        int index = Arrays.binarySearch(current, 0, count, limit);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    /**
+     * Copies the first {@code count} rows into {@code target} starting at
+     * {@code offset}.
+     */
+    public void copyTo(int count, int[] target, int offset) {
+        System.arraycopy(rows, 0, target, offset, count);
+    }
+}
@@ -0,0 +1,364 @@
+package com.netcompany.accountmanagementsystem.index;
+
+import com.netcompany.accountmanagementsystem.store.TransactionStore;
+import org.roaringbitmap.RoaringBitmap;
+import org.roaringbitmap.RoaringBitmapWriter;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Compressed bitmaps of the transaction rows by type, amount bucket and month.
+ * They are built on the first search; from then on the writer adds bitmaps of
+ * each published batch and merges the newest ones while the last covers at
+ * least half as many rows as the one before, like {@link PostingParts}. A
+ * search intersects the bitmaps of its criteria and reads only the rows that
+ * remain; rows newer than the bitmaps, only left while the first ones are
+ * built, are checked one by one.
+ */
+public class SearchIndex {
+
+    // Amount buckets per power of two, so a partly covered bucket spans at most a quarter of its amounts
+    private static final int SUB_BUCKET_BITS = 2;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int AMOUNT_BUCKETS = amountBucket(Long.MAX_VALUE) + 1;
+
+    private volatile Bitmaps bitmaps;
+
+    /**
+     * Returns the bitmaps, building them over the rows the reader can see if
+     * there are none yet. They may cover fewer rows than {@code limit}, whose
+     * rest the reader checks itself, or more, which the reader must skip.
+     */
+    public Bitmaps get(TransactionStore transactions, int limit) {
+        Bitmaps current = bitmaps;
+        if (current == null) {
+            synchronized (this) {
+                current = bitmaps;
+                if (current == null) {
+                    current = Bitmaps.EMPTY.extend(transactions, limit);
+                    bitmaps = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Adds the rows published since the last call to the bitmaps, if they
+     * are built. Called by the writer after publishing the rows.
+     */
+    public void publish(TransactionStore transactions) {
+        if (bitmaps == null) {
+            return;
+        }
+        synchronized (this) {
+            bitmaps = bitmaps.extend(transactions, transactions.size());
+        }
+    }
+
+    /**
+     * Number of rows covered by the built bitmaps.
+     */
+    public int size() {
+        Bitmaps current = bitmaps;
+        return current == null ? 0 : current.rows;
+    }
+
+    /**
+     * Returns the rows of the given postings below {@code limit}.
+     */
+    public static RoaringBitmap rowsOf(List<RowPostings> postings, int limit) {
+        RoaringBitmap rows = new RoaringBitmap();
+        for (RowPostings accountRows : postings) {
+            int visible = accountRows.countBelow(limit);
+            int[] copy = new int[visible];
+            accountRows.copyTo(visible, copy, 0);
+            rows.addN(copy, 0, visible);
+        }
+        return rows;
+    }
+
+    /**
+     * Bucket of an amount in cents. Amounts below {@code SUB_BUCKETS} have a
+     * bucket each, except that zero and negative amounts share bucket 0;
+     * larger ones are split by bit length and then by the bits after the
+     * leading one, so buckets grow with the amount.
+     */
+    static int amountBucket(long cents) {
+        if (cents < SUB_BUCKETS) {
+            return (int) Math.max(cents, 0);
+        }
+        int shift = 64 - Long.numberOfLeadingZeros(cents) - SUB_BUCKET_BITS - 1;
+        return (shift + 1) * SUB_BUCKETS + (int) (cents >>> shift) - SUB_BUCKETS;
+    }
+
+    private static long bucketStart(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        return (long) (bucket % SUB_BUCKETS + SUB_BUCKETS) << shift;
+    }
+
+    private static long bucketEnd(int bucket) {
+        return bucket == AMOUNT_BUCKETS - 1 ? Long.MAX_VALUE : bucketStart(bucket + 1) - 1;
+    }
+
+    /**
+     * Rows selected by one criterion. If {@code exact} is false the rows are a
+     * superset of the matches and each must be checked.
+     */
+    public record Selection(RoaringBitmap rows, boolean exact) {
+    }
+
+    /**
+     * Bitmaps of the first {@link #getRows()} rows, made of parts over
+     * consecutive ranges of rows. Never changed once built.
+     */
+    public static final class Bitmaps {
+        private static final Bitmaps EMPTY = new Bitmaps(List.of());
+
+        private final List<Part> parts;
+        private final int rows;
+        private final int firstDay;
+        private final int lastDay;
+
+        private Bitmaps(List<Part> parts) {
+            this.parts = parts;
+            rows = parts.isEmpty() ? 0 : parts.get(parts.size() - 1).to;
+            firstDay = parts.stream().mapToInt(part -> part.firstDay).min().orElse(0);
+            lastDay = parts.stream().mapToInt(part -> part.lastDay).max().orElse(0);
+        }
+
+        /**
+         * Returns bitmaps that also cover the rows up to {@code limit}.
+         */
+        private Bitmaps extend(TransactionStore transactions, int limit) {
+            if (limit <= rows) {
+                return this;
+            }
+            List<Part> extended = new ArrayList<>(parts);
+            extended.add(Part.build(transactions, rows, limit));
+            int count = extended.size();
+            while (count >= 2 && extended.get(count - 2).size() <= 2 * extended.get(count - 1).size()) {
+                extended.set(count - 2, Part.merge(extended.get(count - 2), extended.remove(count - 1)));
+                count--;
+            }
+            return new Bitmaps(List.copyOf(extended));
+        }
+
+        public int getRows() {
+            return rows;
+        }
+
+        /**
+         * Number of parts the bitmaps are made of.
+         */
+        int getPartCount() {
+            return parts.size();
+        }
+
+        /**
+         * Every covered row.
+         */
+        public RoaringBitmap all() {
+            return RoaringBitmap.bitmapOfRange(0, rows);
+        }
+
+        public RoaringBitmap ofType(byte type) {
+            return union(part -> type == TransactionStore.DEPOSIT ? part.deposits : part.withdrawals);
+        }
+
+        /**
+         * Rows with an amount in {@code [minCents, maxCents]}, exact only when
+         * the bounds fall on bucket edges. Bucket 0 also holds every amount
+         * below zero, so it is only exact without a lower bound.
+         */
+        public Selection ofAmounts(long minCents, long maxCents) {
+            if (minCents > maxCents) {
+                return new Selection(new RoaringBitmap(), true);
+            }
+            int low = amountBucket(minCents);
+            int high = amountBucket(maxCents);
+            boolean exact = (low == 0 ? minCents == Long.MIN_VALUE : minCents <= bucketStart(low))
+                    && maxCents == bucketEnd(high);
+            return new Selection(union(part -> Part.union(part.amounts, low, high)), exact);
+        }
+
+        /**
+         * Rows dated within {@code [fromDay, toDay]}, exact only when the
+         * bounds fall on month edges or outside the covered dates.
+         */
+        public Selection ofDays(int fromDay, int toDay) {
+            int from = Math.max(fromDay, firstDay);
+            int to = Math.min(toDay, lastDay);
+            if (from > to || rows == 0) {
+                return new Selection(new RoaringBitmap(), true);
+            }
+            LocalDate fromDate = LocalDate.ofEpochDay(from);
+            LocalDate toDate = LocalDate.ofEpochDay(to);
+            boolean exact = (from == firstDay || fromDate.getDayOfMonth() == 1)
+                    && (to == lastDay || toDate.getDayOfMonth() == toDate.lengthOfMonth());
+            int fromMonth = AccountRollup.monthOf(from);
+            int toMonth = AccountRollup.monthOf(to);
+            return new Selection(union(part -> part.ofMonths(fromMonth, toMonth)), exact);
+        }
+
+        private RoaringBitmap union(Function<Part, RoaringBitmap> selection) {
+            if (parts.size() == 1) {
+                return selection.apply(parts.get(0));
+            }
+            RoaringBitmap union = new RoaringBitmap();
+            for (Part part : parts) {
+                union.or(selection.apply(part));
+            }
+            return union;
+        }
+    }
+
+    /**
+     * Bitmaps of the rows {@code [from, to)}. Never changed once built.
+     */
+    private static final class Part {
+        private final int from;
+        private final int to;
+        private final RoaringBitmap deposits;
+        private final RoaringBitmap withdrawals;
+        // Indexed by amount bucket; null when empty
+        private final RoaringBitmap[] amounts;
+        private final int firstDay;
+        private final int lastDay;
+        private final int firstMonth;
+        // Indexed by month minus firstMonth; null when empty
+        private final RoaringBitmap[] months;
+
+        private Part(int from, int to, RoaringBitmap deposits, RoaringBitmap withdrawals, RoaringBitmap[] amounts,
+                     int firstDay, int lastDay, int firstMonth, RoaringBitmap[] months) {
+            this.from = from;
+            this.to = to;
+            this.deposits = deposits;
+            this.withdrawals = withdrawals;
+            this.amounts = amounts;
+            this.firstDay = firstDay;
+            this.lastDay = lastDay;
+            this.firstMonth = firstMonth;
+            this.months = months;
+        }
+
+        /**
+         * Builds the bitmaps of at least one row.
+         */
+        static Part build(TransactionStore transactions, int from, int to) {
+            int firstDay = Integer.MAX_VALUE;
+            int lastDay = Integer.MIN_VALUE;
+            for (int row = from; row < to; row++) {
+                int epochDay = transactions.getEpochDay(row);
+                firstDay = Math.min(firstDay, epochDay);
+                lastDay = Math.max(lastDay, epochDay);
+            }
+            int firstMonth = AccountRollup.monthOf(firstDay);
+            // Month of each day in range, so the row loop does no date arithmetic
+            int[] monthOfDay = new int[lastDay - firstDay + 1];
+            for (int day = firstDay; day <= lastDay; day++) {
+                monthOfDay[day - firstDay] = AccountRollup.monthOf(day) - firstMonth;
+            }
+
+            RoaringBitmapWriter<RoaringBitmap> deposits = RoaringBitmapWriter.writer().get();
+            RoaringBitmapWriter<RoaringBitmap> withdrawals = RoaringBitmapWriter.writer().get();
+            List<RoaringBitmapWriter<RoaringBitmap>> amounts = writers(AMOUNT_BUCKETS);
+            List<RoaringBitmapWriter<RoaringBitmap>> months = writers(monthOfDay[monthOfDay.length - 1] + 1);
+            for (int row = from; row < to; row++) {
+                (transactions.getType(row) == TransactionStore.DEPOSIT ? deposits : withdrawals).add(row);
+                writer(amounts, amountBucket(transactions.getAmountCents(row))).add(row);
+                writer(months, monthOfDay[transactions.getEpochDay(row) - firstDay]).add(row);
+            }
+            return new Part(from, to, deposits.get(), withdrawals.get(), finish(amounts), firstDay, lastDay,
+                    firstMonth, finish(months));
+        }
+
+        /**
+         * Combines the bitmaps of two consecutive ranges of rows.
+         */
+        static Part merge(Part older, Part newer) {
+            int firstMonth = Math.min(older.firstMonth, newer.firstMonth);
+            int endMonth = Math.max(older.firstMonth + older.months.length, newer.firstMonth + newer.months.length);
+            RoaringBitmap[] months = new RoaringBitmap[endMonth - firstMonth];
+            for (Part part : List.of(older, newer)) {
+                for (int i = 0; i < part.months.length; i++) {
+                    int month = part.firstMonth - firstMonth + i;
+                    months[month] = or(months[month], part.months[i]);
+                }
+            }
+            RoaringBitmap[] amounts = new RoaringBitmap[AMOUNT_BUCKETS];
+            for (int bucket = 0; bucket < AMOUNT_BUCKETS; bucket++) {
+                amounts[bucket] = or(older.amounts[bucket], newer.amounts[bucket]);
+            }
+            return new Part(older.from, newer.to, or(older.deposits, newer.deposits),
+                    or(older.withdrawals, newer.withdrawals), amounts, Math.min(older.firstDay, newer.firstDay),
+                    Math.max(older.lastDay, newer.lastDay), firstMonth, months);
+        }
+
+        private static RoaringBitmap or(RoaringBitmap first, RoaringBitmap second) {
+            if (first == null || second == null) {
+                return first == null ? second : first;
+            }
+            RoaringBitmap union = RoaringBitmap.or(first, second);
+            union.runOptimize();
+            return union;
+        }
+
+        int size() {
+            return to - from;
+        }
+
+        /**
+         * Rows dated within the months {@code [fromMonth, toMonth]}.
+         */
+        RoaringBitmap ofMonths(int fromMonth, int toMonth) {
+            return union(months, Math.max(fromMonth - firstMonth, 0),
+                    Math.min(toMonth - firstMonth, months.length - 1));
+        }
+
+        private static List<RoaringBitmapWriter<RoaringBitmap>> writers(int count) {
+            List<RoaringBitmapWriter<RoaringBitmap>> writers = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                writers.add(null);
+            }
+            return writers;
+        }
+
+        private static RoaringBitmapWriter<RoaringBitmap> writer(List<RoaringBitmapWriter<RoaringBitmap>> writers,
+                                                                 int i) {
+            RoaringBitmapWriter<RoaringBitmap> writer = writers.get(i);
+            if (writer == null) {
+                writer = RoaringBitmapWriter.writer().get();
+                writers.set(i, writer);
+            }
+            return writer;
+        }
+
+        private static RoaringBitmap[] finish(List<RoaringBitmapWriter<RoaringBitmap>> writers) {
+            RoaringBitmap[] bitmaps = new RoaringBitmap[writers.size()];
+            for (int i = 0; i < bitmaps.length; i++) {
+                if (writers.get(i) != null) {
+                    bitmaps[i] = writers.get(i).get();
+                    bitmaps[i].runOptimize();
+                }
+            }
+            return bitmaps;
+        }
+
+        private static RoaringBitmap union(RoaringBitmap[] bitmaps, int from, int to) {
+            RoaringBitmap union = new RoaringBitmap();
+            for (int i = from; i <= to; i++) {
+                if (bitmaps[i] != null) {
+                    union.or(bitmaps[i]);
+                }
+            }
+            return union;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.netcompany.accountmanagementsystem.index;
+
+import com.netcompany.accountmanagementsystem.store.TransactionStore;
+
+import java.util.function.Function;
+
+/**
+ * Per-account {@link AccountTimeline}s, kept as {@link PostingParts}: built on
+ * first use and then extended by the writer with each published batch, so a
+ * query only combines the answers of an account's few timelines.
+ */
+public class TimelineIndex {
+
+    private final PostingParts<AccountTimeline> timelines = new PostingParts<>(AccountTimeline::build);
+
+    /**
+     * Returns the row of the account's largest withdrawal dated within
+     * {@code [fromDay, toDay]} among the first {@code limit} published rows,
+     * or -1 if there is none.
+     */
+    public int largestWithdrawal(Long accountId, RowPostings postings, TransactionStore transactions, int limit,
+                                 int fromDay, int toDay) {
+        if (postings == null) {
+            return -1;
+        }
+        int visible = postings.countBelow(limit);
+        PostingParts.Parts<AccountTimeline> parts = timelines.get(accountId, postings, transactions, visible);
+
+        int best = -1;
+        int covered = 0;
+        for (int i = 0; i < parts.size() && parts.getEnd(i) <= visible; i++) {
+            best = larger(transactions, best, parts.get(i).largestWithdrawal(fromDay, toDay));
+            covered = parts.getEnd(i);
+        }
+        // Postings the usable timelines miss, only left when the reader's view is not the latest
+        return scan(postings, transactions, covered, visible, best, fromDay, toDay);
+    }
+
+    /**
+     * Notes a posting appended by the writer to the account.
+     */
+    public void append(Long accountId) {
+        timelines.append(accountId);
+    }
+
+    /**
+     * Extends the timelines of the accounts appended to with their published
+     * postings. Called by the writer after publishing the rows.
+     */
+    public void publish(Function<Long, RowPostings> postingsOf, TransactionStore transactions) {
+        timelines.publish(postingsOf, transactions);
+    }
+
+    private static int scan(RowPostings postings, TransactionStore transactions, int from, int to, int best,
+                            int fromDay, int toDay) {
+        for (int i = from; i < to; i++) {
+            int row = postings.get(i);
+            int epochDay = transactions.getEpochDay(row);
+            if (transactions.getType(row) == TransactionStore.WITHDRAWAL && epochDay >= fromDay && epochDay <= toDay) {
+                best = larger(transactions, best, row);
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Number of accounts with a built timeline.
+     */
+    public int size() {
+        return timelines.size();
+    }
+
+    /**
+     * Returns whichever row holds the larger withdrawal, the lower row on a
+     * tie; -1 stands for no row.
+     */
+    public static int larger(TransactionStore transactions, int a, int b) {
+        if (a < 0 || b < 0) {
+            return Math.max(a, b);
+        }
+        long amountA = transactions.getAmountCents(a);
+        long amountB = transactions.getAmountCents(b);
+        if (amountA != amountB) {
+            return amountA > amountB ? a : b;
+        }
+        return Math.min(a, b);
+    }
+}
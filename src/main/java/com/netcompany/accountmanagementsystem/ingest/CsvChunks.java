@@ -0,0 +1,114 @@
+package com.netcompany.accountmanagementsystem.ingest;
+
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits a CSV resource into line-aligned byte chunks that can be parsed
+ * independently. Resources backed by a file are memory-mapped chunk by chunk;
+ * anything else, such as an entry inside a jar, is read into one heap buffer.
+ */
+public final class CsvChunks {
+
+    private static final long MIN_CHUNK_BYTES = 1 << 20;
+    private static final long MAX_CHUNK_BYTES = 1 << 30;
+
+    private CsvChunks() {
+    }
+
+    public static List<ByteBuffer> split(Resource resource, int parallelism) throws IOException {
+        if (resource.isFile()) {
+            try (FileChannel channel = FileChannel.open(resource.getFile().toPath(), StandardOpenOption.READ)) {
+                return split(channel, parallelism);
+            }
+        }
+        try (InputStream inputStream = resource.getInputStream()) {
+            return split(ByteBuffer.wrap(inputStream.readAllBytes()), parallelism, MIN_CHUNK_BYTES);
+        }
+    }
+
+    static List<ByteBuffer> split(FileChannel channel, int parallelism) throws IOException {
+        return split(channel, 0, channel.size(), parallelism);
+    }
+
+    /**
+     * Splits the bytes {@code [from, to)} of the file, which must start at a
+     * line start, into mapped chunks.
+     */
+    public static List<ByteBuffer> split(FileChannel channel, long from, long to, int parallelism) throws IOException {
+        List<ByteBuffer> chunks = new ArrayList<>();
+        long start = from;
+        for (long target : targets(to - from, parallelism, MIN_CHUNK_BYTES)) {
+            long end = from + target >= to ? to : nextLineStart(channel, Math.max(from + target, start), to);
+            if (end > start) {
+                chunks.add(channel.map(FileChannel.MapMode.READ_ONLY, start, end - start));
+                start = end;
+            }
+        }
+        return chunks;
+    }
+
+    static List<ByteBuffer> split(ByteBuffer buffer, int parallelism, long minChunkBytes) {
+        int size = buffer.limit();
+        List<ByteBuffer> chunks = new ArrayList<>();
+        int start = 0;
+        for (long target : targets(size, parallelism, minChunkBytes)) {
+            int end = start;
+            if (target >= size) {
+                end = size;
+            } else {
+                for (end = (int) Math.max(target, start); end < size && buffer.get(end) != '\n'; end++) {
+                    // scan to the end of the line
+                }
+                end = Math.min(end + 1, size);
+            }
+            if (end > start) {
+                chunks.add(buffer.slice(start, end - start));
+                start = end;
+            }
+        }
+        return chunks;
+    }
+
+    /**
+     * Approximate chunk end offsets: a few chunks per core, none smaller than
+     * {@code minChunkBytes} and none larger than a single mapping allows.
+     */
+    private static long[] targets(long size, int parallelism, long minChunkBytes) {
+        long count = Math.min(parallelism * 4L, size / minChunkBytes);
+        count = Math.max(count, (size + MAX_CHUNK_BYTES - 1) / MAX_CHUNK_BYTES);
+        count = Math.max(count, 1);
+
+        long[] targets = new long[(int) count];
+        for (int i = 0; i < count; i++) {
+            targets[i] = i == count - 1 ? size : size * (i + 1) / count;
+        }
+        return targets;
+    }
+
+    private static long nextLineStart(FileChannel channel, long from, long size) throws IOException {
+        ByteBuffer window = ByteBuffer.allocate(8192);
+        long position = from;
+        while (position < size) {
+            window.clear();
+            int read = channel.read(window, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (window.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+}
@@ -0,0 +1,161 @@
+package com.netcompany.accountmanagementsystem.ingest;
+
+import com.netcompany.accountmanagementsystem.model.Account;
+import com.netcompany.accountmanagementsystem.model.Beneficiary;
+import com.opencsv.CSVReader;
+import com.opencsv.exceptions.CsvValidationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
+
+/**
+ * Loads the beneficiaries, accounts and transactions CSV files concurrently.
+ * The small beneficiaries and accounts files go through OpenCSV; the
+ * transactions file is split into chunks that are parsed in parallel by
+ * {@link TransactionCsvParser}. Malformed rows are skipped and reported with
+ * their line numbers instead of aborting the file.
+ */
+public class CsvIngestor {
+
+    private static final Logger logger = LoggerFactory.getLogger(CsvIngestor.class);
+
+    private final int parallelism;
+
+    public CsvIngestor() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public CsvIngestor(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public IngestResult load(Resource beneficiaries, Resource accounts, Resource transactions) {
+        List<IngestError> errors = Collections.synchronizedList(new ArrayList<>());
+
+        CompletableFuture<List<Beneficiary>> beneficiariesFuture =
+                CompletableFuture.supplyAsync(() -> loadBeneficiaries(beneficiaries, errors));
+        CompletableFuture<List<Account>> accountsFuture =
+                CompletableFuture.supplyAsync(() -> loadAccounts(accounts, errors));
+        List<TransactionBatch> batches = loadTransactions(transactions, errors);
+        List<Beneficiary> loadedBeneficiaries = beneficiariesFuture.join();
+        List<Account> loadedAccounts = accountsFuture.join();
+
+        List<IngestError> sortedErrors = new ArrayList<>(errors);
+        sortedErrors.sort(Comparator.comparing(IngestError::getFile).thenComparingLong(IngestError::getLine));
+        return new IngestResult(loadedBeneficiaries, loadedAccounts, batches, sortedErrors);
+    }
+
+    /**
+     * Loads only the beneficiaries and accounts, for when the transactions
+     * come from elsewhere.
+     */
+    public IngestResult load(Resource beneficiaries, Resource accounts) {
+        List<IngestError> errors = Collections.synchronizedList(new ArrayList<>());
+
+        CompletableFuture<List<Beneficiary>> beneficiariesFuture =
+                CompletableFuture.supplyAsync(() -> loadBeneficiaries(beneficiaries, errors));
+        List<Account> loadedAccounts = loadAccounts(accounts, errors);
+        List<Beneficiary> loadedBeneficiaries = beneficiariesFuture.join();
+
+        List<IngestError> sortedErrors = new ArrayList<>(errors);
+        sortedErrors.sort(Comparator.comparing(IngestError::getFile).thenComparingLong(IngestError::getLine));
+        return new IngestResult(loadedBeneficiaries, loadedAccounts, Collections.emptyList(), sortedErrors);
+    }
+
+    List<Beneficiary> loadBeneficiaries(Resource resource, List<IngestError> errors) {
+        List<Beneficiary> result = new ArrayList<>();
+        try (InputStream inputStream = resource.getInputStream();
+             CSVReader reader = new CSVReader(new InputStreamReader(inputStream))) {
+
+            String[] line;
+            reader.readNext(); // Skip header
+            while ((line = reader.readNext()) != null) {
+                try {
+                    result.add(new Beneficiary(Long.parseLong(line[0]), line[1], line[2]));
+                } catch (RuntimeException e) {
+                    errors.add(new IngestError(resource.getFilename(), reader.getLinesRead(), describe(e)));
+                }
+            }
+        } catch (IOException | CsvValidationException e) {
+            logger.error("Error loading beneficiaries from CSV", e);
+        }
+        return result;
+    }
+
+    List<Account> loadAccounts(Resource resource, List<IngestError> errors) {
+        List<Account> result = new ArrayList<>();
+        try (InputStream inputStream = resource.getInputStream();
+             CSVReader reader = new CSVReader(new InputStreamReader(inputStream))) {
+
+            String[] line;
+            reader.readNext(); // Skip header
+            while ((line = reader.readNext()) != null) {
+                try {
+                    result.add(new Account(Long.parseLong(line[0]), Long.parseLong(line[1])));
+                } catch (RuntimeException e) {
+                    errors.add(new IngestError(resource.getFilename(), reader.getLinesRead(), describe(e)));
+                }
+            }
+        } catch (IOException | CsvValidationException e) {
+            logger.error("Error loading accounts from CSV", e);
+        }
+        return result;
+    }
+
+    List<TransactionBatch> loadTransactions(Resource resource, List<IngestError> errors) {
+        List<ByteBuffer> chunks;
+        try {
+            chunks = CsvChunks.split(resource, parallelism);
+        } catch (IOException e) {
+            logger.error("Error loading transactions from CSV", e);
+            return Collections.emptyList();
+        }
+
+        return parseTransactions(resource.getFilename(), chunks, 0, errors);
+    }
+
+    /**
+     * Parses line-aligned chunks of a transactions file in parallel. The
+     * first chunk starts after line {@code firstLine}; the header is only
+     * skipped at the start of the file.
+     */
+    public List<TransactionBatch> parseTransactions(String file, List<ByteBuffer> chunks, long firstLine,
+                                                    List<IngestError> errors) {
+        TransactionCsvParser parser = new TransactionCsvParser(file);
+        List<TransactionBatch> batches = IntStream.range(0, chunks.size())
+                .parallel()
+                .mapToObj(i -> parser.parse(chunks.get(i), i == 0 && firstLine == 0))
+                .toList();
+
+        // Turn chunk-relative line numbers into line numbers of the file
+        long linesBefore = firstLine;
+        for (TransactionBatch batch : batches) {
+            batch.shiftLines(linesBefore);
+            errors.addAll(batch.getErrors());
+            linesBefore += batch.getLineCount();
+        }
+        return batches;
+    }
+
+    private static String describe(RuntimeException e) {
+        if (e instanceof ArrayIndexOutOfBoundsException) {
+            return "missing columns";
+        }
+        return e.getClass().getSimpleName() + ": " + e.getMessage();
+    }
+}
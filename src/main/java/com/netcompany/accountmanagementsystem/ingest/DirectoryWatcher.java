@@ -0,0 +1,95 @@
+package com.netcompany.accountmanagementsystem.ingest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs an action on a daemon thread whenever any of the given files in a
+ * directory is created, modified or deleted. Events are collected until the
+ * directory has been quiet for the given delay, so a file written in several
+ * steps, or several files dropped together, cause a single run.
+ */
+public class DirectoryWatcher implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(DirectoryWatcher.class);
+
+    private final Path directory;
+    private final Set<String> fileNames;
+    private final Duration delay;
+    private final Runnable action;
+    private final WatchService watchService;
+    private final Thread thread;
+
+    private DirectoryWatcher(Path directory, Set<String> fileNames, Duration delay, Runnable action)
+            throws IOException {
+        this.directory = directory;
+        this.fileNames = fileNames;
+        this.delay = delay;
+        this.action = action;
+        watchService = directory.getFileSystem().newWatchService();
+        directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY,
+                StandardWatchEventKinds.ENTRY_DELETE);
+        thread = new Thread(this::run, "data-directory-watcher");
+        thread.setDaemon(true);
+    }
+
+    public static DirectoryWatcher start(Path directory, Set<String> fileNames, Duration delay, Runnable action)
+            throws IOException {
+        DirectoryWatcher watcher = new DirectoryWatcher(directory, fileNames, delay, action);
+        watcher.thread.start();
+        return watcher;
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                if (!drain(watchService.take())) {
+                    continue;
+                }
+                // Wait until no event arrived for the whole delay
+                WatchKey key;
+                while ((key = watchService.poll(delay.toMillis(), TimeUnit.MILLISECONDS)) != null) {
+                    drain(key);
+                }
+                try {
+                    action.run();
+                } catch (RuntimeException e) {
+                    logger.warn("Could not reload the data in {}", directory, e);
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // closed
+        }
+    }
+
+    /**
+     * Consumes the key's events and reports whether any concerned a watched
+     * file.
+     */
+    private boolean drain(WatchKey key) {
+        boolean relevant = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            relevant |= event.kind() == StandardWatchEventKinds.OVERFLOW
+                    || event.context() instanceof Path path && fileNames.contains(path.toString());
+        }
+        key.reset();
+        return relevant;
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+}
@@ -0,0 +1,17 @@
+package com.netcompany.accountmanagementsystem.ingest;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A malformed CSV row that was skipped during loading.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IngestError {
+    private String file;
+    private long line;
+    private String message;
+}
@@ -0,0 +1,29 @@
+package com.netcompany.accountmanagementsystem.ingest;
+
+import com.netcompany.accountmanagementsystem.model.Account;
+import com.netcompany.accountmanagementsystem.model.Beneficiary;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Everything read by one run of the {@link CsvIngestor}. Transaction batches
+ * are in file order; errors are sorted by file and line.
+ */
+@Getter
+@AllArgsConstructor
+public class IngestResult {
+    private final List<Beneficiary> beneficiaries;
+    private final List<Account> accounts;
+    private final List<TransactionBatch> transactionBatches;
+    private final List<IngestError> errors;
+
+    public long getTransactionCount() {
+        long count = 0;
+        for (TransactionBatch batch : transactionBatches) {
+            count += batch.size();
+        }
+        return count;
+    }
+}
@@ -0,0 +1,101 @@
+package com.netcompany.accountmanagementsystem.ingest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Transactions parsed from one chunk of a CSV file, kept in primitive columns
+ * until they are appended to the store.
+ */
+public class TransactionBatch {
+
+    private long[] transactionIds;
+    private long[] accountIds;
+    private long[] amounts;
+    private byte[] types;
+    private int[] epochDays;
+    private int size;
+
+    private final List<IngestError> errors = new ArrayList<>();
+    private long lineCount;
+
+    public TransactionBatch(int initialCapacity) {
+        int capacity = Math.max(initialCapacity, 16);
+        transactionIds = new long[capacity];
+        accountIds = new long[capacity];
+        amounts = new long[capacity];
+        types = new byte[capacity];
+        epochDays = new int[capacity];
+    }
+
+    public void add(long transactionId, long accountId, long amountCents, byte type, int epochDay) {
+        if (size == transactionIds.length) {
+            int capacity = size * 2;
+            transactionIds = Arrays.copyOf(transactionIds, capacity);
+            accountIds = Arrays.copyOf(accountIds, capacity);
+            amounts = Arrays.copyOf(amounts, capacity);
+            types = Arrays.copyOf(types, capacity);
+            epochDays = Arrays.copyOf(epochDays, capacity);
+        }
+        transactionIds[size] = transactionId;
+        accountIds[size] = accountId;
+        amounts[size] = amountCents;
+        types[size] = type;
+        epochDays[size] = epochDay;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long getTransactionId(int index) {
+        return transactionIds[index];
+    }
+
+    public long getAccountId(int index) {
+        return accountIds[index];
+    }
+
+    public long getAmountCents(int index) {
+        return amounts[index];
+    }
+
+    public byte getType(int index) {
+        return types[index];
+    }
+
+    public int getEpochDay(int index) {
+        return epochDays[index];
+    }
+
+    /**
+     * Malformed rows of the chunk. Line numbers are relative to the start of
+     * the chunk until {@link #shiftLines(long)} is applied.
+     */
+    public List<IngestError> getErrors() {
+        return errors;
+    }
+
+    void addError(String file, long line, String message) {
+        errors.add(new IngestError(file, line, message));
+    }
+
+    /**
+     * Number of lines the chunk spans, including blank and malformed ones.
+     */
+    public long getLineCount() {
+        return lineCount;
+    }
+
+    void setLineCount(long lineCount) {
+        this.lineCount = lineCount;
+    }
+
+    void shiftLines(long offset) {
+        for (IngestError error : errors) {
+            error.setLine(error.getLine() + offset);
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package com.netcompany.accountmanagementsystem.ingest;
+
+import com.netcompany.accountmanagementsystem.store.Money;
+import com.netcompany.accountmanagementsystem.store.TransactionStore;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Parses {@code transactionId,accountId,amount,type,date} rows straight from
+ * bytes without creating a String or a LocalDate per row. Amounts are read as
+ * cents and dates in the {@code MM/dd/yy} format as epoch days.
+ *
+ * <p>A malformed row is recorded with its line number and skipped; it never
+ * aborts the rest of the chunk.
+ */
+public class TransactionCsvParser {
+
+    private static final byte[] DEPOSIT = "deposit".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] WITHDRAWAL = "withdrawal".getBytes(StandardCharsets.US_ASCII);
+    private static final int AVERAGE_ROW_BYTES = 32;
+    private static final long DAYS_0000_TO_1970 = 719528L;
+
+    private final String file;
+
+    public TransactionCsvParser(String file) {
+        this.file = file;
+    }
+
+    /**
+     * Parses one line-aligned chunk.
+     *
+     * @param skipHeader whether the first line of the chunk is the CSV header
+     */
+    public TransactionBatch parse(ByteBuffer chunk, boolean skipHeader) {
+        int limit = chunk.limit();
+        TransactionBatch batch = new TransactionBatch(limit / AVERAGE_ROW_BYTES);
+        Cursor cursor = new Cursor(chunk);
+
+        long line = 0;
+        int position = 0;
+        while (position < limit) {
+            line++;
+            int lineStart = position;
+            int lineEnd = lineEnd(chunk, lineStart, limit);
+            position = lineEnd + 1;
+            int contentEnd = lineEnd > lineStart && chunk.get(lineEnd - 1) == '\r' ? lineEnd - 1 : lineEnd;
+
+            if ((line == 1 && skipHeader) || contentEnd == lineStart) {
+                continue;
+            }
+            parseRow(cursor, lineStart, contentEnd, line, batch);
+        }
+        batch.setLineCount(line);
+        return batch;
+    }
+
+    private void parseRow(Cursor cursor, int start, int end, long line, TransactionBatch batch) {
+        cursor.position = start;
+        cursor.end = end;
+        try {
+            long transactionId = cursor.readLong("transactionId");
+            long accountId = cursor.readLong("accountId");
+            long amount = cursor.readCents();
+            byte type = cursor.readType();
+            int epochDay = cursor.readDate();
+            if (cursor.position <= end) {
+                throw new IllegalArgumentException("unexpected extra columns");
+            }
+            batch.add(transactionId, accountId, amount, type, epochDay);
+        } catch (IllegalArgumentException e) {
+            batch.addError(file, line, e.getMessage());
+        }
+    }
+
+    private static int lineEnd(ByteBuffer chunk, int from, int limit) {
+        for (int i = from; i < limit; i++) {
+            if (chunk.get(i) == '\n') {
+                return i;
+            }
+        }
+        return limit;
+    }
+
+    /**
+     * Converts a calendar date to days since 1970-01-01, as
+     * {@link java.time.LocalDate#toEpochDay()} does for years after 0.
+     */
+    static long epochDay(int year, int month, int day) {
+        long total = 365L * year + (year + 3) / 4 - (year + 99) / 100 + (year + 399) / 400;
+        total += (367L * month - 362) / 12;
+        total += day - 1;
+        if (month > 2) {
+            total--;
+            if (!isLeapYear(year)) {
+                total--;
+            }
+        }
+        return total - DAYS_0000_TO_1970;
+    }
+
+    private static boolean isLeapYear(int year) {
+        return (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+        return switch (month) {
+            case 2 -> isLeapYear(year) ? 29 : 28;
+            case 4, 6, 9, 11 -> 30;
+            default -> 31;
+        };
+    }
+
+    /**
+     * Reads comma separated fields of a single row. {@code position} moves past
+     * each field and its trailing comma.
+     */
+    private static final class Cursor {
+        private final ByteBuffer buffer;
+        private int position;
+        private int end;
+
+        private Cursor(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        private int fieldEnd() {
+            if (position > end) {
+                throw new IllegalArgumentException("missing columns");
+            }
+            int i = position;
+            while (i < end && buffer.get(i) != ',') {
+                i++;
+            }
+            return i;
+        }
+
+        long readLong(String column) {
+            int fieldEnd = fieldEnd();
+            if (fieldEnd == position || fieldEnd - position > 18) {
+                throw new IllegalArgumentException("invalid " + column + " '" + field(fieldEnd) + "'");
+            }
+            long value = 0;
+            for (int i = position; i < fieldEnd; i++) {
+                int digit = buffer.get(i) - '0';
+                if (digit < 0 || digit > 9) {
+                    throw new IllegalArgumentException("invalid " + column + " '" + field(fieldEnd) + "'");
+                }
+                value = value * 10 + digit;
+            }
+            position = fieldEnd + 1;
+            return value;
+        }
+
+        long readCents() {
+            int fieldEnd = fieldEnd();
+            long cents;
+            try {
+                cents = Money.parse(buffer, position, fieldEnd);
+            } catch (NumberFormatException | ArithmeticException e) {
+                throw new IllegalArgumentException("invalid amount '" + field(fieldEnd) + "'");
+            }
+            // The type carries the direction, so an amount is always positive
+            if (cents <= 0) {
+                throw new IllegalArgumentException("amount '" + field(fieldEnd) + "' is not positive");
+            }
+            position = fieldEnd + 1;
+            return cents;
+        }
+
+        byte readType() {
+            int fieldEnd = fieldEnd();
+            byte type;
+            if (matches(DEPOSIT, fieldEnd)) {
+                type = TransactionStore.DEPOSIT;
+            } else if (matches(WITHDRAWAL, fieldEnd)) {
+                type = TransactionStore.WITHDRAWAL;
+            } else {
+                throw new IllegalArgumentException("invalid type '" + field(fieldEnd) + "'");
+            }
+            position = fieldEnd + 1;
+            return type;
+        }
+
+        int readDate() {
+            int fieldEnd = fieldEnd();
+            if (fieldEnd - position != 8 || buffer.get(position + 2) != '/' || buffer.get(position + 5) != '/') {
+                throw new IllegalArgumentException("invalid date '" + field(fieldEnd) + "'");
+            }
+            int month = twoDigits(position, fieldEnd);
+            int day = twoDigits(position + 3, fieldEnd);
+            int year = 2000 + twoDigits(position + 6, fieldEnd);
+            if (month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, month)) {
+                throw new IllegalArgumentException("invalid date '" + field(fieldEnd) + "'");
+            }
+            position = fieldEnd + 1;
+            return (int) epochDay(year, month, day);
+        }
+
+        private int twoDigits(int at, int fieldEnd) {
+            int high = buffer.get(at) - '0';
+            int low = buffer.get(at + 1) - '0';
+            if (high < 0 || high > 9 || low < 0 || low > 9) {
+                throw new IllegalArgumentException("invalid date '" + field(fieldEnd) + "'");
+            }
+            return high * 10 + low;
+        }
+
+        private boolean matches(byte[] expected, int fieldEnd) {
+            if (fieldEnd - position != expected.length) {
+                return false;
+            }
+            for (int i = 0; i < expected.length; i++) {
+                if (buffer.get(position + i) != expected[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private String field(int fieldEnd) {
+            byte[] bytes = new byte[fieldEnd - position];
+            buffer.get(position, bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+}
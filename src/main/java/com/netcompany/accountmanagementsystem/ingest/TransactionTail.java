@@ -0,0 +1,127 @@
+package com.netcompany.accountmanagementsystem.ingest;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * Follows a transactions CSV file that is expected to grow by appending. Each
+ * read parses only the rows added since the previous read, after checking
+ * that the part read before is unchanged. If it was changed or truncated, the
+ * whole file is parsed again and the read is marked as a rewrite.
+ *
+ * <p>The check compares a fingerprint of the part read before: its first and
+ * last {@value #FINGERPRINT_BYTES} bytes. It costs the same however large the
+ * file grows, and covers all of a file up to twice that size; in a larger
+ * one, a change of the same length strictly between those blocks goes
+ * unnoticed.
+ *
+ * <p>Only complete lines are read. A last line without a line break may still
+ * be being written and is left for the next read.
+ */
+public class TransactionTail {
+
+    private static final int FINGERPRINT_BYTES = 64 * 1024;
+
+    private final Path file;
+    private final CsvIngestor ingestor;
+
+    private long offset;
+    private long lines;
+    private long fingerprint;
+
+    public TransactionTail(Path file, CsvIngestor ingestor) {
+        this.file = file;
+        this.ingestor = ingestor;
+    }
+
+    /**
+     * The rows of one read, in file order.
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class Read {
+        private final boolean rewrite;
+        private final List<TransactionBatch> batches;
+        private final List<IngestError> errors;
+
+        public boolean isEmpty() {
+            return !rewrite && batches.stream().allMatch(batch -> batch.size() == 0);
+        }
+    }
+
+    /**
+     * Reads the complete rows appended since the last read, or all rows of the
+     * file if it was rewritten. A missing file reads as unchanged.
+     */
+    public Read read() throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            boolean rewrite = size < offset || fingerprint(channel, offset) != fingerprint;
+            if (rewrite) {
+                offset = 0;
+                lines = 0;
+            }
+
+            long end = lastLineEnd(channel, offset, size);
+            List<IngestError> errors = new ArrayList<>();
+            List<ByteBuffer> chunks = CsvChunks.split(channel, offset, end, ingestor.getParallelism());
+            List<TransactionBatch> batches = ingestor.parseTransactions(file.getFileName().toString(), chunks, lines,
+                    errors);
+
+            fingerprint = fingerprint(channel, end);
+            offset = end;
+            for (TransactionBatch batch : batches) {
+                lines += batch.getLineCount();
+            }
+            return new Read(rewrite, batches, errors);
+        } catch (NoSuchFileException e) {
+            // Probably being replaced; the rows read so far stay
+            return new Read(false, Collections.emptyList(), Collections.emptyList());
+        }
+    }
+
+    /**
+     * Checksum of the first and last {@link #FINGERPRINT_BYTES} of the first
+     * {@code end} bytes, each byte counted once.
+     */
+    private static long fingerprint(FileChannel channel, long end) throws IOException {
+        CRC32C crc = new CRC32C();
+        long head = Math.min(end, FINGERPRINT_BYTES);
+        long tail = Math.max(head, end - FINGERPRINT_BYTES);
+        if (head > 0) {
+            crc.update(channel.map(FileChannel.MapMode.READ_ONLY, 0, head));
+        }
+        if (end > tail) {
+            crc.update(channel.map(FileChannel.MapMode.READ_ONLY, tail, end - tail));
+        }
+        return crc.getValue();
+    }
+
+    private static long lastLineEnd(FileChannel channel, long from, long size) throws IOException {
+        ByteBuffer window = ByteBuffer.allocate(8192);
+        long position = size;
+        while (position > from) {
+            int length = (int) Math.min(window.capacity(), position - from);
+            window.clear().limit(length);
+            channel.read(window, position - length);
+            for (int i = length - 1; i >= 0; i--) {
+                if (window.get(i) == '\n') {
+                    return position - length + i + 1;
+                }
+            }
+            position -= length;
+        }
+        return from;
+    }
+}
@@ -0,0 +1,23 @@
+package com.netcompany.accountmanagementsystem.journal;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * State derived from the first {@link #getRows()} rows of a transaction log:
+ * the account dictionary, the balance of every account and its postings,
+ * stored as {@code postingRows[postingOffsets[ref]]} up to
+ * {@code postingRows[postingOffsets[ref + 1]]}. Recovery starts from it and
+ * replays only the rows after it.
+ */
+@Getter
+@AllArgsConstructor
+public class Checkpoint {
+    private final long logId;
+    private final int rows;
+    private final long maxTransactionId;
+    private final long[] accountIds;
+    private final long[] balances;
+    private final int[] postingOffsets;
+    private final int[] postingRows;
+}
@@ -0,0 +1,85 @@
+package com.netcompany.accountmanagementsystem.journal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedInputStream;
+
+/**
+ * Reads a checkpoint written by {@link CheckpointWriter}. A missing or
+ * corrupt checkpoint, or one of another log or covering more rows than the
+ * log has committed, yields an empty result and the log is replayed from
+ * the start.
+ */
+public class CheckpointReader {
+
+    private static final Logger logger = LoggerFactory.getLogger(CheckpointReader.class);
+    private static final int BUFFER_BYTES = 1 << 20;
+
+    public Optional<Checkpoint> read(Path path, long logId, int committedRows) {
+        if (!Files.isRegularFile(path)) {
+            return Optional.empty();
+        }
+        try (InputStream file = new BufferedInputStream(Files.newInputStream(path), BUFFER_BYTES)) {
+            CRC32C crc = new CRC32C();
+            DataInputStream data = new DataInputStream(new CheckedInputStream(file, crc));
+
+            if (data.readInt() != LogFormat.CHECKPOINT_MAGIC || data.readInt() != LogFormat.VERSION) {
+                logger.info("Ignoring checkpoint {} written in another format", path);
+                return Optional.empty();
+            }
+            if (data.readLong() != logId) {
+                logger.info("Ignoring checkpoint {} of another transaction log", path);
+                return Optional.empty();
+            }
+            int rows = data.readInt();
+            if (rows > committedRows) {
+                logger.warn("Ignoring checkpoint {} of {} rows, the log only has {}", path, rows, committedRows);
+                return Optional.empty();
+            }
+            long maxTransactionId = data.readLong();
+            long[] accountIds = readLongs(data);
+            long[] balances = readLongs(data);
+            int[] postingOffsets = readInts(data);
+            int[] postingRows = readInts(data);
+
+            long checksum = crc.getValue();
+            boolean consistent = balances.length == accountIds.length
+                    && postingOffsets.length == accountIds.length + 1
+                    && postingRows.length == postingOffsets[accountIds.length];
+            if (new DataInputStream(file).readLong() != checksum || file.read() != -1 || !consistent) {
+                logger.warn("Ignoring corrupt checkpoint {}", path);
+                return Optional.empty();
+            }
+            return Optional.of(new Checkpoint(logId, rows, maxTransactionId, accountIds, balances,
+                    postingOffsets, postingRows));
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Ignoring unreadable checkpoint {}", path, e);
+            return Optional.empty();
+        }
+    }
+
+    private static long[] readLongs(DataInputStream data) throws IOException {
+        long[] values = new long[data.readInt()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = data.readLong();
+        }
+        return values;
+    }
+
+    private static int[] readInts(DataInputStream data) throws IOException {
+        int[] values = new int[data.readInt()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = data.readInt();
+        }
+        return values;
+    }
+}
@@ -0,0 +1,81 @@
+package com.netcompany.accountmanagementsystem.journal;
+
+import com.netcompany.accountmanagementsystem.index.BalanceLedger;
+import com.netcompany.accountmanagementsystem.index.BeneficiaryIndex;
+import com.netcompany.accountmanagementsystem.index.RowPostings;
+import com.netcompany.accountmanagementsystem.store.TransactionStore;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Writes a checkpoint of the first {@code rows} rows, see {@link LogFormat}.
+ * It only reads what a query at that number of rows would see, so it can run
+ * while new transactions are appended. The file is written next to its final
+ * location and moved into place.
+ */
+public class CheckpointWriter {
+
+    private static final int BUFFER_BYTES = 1 << 20;
+
+    public void write(Path path, long logId, int rows, long maxTransactionId, TransactionStore transactions,
+                      BalanceLedger ledger, BeneficiaryIndex index) throws IOException {
+        int accountCount = transactions.getAccountCount();
+        RowPostings[] postings = new RowPostings[accountCount];
+        int[] offsets = new int[accountCount + 1];
+        for (int ref = 0; ref < accountCount; ref++) {
+            postings[ref] = index.getRows(transactions.getAccountIdOfRef(ref));
+            offsets[ref + 1] = offsets[ref] + (postings[ref] == null ? 0 : postings[ref].countBelow(rows));
+        }
+
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            CRC32C crc = new CRC32C();
+            OutputStream file = Channels.newOutputStream(channel);
+            DataOutputStream data = new DataOutputStream(
+                    new CheckedOutputStream(new BufferedOutputStream(file, BUFFER_BYTES), crc));
+
+            data.writeInt(LogFormat.CHECKPOINT_MAGIC);
+            data.writeInt(LogFormat.VERSION);
+            data.writeLong(logId);
+            data.writeInt(rows);
+            data.writeLong(maxTransactionId);
+
+            data.writeInt(accountCount);
+            for (int ref = 0; ref < accountCount; ref++) {
+                data.writeLong(transactions.getAccountIdOfRef(ref));
+            }
+            data.writeInt(accountCount);
+            for (int ref = 0; ref < accountCount; ref++) {
+                data.writeLong(ledger.getBalanceCents(ref, postings[ref], transactions, rows));
+            }
+            data.writeInt(offsets.length);
+            for (int offset : offsets) {
+                data.writeInt(offset);
+            }
+            data.writeInt(offsets[accountCount]);
+            for (int ref = 0; ref < accountCount; ref++) {
+                for (int i = 0; i < offsets[ref + 1] - offsets[ref]; i++) {
+                    data.writeInt(postings[ref].get(i));
+                }
+            }
+
+            // The trailer is written past the checksummed stream
+            data.flush();
+            new DataOutputStream(file).writeLong(crc.getValue());
+            channel.force(true);
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,64 @@
+package com.netcompany.accountmanagementsystem.journal;
+
+/**
+ * Layout of the transaction log and its checkpoint. All numbers are
+ * big-endian.
+ *
+ * <p>The log is a directory of segment files {@code segment-000000.log},
+ * {@code segment-000001.log} and so on, each holding a fixed number of rows:
+ * <pre>
+ * header   magic int, version int, log id long, seed checksum long,
+ *          segment index int, rows per segment as a power of two int,
+ *          committed rows of the whole log int (only kept in the first
+ *          segment, zero in the others), zero padding to 64 bytes
+ * rows     32 bytes each: transaction id long, account id long,
+ *          amount in cents shifted left by 2 with the type code in the low
+ *          bits long, epoch day int, account reference int
+ * </pre>
+ * Rows beyond the committed count were written but never committed and are
+ * overwritten by the next append. Version 1 kept a committed count per
+ * segment.
+ *
+ * <p>The empty file {@code lock} is locked while a process has the log open.
+ *
+ * <p>The checkpoint file {@code checkpoint.bin} covers the first rows of the
+ * log:
+ * <pre>
+ * header   magic int, version int, log id long, rows int,
+ *          highest transaction id long
+ * arrays   account ids by account reference long[], balances in cents
+ *          long[], posting offsets int[account refs + 1], posting rows int[],
+ *          each preceded by its length int
+ * trailer  CRC32C of everything before it long
+ * </pre>
+ */
+final class LogFormat {
+
+    static final int SEGMENT_MAGIC = 0x414D534C; // "AMSL"
+    static final int CHECKPOINT_MAGIC = 0x414D5343; // "AMSC"
+    static final int VERSION = 2;
+
+    static final int HEADER_BYTES = 64;
+    static final int COMMITTED_OFFSET = 32;
+    static final int ROW_SHIFT = 5;
+    static final int ROW_BYTES = 1 << ROW_SHIFT;
+
+    static final int TRANSACTION_ID_OFFSET = 0;
+    static final int ACCOUNT_ID_OFFSET = 8;
+    static final int AMOUNT_OFFSET = 16;
+    static final int EPOCH_DAY_OFFSET = 24;
+    static final int ACCOUNT_REF_OFFSET = 28;
+
+    /** Segments are mapped whole, so one must stay below 2 GB. */
+    static final int MAX_SEGMENT_ROWS = 1 << 25;
+
+    static final String CHECKPOINT_FILE = "checkpoint.bin";
+    static final String LOCK_FILE = "lock";
+
+    private LogFormat() {
+    }
+
+    static String segmentFileName(int index) {
+        return String.format("segment-%06d.log", index);
+    }
+}
@@ -0,0 +1,351 @@
+package com.netcompany.accountmanagementsystem.journal;
+
+import com.netcompany.accountmanagementsystem.store.TransactionColumns;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Durable transaction columns: an append-only log of fixed-size rows in
+ * segment files, see {@link LogFormat}. Every segment is memory-mapped, so
+ * rows are read straight from the page cache and the data held by the log is
+ * bounded by disk space rather than heap.
+ *
+ * <p>Rows are written into the mapping as they are appended. {@link #commit}
+ * forces them to disk, if {@code sync} is set, and only then records the new
+ * number of committed rows of the whole log in the header of the first
+ * segment, with a single write. After a crash the log is opened with the
+ * committed rows only; a batch that was cut short is dropped as a whole, even
+ * if it spans several segments.
+ */
+public class TransactionLog implements TransactionColumns, Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(TransactionLog.class);
+
+    private final Path directory;
+    private final int segmentShift;
+    private final int segmentMask;
+    private final boolean sync;
+    private final long logId;
+    private final long seedChecksum;
+    private final List<FileChannel> channels = new ArrayList<>();
+    private FileChannel lockChannel;
+    private volatile MappedByteBuffer[] segments = new MappedByteBuffer[0];
+    private int committedRows;
+
+    private TransactionLog(Path directory, int segmentShift, boolean sync, long logId, long seedChecksum) {
+        this.directory = directory;
+        this.segmentShift = segmentShift;
+        this.segmentMask = (1 << segmentShift) - 1;
+        this.sync = sync;
+        this.logId = logId;
+        this.seedChecksum = seedChecksum;
+    }
+
+    /**
+     * Opens the log in {@code directory}, or creates an empty one. An existing
+     * log keeps the segment size and seed checksum it was created with. The
+     * directory is locked until {@link #close()}, so no second process
+     * appends to the same log.
+     *
+     * @param segmentRows  rows per segment file of a new log, a power of two
+     * @param sync         whether {@link #commit} forces the rows to disk
+     * @param seedChecksum checksum of the data a new log is seeded with
+     */
+    public static TransactionLog open(Path directory, int segmentRows, boolean sync, long seedChecksum)
+            throws IOException {
+        if (Integer.bitCount(segmentRows) != 1 || segmentRows > LogFormat.MAX_SEGMENT_ROWS) {
+            throw new IllegalArgumentException("Rows per segment must be a power of two up to "
+                    + LogFormat.MAX_SEGMENT_ROWS + ", not " + segmentRows);
+        }
+        Files.createDirectories(directory);
+        FileChannel lockChannel = lock(directory);
+        try {
+            TransactionLog log = openLocked(directory, segmentRows, sync, seedChecksum);
+            log.lockChannel = lockChannel;
+            return log;
+        } catch (IOException | RuntimeException e) {
+            lockChannel.close();
+            throw e;
+        }
+    }
+
+    private static FileChannel lock(Path directory) throws IOException {
+        FileChannel channel = FileChannel.open(directory.resolve(LogFormat.LOCK_FILE), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE);
+        try {
+            FileLock lock = channel.tryLock();
+            if (lock != null) {
+                return channel;
+            }
+        } catch (OverlappingFileLockException e) {
+            // Held by this process
+        }
+        channel.close();
+        throw new IOException("The transaction log " + directory + " is in use");
+    }
+
+    private static TransactionLog openLocked(Path directory, int segmentRows, boolean sync, long seedChecksum)
+            throws IOException {
+        Path first = directory.resolve(LogFormat.segmentFileName(0));
+        if (!Files.exists(first) || Files.size(first) < LogFormat.HEADER_BYTES || readMagic(first) == 0) {
+            // A first segment without a header was cut short while being created
+            long logId = ThreadLocalRandom.current().nextLong();
+            return new TransactionLog(directory, Integer.numberOfTrailingZeros(segmentRows), sync, logId, seedChecksum);
+        }
+
+        TransactionLog log;
+        try (FileChannel channel = FileChannel.open(first, StandardOpenOption.READ)) {
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, LogFormat.HEADER_BYTES);
+            if (header.getInt() != LogFormat.SEGMENT_MAGIC || header.getInt() != LogFormat.VERSION) {
+                throw new IOException("Not a transaction log of this version: " + first);
+            }
+            long logId = header.getLong();
+            long checksum = header.getLong();
+            header.getInt();
+            log = new TransactionLog(directory, header.getInt(), sync, logId, checksum);
+        }
+        try {
+            log.recover();
+        } catch (IOException | RuntimeException e) {
+            log.closeSegments();
+            throw e;
+        }
+        return log;
+    }
+
+    private static int readMagic(Path segment) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, Integer.BYTES).getInt();
+        }
+    }
+
+    /**
+     * Maps the existing segments and reads the committed rows from the header
+     * of the first one.
+     */
+    private void recover() throws IOException {
+        for (int index = 0; Files.exists(segmentPath(index)); index++) {
+            MappedByteBuffer segment = mapSegment(index, false);
+            if (segment.getInt(0) != LogFormat.SEGMENT_MAGIC || segment.getLong(8) != logId
+                    || segment.getInt(24) != index || segment.getInt(28) != segmentShift) {
+                throw new IOException("Segment " + segmentPath(index) + " does not belong to this log");
+            }
+        }
+        committedRows = segments[0].getInt(LogFormat.COMMITTED_OFFSET);
+        if (committedRows < 0 || committedRows > capacity()) {
+            throw new IOException("The transaction log " + directory + " counts " + committedRows
+                    + " committed rows, but its segments hold " + capacity());
+        }
+        logger.info("Opened transaction log {} with {} committed rows in {} segments", directory, committedRows,
+                segments.length);
+    }
+
+    private Path segmentPath(int index) {
+        return directory.resolve(LogFormat.segmentFileName(index));
+    }
+
+    private MappedByteBuffer mapSegment(int index, boolean create) throws IOException {
+        long bytes = LogFormat.HEADER_BYTES + ((long) LogFormat.ROW_BYTES << segmentShift);
+        FileChannel channel = FileChannel.open(segmentPath(index), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        channels.add(channel);
+        MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+        if (create || segment.getInt(0) == 0) {
+            // Also completes the header of a segment cut short while being created
+            segment.putInt(0, LogFormat.SEGMENT_MAGIC);
+            segment.putInt(4, LogFormat.VERSION);
+            segment.putLong(8, logId);
+            segment.putLong(16, seedChecksum);
+            segment.putInt(24, index);
+            segment.putInt(28, segmentShift);
+            segment.putInt(LogFormat.COMMITTED_OFFSET, 0);
+            segment.force(0, LogFormat.HEADER_BYTES);
+        }
+        MappedByteBuffer[] grown = Arrays.copyOf(segments, index + 1);
+        grown[index] = segment;
+        segments = grown;
+        return segment;
+    }
+
+    public long getLogId() {
+        return logId;
+    }
+
+    /**
+     * Checksum of the data the log was first seeded with.
+     */
+    public long getSeedChecksum() {
+        return seedChecksum;
+    }
+
+    public int getCommittedRows() {
+        return committedRows;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Where the checkpoint of this log belongs, see {@link CheckpointWriter}.
+     */
+    public Path getCheckpointPath() {
+        return directory.resolve(LogFormat.CHECKPOINT_FILE);
+    }
+
+    /**
+     * Bytes of all mapped segments. They live in the page cache, not the heap.
+     */
+    public long getMappedBytes() {
+        long perSegment = LogFormat.HEADER_BYTES + ((long) LogFormat.ROW_BYTES << segmentShift);
+        return perSegment * segments.length;
+    }
+
+    @Override
+    public int capacity() {
+        return (int) Math.min(Integer.MAX_VALUE, (long) segments.length << segmentShift);
+    }
+
+    @Override
+    public TransactionColumns grow(int capacity) {
+        try {
+            while (capacity() < capacity) {
+                mapSegment(segments.length, true);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not add a segment to the transaction log " + directory, e);
+        }
+        return this;
+    }
+
+    @Override
+    public TransactionColumns trim(int rows) {
+        return this;
+    }
+
+    @Override
+    public void set(int row, long transactionId, long accountId, int accountRef, long amountCents, byte type,
+                    int epochDay) {
+        MappedByteBuffer segment = segments[row >>> segmentShift];
+        int offset = offset(row);
+        segment.putLong(offset + LogFormat.TRANSACTION_ID_OFFSET, transactionId);
+        segment.putLong(offset + LogFormat.ACCOUNT_ID_OFFSET, accountId);
+        segment.putLong(offset + LogFormat.AMOUNT_OFFSET, amountCents << 2 | type);
+        segment.putInt(offset + LogFormat.EPOCH_DAY_OFFSET, epochDay);
+        segment.putInt(offset + LogFormat.ACCOUNT_REF_OFFSET, accountRef);
+    }
+
+    /**
+     * Commits the rows up to {@code rows}: the data of every segment they
+     * touch is forced to disk first, and then the committed count in the
+     * first header, so the batch is committed by that one write.
+     */
+    @Override
+    public void commit(int rows) {
+        if (rows <= committedRows) {
+            return;
+        }
+        MappedByteBuffer[] current = segments;
+        if (sync) {
+            for (int index = committedRows >>> segmentShift; index <= (rows - 1) >>> segmentShift; index++) {
+                int segmentStart = index << segmentShift;
+                int from = Math.max(committedRows, segmentStart) - segmentStart;
+                int to = Math.min(rows - segmentStart, segmentMask + 1);
+                current[index].force(LogFormat.HEADER_BYTES + from * LogFormat.ROW_BYTES,
+                        (to - from) * LogFormat.ROW_BYTES);
+            }
+        }
+        current[0].putInt(LogFormat.COMMITTED_OFFSET, rows);
+        if (sync) {
+            current[0].force(0, LogFormat.HEADER_BYTES);
+        }
+        committedRows = rows;
+    }
+
+    private int offset(int row) {
+        return LogFormat.HEADER_BYTES + ((row & segmentMask) << LogFormat.ROW_SHIFT);
+    }
+
+    @Override
+    public long getTransactionId(int row) {
+        return segments[row >>> segmentShift].getLong(offset(row) + LogFormat.TRANSACTION_ID_OFFSET);
+    }
+
+    /**
+     * Account id the row was written with; the store itself only needs the
+     * reference, but recovery rebuilds the dictionary from the ids.
+     */
+    public long getAccountId(int row) {
+        return segments[row >>> segmentShift].getLong(offset(row) + LogFormat.ACCOUNT_ID_OFFSET);
+    }
+
+    @Override
+    public int getAccountRef(int row) {
+        return segments[row >>> segmentShift].getInt(offset(row) + LogFormat.ACCOUNT_REF_OFFSET);
+    }
+
+    @Override
+    public long getAmountCents(int row) {
+        return segments[row >>> segmentShift].getLong(offset(row) + LogFormat.AMOUNT_OFFSET) >> 2;
+    }
+
+    @Override
+    public byte getType(int row) {
+        return (byte) (segments[row >>> segmentShift].getLong(offset(row) + LogFormat.AMOUNT_OFFSET) & 3);
+    }
+
+    @Override
+    public int getEpochDay(int row) {
+        return segments[row >>> segmentShift].getInt(offset(row) + LogFormat.EPOCH_DAY_OFFSET);
+    }
+
+    @Override
+    public long getEstimatedBytes() {
+        return (long) Long.BYTES * segments.length;
+    }
+
+    /**
+     * Closes the segment files. Rows that were appended but not committed are
+     * lost, as after a crash.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            closeSegments();
+        } finally {
+            if (lockChannel != null) {
+                lockChannel.close();
+            }
+        }
+    }
+
+    private void closeSegments() throws IOException {
+        IOException failure = null;
+        for (FileChannel channel : channels) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        channels.clear();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.netcompany.accountmanagementsystem.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Meters recorded by the service. Meters are looked up once per tag and then
+ * kept, so recording on the query path is a map lookup and an atomic update.
+ * <ul>
+ *     <li>{@code account.service.calls}: time per service method</li>
+ *     <li>{@code account.service.rows}: transaction rows read per query</li>
+ *     <li>{@code account.service.accounts}: accounts aggregated per query</li>
+ *     <li>{@code account.data.load}: time to load the data, by source</li>
+ *     <li>{@code account.data.load.errors}: rows skipped while loading, by file</li>
+ *     <li>{@code account.log.checkpoints}: time to write a checkpoint of the transaction log</li>
+ * </ul>
+ */
+public class ServiceMetrics {
+
+    private final MeterRegistry registry;
+    private final Map<String, Timer> calls = new ConcurrentHashMap<>();
+    private final Map<String, DistributionSummary> rows = new ConcurrentHashMap<>();
+    private final Map<String, DistributionSummary> accounts = new ConcurrentHashMap<>();
+
+    public ServiceMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    public MeterRegistry getRegistry() {
+        return registry;
+    }
+
+    /**
+     * Records a call of the service method that started at {@code startNanos}
+     * ({@link System#nanoTime}).
+     */
+    public void recordCall(String method, long startNanos) {
+        long duration = System.nanoTime() - startNanos;
+        Timer timer = calls.get(method);
+        if (timer == null) {
+            timer = calls.computeIfAbsent(method, name -> Timer.builder("account.service.calls")
+                    .description("Time spent in service methods")
+                    .tag("method", name)
+                    .register(registry));
+        }
+        timer.record(duration, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordRows(String method, long count) {
+        DistributionSummary summary = rows.get(method);
+        if (summary == null) {
+            summary = rows.computeIfAbsent(method, name -> DistributionSummary.builder("account.service.rows")
+                    .description("Transaction rows read per query")
+                    .tag("method", name)
+                    .register(registry));
+        }
+        summary.record(count);
+    }
+
+    public void recordAccounts(String method, int count) {
+        DistributionSummary summary = accounts.get(method);
+        if (summary == null) {
+            summary = accounts.computeIfAbsent(method, name -> DistributionSummary.builder("account.service.accounts")
+                    .description("Accounts aggregated per query")
+                    .tag("method", name)
+                    .register(registry));
+        }
+        summary.record(count);
+    }
+
+    public void recordLoad(String source, long startNanos) {
+        Timer.builder("account.data.load")
+                .description("Time to load the data at startup")
+                .tag("source", source)
+                .register(registry)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordLoadErrors(String file, long count) {
+        Counter.builder("account.data.load.errors")
+                .description("Malformed rows skipped while loading")
+                .tag("file", file)
+                .register(registry)
+                .increment(count);
+    }
+
+    public void recordCheckpoint(long startNanos) {
+        Timer.builder("account.log.checkpoints")
+                .description("Time to write a checkpoint of the transaction log")
+                .register(registry)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,19 @@
+package com.netcompany.accountmanagementsystem.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Balance of an account, with the beneficiary it belongs to if known.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AccountBalance {
+    private Long accountId;
+    private Long beneficiaryId;
+    private BigDecimal balance;
+}
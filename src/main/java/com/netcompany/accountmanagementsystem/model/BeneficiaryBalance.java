@@ -0,0 +1,16 @@
+package com.netcompany.accountmanagementsystem.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Total balance of a beneficiary over all their accounts.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BeneficiaryBalance {
+    private Long beneficiaryId;
+    private Double totalBalance;
+}
@@ -0,0 +1,28 @@
+package com.netcompany.accountmanagementsystem.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Everything one beneficiary screen shows, computed from the same rows.
+ * Sections that were not requested are left null and omitted from the JSON.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BeneficiarySummary {
+    private Long beneficiaryId;
+    private Beneficiary details;
+    private List<Account> accounts;
+    private Map<Long, BigDecimal> accountBalances;
+    private Double totalBalance;
+    private Transaction largestWithdrawal;
+    private List<Transaction> transactions;
+}
@@ -0,0 +1,19 @@
+package com.netcompany.accountmanagementsystem.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Largest withdrawal of one beneficiary in a batch, or the error for that id.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class LargestWithdrawalResult {
+    private Long beneficiaryId;
+    private Transaction largestWithdrawal;
+    private String error;
+}
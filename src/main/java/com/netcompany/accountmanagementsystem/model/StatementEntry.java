@@ -0,0 +1,24 @@
+package com.netcompany.accountmanagementsystem.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * One period of an account statement: the balance before and after the
+ * period and the deposits and withdrawals in between.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StatementEntry {
+    private String period;
+    private BigDecimal openingBalance;
+    private BigDecimal deposits;
+    private long depositCount;
+    private BigDecimal withdrawals;
+    private long withdrawalCount;
+    private BigDecimal closingBalance;
+}
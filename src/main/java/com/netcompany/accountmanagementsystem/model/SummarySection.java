@@ -0,0 +1,53 @@
+package com.netcompany.accountmanagementsystem.model;
+
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Parts of a {@link BeneficiarySummary}, named like the endpoints that return
+ * them on their own.
+ */
+public enum SummarySection {
+    DETAILS("details"),
+    ACCOUNTS("accounts"),
+    ACCOUNT_BALANCES("account-balances"),
+    TOTAL_BALANCE("total-balance"),
+    LARGEST_WITHDRAWAL("largest-withdrawal"),
+    TRANSACTIONS("transactions");
+
+    private final String name;
+
+    SummarySection(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Parses section names; no names at all selects every section.
+     *
+     * @throws IllegalArgumentException for an unknown name
+     */
+    public static Set<SummarySection> parse(Collection<String> names) {
+        if (names == null || names.isEmpty()) {
+            return EnumSet.allOf(SummarySection.class);
+        }
+        Set<SummarySection> sections = EnumSet.noneOf(SummarySection.class);
+        for (String name : names) {
+            sections.add(of(name.trim()));
+        }
+        return sections;
+    }
+
+    private static SummarySection of(String name) {
+        for (SummarySection section : values()) {
+            if (section.name.equals(name)) {
+                return section;
+            }
+        }
+        throw new IllegalArgumentException("Unknown summary section " + name);
+    }
+}
@@ -0,0 +1,19 @@
+package com.netcompany.accountmanagementsystem.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Total balance of one beneficiary in a batch, or the error for that id.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class TotalBalanceResult {
+    private Long beneficiaryId;
+    private Double totalBalance;
+    private String error;
+}
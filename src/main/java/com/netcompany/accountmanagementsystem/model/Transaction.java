@@ -13,6 +13,7 @@ import java.time.LocalDate;
 public class Transaction {
     private Long transactionId;
     private Long accountId;
+    // The closest double to a whole number of cents; Money.ofDouble reads it back exactly
     private double amount;
     private String type;
     @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd")
@@ -0,0 +1,23 @@
+package com.netcompany.accountmanagementsystem.model;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * Optional criteria for listing transactions; a null field matches all.
+ * Both dates are inclusive.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransactionFilter {
+    private String type;
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd")
+    private LocalDate from;
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd")
+    private LocalDate to;
+}
@@ -0,0 +1,19 @@
+package com.netcompany.accountmanagementsystem.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One page of transactions. {@code nextCursor} continues after the last
+ * transaction of the page and is null on the last page.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransactionPage {
+    private List<Transaction> transactions;
+    private String nextCursor;
+}
@@ -0,0 +1,29 @@
+package com.netcompany.accountmanagementsystem.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Criteria of a transaction search over all accounts; a null field matches
+ * all. Amount and date bounds are inclusive. Without a sort, results come in
+ * load order.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransactionSearch {
+    private String type;
+    private BigDecimal minAmount;
+    private BigDecimal maxAmount;
+    private LocalDate from;
+    private LocalDate to;
+    private List<Long> accountIds;
+    private TransactionSort sort;
+    private boolean descending;
+    private int limit;
+}
@@ -0,0 +1,18 @@
+package com.netcompany.accountmanagementsystem.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * The first transactions of a search, and how many matched in total.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransactionSearchResult {
+    private long total;
+    private List<Transaction> transactions;
+}
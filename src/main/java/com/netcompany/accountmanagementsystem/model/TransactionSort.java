@@ -0,0 +1,43 @@
+package com.netcompany.accountmanagementsystem.model;
+
+import java.util.Comparator;
+
+/**
+ * Order of transaction search results. Ties are broken by transaction id.
+ */
+public enum TransactionSort {
+    DATE("date", Comparator.comparing(Transaction::getDate)),
+    AMOUNT("amount", Comparator.comparingDouble(Transaction::getAmount)),
+    ID("id", Comparator.comparing(Transaction::getTransactionId));
+
+    private final String name;
+    private final Comparator<Transaction> comparator;
+
+    TransactionSort(String name, Comparator<Transaction> comparator) {
+        this.name = name;
+        this.comparator = comparator.thenComparing(Transaction::getTransactionId);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Orders transactions the way a search sorts them.
+     */
+    public Comparator<Transaction> comparator(boolean descending) {
+        return descending ? comparator.reversed() : comparator;
+    }
+
+    /**
+     * @throws IllegalArgumentException for an unknown name
+     */
+    public static TransactionSort of(String name) {
+        for (TransactionSort sort : values()) {
+            if (sort.name.equals(name)) {
+                return sort;
+            }
+        }
+        throw new IllegalArgumentException("Unknown sort " + name);
+    }
+}
@@ -0,0 +1,22 @@
+package com.netcompany.accountmanagementsystem.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Deposit and withdrawal totals of one period: a day such as
+ * {@code 2024-03-05} or a month such as {@code 2024-03}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class VolumeEntry {
+    private String period;
+    private BigDecimal deposits;
+    private long depositCount;
+    private BigDecimal withdrawals;
+    private long withdrawalCount;
+}
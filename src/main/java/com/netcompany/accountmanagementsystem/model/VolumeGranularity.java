@@ -0,0 +1,31 @@
+package com.netcompany.accountmanagementsystem.model;
+
+/**
+ * Period length of a volume report or an account statement.
+ */
+public enum VolumeGranularity {
+    DAY("day"),
+    MONTH("month");
+
+    private final String name;
+
+    VolumeGranularity(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @throws IllegalArgumentException for an unknown name
+     */
+    public static VolumeGranularity of(String name) {
+        for (VolumeGranularity granularity : values()) {
+            if (granularity.name.equals(name)) {
+                return granularity;
+            }
+        }
+        throw new IllegalArgumentException("Unknown granularity " + name);
+    }
+}
@@ -1,168 +1,1886 @@
 package com.netcompany.accountmanagementsystem.service;
 
+import com.netcompany.accountmanagementsystem.analytics.GlobalAggregate;
+import com.netcompany.accountmanagementsystem.analytics.TransactionAnalytics;
+import com.netcompany.accountmanagementsystem.cache.CacheStats;
+import com.netcompany.accountmanagementsystem.cache.QueryCache;
+import com.netcompany.accountmanagementsystem.config.CacheProperties;
+import com.netcompany.accountmanagementsystem.config.DataProperties;
+import com.netcompany.accountmanagementsystem.config.LogProperties;
+import com.netcompany.accountmanagementsystem.config.ShardProperties;
+import com.netcompany.accountmanagementsystem.index.AccountRollup;
+import com.netcompany.accountmanagementsystem.index.BalanceLedger;
+import com.netcompany.accountmanagementsystem.index.BeneficiaryIndex;
+import com.netcompany.accountmanagementsystem.index.RollupIndex;
+import com.netcompany.accountmanagementsystem.index.RowMerger;
+import com.netcompany.accountmanagementsystem.index.RowPostings;
+import com.netcompany.accountmanagementsystem.index.SearchIndex;
+import com.netcompany.accountmanagementsystem.index.TimelineIndex;
+import com.netcompany.accountmanagementsystem.ingest.CsvIngestor;
+import com.netcompany.accountmanagementsystem.ingest.DirectoryWatcher;
+import com.netcompany.accountmanagementsystem.ingest.IngestError;
+import com.netcompany.accountmanagementsystem.ingest.IngestResult;
+import com.netcompany.accountmanagementsystem.ingest.TransactionBatch;
+import com.netcompany.accountmanagementsystem.ingest.TransactionTail;
+import com.netcompany.accountmanagementsystem.journal.Checkpoint;
+import com.netcompany.accountmanagementsystem.journal.CheckpointReader;
+import com.netcompany.accountmanagementsystem.journal.CheckpointWriter;
+import com.netcompany.accountmanagementsystem.journal.TransactionLog;
+import com.netcompany.accountmanagementsystem.metrics.ServiceMetrics;
 import com.netcompany.accountmanagementsystem.model.Account;
+import com.netcompany.accountmanagementsystem.model.AccountBalance;
 import com.netcompany.accountmanagementsystem.model.Beneficiary;
+import com.netcompany.accountmanagementsystem.model.BeneficiaryBalance;
+import com.netcompany.accountmanagementsystem.model.BeneficiarySummary;
+import com.netcompany.accountmanagementsystem.model.LargestWithdrawalResult;
+import com.netcompany.accountmanagementsystem.model.StatementEntry;
+import com.netcompany.accountmanagementsystem.model.SummarySection;
+import com.netcompany.accountmanagementsystem.model.TotalBalanceResult;
 import com.netcompany.accountmanagementsystem.model.Transaction;
-import com.opencsv.exceptions.CsvValidationException;
+import com.netcompany.accountmanagementsystem.model.TransactionFilter;
+import com.netcompany.accountmanagementsystem.model.TransactionPage;
+import com.netcompany.accountmanagementsystem.model.TransactionSearch;
+import com.netcompany.accountmanagementsystem.model.TransactionSearchResult;
+import com.netcompany.accountmanagementsystem.model.TransactionSort;
+import com.netcompany.accountmanagementsystem.model.VolumeEntry;
+import com.netcompany.accountmanagementsystem.model.VolumeGranularity;
+import com.netcompany.accountmanagementsystem.shard.ShardMap;
+import com.netcompany.accountmanagementsystem.snapshot.SnapshotData;
+import com.netcompany.accountmanagementsystem.snapshot.SnapshotReader;
+import com.netcompany.accountmanagementsystem.snapshot.SnapshotWriter;
+import com.netcompany.accountmanagementsystem.snapshot.SourceChecksum;
+import com.netcompany.accountmanagementsystem.store.Money;
+import com.netcompany.accountmanagementsystem.store.TransactionStore;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.roaringbitmap.FastAggregation;
+import org.roaringbitmap.PeekableIntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import org.roaringbitmap.longlong.Roaring64Bitmap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.core.io.ClassPathResource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
 import org.springframework.stereotype.Service;
-import com.opencsv.CSVReader;
+import org.springframework.util.StringUtils;
 
-import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.IOException;
-import java.math.RoundingMode;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
+import java.time.YearMonth;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 
+/**
+ * Serves beneficiaries, accounts and transactions from memory. Any number of
+ * readers run without locking while new transactions are appended or the
+ * data is reloaded: a query takes the current {@link View} once and works on
+ * the data as of that point.
+ */
 @Service
+@Lazy(false)
 public class AccountManagementService {
 
     private static final Logger logger = LoggerFactory.getLogger(AccountManagementService.class);
+    private static final int PARALLEL_BATCH_SIZE = 64;
+    private static final String BENEFICIARIES_FILE = "beneficiaries.csv";
+    private static final String ACCOUNTS_FILE = "accounts.csv";
+    private static final String TRANSACTIONS_FILE = "transactions.csv";
+    // Replayed rows between progress updates, minus one
+    private static final int PROGRESS_MASK = (1 << 16) - 1;
+
+    // The writer's state; queries only read the published view
+    private Map<Long, Beneficiary> beneficiaries = new HashMap<>();
+    private Map<Long, Account> accounts = new HashMap<>();
+    private BeneficiaryIndex index = new BeneficiaryIndex();
+    private TimelineIndex timelines = new TimelineIndex();
+    private RollupIndex rollups = new RollupIndex();
+    private SearchIndex search = new SearchIndex();
+    private TransactionStore transactions = new TransactionStore();
+    private BalanceLedger ledger = new BalanceLedger();
+    // Ids of the first storedIdRows rows of storedIdStore, caught up when a client id needs checking
+    private Roaring64Bitmap storedIds;
+    private TransactionStore storedIdStore;
+    private int storedIdRows;
+    private final Object writeLock = new Object();
+    private volatile View view;
+    private final TransactionAnalytics analytics = new TransactionAnalytics();
+
+    private final QueryCache<QueryKey, Object> cache;
+    private final Map<Long, Long> beneficiaryVersions = new ConcurrentHashMap<>();
+    private final AtomicLong versionSequence = new AtomicLong();
+    private final String instanceTag = Long.toString(System.currentTimeMillis(), 36);
+    private final ServiceMetrics metrics;
+    private final WarmUp warmUp = new WarmUp();
+
+    private final ShardMap shards;
+    // Accounts of other shards, whose transactions are not loaded
+    private Set<Long> foreignAccounts = Set.of();
+    // Highest id of the rows read from the data files, the other shards' included
+    private long sourceMaxTransactionId;
+
+    private TransactionLog log;
+    private Path checkpointPath;
+    private int checkpointInterval;
+    private volatile int checkpointRows;
+    private final AtomicBoolean checkpointPending = new AtomicBoolean();
+    private ExecutorService checkpointer;
 
-    private final Map<Long, Beneficiary> beneficiaries = new HashMap<>();
-    private final Map<Long, Account> accounts = new HashMap<>();
-    private final List<Transaction> transactions = new ArrayList<>();
+    private Path dataDirectory;
+    private Resource beneficiariesCsv;
+    private Resource accountsCsv;
+    private TransactionTail transactionTail;
+    private BitSet addedRows;
+    private final Object reloadLock = new Object();
+    private DirectoryWatcher watcher;
+    private boolean closed;
+
+    /**
+     * Everything a query reads, published as one unit. Only the first
+     * {@code rows} transactions belong to the view, so rows appended for the
+     * next view stay invisible until it is published. Tables are replaced
+     * rather than changed once they are in a view.
+     */
+    private record View(Map<Long, Beneficiary> beneficiaries, Map<Long, Account> accounts, BeneficiaryIndex index,
+                        TimelineIndex timelines, RollupIndex rollups, SearchIndex search,
+                        TransactionStore transactions, BalanceLedger ledger, int rows) {
+    }
 
     public AccountManagementService() {
-        loadBeneficiaries();
-        loadAccounts();
-        loadTransactions();
+        this(new DataProperties());
+    }
+
+    public AccountManagementService(DataProperties dataProperties) {
+        this(dataProperties, new CacheProperties());
+    }
+
+    public AccountManagementService(DataProperties dataProperties, CacheProperties cacheProperties) {
+        this(dataProperties, cacheProperties, new SimpleMeterRegistry());
+    }
+
+    public AccountManagementService(DataProperties dataProperties, CacheProperties cacheProperties,
+                                    MeterRegistry meterRegistry) {
+        this(dataProperties, cacheProperties, new LogProperties(), meterRegistry);
     }
 
-    private void loadBeneficiaries() {
-        try (InputStream inputStream = new ClassPathResource("beneficiaries.csv").getInputStream();
-             CSVReader reader = new CSVReader(new InputStreamReader(inputStream))) {
+    public AccountManagementService(DataProperties dataProperties, CacheProperties cacheProperties,
+                                    LogProperties logProperties, MeterRegistry meterRegistry) {
+        this(dataProperties, cacheProperties, logProperties, new ShardProperties(), meterRegistry);
+    }
+
+    @Autowired
+    public AccountManagementService(DataProperties dataProperties, CacheProperties cacheProperties,
+                                    LogProperties logProperties, ShardProperties shardProperties,
+                                    MeterRegistry meterRegistry) {
+        shards = new ShardMap(shardProperties);
+        cache = new QueryCache<>(cacheProperties.getMaximumSize(), cacheProperties.getTimeToLive());
+        metrics = new ServiceMetrics(meterRegistry);
+        // The writer's tables are filled in place while loading, so they are first published once loaded
+        view = emptyView();
+        registerGauges(meterRegistry);
 
-            String[] line;
-            reader.readNext(); // Skip header
-            while ((line = reader.readNext()) != null) {
-                Beneficiary beneficiary = new Beneficiary(Long.parseLong(line[0]), line[1], line[2]);
-                beneficiaries.put(beneficiary.getBeneficiaryId(), beneficiary);
+        if (dataProperties.isBackground()) {
+            Thread loader = new Thread(() -> {
+                try {
+                    load(dataProperties, logProperties, meterRegistry);
+                } catch (RuntimeException e) {
+                    logger.error("Could not load the data, the service stays unavailable", e);
+                }
+            }, "data-warm-up");
+            loader.setDaemon(true);
+            loader.start();
+        } else {
+            load(dataProperties, logProperties, meterRegistry);
+        }
+    }
+
+    /**
+     * Loads the data and starts watching the data directory, reporting the
+     * progress to {@link #getWarmUp()}. The locks are held throughout, so
+     * transactions added or files reloaded meanwhile wait for it.
+     */
+    private void load(DataProperties dataProperties, LogProperties logProperties, MeterRegistry meterRegistry) {
+        try {
+            synchronized (reloadLock) {
+                if (closed) {
+                    throw new IllegalStateException("The service was closed before its data was loaded");
+                }
+                synchronized (writeLock) {
+                    warmUp.reading();
+                    if (shards.isRouter()) {
+                        logger.info("Routing the API requests to the shards {}, no data is loaded", shards.getNodes());
+                    } else {
+                        loadData(dataProperties, logProperties, meterRegistry);
+                    }
+                }
             }
-        } catch (IOException | CsvValidationException e) {
-            logger.error("Error loading beneficiaries from CSV", e);
+            warmUp.ready();
+        } catch (RuntimeException e) {
+            warmUp.failed(e);
+            throw e;
+        }
+    }
+
+    private void loadData(DataProperties dataProperties, LogProperties logProperties, MeterRegistry meterRegistry) {
+        long start = System.nanoTime();
+        if (shards.isSharded()) {
+            logger.info("Loading shard {} of {}", shards.getIndex(), shards.getCount());
+        }
+        ResourceLoader resourceLoader = new DefaultResourceLoader();
+        Path directory = StringUtils.hasText(dataProperties.getDirectory()) ? Path.of(dataProperties.getDirectory()) : null;
+        beneficiariesCsv = directory != null ? new FileSystemResource(directory.resolve(BENEFICIARIES_FILE))
+                : resourceLoader.getResource(dataProperties.getBeneficiaries());
+        accountsCsv = directory != null ? new FileSystemResource(directory.resolve(ACCOUNTS_FILE))
+                : resourceLoader.getResource(dataProperties.getAccounts());
+        Resource transactionsCsv = directory != null ? new FileSystemResource(directory.resolve(TRANSACTIONS_FILE))
+                : resourceLoader.getResource(dataProperties.getTransactions());
+        dataDirectory = directory;
+
+        if (StringUtils.hasText(logProperties.getDirectory())) {
+            openLog(logProperties, meterRegistry, beneficiariesCsv, accountsCsv, transactionsCsv);
+            publishView();
+            scheduleCheckpoint();
+            metrics.recordLoad("log", start);
+            logger.info("Loaded {} beneficiaries, {} accounts and {} transactions with the transaction log {} in {} ms",
+                    beneficiaries.size(), accounts.size(), transactions.size(), log.getDirectory(),
+                    (System.nanoTime() - start) / 1_000_000);
+            if (directory != null) {
+                logger.info("Changes to {} are not reloaded while the transaction log is enabled", TRANSACTIONS_FILE);
+            }
+        } else if (directory != null) {
+            // Everything is new to the first reload
+            transactionTail = new TransactionTail(directory.resolve(TRANSACTIONS_FILE), new CsvIngestor());
+            addedRows = new BitSet();
+            reload();
+            metrics.recordLoad("directory", start);
+        } else {
+            loadFiles(dataProperties, beneficiariesCsv, accountsCsv, transactionsCsv, start);
+        }
+
+        if (directory != null && dataProperties.isWatch()) {
+            try {
+                watcher = DirectoryWatcher.start(directory, Set.of(BENEFICIARIES_FILE, ACCOUNTS_FILE, TRANSACTIONS_FILE),
+                        dataProperties.getReloadDelay(), this::reload);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not watch the data directory " + directory, e);
+            }
+        }
+    }
+
+    private void loadFiles(DataProperties dataProperties, Resource beneficiariesCsv, Resource accountsCsv,
+                           Resource transactionsCsv, long start) {
+        // A snapshot holds only the shard's rows, not the highest id of the others
+        Path snapshotPath = StringUtils.hasText(dataProperties.getSnapshotPath()) && !shards.isSharded()
+                ? Path.of(dataProperties.getSnapshotPath()) : null;
+        Long sourceChecksum = snapshotPath == null ? null : sourceChecksum(beneficiariesCsv, accountsCsv, transactionsCsv);
+        Optional<SnapshotData> snapshot = sourceChecksum == null
+                ? Optional.empty() : new SnapshotReader().read(snapshotPath, sourceChecksum);
+
+        if (snapshot.isPresent()) {
+            apply(snapshot.get());
+            publishView();
+            metrics.recordLoad("snapshot", start);
+            logger.info("Loaded {} beneficiaries, {} accounts and {} transactions from snapshot {} in {} ms",
+                    beneficiaries.size(), accounts.size(), transactions.size(), snapshotPath,
+                    (System.nanoTime() - start) / 1_000_000);
+            return;
+        }
+
+        apply(new CsvIngestor().load(beneficiariesCsv, accountsCsv, transactionsCsv));
+        publishView();
+        metrics.recordLoad("csv", start);
+        logger.info("Loaded {} beneficiaries, {} accounts and {} transactions from CSV in {} ms",
+                beneficiaries.size(), accounts.size(), transactions.size(), (System.nanoTime() - start) / 1_000_000);
+
+        if (sourceChecksum != null) {
+            writeSnapshot(snapshotPath, sourceChecksum);
+        }
+    }
+
+    /**
+     * Publishes the writer's state, including every published row of the
+     * store, as the view of new queries.
+     */
+    private void publishView() {
+        view = new View(beneficiaries, accounts, index, timelines, rollups, search, transactions, ledger,
+                transactions.size());
+    }
+
+    /**
+     * A view without any data, served until the load publishes the first one.
+     * It shares no tables with the writer.
+     */
+    private static View emptyView() {
+        return new View(Map.of(), Map.of(), new BeneficiaryIndex(), new TimelineIndex(), new RollupIndex(),
+                new SearchIndex(), new TransactionStore(), new BalanceLedger(), 0);
+    }
+
+    /**
+     * Gauges read the current state when the registry is scraped, so they
+     * cost nothing on the query path.
+     */
+    private void registerGauges(MeterRegistry registry) {
+        Gauge.builder("account.data.rows", this, service -> service.view.beneficiaries().size())
+                .tag("file", "beneficiaries").description("Rows held in memory").register(registry);
+        Gauge.builder("account.data.rows", this, service -> service.view.accounts().size())
+                .tag("file", "accounts").description("Rows held in memory").register(registry);
+        Gauge.builder("account.data.rows", this, service -> service.view.rows())
+                .tag("file", "transactions").description("Rows held in memory").register(registry);
+        Gauge.builder("account.store.bytes", this, service -> service.view.transactions().getEstimatedBytes())
+                .description("Estimated heap used by the transaction columns").baseUnit("bytes").register(registry);
+        Gauge.builder("account.index.timelines", this, service -> service.view.timelines().size())
+                .description("Accounts with a built withdrawal timeline").register(registry);
+        Gauge.builder("account.index.rollups", this, service -> service.view.rollups().size())
+                .description("Accounts with built daily and monthly rollups").register(registry);
+        Gauge.builder("account.index.search.rows", this, service -> service.view.search().size())
+                .description("Transactions covered by the search bitmaps").register(registry);
+
+        FunctionCounter.builder("account.cache.requests", cache, c -> c.getStats().getHits()).tag("result", "hit")
+                .description("Query cache lookups").register(registry);
+        FunctionCounter.builder("account.cache.requests", cache, c -> c.getStats().getMisses()).tag("result", "miss")
+                .description("Query cache lookups").register(registry);
+        FunctionCounter.builder("account.cache.loads", cache, c -> c.getStats().getLoads())
+                .description("Queries computed on a cache miss").register(registry);
+        FunctionCounter.builder("account.cache.evictions", cache, c -> c.getStats().getEvictions())
+                .description("Results evicted from the query cache").register(registry);
+        Gauge.builder("account.cache.size", cache, c -> c.getStats().getSize())
+                .description("Results held in the query cache").register(registry);
+    }
+
+    private Long sourceChecksum(Resource... resources) {
+        try {
+            // Every shard derives different data from the same files
+            return SourceChecksum.of(resources) ^ shards.fingerprint();
+        } catch (IOException e) {
+            logger.warn("Could not checksum the CSV files, not using a snapshot", e);
+            return null;
         }
     }
 
-    private void loadAccounts() {
-        try (InputStream inputStream = new ClassPathResource("accounts.csv").getInputStream();
-             CSVReader reader = new CSVReader(new InputStreamReader(inputStream))) {
+    private void writeSnapshot(Path snapshotPath, long sourceChecksum) {
+        try {
+            new SnapshotWriter().write(snapshotPath, sourceChecksum, beneficiaries.values(), accounts.values(),
+                    transactions, ledger);
+            logger.info("Wrote snapshot {}", snapshotPath);
+        } catch (IOException e) {
+            logger.warn("Could not write snapshot {}", snapshotPath, e);
+        }
+    }
+
+    private void apply(IngestResult loaded) {
+        IngestResult result = ownShard(loaded);
+        reportErrors(result.getErrors());
+
+        result.getBeneficiaries().forEach(this::addBeneficiary);
+        result.getAccounts().forEach(this::addAccount);
+
+        transactions.ensureCapacity((int) (result.getTransactionCount() / shards.getCount()));
+        warmUp.indexing(result.getTransactionCount());
+        long indexed = 0;
+        for (TransactionBatch batch : result.getTransactionBatches()) {
+            for (int i = 0; i < batch.size(); i++) {
+                if (skipped(batch, i)) {
+                    continue;
+                }
+                applyTransaction(batch.getTransactionId(i), batch.getAccountId(i), batch.getAmountCents(i),
+                        batch.getType(i), batch.getEpochDay(i));
+            }
+            indexed += batch.size();
+            warmUp.indexed(indexed);
+        }
+        // The capacity was estimated up front; a shard keeps only part of the rows
+        transactions.trimToSize();
+        publishTransactions();
+    }
 
-            String[] line;
-            reader.readNext(); // Skip header
-            while ((line = reader.readNext()) != null) {
-                Account account = new Account(Long.parseLong(line[0]), Long.parseLong(line[1]));
-                accounts.put(account.getAccountId(), account);
+    /**
+     * Keeps the beneficiaries and accounts of this instance's shard, and
+     * remembers the accounts of the other shards so their transactions are
+     * skipped.
+     */
+    private IngestResult ownShard(IngestResult result) {
+        if (!shards.isSharded()) {
+            return result;
+        }
+        List<Account> owned = new ArrayList<>();
+        Set<Long> foreign = new HashSet<>();
+        for (Account account : result.getAccounts()) {
+            if (shards.owns(account.getBeneficiaryId())) {
+                owned.add(account);
+            } else {
+                foreign.add(account.getAccountId());
             }
-        } catch (IOException | CsvValidationException e) {
-            logger.error("Error loading accounts from CSV", e);
         }
+        foreignAccounts = foreign;
+        List<Beneficiary> beneficiaries = result.getBeneficiaries().stream()
+                .filter(beneficiary -> shards.owns(beneficiary.getBeneficiaryId()))
+                .toList();
+        return new IngestResult(beneficiaries, owned, result.getTransactionBatches(), result.getErrors());
     }
 
-    private void loadTransactions() {
-        try (InputStream inputStream = new ClassPathResource("transactions.csv").getInputStream();
-             CSVReader reader = new CSVReader(new InputStreamReader(inputStream))) {
+    /**
+     * Whether the row belongs to another shard. Its id still counts as taken,
+     * so ids assigned here never collide with the other shards' rows.
+     */
+    private boolean skipped(TransactionBatch batch, int i) {
+        sourceMaxTransactionId = Math.max(sourceMaxTransactionId, batch.getTransactionId(i));
+        if (!foreign(batch.getAccountId(i))) {
+            return false;
+        }
+        transactions.reserveTransactionId(batch.getTransactionId(i));
+        return true;
+    }
+
+    /**
+     * Whether the account's transactions belong to another shard. Those of
+     * accounts that no shard knows stay with the first one.
+     */
+    private boolean foreign(long accountId) {
+        return shards.isSharded() && (foreignAccounts.contains(accountId)
+                || shards.getIndex() != 0 && !accounts.containsKey(accountId));
+    }
+
+    private void apply(SnapshotData snapshot) {
+        snapshot.getBeneficiaries().forEach(this::addBeneficiary);
+        snapshot.getAccounts().forEach(this::addAccount);
+
+        transactions = snapshot.getTransactions();
+        warmUp.indexing(transactions.size());
+        restore(snapshot.getBalances(), snapshot.getPostingOffsets(), snapshot.getPostingRows());
+        warmUp.indexed(transactions.size());
+    }
 
-            String[] line;
-            reader.readNext(); // Skip header
-            while ((line = reader.readNext()) != null) {
-                Transaction transaction = new Transaction(
-                        Long.parseLong(line[0]),
-                        Long.parseLong(line[1]),
-                        Double.parseDouble(line[2]),
-                        line[3],
-                        LocalDate.parse(line[4], DateTimeFormatter.ofPattern("MM/dd/yy"))
-                );
-                transactions.add(transaction);
+    /**
+     * Sets the ledger and postings from precomputed balances and postings of
+     * the account references of the current store.
+     */
+    private void restore(long[] balances, int[] offsets, int[] rows) {
+        int[] counts = new int[offsets.length - 1];
+        for (int ref = 0; ref < counts.length; ref++) {
+            counts[ref] = offsets[ref + 1] - offsets[ref];
+        }
+        ledger = new BalanceLedger(balances, counts);
+        for (int ref = 0; ref < counts.length; ref++) {
+            index.setRows(transactions.getAccountIdOfRef(ref), new RowPostings(rows, offsets[ref], offsets[ref + 1]));
+        }
+    }
+
+    /**
+     * Serves the transactions from the log in the configured directory. A new
+     * log is seeded from the transactions CSV file. An existing one is
+     * recovered from its checkpoint, if any, by replaying the rows committed
+     * after it; the CSV file is then not read at all.
+     *
+     * @throws UncheckedIOException if the log cannot be opened, rather than
+     *                              running without persistence
+     */
+    private void openLog(LogProperties properties, MeterRegistry registry, Resource beneficiariesCsv,
+                         Resource accountsCsv, Resource transactionsCsv) {
+        Path directory = Path.of(properties.getDirectory());
+        Long sourceChecksum = sourceChecksum(beneficiariesCsv, accountsCsv, transactionsCsv);
+        try {
+            log = TransactionLog.open(directory, properties.getSegmentRows(), properties.isSync(),
+                    sourceChecksum == null ? 0L : sourceChecksum);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open the transaction log in " + directory, e);
+        }
+        checkpointPath = log.getCheckpointPath();
+        checkpointInterval = properties.getCheckpointInterval();
+        checkpointer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "transaction-log-checkpoint");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Gauge.builder("account.log.bytes", log, TransactionLog::getMappedBytes)
+                .description("Bytes of the mapped transaction log segments").baseUnit("bytes").register(registry);
+
+        int committed = log.getCommittedRows();
+        if (committed == 0) {
+            transactions = TransactionStore.over(log, 0, new long[0], 0L);
+            apply(new CsvIngestor().load(beneficiariesCsv, accountsCsv, transactionsCsv));
+            writeCheckpoint(transactions, ledger, index, transactions.size(), transactions.getMaxTransactionId());
+            return;
+        }
+        if (sourceChecksum != null && sourceChecksum != log.getSeedChecksum()) {
+            logger.warn("The CSV files changed since the transaction log {} was seeded from them; the log is used "
+                    + "as it is. Remove the directory to seed it again.", directory);
+        }
+
+        Optional<Checkpoint> checkpoint = new CheckpointReader().read(checkpointPath, log.getLogId(), committed);
+        int replayFrom = 0;
+        if (checkpoint.isPresent()) {
+            Checkpoint restored = checkpoint.get();
+            transactions = TransactionStore.over(log, restored.getRows(), restored.getAccountIds(),
+                    restored.getMaxTransactionId());
+            restore(restored.getBalances(), restored.getPostingOffsets(), restored.getPostingRows());
+            replayFrom = restored.getRows();
+        } else {
+            transactions = TransactionStore.over(log, 0, new long[0], 0L);
+        }
+        checkpointRows = replayFrom;
+        warmUp.indexing(committed);
+
+        for (int row = replayFrom; row < committed; row++) {
+            long accountId = log.getAccountId(row);
+            transactions.recover(accountId);
+            index.addTransaction(accountId, row);
+            ledger.apply(transactions.getAccountRef(row), transactions.getType(row), transactions.getAmountCents(row));
+            if ((row & PROGRESS_MASK) == 0) {
+                warmUp.indexed(row);
             }
-        } catch (IOException | CsvValidationException e) {
-            logger.error("Error loading transactions from CSV", e);
+        }
+        warmUp.indexed(committed);
+        // The data files are not read again, so any id stored so far may be another shard's row
+        sourceMaxTransactionId = transactions.getMaxTransactionId();
+        publishTransactions();
+        apply(new CsvIngestor().load(beneficiariesCsv, accountsCsv));
+        logger.info("Recovered {} transactions from the log {}, replaying {} after the checkpoint", committed,
+                directory, committed - replayFrom);
+    }
+
+    /**
+     * Writes a checkpoint of the published view in the background once enough
+     * transactions were added since the last one. Called by the writer after
+     * publishing; the background thread only reads the view, never the
+     * writer's state.
+     */
+    private void scheduleCheckpoint() {
+        View published = view;
+        if (published.rows() - checkpointRows < checkpointInterval || !checkpointPending.compareAndSet(false, true)) {
+            return;
+        }
+        // Read by the writer, which has appended no rows past the view yet
+        long maxTransactionId = transactions.getMaxTransactionId();
+        checkpointer.execute(() -> {
+            try {
+                writeCheckpoint(published.transactions(), published.ledger(), published.index(), published.rows(),
+                        maxTransactionId);
+            } finally {
+                checkpointPending.set(false);
+            }
+        });
+    }
+
+    private void writeCheckpoint(TransactionStore transactions, BalanceLedger ledger, BeneficiaryIndex index, int rows,
+                                 long maxTransactionId) {
+        long start = System.nanoTime();
+        try {
+            new CheckpointWriter().write(checkpointPath, log.getLogId(), rows, maxTransactionId, transactions,
+                    ledger, index);
+            checkpointRows = rows;
+            metrics.recordCheckpoint(start);
+            logger.info("Wrote checkpoint {} of {} transactions", checkpointPath, rows);
+        } catch (IOException e) {
+            logger.warn("Could not write checkpoint {}", checkpointPath, e);
+        }
+    }
+
+    /**
+     * Stops watching the data directory, writes a final checkpoint and closes
+     * the transaction log, as far as they are in use. Queries must not run
+     * afterwards.
+     */
+    @PreDestroy
+    public void close() {
+        // Waits for a background load, so what it opened is closed too
+        synchronized (reloadLock) {
+            closed = true;
+            if (watcher != null) {
+                try {
+                    watcher.close();
+                } catch (IOException e) {
+                    logger.warn("Could not stop watching {}", dataDirectory, e);
+                }
+            }
+        }
+        if (log == null) {
+            return;
+        }
+        checkpointer.shutdown();
+        try {
+            checkpointer.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (writeLock) {
+            if (transactions.size() > checkpointRows) {
+                writeCheckpoint(transactions, ledger, index, transactions.size(), transactions.getMaxTransactionId());
+            }
+            try {
+                log.close();
+            } catch (IOException e) {
+                logger.warn("Could not close the transaction log {}", log.getDirectory(), e);
+            }
+        }
+    }
+
+    private void addBeneficiary(Beneficiary beneficiary) {
+        beneficiaries.put(beneficiary.getBeneficiaryId(), beneficiary);
+    }
+
+    private void addAccount(Account account) {
+        Account previous = accounts.put(account.getAccountId(), account);
+        if (previous != null) {
+            index.removeAccount(previous);
+        }
+        index.addAccount(account);
+    }
+
+    private int applyTransaction(long transactionId, long accountId, long amountCents, byte type, int epochDay) {
+        int row = transactions.append(transactionId, accountId, amountCents, type, epochDay);
+        index.addTransaction(accountId, row);
+        ledger.apply(transactions.getAccountRef(row), type, amountCents);
+        timelines.append(accountId);
+        rollups.append(accountId);
+        return row;
+    }
+
+    /**
+     * Makes the appended rows visible and extends the timelines, rollups and
+     * search bitmaps built so far with them, ahead of publishing the next view.
+     */
+    private void publishTransactions() {
+        transactions.publish();
+        timelines.publish(index::getRows, transactions);
+        rollups.publish(index::getRows, transactions);
+        search.publish(transactions);
+    }
+
+    /**
+     * Applies the current files of the data directory as one new view.
+     * Beneficiaries and accounts are compared with the loaded ones and only
+     * the account lists of the beneficiaries involved are rebuilt. Rows
+     * appended to the transactions file are added like new transactions; if
+     * rows read before were changed, all transactions are loaded again,
+     * followed by those added through the API. Does nothing without a data
+     * directory, or while one of the files is missing.
+     *
+     * @throws UncheckedIOException if the transactions file cannot be read
+     */
+    public void reload() {
+        if (dataDirectory == null) {
+            return;
+        }
+        synchronized (reloadLock) {
+            long start = System.nanoTime();
+            if (!beneficiariesCsv.exists() || !accountsCsv.exists()) {
+                logger.warn("Not reloading {}: {} and {} are both required", dataDirectory, BENEFICIARIES_FILE,
+                        ACCOUNTS_FILE);
+                return;
+            }
+            IngestResult tables = new CsvIngestor().load(beneficiariesCsv, accountsCsv);
+            TransactionTail.Read read;
+            try {
+                read = transactionTail == null ? null : transactionTail.read();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not read " + TRANSACTIONS_FILE + " in " + dataDirectory, e);
+            }
+            reportErrors(tables.getErrors());
+            if (read != null) {
+                reportErrors(read.getErrors());
+            }
+
+            Set<Long> beneficiaryIds = new HashSet<>();
+            int rows;
+            synchronized (writeLock) {
+                Map<Long, Account> previousAccounts = accounts;
+                IngestResult owned = ownShard(tables);
+                applyBeneficiaries(owned.getBeneficiaries(), beneficiaryIds);
+                applyAccounts(owned.getAccounts(), beneficiaryIds);
+                if (read != null && read.isRewrite()) {
+                    rebuildTransactions(read.getBatches());
+                    previousAccounts.values().forEach(account -> beneficiaryIds.add(account.getBeneficiaryId()));
+                    accounts.values().forEach(account -> beneficiaryIds.add(account.getBeneficiaryId()));
+                } else if (read != null) {
+                    warmUp.indexing(read.getBatches().stream().mapToLong(TransactionBatch::size).sum());
+                    long indexed = 0;
+                    for (TransactionBatch batch : read.getBatches()) {
+                        for (int i = 0; i < batch.size(); i++) {
+                            if (skipped(batch, i)) {
+                                continue;
+                            }
+                            applyTransaction(batch.getTransactionId(i), batch.getAccountId(i),
+                                    batch.getAmountCents(i), batch.getType(i), batch.getEpochDay(i));
+                            Account account = accounts.get(batch.getAccountId(i));
+                            if (account != null) {
+                                beneficiaryIds.add(account.getBeneficiaryId());
+                            }
+                        }
+                        indexed += batch.size();
+                        warmUp.indexed(indexed);
+                    }
+                }
+                publishTransactions();
+                publishView();
+
+                for (Long beneficiaryId : beneficiaryIds) {
+                    beneficiaryVersions.put(beneficiaryId, versionSequence.incrementAndGet());
+                }
+                rows = transactions.size();
+            }
+            metrics.recordLoad("reload", start);
+            logger.info("Reloaded {} in {} ms: {} beneficiaries changed, {} transactions{}", dataDirectory,
+                    (System.nanoTime() - start) / 1_000_000, beneficiaryIds.size(), rows,
+                    read != null && read.isRewrite() ? " after a rewrite of " + TRANSACTIONS_FILE : "");
+        }
+    }
+
+    private void reportErrors(List<IngestError> errors) {
+        for (IngestError error : errors) {
+            logger.warn("Skipped malformed row {}:{}: {}", error.getFile(), error.getLine(), error.getMessage());
+            metrics.recordLoadErrors(error.getFile(), 1);
+        }
+    }
+
+    /**
+     * Replaces the beneficiaries with the loaded ones if any differ, adding the
+     * ids that were added, changed or removed.
+     */
+    private void applyBeneficiaries(List<Beneficiary> loaded, Set<Long> changed) {
+        Map<Long, Beneficiary> replacement = new HashMap<>();
+        loaded.forEach(beneficiary -> replacement.put(beneficiary.getBeneficiaryId(), beneficiary));
+        boolean differs = false;
+        for (Long beneficiaryId : union(beneficiaries.keySet(), replacement.keySet())) {
+            if (!Objects.equals(beneficiaries.get(beneficiaryId), replacement.get(beneficiaryId))) {
+                changed.add(beneficiaryId);
+                differs = true;
+            }
+        }
+        if (differs) {
+            beneficiaries = replacement;
+        }
+    }
+
+    /**
+     * Replaces the accounts with the loaded ones if any differ and rebuilds
+     * the account lists of their previous and new beneficiaries, adding those
+     * beneficiaries' ids. A later row for the same account replaces an
+     * earlier one, as when loading.
+     */
+    private void applyAccounts(List<Account> loaded, Set<Long> changed) {
+        Map<Long, Account> replacement = new HashMap<>();
+        loaded.forEach(account -> replacement.put(account.getAccountId(), account));
+        Set<Long> owners = new HashSet<>();
+        for (Long accountId : union(accounts.keySet(), replacement.keySet())) {
+            Account previous = accounts.get(accountId);
+            Account current = replacement.get(accountId);
+            if (!Objects.equals(previous, current)) {
+                if (previous != null) {
+                    owners.add(previous.getBeneficiaryId());
+                }
+                if (current != null) {
+                    owners.add(current.getBeneficiaryId());
+                }
+            }
+        }
+        if (owners.isEmpty()) {
+            return;
+        }
+
+        Map<Long, List<Account>> owned = new HashMap<>();
+        owners.forEach(beneficiaryId -> owned.put(beneficiaryId, new ArrayList<>()));
+        for (Account account : loaded) {
+            List<Account> list = owned.get(account.getBeneficiaryId());
+            if (list != null && replacement.get(account.getAccountId()) == account) {
+                list.add(account);
+            }
+        }
+        accounts = replacement;
+        index = index.withAccounts(owned);
+        changed.addAll(owners);
+    }
+
+    private static Set<Long> union(Set<Long> first, Set<Long> second) {
+        Set<Long> union = new HashSet<>(first);
+        union.addAll(second);
+        return union;
+    }
+
+    /**
+     * Loads the transactions into a new store, followed by the rows that were
+     * added through the API in their original order, and rebuilds the
+     * postings, balances, timelines, rollups and search bitmaps. The previous
+     * structures are left untouched for queries still using them.
+     */
+    private void rebuildTransactions(List<TransactionBatch> batches) {
+        TransactionStore previous = transactions;
+        BitSet previousAddedRows = addedRows;
+        transactions = new TransactionStore();
+        ledger = new BalanceLedger();
+        timelines = new TimelineIndex();
+        rollups = new RollupIndex();
+        search = new SearchIndex();
+        index = index.withoutRows();
+        addedRows = new BitSet();
+
+        long count = previousAddedRows.cardinality();
+        for (TransactionBatch batch : batches) {
+            count += batch.size();
+        }
+        transactions.ensureCapacity((int) count);
+        warmUp.indexing(count);
+        long indexed = 0;
+        for (TransactionBatch batch : batches) {
+            for (int i = 0; i < batch.size(); i++) {
+                if (skipped(batch, i)) {
+                    continue;
+                }
+                applyTransaction(batch.getTransactionId(i), batch.getAccountId(i), batch.getAmountCents(i),
+                        batch.getType(i), batch.getEpochDay(i));
+            }
+            indexed += batch.size();
+            warmUp.indexed(indexed);
+        }
+        for (int row = previousAddedRows.nextSetBit(0); row >= 0; row = previousAddedRows.nextSetBit(row + 1)) {
+            addedRows.set(applyTransaction(previous.getTransactionId(row),
+                    previous.getAccountIdOfRef(previous.getAccountRef(row)), previous.getAmountCents(row),
+                    previous.getType(row), previous.getEpochDay(row)));
+        }
+        transactions.trimToSize();
+    }
+
+    /**
+     * Validates and appends the transactions as one batch: readers see either
+     * none or all of them. A transaction without an id gets the next free one;
+     * a given id must be positive, unique within the batch and not yet stored.
+     * Only accounts of this instance's shard are accepted, and on a shard only
+     * ids no other shard may store.
+     *
+     * @return the stored transactions
+     * @throws IllegalArgumentException if any transaction is invalid, in which
+     *                                  case none is stored
+     */
+    public List<Transaction> addTransactions(List<Transaction> newTransactions) {
+        long start = System.nanoTime();
+        try {
+            long[] amounts = new long[newTransactions.size()];
+            byte[] types = new byte[newTransactions.size()];
+            for (int i = 0; i < newTransactions.size(); i++) {
+                Transaction transaction = newTransactions.get(i);
+                validate(transaction);
+                amounts[i] = toCents(transaction.getAmount());
+                types[i] = TransactionStore.typeCode(transaction.getType());
+            }
+
+            List<Transaction> stored = new ArrayList<>(newTransactions.size());
+            Set<Long> beneficiaryIds = new HashSet<>();
+            synchronized (writeLock) {
+                checkTransactionIds(newTransactions);
+                for (int i = 0; i < newTransactions.size(); i++) {
+                    Transaction transaction = newTransactions.get(i);
+                    long transactionId = transaction.getTransactionId() != null
+                            ? transaction.getTransactionId() : nextTransactionId();
+                    int row = applyTransaction(transactionId, transaction.getAccountId(), amounts[i], types[i],
+                            (int) transaction.getDate().toEpochDay());
+                    if (addedRows != null) {
+                        addedRows.set(row);
+                    }
+                    stored.add(new Transaction(transactionId, transaction.getAccountId(),
+                            Money.toDouble(amounts[i]), transaction.getType(), transaction.getDate()));
+                    Account account = accounts.get(transaction.getAccountId());
+                    if (account != null) {
+                        beneficiaryIds.add(account.getBeneficiaryId());
+                    }
+                }
+                publishTransactions();
+                publishView();
+
+                // Bump the versions only after publishing, so a reader that sees a
+                // new version also sees the new rows
+                for (Long beneficiaryId : beneficiaryIds) {
+                    beneficiaryVersions.put(beneficiaryId, versionSequence.incrementAndGet());
+                }
+                if (log != null) {
+                    scheduleCheckpoint();
+                }
+            }
+            return stored;
+        } finally {
+            metrics.recordCall("addTransactions", start);
+        }
+    }
+
+    /**
+     * Checks the ids given with a batch before any of it is appended, and
+     * reserves the highest so the ids assigned to the rest of the batch do
+     * not collide with them.
+     *
+     * @throws IllegalArgumentException if an id is not positive, repeats
+     *                                  within the batch or is already stored
+     */
+    private void checkTransactionIds(List<Transaction> newTransactions) {
+        Set<Long> batchIds = new HashSet<>();
+        long maxTransactionId = 0;
+        for (Transaction transaction : newTransactions) {
+            Long transactionId = transaction.getTransactionId();
+            if (transactionId == null) {
+                continue;
+            }
+            if (transactionId <= 0) {
+                throw new IllegalArgumentException("Transaction ID must be positive: " + transactionId);
+            }
+            if (shards.isSharded()) {
+                checkShardTransactionId(transactionId);
+            }
+            if (!batchIds.add(transactionId)) {
+                throw new IllegalArgumentException("Transaction ID " + transactionId + " is repeated in the request");
+            }
+            // Ids above the highest stored one are new without looking them up
+            if (transactionId <= transactions.getMaxTransactionId() && storedTransactionIds().contains(transactionId)) {
+                throw new IllegalArgumentException("Transaction with ID " + transactionId + " already exists");
+            }
+            maxTransactionId = Math.max(maxTransactionId, transactionId);
+        }
+        transactions.reserveTransactionId(maxTransactionId);
+    }
+
+    /**
+     * Rejects an id another shard may store: one congruent to another shard's
+     * index, or one within the ids of the data files, which hold the rows of
+     * every shard.
+     */
+    private void checkShardTransactionId(long transactionId) {
+        if (!shards.takesTransactionId(shards.getIndex(), transactionId)) {
+            throw new IllegalArgumentException("Transaction ID " + transactionId + " belongs to another shard: shard "
+                    + shards.getIndex() + " takes the ids congruent to " + shards.getIndex() + " modulo "
+                    + shards.getCount());
+        }
+        if (transactionId <= sourceMaxTransactionId) {
+            throw new IllegalArgumentException("Transaction ID " + transactionId
+                    + " may be taken on another shard: it must be above " + sourceMaxTransactionId);
+        }
+    }
+
+    /**
+     * Ids of the stored rows. Built on the first lookup and then only
+     * extended by the rows appended since, unless the store was replaced.
+     */
+    private Roaring64Bitmap storedTransactionIds() {
+        if (storedIdStore != transactions) {
+            storedIds = new Roaring64Bitmap();
+            storedIdStore = transactions;
+            storedIdRows = 0;
+        }
+        for (; storedIdRows < transactions.size(); storedIdRows++) {
+            storedIds.addLong(transactions.getTransactionId(storedIdRows));
+        }
+        return storedIds;
+    }
+
+    /**
+     * The next free transaction id. Shards take turns, so ids they assign
+     * never collide.
+     */
+    private long nextTransactionId() {
+        long next = transactions.getMaxTransactionId() + 1;
+        return next + Math.floorMod(shards.getIndex() - next, shards.getCount());
+    }
+
+    private void validate(Transaction transaction) {
+        if (transaction.getAccountId() == null || !view.accounts().containsKey(transaction.getAccountId())) {
+            throw new IllegalArgumentException("Account with ID " + transaction.getAccountId() + " not found");
+        }
+        if (transaction.getDate() == null) {
+            throw new IllegalArgumentException("Transaction date is required");
+        }
+        if (!(transaction.getAmount() > 0)) {
+            throw new IllegalArgumentException("Transaction amount must be positive");
+        }
+    }
+
+    private static long toCents(double amount) {
+        try {
+            return Money.ofDouble(amount);
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Transaction amount must have at most 2 decimals");
         }
     }
 
     public Optional<Beneficiary> getBeneficiaryDetails(Long beneficiaryId) {
-        return Optional.ofNullable(beneficiaries.get(beneficiaryId));
+        long start = System.nanoTime();
+        try {
+            return Optional.ofNullable(view.beneficiaries().get(beneficiaryId));
+        } finally {
+            metrics.recordCall("getBeneficiaryDetails", start);
+        }
     }
 
     public List<Account> getAccountsForBeneficiary(Long beneficiaryId) {
-        List<Account> result = new ArrayList<>();
-        for (Account account : accounts.values()) {
-            if (account.getBeneficiaryId().equals(beneficiaryId)) {
-                result.add(account);
+        long start = System.nanoTime();
+        try {
+            return new ArrayList<>(view.index().getAccounts(beneficiaryId));
+        } finally {
+            metrics.recordCall("getAccountsForBeneficiary", start);
+        }
+    }
+
+    /**
+     * Returns the accounts with the given ids in the order given, leaving out
+     * unknown ids.
+     */
+    public List<Account> getAccounts(List<Long> accountIds) {
+        long start = System.nanoTime();
+        try {
+            Map<Long, Account> accounts = view.accounts();
+            List<Account> found = new ArrayList<>();
+            for (Long accountId : accountIds) {
+                Account account = accounts.get(accountId);
+                if (account != null) {
+                    found.add(account);
+                }
             }
+            return found;
+        } finally {
+            metrics.recordCall("getAccounts", start);
         }
-        return result;
+    }
+
+    /**
+     * Version of the beneficiary's data, bumped whenever transactions are
+     * added to any of their accounts or their data is reloaded.
+     */
+    public long getBeneficiaryVersion(Long beneficiaryId) {
+        return beneficiaryVersions.getOrDefault(beneficiaryId, 0L);
+    }
+
+    /**
+     * Progress of loading the data. Queries answer from whatever is published
+     * so far, so callers serving traffic should wait until it is ready.
+     */
+    public WarmUp getWarmUp() {
+        return warmUp;
+    }
+
+    /**
+     * Entity tag of the beneficiary's data; it changes with
+     * {@link #getBeneficiaryVersion} and on every restart.
+     */
+    public String getETag(Long beneficiaryId) {
+        return instanceTag + "-" + getBeneficiaryVersion(beneficiaryId);
+    }
+
+    public CacheStats getCacheStats() {
+        return cache.getStats();
+    }
+
+    /**
+     * Returns the cached result of the query for the beneficiary's current
+     * version, or computes it. The version is read before the loader runs, so
+     * a result is never cached under a newer version than its data.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T cached(Long beneficiaryId, String query, int fromDay, int toDay, Supplier<T> loader) {
+        long version = getBeneficiaryVersion(beneficiaryId);
+        return (T) cache.get(new QueryKey(beneficiaryId, query, fromDay, toDay), version, loader::get);
     }
 
     public List<Transaction> getTransactionsForBeneficiary(Long beneficiaryId) {
-        List<Long> beneficiaryAccountIds = new ArrayList<>();
-        for (Account account : getAccountsForBeneficiary(beneficiaryId)) {
-            beneficiaryAccountIds.add(account.getAccountId());
+        long start = System.nanoTime();
+        try {
+            return cached(beneficiaryId, "transactions", 0, 0, () -> {
+                View view = this.view;
+                int[] rows = view.index().getRowsForBeneficiary(beneficiaryId, view.rows());
+                metrics.recordRows("getTransactionsForBeneficiary", rows.length);
+
+                List<Transaction> beneficiaryTransactions = new ArrayList<>(rows.length);
+                for (int row : rows) {
+                    beneficiaryTransactions.add(view.transactions().toTransaction(row));
+                }
+                return Collections.unmodifiableList(beneficiaryTransactions);
+            });
+        } finally {
+            metrics.recordCall("getTransactionsForBeneficiary", start);
+        }
+    }
+
+    /**
+     * Returns up to {@code pageSize} of the beneficiary's transactions that
+     * match the filter, in load order, continuing after {@code cursor} when it
+     * is given.
+     *
+     * @throws IllegalArgumentException for an invalid cursor or filter type
+     */
+    public TransactionPage getTransactionsPage(Long beneficiaryId, TransactionFilter filter, String cursor,
+                                               int pageSize) {
+        long start = System.nanoTime();
+        try {
+            View view = this.view;
+            int limit = view.rows();
+            int afterRow = -1;
+            if (cursor != null) {
+                afterRow = TransactionCursor.row(cursor);
+                if (afterRow >= limit || view.transactions().getTransactionId(afterRow) != TransactionCursor.transactionId(cursor)) {
+                    throw new IllegalArgumentException("Invalid cursor");
+                }
+            }
+
+            RowMatcher matcher = new RowMatcher(filter, view.transactions());
+            RowMerger rows = view.index().mergeRowsForBeneficiary(beneficiaryId, afterRow, limit);
+            List<Transaction> page = new ArrayList<>(Math.min(pageSize, 1024));
+            int lastRow = -1;
+            int scanned = 0;
+            int row;
+            while ((row = rows.next()) >= 0) {
+                scanned++;
+                if (!matcher.matches(row)) {
+                    continue;
+                }
+                if (page.size() == pageSize) {
+                    metrics.recordRows("getTransactionsPage", scanned);
+                    return new TransactionPage(page, TransactionCursor.encode(lastRow, view.transactions().getTransactionId(lastRow)));
+                }
+                page.add(view.transactions().toTransaction(row));
+                lastRow = row;
+            }
+            metrics.recordRows("getTransactionsPage", scanned);
+            return new TransactionPage(page, null);
+        } finally {
+            metrics.recordCall("getTransactionsPage", start);
+        }
+    }
+
+    /**
+     * Returns the beneficiary's transactions that match the filter as a lazy
+     * stream in load order. Rows are turned into transactions only as the
+     * stream is consumed.
+     *
+     * @throws IllegalArgumentException for an invalid filter type
+     */
+    public Stream<Transaction> streamTransactions(Long beneficiaryId, TransactionFilter filter) {
+        long start = System.nanoTime();
+        try {
+            View view = this.view;
+            RowMatcher matcher = new RowMatcher(filter, view.transactions());
+            RowMerger rows = view.index().mergeRowsForBeneficiary(beneficiaryId, -1, view.rows());
+            Spliterator<Transaction> spliterator = new Spliterators.AbstractSpliterator<>(Long.MAX_VALUE,
+                    Spliterator.ORDERED | Spliterator.NONNULL) {
+                private long scanned;
+                private boolean done;
+
+                @Override
+                public boolean tryAdvance(Consumer<? super Transaction> action) {
+                    int row;
+                    while ((row = rows.next()) >= 0) {
+                        scanned++;
+                        if (matcher.matches(row)) {
+                            action.accept(view.transactions().toTransaction(row));
+                            return true;
+                        }
+                    }
+                    if (!done) {
+                        done = true;
+                        metrics.recordRows("streamTransactions", scanned);
+                    }
+                    return false;
+                }
+            };
+            return StreamSupport.stream(spliterator, false);
+        } finally {
+            metrics.recordCall("streamTransactions", start);
+        }
+    }
+
+    /**
+     * A {@link TransactionFilter} resolved against the store's columns, so
+     * rows are filtered before any {@link Transaction} is created.
+     */
+    private static final class RowMatcher {
+        private final TransactionStore transactions;
+        private final byte type;
+        private final int fromDay;
+        private final int toDay;
+
+        private RowMatcher(TransactionFilter filter, TransactionStore transactions) {
+            this.transactions = transactions;
+            type = filter == null || filter.getType() == null ? 0 : TransactionStore.typeCode(filter.getType());
+            fromDay = filter == null || filter.getFrom() == null ? Integer.MIN_VALUE : (int) filter.getFrom().toEpochDay();
+            toDay = filter == null || filter.getTo() == null ? Integer.MAX_VALUE : (int) filter.getTo().toEpochDay();
+        }
+
+        private boolean matches(int row) {
+            if (type != 0 && transactions.getType(row) != type) {
+                return false;
+            }
+            int epochDay = transactions.getEpochDay(row);
+            return epochDay >= fromDay && epochDay <= toDay;
+        }
+    }
+
+    /**
+     * Returns the first {@code limit} transactions of all accounts that match
+     * the search, in its order, along with the number of matches. Each
+     * criterion selects a bitmap of rows and only rows in all of them are
+     * read; rows newer than the bitmaps are checked one by one.
+     *
+     * @throws IllegalArgumentException for an invalid type
+     */
+    public TransactionSearchResult searchTransactions(TransactionSearch search) {
+        long start = System.nanoTime();
+        try {
+            View view = this.view;
+            int limit = view.rows();
+            SearchMatcher matcher = new SearchMatcher(search, view.transactions());
+            SearchIndex.Bitmaps bitmaps = view.search().get(view.transactions(), limit);
+            int indexed = Math.min(bitmaps.getRows(), limit);
+
+            List<RoaringBitmap> selections = new ArrayList<>();
+            boolean exact = true;
+            if (matcher.type != 0) {
+                selections.add(bitmaps.ofType(matcher.type));
+            }
+            if (search.getMinAmount() != null || search.getMaxAmount() != null) {
+                SearchIndex.Selection amounts = bitmaps.ofAmounts(matcher.minCents, matcher.maxCents);
+                selections.add(amounts.rows());
+                exact &= amounts.exact();
+            }
+            if (search.getFrom() != null || search.getTo() != null) {
+                SearchIndex.Selection days = bitmaps.ofDays(matcher.fromDay, matcher.toDay);
+                selections.add(days.rows());
+                exact &= days.exact();
+            }
+            // Account rows also cover the rows newer than the bitmaps
+            RoaringBitmap accountRows = null;
+            if (search.getAccountIds() != null) {
+                List<RowPostings> postings = new ArrayList<>();
+                for (Long accountId : new LinkedHashSet<>(search.getAccountIds())) {
+                    RowPostings rows = view.index().getRows(accountId);
+                    if (rows != null) {
+                        postings.add(rows);
+                    }
+                }
+                accountRows = SearchIndex.rowsOf(postings, limit);
+                selections.add(accountRows);
+            }
+            RoaringBitmap candidates = switch (selections.size()) {
+                case 0 -> bitmaps.all();
+                case 1 -> selections.get(0);
+                default -> FastAggregation.and(selections.toArray(RoaringBitmap[]::new));
+            };
+
+            SearchCollector collector = new SearchCollector(view.transactions(), search);
+            PeekableIntIterator rows = candidates.getIntIterator();
+            long read = 0;
+            while (rows.hasNext()) {
+                int row = rows.next();
+                if (row >= indexed) {
+                    break;
+                }
+                if (exact && collector.isFull()) {
+                    // Unsorted and every candidate matches, so the rest only needs counting
+                    collector.count(candidates.rangeCardinality(row, indexed));
+                    break;
+                }
+                read++;
+                if (exact || matcher.matches(row)) {
+                    collector.add(row);
+                }
+            }
+            if (accountRows != null) {
+                rows = accountRows.getIntIterator();
+                rows.advanceIfNeeded(indexed);
+                while (rows.hasNext()) {
+                    int row = rows.next();
+                    read++;
+                    if (matcher.matches(row)) {
+                        collector.add(row);
+                    }
+                }
+            } else {
+                for (int row = indexed; row < limit; row++) {
+                    read++;
+                    if (matcher.matches(row)) {
+                        collector.add(row);
+                    }
+                }
+            }
+            metrics.recordRows("searchTransactions", read);
+            return collector.result();
+        } finally {
+            metrics.recordCall("searchTransactions", start);
+        }
+    }
+
+    /**
+     * The scalar criteria of a {@link TransactionSearch} resolved against the
+     * store's columns. Amount bounds are rounded inwards to whole cents.
+     */
+    private static final class SearchMatcher {
+        private final TransactionStore transactions;
+        private final byte type;
+        private final long minCents;
+        private final long maxCents;
+        private final int fromDay;
+        private final int toDay;
+
+        private SearchMatcher(TransactionSearch search, TransactionStore transactions) {
+            this.transactions = transactions;
+            type = search.getType() == null ? 0 : TransactionStore.typeCode(search.getType());
+            minCents = search.getMinAmount() == null ? Long.MIN_VALUE : cents(search.getMinAmount(), RoundingMode.CEILING);
+            maxCents = search.getMaxAmount() == null ? Long.MAX_VALUE : cents(search.getMaxAmount(), RoundingMode.FLOOR);
+            fromDay = search.getFrom() == null ? Integer.MIN_VALUE : (int) search.getFrom().toEpochDay();
+            toDay = search.getTo() == null ? Integer.MAX_VALUE : (int) search.getTo().toEpochDay();
+        }
+
+        private static long cents(BigDecimal amount, RoundingMode rounding) {
+            return amount.movePointRight(2).setScale(0, rounding).longValueExact();
+        }
+
+        private boolean matches(int row) {
+            if (type != 0 && transactions.getType(row) != type) {
+                return false;
+            }
+            long amountCents = transactions.getAmountCents(row);
+            if (amountCents < minCents || amountCents > maxCents) {
+                return false;
+            }
+            int epochDay = transactions.getEpochDay(row);
+            return epochDay >= fromDay && epochDay <= toDay;
+        }
+    }
+
+    /**
+     * Keeps the first rows of a search in its order and counts the rest.
+     * Unsorted searches keep rows as they come, which is load order; sorted
+     * ones keep the best rows in a heap whose head is the worst of them.
+     */
+    private static final class SearchCollector {
+        private final TransactionStore transactions;
+        private final TransactionSort sort;
+        private final boolean descending;
+        private final int size;
+        private final List<Integer> kept = new ArrayList<>();
+        private final PriorityQueue<Integer> heap;
+        private long total;
+
+        private SearchCollector(TransactionStore transactions, TransactionSearch search) {
+            this.transactions = transactions;
+            sort = search.getSort();
+            descending = search.isDescending();
+            size = Math.max(search.getLimit(), 0);
+            heap = sort == null ? null : new PriorityQueue<>((a, b) -> compare(b, a));
+        }
+
+        private boolean isFull() {
+            return sort == null && kept.size() == size;
+        }
+
+        private void count(long rows) {
+            total += rows;
+        }
+
+        private void add(int row) {
+            total++;
+            if (sort == null) {
+                if (kept.size() < size) {
+                    kept.add(row);
+                }
+            } else if (heap.size() < size) {
+                heap.add(row);
+            } else if (size > 0 && compare(row, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(row);
+            }
+        }
+
+        private int compare(int a, int b) {
+            int order = switch (sort) {
+                case DATE -> Integer.compare(transactions.getEpochDay(a), transactions.getEpochDay(b));
+                case AMOUNT -> Long.compare(transactions.getAmountCents(a), transactions.getAmountCents(b));
+                case ID -> 0;
+            };
+            if (order == 0) {
+                order = Long.compare(transactions.getTransactionId(a), transactions.getTransactionId(b));
+            }
+            return descending ? -order : order;
         }
 
-        List<Transaction> beneficiaryTransactions = new ArrayList<>();
-        for (Transaction transaction : transactions) {
-            if (beneficiaryAccountIds.contains(transaction.getAccountId())) {
-                beneficiaryTransactions.add(transaction);
+        private TransactionSearchResult result() {
+            List<Integer> rows = kept;
+            if (sort != null) {
+                rows = new ArrayList<>(heap);
+                rows.sort(this::compare);
+            }
+            List<Transaction> found = new ArrayList<>(rows.size());
+            for (int row : rows) {
+                found.add(transactions.toTransaction(row));
             }
+            return new TransactionSearchResult(total, found);
         }
-        return beneficiaryTransactions;
     }
 
     public double getTotalBalanceForBeneficiary(Long beneficiaryId) {
-        List<Account> accounts = getAccountsForBeneficiary(beneficiaryId);
+        long start = System.nanoTime();
+        try {
+            return cached(beneficiaryId, "total-balance", 0, 0, () -> totalBalance(this.view, beneficiaryId));
+        } finally {
+            metrics.recordCall("getTotalBalanceForBeneficiary", start);
+        }
+    }
 
-        BigDecimal totalBalance = BigDecimal.ZERO;
+    /**
+     * Returns the total balance of each beneficiary in the order given, with
+     * an error entry for ids without accounts. All ids see the same rows.
+     */
+    public List<TotalBalanceResult> getTotalBalances(List<Long> beneficiaryIds) {
+        long start = System.nanoTime();
+        try {
+            View view = this.view;
+            return evaluate(beneficiaryIds, beneficiaryId -> view.index().getAccounts(beneficiaryId).isEmpty()
+                    ? new TotalBalanceResult(beneficiaryId, null, "No accounts found for Beneficiary with ID " + beneficiaryId)
+                    : new TotalBalanceResult(beneficiaryId, totalBalance(view, beneficiaryId), null));
+        } finally {
+            metrics.recordCall("getTotalBalances", start);
+        }
+    }
 
-        // Calculate balance for each account using BigDecimal
-        for (Account account : accounts) {
-            BigDecimal accountBalance = getAccountBalanceAsBigDecimal(account.getAccountId());
-            totalBalance = totalBalance.add(accountBalance);
+    private double totalBalance(View view, Long beneficiaryId) {
+        List<Account> beneficiaryAccounts = view.index().getAccounts(beneficiaryId);
+        metrics.recordAccounts("totalBalance", beneficiaryAccounts.size());
+        long totalCents = 0;
+        for (Account account : beneficiaryAccounts) {
+            totalCents += balanceCents(view, account.getAccountId());
         }
 
-        // Return as double after rounding to 2 decimal places
-        return totalBalance.setScale(2, RoundingMode.HALF_UP).doubleValue();
+        // Balances are exact cents, so this equals rounding HALF_UP to 2 decimal places
+        return Money.toDouble(totalCents);
     }
 
     public BigDecimal getAccountBalanceAsBigDecimal(Long accountId) {
-        BigDecimal balance = BigDecimal.ZERO;
+        long start = System.nanoTime();
+        try {
+            return Money.toBigDecimal(balanceCents(this.view, accountId));
+        } finally {
+            metrics.recordCall("getAccountBalanceAsBigDecimal", start);
+        }
+    }
 
-        for (Transaction transaction : transactions) {
-            if (transaction.getAccountId().equals(accountId)) {
-                BigDecimal amount = BigDecimal.valueOf(transaction.getAmount());
-                if ("deposit".equals(transaction.getType())) {
-                    balance = balance.add(amount);
-                } else if ("withdrawal".equals(transaction.getType())) {
-                    balance = balance.subtract(amount);
+    public Map<Long, BigDecimal> getAccountBalancesForBeneficiary(Long beneficiaryId) {
+        long start = System.nanoTime();
+        try {
+            return cached(beneficiaryId, "account-balances", 0, 0, () -> {
+                View view = this.view;
+                List<Account> beneficiaryAccounts = view.index().getAccounts(beneficiaryId);
+                metrics.recordAccounts("accountBalances", beneficiaryAccounts.size());
+                Map<Long, BigDecimal> balances = new LinkedHashMap<>();
+                for (Account account : beneficiaryAccounts) {
+                    balances.put(account.getAccountId(), Money.toBigDecimal(balanceCents(view, account.getAccountId())));
                 }
+                return Collections.unmodifiableMap(balances);
+            });
+        } finally {
+            metrics.recordCall("getAccountBalancesForBeneficiary", start);
+        }
+    }
+
+    /**
+     * Balance of the account as of the view's rows.
+     */
+    private static long balanceCents(View view, Long accountId) {
+        return view.ledger().getBalanceCents(view.transactions().findAccountRef(accountId),
+                view.index().getRows(accountId), view.transactions(), view.rows());
+    }
+
+    /**
+     * Returns the account's balance at the end of the given day, counting the
+     * transactions dated on or before it, or empty for an unknown account.
+     */
+    public Optional<BigDecimal> getAccountBalanceAsOf(Long accountId, LocalDate date) {
+        long start = System.nanoTime();
+        try {
+            View view = this.view;
+            if (!view.accounts().containsKey(accountId)) {
+                return Optional.empty();
             }
+            int epochDay = (int) date.toEpochDay();
+            long cents = 0;
+            for (AccountRollup rollup : rollups(view, accountId)) {
+                cents += rollup.balanceThrough(epochDay);
+            }
+            return Optional.of(Money.toBigDecimal(cents));
+        } finally {
+            metrics.recordCall("getAccountBalanceAsOf", start);
         }
+    }
 
-        return balance.setScale(2, RoundingMode.HALF_UP);
+    /**
+     * Returns the account's statement per day or month within
+     * {@code [from, to]}, oldest first, or empty for an unknown account.
+     * Monthly statements cover the whole months of the bounds. A null bound
+     * leaves that side open; periods without transactions are left out, so
+     * each entry opens with the closing balance of the one before.
+     */
+    public Optional<List<StatementEntry>> getStatements(Long accountId, VolumeGranularity granularity, LocalDate from,
+                                                        LocalDate to) {
+        long start = System.nanoTime();
+        try {
+            View view = this.view;
+            if (!view.accounts().containsKey(accountId)) {
+                return Optional.empty();
+            }
+            boolean monthly = granularity == VolumeGranularity.MONTH;
+            int fromKey = from == null ? Integer.MIN_VALUE
+                    : monthly ? AccountRollup.monthOf((int) from.toEpochDay()) : (int) from.toEpochDay();
+            int toKey = to == null ? Integer.MAX_VALUE
+                    : monthly ? AccountRollup.monthOf((int) to.toEpochDay()) : (int) to.toEpochDay();
+
+            // Walk the periods of the account's rollup and of its newest postings side by side
+            List<AccountRollup> rollups = rollups(view, accountId);
+            AccountRollup.Buckets[] buckets = new AccountRollup.Buckets[rollups.size()];
+            int[] next = new int[rollups.size()];
+            int[] end = new int[rollups.size()];
+            long balance = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = monthly ? rollups.get(i).getMonths() : rollups.get(i).getDays();
+                next[i] = buckets[i].lowerBound(fromKey);
+                end[i] = toKey == Integer.MAX_VALUE ? buckets[i].size() : buckets[i].lowerBound(toKey + 1);
+                balance += buckets[i].netBefore(next[i]);
+            }
+
+            List<StatementEntry> entries = new ArrayList<>();
+            while (true) {
+                int key = Integer.MAX_VALUE;
+                boolean found = false;
+                for (int i = 0; i < buckets.length; i++) {
+                    if (next[i] < end[i] && (!found || buckets[i].getKey(next[i]) < key)) {
+                        key = buckets[i].getKey(next[i]);
+                        found = true;
+                    }
+                }
+                if (!found) {
+                    return Optional.of(entries);
+                }
+
+                long[] totals = new long[4];
+                for (int i = 0; i < buckets.length; i++) {
+                    if (next[i] < end[i] && buckets[i].getKey(next[i]) == key) {
+                        totals[0] += buckets[i].getDepositCents(next[i]);
+                        totals[1] += buckets[i].getDepositCount(next[i]);
+                        totals[2] += buckets[i].getWithdrawalCents(next[i]);
+                        totals[3] += buckets[i].getWithdrawalCount(next[i]);
+                        next[i]++;
+                    }
+                }
+                long closing = balance + totals[0] - totals[2];
+                String period = monthly ? YearMonth.of(key / 12, key % 12 + 1).toString()
+                        : LocalDate.ofEpochDay(key).toString();
+                entries.add(new StatementEntry(period, Money.toBigDecimal(balance), Money.toBigDecimal(totals[0]),
+                        totals[1], Money.toBigDecimal(totals[2]), totals[3], Money.toBigDecimal(closing)));
+                balance = closing;
+            }
+        } finally {
+            metrics.recordCall("getStatements", start);
+        }
+    }
+
+    private static List<AccountRollup> rollups(View view, Long accountId) {
+        return view.rollups().get(accountId, view.index().getRows(accountId), view.transactions(), view.rows());
     }
 
     public Optional<Transaction> getLargestWithdrawalLastMonth(Long beneficiaryId) {
-        LocalDate oneMonthAgo = LocalDate.now().minusMonths(1);
-        List<Transaction> beneficiaryTransactions = getTransactionsForBeneficiary(beneficiaryId);
+        return getLargestWithdrawal(beneficiaryId, LocalDate.now().minusMonths(1).plusDays(1), null);
+    }
+
+    /**
+     * Returns the beneficiary's largest withdrawal dated within
+     * {@code [from, to]}; a null bound leaves that side of the window open.
+     */
+    public Optional<Transaction> getLargestWithdrawal(Long beneficiaryId, LocalDate from, LocalDate to) {
+        long start = System.nanoTime();
+        try {
+            int fromDay = epochDay(from, Integer.MIN_VALUE);
+            int toDay = epochDay(to, Integer.MAX_VALUE);
+            return cached(beneficiaryId, "largest-withdrawal", fromDay, toDay, () -> {
+                View view = this.view;
+                int largestRow = largestWithdrawalRow(view, beneficiaryId, fromDay, toDay);
 
-        Transaction largestWithdrawal = null;
-        for (Transaction transaction : beneficiaryTransactions) {
-            if ("withdrawal".equals(transaction.getType()) && transaction.getDate().isAfter(oneMonthAgo)) {
-                if (largestWithdrawal == null || transaction.getAmount() > largestWithdrawal.getAmount()) {
-                    largestWithdrawal = transaction;
+                if (largestRow < 0) {
+                    logger.warn("No withdrawals found for Beneficiary ID {} between {} and {}", beneficiaryId, from, to);
+                    return Optional.empty();
                 }
+
+                return Optional.of(view.transactions().toTransaction(largestRow));
+            });
+        } finally {
+            metrics.recordCall("getLargestWithdrawal", start);
+        }
+    }
+
+    /**
+     * Returns the largest withdrawal of each beneficiary within
+     * {@code [from, to]} in the order given, with an error entry for ids that
+     * have none. All ids see the same rows.
+     */
+    public List<LargestWithdrawalResult> getLargestWithdrawals(List<Long> beneficiaryIds, LocalDate from, LocalDate to) {
+        long start = System.nanoTime();
+        try {
+            int fromDay = epochDay(from, Integer.MIN_VALUE);
+            int toDay = epochDay(to, Integer.MAX_VALUE);
+            View view = this.view;
+            return evaluate(beneficiaryIds, beneficiaryId -> {
+                int row = largestWithdrawalRow(view, beneficiaryId, fromDay, toDay);
+                return row < 0
+                        ? new LargestWithdrawalResult(beneficiaryId, null, "No withdrawals found for Beneficiary with ID " + beneficiaryId)
+                        : new LargestWithdrawalResult(beneficiaryId, view.transactions().toTransaction(row), null);
+            });
+        } finally {
+            metrics.recordCall("getLargestWithdrawals", start);
+        }
+    }
+
+    private int largestWithdrawalRow(View view, Long beneficiaryId, int fromDay, int toDay) {
+        List<Account> beneficiaryAccounts = view.index().getAccounts(beneficiaryId);
+        metrics.recordAccounts("largestWithdrawal", beneficiaryAccounts.size());
+        int largestRow = -1;
+        for (Account account : beneficiaryAccounts) {
+            int row = view.timelines().largestWithdrawal(account.getAccountId(), view.index().getRows(account.getAccountId()),
+                    view.transactions(), view.rows(), fromDay, toDay);
+            largestRow = TimelineIndex.larger(view.transactions(), largestRow, row);
+        }
+        return largestRow;
+    }
+
+    private static int epochDay(LocalDate date, int open) {
+        return date == null ? open : (int) date.toEpochDay();
+    }
+
+    /**
+     * Returns the requested sections of the beneficiary's summary, or empty if
+     * the beneficiary has neither details nor accounts. All sections are
+     * computed from the same rows and the account set is looked up once. The
+     * per-account balances and withdrawals run concurrently while the calling
+     * thread builds the transaction list. The largest withdrawal is that of
+     * the last month.
+     */
+    public Optional<BeneficiarySummary> getBeneficiarySummary(Long beneficiaryId, Set<SummarySection> sections) {
+        long start = System.nanoTime();
+        try {
+            View view = this.view;
+            Beneficiary details = view.beneficiaries().get(beneficiaryId);
+            List<Account> beneficiaryAccounts = view.index().getAccounts(beneficiaryId);
+            if (details == null && beneficiaryAccounts.isEmpty()) {
+                return Optional.empty();
             }
+
+            int limit = view.rows();
+            boolean balances = sections.contains(SummarySection.ACCOUNT_BALANCES)
+                    || sections.contains(SummarySection.TOTAL_BALANCE);
+            boolean withdrawals = sections.contains(SummarySection.LARGEST_WITHDRAWAL);
+            int fromDay = (int) LocalDate.now().minusMonths(1).plusDays(1).toEpochDay();
+
+            // Each account yields its balance in cents and its largest withdrawal row
+            List<CompletableFuture<long[]>> accountParts = new ArrayList<>(beneficiaryAccounts.size());
+            if (balances || withdrawals) {
+                metrics.recordAccounts("getBeneficiarySummary", beneficiaryAccounts.size());
+                for (Account account : beneficiaryAccounts) {
+                    Long accountId = account.getAccountId();
+                    accountParts.add(CompletableFuture.supplyAsync(() -> new long[]{
+                            balances ? balanceCents(view, accountId) : 0,
+                            withdrawals ? view.timelines().largestWithdrawal(accountId, view.index().getRows(accountId),
+                                    view.transactions(), limit, fromDay, Integer.MAX_VALUE) : -1
+                    }));
+                }
+            }
+
+            BeneficiarySummary summary = new BeneficiarySummary();
+            summary.setBeneficiaryId(beneficiaryId);
+            if (sections.contains(SummarySection.DETAILS)) {
+                summary.setDetails(details);
+            }
+            if (sections.contains(SummarySection.ACCOUNTS)) {
+                summary.setAccounts(new ArrayList<>(beneficiaryAccounts));
+            }
+            if (sections.contains(SummarySection.TRANSACTIONS)) {
+                int[] rows = view.index().getRowsForBeneficiary(beneficiaryId, limit);
+                metrics.recordRows("getBeneficiarySummary", rows.length);
+                List<Transaction> beneficiaryTransactions = new ArrayList<>(rows.length);
+                for (int row : rows) {
+                    beneficiaryTransactions.add(view.transactions().toTransaction(row));
+                }
+                summary.setTransactions(beneficiaryTransactions);
+            }
+
+            Map<Long, BigDecimal> accountBalances = new LinkedHashMap<>();
+            long totalCents = 0;
+            int largestRow = -1;
+            for (int i = 0; i < accountParts.size(); i++) {
+                long[] part = accountParts.get(i).join();
+                accountBalances.put(beneficiaryAccounts.get(i).getAccountId(), Money.toBigDecimal(part[0]));
+                totalCents += part[0];
+                largestRow = TimelineIndex.larger(view.transactions(), largestRow, (int) part[1]);
+            }
+            if (sections.contains(SummarySection.ACCOUNT_BALANCES)) {
+                summary.setAccountBalances(accountBalances);
+            }
+            if (sections.contains(SummarySection.TOTAL_BALANCE)) {
+                summary.setTotalBalance(Money.toDouble(totalCents));
+            }
+            if (withdrawals && largestRow >= 0) {
+                summary.setLargestWithdrawal(view.transactions().toTransaction(largestRow));
+            }
+            return Optional.of(summary);
+        } finally {
+            metrics.recordCall("getBeneficiarySummary", start);
+        }
+    }
+
+    /**
+     * Returns the {@code n} beneficiaries with the highest total balance,
+     * highest first and by id on a tie. Only beneficiaries with accounts are
+     * ranked.
+     */
+    public List<BeneficiaryBalance> getTopBeneficiariesByBalance(int n) {
+        long start = System.nanoTime();
+        try {
+            View view = this.view;
+            GlobalAggregate aggregate = aggregate(view);
+            Map<Long, Long> totals = new HashMap<>();
+            for (Account account : view.accounts().values()) {
+                totals.merge(account.getBeneficiaryId(), balanceCents(view, aggregate, account.getAccountId()), Long::sum);
+            }
+
+            Comparator<Map.Entry<Long, Long>> byBalance = Map.Entry.<Long, Long>comparingByValue()
+                    .thenComparing(Map.Entry.<Long, Long>comparingByKey().reversed());
+            PriorityQueue<Map.Entry<Long, Long>> top = new PriorityQueue<>(byBalance);
+            for (Map.Entry<Long, Long> total : totals.entrySet()) {
+                top.add(total);
+                if (top.size() > n) {
+                    top.poll();
+                }
+            }
+
+            List<BeneficiaryBalance> ranking = new ArrayList<>(top.size());
+            while (!top.isEmpty()) {
+                Map.Entry<Long, Long> total = top.poll();
+                ranking.add(new BeneficiaryBalance(total.getKey(), Money.toDouble(total.getValue())));
+            }
+            Collections.reverse(ranking);
+            return ranking;
+        } finally {
+            metrics.recordCall("getTopBeneficiariesByBalance", start);
         }
+    }
+
+    /**
+     * Returns the deposit and withdrawal totals per day or month within
+     * {@code [from, to]}, oldest first. A null bound leaves that side open;
+     * periods without transactions are left out.
+     */
+    public List<VolumeEntry> getVolume(VolumeGranularity granularity, LocalDate from, LocalDate to) {
+        long start = System.nanoTime();
+        try {
+            GlobalAggregate aggregate = aggregate(this.view);
+            List<VolumeEntry> entries = new ArrayList<>();
+            if (aggregate.getDayCount() == 0) {
+                return entries;
+            }
+            int fromDay = Math.max(epochDay(from, Integer.MIN_VALUE), aggregate.getFirstDay());
+            int toDay = Math.min(epochDay(to, Integer.MAX_VALUE), aggregate.getFirstDay() + aggregate.getDayCount() - 1);
 
-        if (largestWithdrawal == null) {
-            logger.warn("No withdrawals found for Beneficiary ID {} in the last month", beneficiaryId);
+            String period = null;
+            long[] totals = new long[4];
+            for (int day = fromDay; day <= toDay; day++) {
+                if (aggregate.getDepositCount(day) == 0 && aggregate.getWithdrawalCount(day) == 0) {
+                    continue;
+                }
+                LocalDate date = LocalDate.ofEpochDay(day);
+                String dayPeriod = granularity == VolumeGranularity.DAY ? date.toString() : YearMonth.from(date).toString();
+                if (!dayPeriod.equals(period)) {
+                    if (period != null) {
+                        entries.add(volumeEntry(period, totals));
+                    }
+                    period = dayPeriod;
+                    Arrays.fill(totals, 0);
+                }
+                totals[0] += aggregate.getDepositCents(day);
+                totals[1] += aggregate.getDepositCount(day);
+                totals[2] += aggregate.getWithdrawalCents(day);
+                totals[3] += aggregate.getWithdrawalCount(day);
+            }
+            if (period != null) {
+                entries.add(volumeEntry(period, totals));
+            }
+            return entries;
+        } finally {
+            metrics.recordCall("getVolume", start);
         }
+    }
+
+    private static VolumeEntry volumeEntry(String period, long[] totals) {
+        return new VolumeEntry(period, Money.toBigDecimal(totals[0]), totals[1],
+                Money.toBigDecimal(totals[2]), totals[3]);
+    }
 
-        return Optional.ofNullable(largestWithdrawal);
+    /**
+     * Returns every account whose balance is below zero, lowest balance first
+     * and by id on a tie.
+     */
+    public List<AccountBalance> getNegativeBalanceAccounts() {
+        long start = System.nanoTime();
+        try {
+            View view = this.view;
+            GlobalAggregate aggregate = aggregate(view);
+            List<AccountBalance> negative = new ArrayList<>();
+            for (int ref = 0; ref < aggregate.getAccountCount(); ref++) {
+                long cents = aggregate.getBalanceCents(ref);
+                if (cents < 0) {
+                    long accountId = view.transactions().getAccountIdOfRef(ref);
+                    Account account = view.accounts().get(accountId);
+                    negative.add(new AccountBalance(accountId, account == null ? null : account.getBeneficiaryId(),
+                            Money.toBigDecimal(cents)));
+                }
+            }
+            negative.sort(Comparator.comparing(AccountBalance::getBalance).thenComparing(AccountBalance::getAccountId));
+            return negative;
+        } finally {
+            metrics.recordCall("getNegativeBalanceAccounts", start);
+        }
+    }
+
+    /**
+     * Aggregate of the view's rows. Only the rows added since the last one
+     * are scanned.
+     */
+    private GlobalAggregate aggregate(View view) {
+        return analytics.aggregate(view.transactions(), view.rows());
+    }
+
+    private static long balanceCents(View view, GlobalAggregate aggregate, Long accountId) {
+        int ref = view.transactions().findAccountRef(accountId);
+        return ref < 0 || ref >= aggregate.getAccountCount() ? 0L : aggregate.getBalanceCents(ref);
+    }
+
+    /**
+     * Maps each id of a batch, in parallel once the batch is large enough to
+     * pay for the fork/join overhead. Results keep the order of the ids.
+     */
+    private static <R> List<R> evaluate(List<Long> beneficiaryIds, Function<Long, R> query) {
+        if (beneficiaryIds.stream().anyMatch(Objects::isNull)) {
+            throw new IllegalArgumentException("Beneficiary ids must not be null");
+        }
+        Stream<Long> ids = beneficiaryIds.size() >= PARALLEL_BATCH_SIZE
+                ? beneficiaryIds.parallelStream()
+                : beneficiaryIds.stream();
+        return ids.map(query).toList();
     }
 }
@@ -0,0 +1,15 @@
+package com.netcompany.accountmanagementsystem.service;
+
+import lombok.Value;
+
+/**
+ * Cache key of one beneficiary query. Queries without a date window leave
+ * both days at zero.
+ */
+@Value
+class QueryKey {
+    Long beneficiaryId;
+    String query;
+    int fromDay;
+    int toDay;
+}
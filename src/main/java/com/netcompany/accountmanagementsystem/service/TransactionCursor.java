@@ -0,0 +1,50 @@
+package com.netcompany.accountmanagementsystem.service;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+
+/**
+ * Opaque continuation token for paging through transactions. It holds the
+ * store row of the last returned transaction and that transaction's id, so a
+ * token that no longer matches the data is rejected instead of silently
+ * skipping or repeating rows.
+ */
+final class TransactionCursor {
+
+    private static final byte VERSION = 1;
+    private static final int BYTES = Byte.BYTES + Integer.BYTES + Long.BYTES;
+
+    private TransactionCursor() {
+    }
+
+    static String encode(int row, long transactionId) {
+        ByteBuffer buffer = ByteBuffer.allocate(BYTES).put(VERSION).putInt(row).putLong(transactionId);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+    }
+
+    /**
+     * Returns the row the token continues after.
+     *
+     * @throws IllegalArgumentException if the token is malformed
+     */
+    static int row(String cursor) {
+        return decode(cursor).getInt(Byte.BYTES);
+    }
+
+    static long transactionId(String cursor) {
+        return decode(cursor).getLong(Byte.BYTES + Integer.BYTES);
+    }
+
+    private static ByteBuffer decode(String cursor) {
+        byte[] bytes;
+        try {
+            bytes = Base64.getUrlDecoder().decode(cursor);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        if (bytes.length != BYTES || bytes[0] != VERSION || ByteBuffer.wrap(bytes).getInt(Byte.BYTES) < 0) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        return ByteBuffer.wrap(bytes);
+    }
+}
@@ -0,0 +1,100 @@
+package com.netcompany.accountmanagementsystem.service;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Progress of loading the data, updated by the loading thread and read by
+ * health checks and request filters. {@link #getCompletion()} completes once
+ * the data is served, or exceptionally if loading failed. Progress reported
+ * after that, by later reloads, is ignored.
+ */
+public class WarmUp {
+
+    public enum Phase {
+        STARTING, READING, INDEXING, READY, FAILED
+    }
+
+    private final long startNanos = System.nanoTime();
+    private final CompletableFuture<Void> completion = new CompletableFuture<>();
+    private volatile Phase phase = Phase.STARTING;
+    private volatile long indexedRows;
+    private volatile long totalRows;
+    private volatile long elapsedMillis = -1;
+    private volatile Throwable failure;
+
+    public Phase getPhase() {
+        return phase;
+    }
+
+    public boolean isReady() {
+        return phase == Phase.READY;
+    }
+
+    /**
+     * Transactions indexed so far.
+     */
+    public long getIndexedRows() {
+        return indexedRows;
+    }
+
+    /**
+     * Transactions to index in total, once known.
+     */
+    public long getTotalRows() {
+        return totalRows;
+    }
+
+    /**
+     * Time spent loading so far, or in total once finished.
+     */
+    public long getElapsedMillis() {
+        long elapsed = elapsedMillis;
+        return elapsed >= 0 ? elapsed : (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    /**
+     * Why loading failed, if it did.
+     */
+    public Throwable getFailure() {
+        return failure;
+    }
+
+    public CompletableFuture<Void> getCompletion() {
+        return completion;
+    }
+
+    void reading() {
+        if (completion.isDone()) {
+            return;
+        }
+        phase = Phase.READING;
+    }
+
+    void indexing(long totalRows) {
+        if (completion.isDone()) {
+            return;
+        }
+        this.totalRows = totalRows;
+        phase = Phase.INDEXING;
+    }
+
+    void indexed(long indexedRows) {
+        if (completion.isDone()) {
+            return;
+        }
+        this.indexedRows = indexedRows;
+    }
+
+    void ready() {
+        elapsedMillis = (System.nanoTime() - startNanos) / 1_000_000;
+        phase = Phase.READY;
+        completion.complete(null);
+    }
+
+    void failed(Throwable cause) {
+        elapsedMillis = (System.nanoTime() - startNanos) / 1_000_000;
+        failure = cause;
+        phase = Phase.FAILED;
+        completion.completeExceptionally(cause);
+    }
+}
@@ -0,0 +1,115 @@
+package com.netcompany.accountmanagementsystem.shard;
+
+import com.netcompany.accountmanagementsystem.config.ShardProperties;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Assigns every beneficiary, and with it their accounts and transactions, to
+ * one shard. The same settings give the same assignment on every instance.
+ */
+public class ShardMap {
+
+    private final ShardStrategy strategy;
+    private final int count;
+    private final int index;
+    private final long[] boundaries;
+    private final List<String> nodes;
+
+    /**
+     * @throws IllegalArgumentException if the settings do not describe a
+     *                                  valid assignment
+     */
+    public ShardMap(ShardProperties properties) {
+        strategy = properties.getStrategy();
+        nodes = List.copyOf(properties.getNodes());
+        count = nodes.isEmpty() ? properties.getCount() : nodes.size();
+        index = properties.getIndex();
+        boundaries = properties.getBoundaries().stream().mapToLong(Long::longValue).toArray();
+        if (count < 1 || index < 0 || index >= count) {
+            throw new IllegalArgumentException("Shard index " + index + " is not within " + count + " shards");
+        }
+        if (strategy == ShardStrategy.RANGE && boundaries.length != count - 1) {
+            throw new IllegalArgumentException("The range strategy needs " + (count - 1)
+                    + " boundaries for " + count + " shards, got " + boundaries.length);
+        }
+        for (int i = 1; i < boundaries.length; i++) {
+            if (boundaries[i] <= boundaries[i - 1]) {
+                throw new IllegalArgumentException("Shard boundaries must be ascending");
+            }
+        }
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public List<String> getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Whether the data is split over more than one shard.
+     */
+    public boolean isSharded() {
+        return count > 1;
+    }
+
+    /**
+     * Whether this instance routes requests to the shards instead of serving
+     * data itself.
+     */
+    public boolean isRouter() {
+        return !nodes.isEmpty();
+    }
+
+    public int shardOf(long beneficiaryId) {
+        if (strategy == ShardStrategy.RANGE) {
+            int position = Arrays.binarySearch(boundaries, beneficiaryId);
+            return position >= 0 ? position + 1 : -position - 1;
+        }
+        return Math.floorMod(mix(beneficiaryId), count);
+    }
+
+    /**
+     * Whether this instance's shard holds the beneficiary.
+     */
+    public boolean owns(long beneficiaryId) {
+        return !isSharded() || shardOf(beneficiaryId) == index;
+    }
+
+    /**
+     * Whether the shard takes the transaction id. Shard {@code i} of
+     * {@code n} takes the ids congruent to {@code i} modulo {@code n}, so the
+     * ids the shards store never collide.
+     */
+    public boolean takesTransactionId(int shard, long transactionId) {
+        return Math.floorMod(transactionId, count) == shard;
+    }
+
+    /**
+     * Identifies the assignment and this instance's part of it, so data
+     * derived from one shard is not taken for another's.
+     */
+    public long fingerprint() {
+        if (!isSharded()) {
+            return 0;
+        }
+        return (strategy.name() + "/" + count + "/" + index + "/" + Arrays.toString(boundaries)).hashCode();
+    }
+
+    // Finalizer of MurmurHash3, so neighbouring ids land on unrelated shards
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb93e1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+}
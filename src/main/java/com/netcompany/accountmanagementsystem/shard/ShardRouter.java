@@ -0,0 +1,544 @@
+package com.netcompany.accountmanagementsystem.shard;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.netcompany.accountmanagementsystem.cache.CacheStats;
+import com.netcompany.accountmanagementsystem.model.Account;
+import com.netcompany.accountmanagementsystem.model.AccountBalance;
+import com.netcompany.accountmanagementsystem.model.BeneficiaryBalance;
+import com.netcompany.accountmanagementsystem.model.Transaction;
+import com.netcompany.accountmanagementsystem.model.TransactionSearchResult;
+import com.netcompany.accountmanagementsystem.model.TransactionSort;
+import com.netcompany.accountmanagementsystem.model.VolumeEntry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Routes the API requests of a router instance to the shards. Requests about
+ * one beneficiary go to the shard that holds them and their response is
+ * streamed back unchanged. Requests about an account go to every shard and
+ * the answer of the one that knows it is returned. Batches are split by shard
+ * and global queries are sent to every shard, and the answers are merged.
+ * <p>
+ * A batch of transactions spanning several shards is stored by each shard on
+ * its own: if one shard rejects its part, the others may have stored theirs.
+ */
+public class ShardRouter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardRouter.class);
+
+    private static final List<String> REQUEST_HEADERS =
+            List.of(HttpHeaders.CONTENT_TYPE, HttpHeaders.ACCEPT, HttpHeaders.IF_NONE_MATCH);
+    private static final List<String> RESPONSE_HEADERS =
+            List.of(HttpHeaders.CONTENT_TYPE, HttpHeaders.ETAG, HttpHeaders.RETRY_AFTER);
+    // The shards' defaults for the top balances and the search
+    private static final int DEFAULT_TOP_SIZE = 10;
+    private static final int DEFAULT_SEARCH_SIZE = 100;
+
+    private final ShardMap shards;
+    private final ObjectMapper mapper;
+    private final Duration timeout;
+    private final HttpClient client;
+
+    public ShardRouter(ShardMap shards, ObjectMapper mapper, Duration timeout) {
+        this.shards = shards;
+        this.mapper = mapper;
+        this.timeout = timeout;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(timeout)
+                .build();
+    }
+
+    /**
+     * Answer of one shard.
+     */
+    private record Reply(int shard, int status, HttpHeaders headers, byte[] body) {
+        boolean isSuccess() {
+            return status >= 200 && status < 300;
+        }
+    }
+
+    /**
+     * A shard that could not be reached or did not answer in time.
+     */
+    private static class ShardUnavailableException extends RuntimeException {
+        ShardUnavailableException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith(request.getContextPath() + "/api/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws IOException {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        String target = request.getQueryString() == null ? path : path + "?" + request.getQueryString();
+        String[] segments = path.split("/");
+        byte[] body = request.getInputStream().readAllBytes();
+        try {
+            switch (segments.length > 2 ? segments[2] : "") {
+                case "beneficiary" -> forward(segments.length > 3 ? shardOf(segments[3]) : 0, request, target,
+                        body, response);
+                case "account" -> firstFound(request, target, body, response);
+                case "beneficiaries" -> splitByBeneficiary(request, target, body, response);
+                case "accounts" -> lookUpAccounts(request, target, body, response);
+                case "transactions" -> {
+                    if (segments.length > 3 && segments[3].equals("search")) {
+                        search(request, target, body, response);
+                    } else {
+                        addTransactions(request, target, body, response);
+                    }
+                }
+                case "analytics" -> analytics(segments.length > 3 ? segments[3] : "", request, target, body, response);
+                case "cache" -> cacheStats(request, target, body, response);
+                // Requests that need no shard's data in particular
+                default -> forward(0, request, target, body, response);
+            }
+        } catch (ShardUnavailableException e) {
+            logger.warn("Could not route {} {}: {}", request.getMethod(), target, e.getMessage());
+            write(response, HttpStatus.BAD_GATEWAY.value(), Map.of("error", e.getMessage()));
+        }
+    }
+
+    private int shardOf(String beneficiaryId) {
+        try {
+            return shards.shardOf(Long.parseLong(beneficiaryId));
+        } catch (NumberFormatException e) {
+            // Any shard rejects it the same way
+            return 0;
+        }
+    }
+
+    /**
+     * Streams the shard's answer back as it arrives.
+     */
+    private void forward(int shard, HttpServletRequest request, String target, byte[] body,
+                         HttpServletResponse response) throws IOException {
+        HttpResponse<InputStream> upstream;
+        try {
+            upstream = client.send(request(shard, request.getMethod(), target, body, request),
+                    HttpResponse.BodyHandlers.ofInputStream());
+        } catch (IOException e) {
+            throw unavailable(shard, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw unavailable(shard, e);
+        }
+        response.setStatus(upstream.statusCode());
+        copyHeaders(upstream.headers().map(), response);
+        try (InputStream stream = upstream.body()) {
+            stream.transferTo(response.getOutputStream());
+        }
+    }
+
+    /**
+     * Asks every shard and returns the first answer that is not a 404, or a
+     * 404 if no shard knows the account.
+     */
+    private void firstFound(HttpServletRequest request, String target, byte[] body, HttpServletResponse response)
+            throws IOException {
+        List<Reply> replies = gather(allShards(), request.getMethod(), target, shard -> body, request);
+        Reply answer = replies.stream()
+                .filter(reply -> reply.status() != HttpStatus.NOT_FOUND.value())
+                .findFirst()
+                .orElse(replies.get(0));
+        relay(answer, response);
+    }
+
+    /**
+     * Sends every shard the ids of a batch that it holds and puts the results
+     * back in the order of the batch.
+     */
+    private void splitByBeneficiary(HttpServletRequest request, String target, byte[] body,
+                                    HttpServletResponse response) throws IOException {
+        JsonNode ids = readTree(body);
+        if (ids == null || !ids.isArray() || ids.isEmpty()) {
+            forward(0, request, target, body, response);
+            return;
+        }
+        Map<Integer, List<Integer>> positions = new TreeMap<>();
+        for (int i = 0; i < ids.size(); i++) {
+            JsonNode id = ids.get(i);
+            int shard = id.canConvertToLong() ? shards.shardOf(id.asLong()) : 0;
+            positions.computeIfAbsent(shard, key -> new ArrayList<>()).add(i);
+        }
+
+        List<Reply> replies = gather(List.copyOf(positions.keySet()), request.getMethod(), target, shard -> {
+            ArrayNode part = mapper.createArrayNode();
+            positions.get(shard).forEach(i -> part.add(ids.get(i)));
+            return bytes(part);
+        }, request);
+        if (relayFailure(replies, response)) {
+            return;
+        }
+        JsonNode[] results = new JsonNode[ids.size()];
+        for (Reply reply : replies) {
+            JsonNode part = mapper.readTree(reply.body());
+            List<Integer> shardPositions = positions.get(reply.shard());
+            for (int j = 0; j < shardPositions.size(); j++) {
+                results[shardPositions.get(j)] = part.get(j);
+            }
+        }
+        write(response, HttpStatus.OK.value(), results);
+    }
+
+    private void lookUpAccounts(HttpServletRequest request, String target, byte[] body, HttpServletResponse response)
+            throws IOException {
+        List<Long> accountIds = readValue(body, new TypeReference<>() {
+        });
+        if (accountIds == null) {
+            forward(0, request, target, body, response);
+            return;
+        }
+        Map<Long, Account> found = findAccounts(accountIds).accounts();
+        List<Account> accounts = new ArrayList<>();
+        for (Long accountId : accountIds) {
+            if (found.containsKey(accountId)) {
+                accounts.add(found.get(accountId));
+            }
+        }
+        write(response, HttpStatus.OK.value(), accounts);
+    }
+
+    /**
+     * Accounts found on the shards, with the shard each one is on.
+     */
+    private record AccountOwners(Map<Long, Account> accounts, Map<Long, Integer> shards) {
+    }
+
+    private AccountOwners findAccounts(List<Long> accountIds) throws IOException {
+        byte[] lookup = bytes(new ArrayList<>(new LinkedHashSet<>(accountIds)));
+        List<Reply> replies = gather(allShards(), "POST", "/api/accounts", shard -> lookup, null);
+        AccountOwners owners = new AccountOwners(new HashMap<>(), new HashMap<>());
+        for (Reply reply : replies) {
+            if (!reply.isSuccess()) {
+                throw new ShardUnavailableException("Shard " + reply.shard() + " could not look up accounts, status "
+                        + reply.status(), null);
+            }
+            for (Account account : mapper.readValue(reply.body(), new TypeReference<List<Account>>() {
+            })) {
+                owners.accounts().put(account.getAccountId(), account);
+                owners.shards().put(account.getAccountId(), reply.shard());
+            }
+        }
+        return owners;
+    }
+
+    /**
+     * Looks up which shard holds each account and sends every shard its part
+     * of the transactions. A given transaction id must be one its shard takes.
+     */
+    private void addTransactions(HttpServletRequest request, String target, byte[] body, HttpServletResponse response)
+            throws IOException {
+        JsonNode transactions = readTree(body);
+        boolean bulk = transactions != null && transactions.isArray();
+        if (transactions == null || !"POST".equals(request.getMethod()) || bulk && transactions.isEmpty()) {
+            forward(0, request, target, body, response);
+            return;
+        }
+        List<JsonNode> list = new ArrayList<>();
+        (bulk ? transactions : mapper.createArrayNode().add(transactions)).forEach(list::add);
+
+        List<Long> accountIds = new ArrayList<>();
+        for (JsonNode transaction : list) {
+            JsonNode accountId = transaction.path("accountId");
+            if (!accountId.canConvertToLong()) {
+                accountNotFound(accountId.isMissingNode() ? "null" : accountId.asText(), response);
+                return;
+            }
+            accountIds.add(accountId.asLong());
+        }
+        Map<Long, Integer> owners = findAccounts(accountIds).shards();
+        Map<Integer, List<Integer>> positions = new TreeMap<>();
+        for (int i = 0; i < list.size(); i++) {
+            Integer shard = owners.get(accountIds.get(i));
+            if (shard == null) {
+                accountNotFound(String.valueOf(accountIds.get(i)), response);
+                return;
+            }
+            // Checked before any shard stores its part, so the batch is rejected as a whole
+            JsonNode transactionId = list.get(i).path("transactionId");
+            if (transactionId.canConvertToLong() && !shards.takesTransactionId(shard, transactionId.asLong())) {
+                write(response, HttpStatus.BAD_REQUEST.value(), Map.of("error", "Transaction ID "
+                        + transactionId.asLong() + " belongs to another shard: shard " + shard
+                        + " takes the ids congruent to " + shard + " modulo " + shards.getCount()));
+                return;
+            }
+            positions.computeIfAbsent(shard, key -> new ArrayList<>()).add(i);
+        }
+        if (!bulk) {
+            forward(positions.keySet().iterator().next(), request, target, body, response);
+            return;
+        }
+
+        List<Reply> replies = gather(List.copyOf(positions.keySet()), "POST", target, shard -> {
+            ArrayNode part = mapper.createArrayNode();
+            positions.get(shard).forEach(i -> part.add(list.get(i)));
+            return bytes(part);
+        }, request);
+        if (relayFailure(replies, response)) {
+            return;
+        }
+        JsonNode[] stored = new JsonNode[list.size()];
+        for (Reply reply : replies) {
+            JsonNode part = mapper.readTree(reply.body());
+            List<Integer> shardPositions = positions.get(reply.shard());
+            for (int j = 0; j < shardPositions.size(); j++) {
+                stored[shardPositions.get(j)] = part.get(j);
+            }
+        }
+        write(response, HttpStatus.CREATED.value(), stored);
+    }
+
+    private void accountNotFound(String accountId, HttpServletResponse response) throws IOException {
+        write(response, HttpStatus.BAD_REQUEST.value(), Map.of("error", "Account with ID " + accountId + " not found"));
+    }
+
+    /**
+     * Merges the shards' answers to a global query the way a single instance
+     * computes it over all the data.
+     */
+    private void analytics(String query, HttpServletRequest request, String target, byte[] body,
+                           HttpServletResponse response) throws IOException {
+        List<Reply> replies = gather(allShards(), request.getMethod(), target, shard -> body, request);
+        if (relayFailure(replies, response)) {
+            return;
+        }
+        switch (query) {
+            case "top-balances" -> {
+                String limit = request.getParameter("limit");
+                List<BeneficiaryBalance> ranking = merge(replies, new TypeReference<List<BeneficiaryBalance>>() {
+                });
+                ranking.sort(Comparator.comparing(BeneficiaryBalance::getTotalBalance).reversed()
+                        .thenComparing(BeneficiaryBalance::getBeneficiaryId));
+                int size = limit == null ? DEFAULT_TOP_SIZE : Integer.parseInt(limit);
+                write(response, HttpStatus.OK.value(), ranking.subList(0, Math.min(size, ranking.size())));
+            }
+            case "volume" -> {
+                Map<String, VolumeEntry> periods = new TreeMap<>();
+                for (VolumeEntry entry : merge(replies, new TypeReference<List<VolumeEntry>>() {
+                })) {
+                    periods.merge(entry.getPeriod(), entry, (a, b) -> new VolumeEntry(a.getPeriod(),
+                            a.getDeposits().add(b.getDeposits()), a.getDepositCount() + b.getDepositCount(),
+                            a.getWithdrawals().add(b.getWithdrawals()), a.getWithdrawalCount() + b.getWithdrawalCount()));
+                }
+                write(response, HttpStatus.OK.value(), periods.values());
+            }
+            case "negative-balances" -> {
+                List<AccountBalance> negative = merge(replies, new TypeReference<List<AccountBalance>>() {
+                });
+                negative.sort(Comparator.comparing(AccountBalance::getBalance).thenComparing(AccountBalance::getAccountId));
+                write(response, HttpStatus.OK.value(), negative);
+            }
+            default -> relay(replies.get(0), response);
+        }
+    }
+
+    /**
+     * Sends a search to every shard and keeps the first results of all of
+     * them in the search's order. Unsorted results come shard by shard.
+     */
+    private void search(HttpServletRequest request, String target, byte[] body, HttpServletResponse response)
+            throws IOException {
+        List<Reply> replies = gather(allShards(), request.getMethod(), target, shard -> body, request);
+        if (relayFailure(replies, response)) {
+            return;
+        }
+        long total = 0;
+        List<Transaction> found = new ArrayList<>();
+        for (Reply reply : replies) {
+            TransactionSearchResult result = mapper.readValue(reply.body(), TransactionSearchResult.class);
+            total += result.getTotal();
+            found.addAll(result.getTransactions());
+        }
+        String sort = request.getParameter("sort");
+        if (sort != null) {
+            found.sort(TransactionSort.of(sort).comparator("desc".equals(request.getParameter("order"))));
+        }
+        String limit = request.getParameter("limit");
+        int size = limit == null ? DEFAULT_SEARCH_SIZE : Integer.parseInt(limit);
+        write(response, HttpStatus.OK.value(),
+                new TransactionSearchResult(total, found.subList(0, Math.min(size, found.size()))));
+    }
+
+    private void cacheStats(HttpServletRequest request, String target, byte[] body, HttpServletResponse response)
+            throws IOException {
+        List<Reply> replies = gather(allShards(), request.getMethod(), target, shard -> body, request);
+        if (relayFailure(replies, response)) {
+            return;
+        }
+        CacheStats total = new CacheStats();
+        for (Reply reply : replies) {
+            CacheStats stats = mapper.readValue(reply.body(), CacheStats.class);
+            total.setHits(total.getHits() + stats.getHits());
+            total.setMisses(total.getMisses() + stats.getMisses());
+            total.setLoads(total.getLoads() + stats.getLoads());
+            total.setEvictions(total.getEvictions() + stats.getEvictions());
+            total.setSize(total.getSize() + stats.getSize());
+        }
+        write(response, HttpStatus.OK.value(), total);
+    }
+
+    private <T> List<T> merge(List<Reply> replies, TypeReference<List<T>> type) throws IOException {
+        List<T> merged = new ArrayList<>();
+        for (Reply reply : replies) {
+            merged.addAll(mapper.readValue(reply.body(), type));
+        }
+        return merged;
+    }
+
+    private List<Integer> allShards() {
+        List<Integer> all = new ArrayList<>();
+        for (int shard = 0; shard < shards.getCount(); shard++) {
+            all.add(shard);
+        }
+        return all;
+    }
+
+    private interface BodyOfShard {
+        byte[] apply(int shard) throws JsonProcessingException;
+    }
+
+    /**
+     * Sends the request to the shards at once and waits for all answers, in
+     * the order of the shards given.
+     */
+    private List<Reply> gather(List<Integer> targets, String method, String target, BodyOfShard body,
+                               HttpServletRequest request) throws JsonProcessingException {
+        List<CompletableFuture<Reply>> pending = new ArrayList<>();
+        for (int shard : targets) {
+            int current = shard;
+            pending.add(client.sendAsync(request(shard, method, target, body.apply(shard), request),
+                            HttpResponse.BodyHandlers.ofByteArray())
+                    .thenApply(reply -> new Reply(current, reply.statusCode(), headers(reply.headers().map()),
+                            reply.body())));
+        }
+        List<Reply> replies = new ArrayList<>();
+        for (int i = 0; i < pending.size(); i++) {
+            try {
+                replies.add(pending.get(i).join());
+            } catch (CompletionException e) {
+                throw unavailable(targets.get(i), e.getCause());
+            }
+        }
+        return replies;
+    }
+
+    private HttpRequest request(int shard, String method, String target, byte[] body, HttpServletRequest request) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(shards.getNodes().get(shard) + target))
+                .timeout(timeout)
+                .method(method, body.length == 0
+                        ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofByteArray(body));
+        if (request != null) {
+            for (String header : REQUEST_HEADERS) {
+                String value = request.getHeader(header);
+                if (value != null) {
+                    builder.header(header, value);
+                }
+            }
+        } else {
+            builder.header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE);
+        }
+        return builder.build();
+    }
+
+    private ShardUnavailableException unavailable(int shard, Throwable cause) {
+        return new ShardUnavailableException("Shard " + shard + " at " + shards.getNodes().get(shard)
+                + " did not answer", cause);
+    }
+
+    /**
+     * Returns the first answer that is not a success, such as a rejected
+     * request or a shard still loading its data, as the answer to the client.
+     */
+    private boolean relayFailure(List<Reply> replies, HttpServletResponse response) throws IOException {
+        for (Reply reply : replies) {
+            if (!reply.isSuccess()) {
+                relay(reply, response);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void relay(Reply reply, HttpServletResponse response) throws IOException {
+        response.setStatus(reply.status());
+        copyHeaders(reply.headers(), response);
+        response.getOutputStream().write(reply.body());
+    }
+
+    private static HttpHeaders headers(Map<String, List<String>> map) {
+        HttpHeaders headers = new HttpHeaders();
+        map.forEach(headers::addAll);
+        return headers;
+    }
+
+    private static void copyHeaders(Map<String, List<String>> headers, HttpServletResponse response) {
+        HttpHeaders received = headers instanceof HttpHeaders httpHeaders ? httpHeaders : headers(headers);
+        for (String header : RESPONSE_HEADERS) {
+            String value = received.getFirst(header);
+            if (value != null) {
+                response.setHeader(header, value);
+            }
+        }
+    }
+
+    private void write(HttpServletResponse response, int status, Object value) throws IOException {
+        response.setStatus(status);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        mapper.writeValue(response.getOutputStream(), value);
+    }
+
+    private byte[] bytes(Object value) throws JsonProcessingException {
+        return mapper.writeValueAsBytes(value);
+    }
+
+    private JsonNode readTree(byte[] body) {
+        try {
+            return body.length == 0 ? null : mapper.readTree(body);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private <T> T readValue(byte[] body, TypeReference<T> type) {
+        try {
+            return body.length == 0 ? null : mapper.readValue(body, type);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
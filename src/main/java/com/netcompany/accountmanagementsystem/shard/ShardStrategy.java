@@ -0,0 +1,15 @@
+package com.netcompany.accountmanagementsystem.shard;
+
+/**
+ * How beneficiaries are assigned to shards.
+ */
+public enum ShardStrategy {
+    /**
+     * By a hash of the beneficiary id, spreading the beneficiaries evenly.
+     */
+    HASH,
+    /**
+     * By ranges of beneficiary ids, keeping neighbouring ids together.
+     */
+    RANGE
+}
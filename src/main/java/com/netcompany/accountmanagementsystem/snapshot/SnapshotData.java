@@ -0,0 +1,25 @@
+package com.netcompany.accountmanagementsystem.snapshot;
+
+import com.netcompany.accountmanagementsystem.model.Account;
+import com.netcompany.accountmanagementsystem.model.Beneficiary;
+import com.netcompany.accountmanagementsystem.store.TransactionStore;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Contents of a snapshot file. The postings are the transaction rows of each
+ * account reference, stored as {@code postingRows[postingOffsets[ref]]} up to
+ * {@code postingRows[postingOffsets[ref + 1]]}.
+ */
+@Getter
+@AllArgsConstructor
+public class SnapshotData {
+    private final List<Beneficiary> beneficiaries;
+    private final List<Account> accounts;
+    private final TransactionStore transactions;
+    private final long[] balances;
+    private final int[] postingOffsets;
+    private final int[] postingRows;
+}
@@ -0,0 +1,32 @@
+package com.netcompany.accountmanagementsystem.snapshot;
+
+/**
+ * Layout of a snapshot file. All numbers are big-endian.
+ *
+ * <pre>
+ * header   magic int, version int, source checksum long
+ * section  beneficiaries: count int, then id long, first name, last name
+ *          (strings as byte length int + UTF-8 bytes)
+ * section  accounts: count int, ids long[], beneficiary ids long[]
+ * section  transactions: count int, account dictionary size int,
+ *          account ids long[]
+ * sections one per transaction column: transaction ids long[], account
+ *          refs int[], amounts in cents long[], types byte[], epoch days int[]
+ * section  balances: long[] per account ref
+ * sections postings: offsets int[account refs + 1], then rows int[]
+ *          grouped by account ref
+ * trailer  CRC32C of all sections long
+ * </pre>
+ *
+ * Each section is preceded by its length in bytes as a long, so the reader
+ * can map it on its own and no single mapping has to hold the whole file.
+ */
+final class SnapshotFormat {
+
+    static final int MAGIC = 0x414D5353; // "AMSS"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = Integer.BYTES + Integer.BYTES + Long.BYTES;
+
+    private SnapshotFormat() {
+    }
+}
@@ -0,0 +1,151 @@
+package com.netcompany.accountmanagementsystem.snapshot;
+
+import com.netcompany.accountmanagementsystem.model.Account;
+import com.netcompany.accountmanagementsystem.model.Beneficiary;
+import com.netcompany.accountmanagementsystem.store.TransactionStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.zip.CRC32C;
+
+/**
+ * Reads a snapshot file written by {@link SnapshotWriter}. Each section is
+ * memory-mapped and copied into its arrays in bulk. A missing, stale or
+ * corrupt snapshot yields an empty result so the caller can fall back to the
+ * CSV files.
+ */
+public class SnapshotReader {
+
+    private static final Logger logger = LoggerFactory.getLogger(SnapshotReader.class);
+
+    private final CRC32C crc = new CRC32C();
+    private FileChannel channel;
+    private long position;
+
+    public Optional<SnapshotData> read(Path path, long sourceChecksum) {
+        if (!Files.isRegularFile(path)) {
+            return Optional.empty();
+        }
+        try (FileChannel input = FileChannel.open(path, StandardOpenOption.READ)) {
+            channel = input;
+            position = 0;
+            crc.reset();
+
+            ByteBuffer header = map(SnapshotFormat.HEADER_BYTES);
+            if (header.getInt() != SnapshotFormat.MAGIC || header.getInt() != SnapshotFormat.VERSION) {
+                logger.info("Ignoring snapshot {} written in another format", path);
+                return Optional.empty();
+            }
+            if (header.getLong() != sourceChecksum) {
+                logger.info("Ignoring stale snapshot {}, the CSV files have changed", path);
+                return Optional.empty();
+            }
+
+            List<Beneficiary> beneficiaries = readBeneficiaries(section());
+            List<Account> accounts = readAccounts(section());
+            TransactionStore transactions = readTransactions();
+            long[] balances = readLongs(section(), transactions.getAccountCount());
+            int[] postingOffsets = readInts(section(), transactions.getAccountCount() + 1);
+            int[] postingRows = readInts(section(), transactions.size());
+
+            long expectedChecksum = map(Long.BYTES).getLong();
+            if (expectedChecksum != crc.getValue() || position != input.size()) {
+                logger.warn("Ignoring corrupt snapshot {}", path);
+                return Optional.empty();
+            }
+            return Optional.of(new SnapshotData(beneficiaries, accounts, transactions, balances,
+                    postingOffsets, postingRows));
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Ignoring unreadable snapshot {}", path, e);
+            return Optional.empty();
+        } finally {
+            channel = null;
+        }
+    }
+
+    private ByteBuffer map(long length) throws IOException {
+        if (position + length > channel.size()) {
+            throw new IOException("Snapshot is truncated");
+        }
+        ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+        position += length;
+        return buffer;
+    }
+
+    /**
+     * Maps the next section and adds it, with its length prefix, to the
+     * payload checksum.
+     */
+    private ByteBuffer section() throws IOException {
+        ByteBuffer lengthBytes = map(Long.BYTES);
+        crc.update(lengthBytes.duplicate());
+        ByteBuffer section = map(lengthBytes.getLong());
+        crc.update(section.duplicate());
+        return section;
+    }
+
+    private static List<Beneficiary> readBeneficiaries(ByteBuffer section) {
+        int count = section.getInt();
+        List<Beneficiary> beneficiaries = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            beneficiaries.add(new Beneficiary(section.getLong(), readString(section), readString(section)));
+        }
+        return beneficiaries;
+    }
+
+    private static String readString(ByteBuffer section) {
+        byte[] bytes = new byte[section.getInt()];
+        section.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static List<Account> readAccounts(ByteBuffer section) {
+        int count = section.getInt();
+        long[] accountIds = readLongs(section, count);
+        long[] beneficiaryIds = readLongs(section, count);
+        List<Account> accounts = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            accounts.add(new Account(accountIds[i], beneficiaryIds[i]));
+        }
+        return accounts;
+    }
+
+    private TransactionStore readTransactions() throws IOException {
+        ByteBuffer dictionary = section();
+        int size = dictionary.getInt();
+        int accountCount = dictionary.getInt();
+        long[] accountIds = readLongs(dictionary, accountCount);
+
+        long[] transactionIds = readLongs(section(), size);
+        int[] accountRefs = readInts(section(), size);
+        long[] amounts = readLongs(section(), size);
+        byte[] types = new byte[size];
+        section().get(types);
+        int[] epochDays = readInts(section(), size);
+        return TransactionStore.fromColumns(transactionIds, accountRefs, amounts, types, epochDays, accountIds);
+    }
+
+    private static long[] readLongs(ByteBuffer section, int count) {
+        long[] values = new long[count];
+        section.asLongBuffer().get(values);
+        section.position(section.position() + count * Long.BYTES);
+        return values;
+    }
+
+    private static int[] readInts(ByteBuffer section, int count) {
+        int[] values = new int[count];
+        section.asIntBuffer().get(values);
+        section.position(section.position() + count * Integer.BYTES);
+        return values;
+    }
+}
@@ -0,0 +1,209 @@
+package com.netcompany.accountmanagementsystem.snapshot;
+
+import com.netcompany.accountmanagementsystem.index.BalanceLedger;
+import com.netcompany.accountmanagementsystem.model.Account;
+import com.netcompany.accountmanagementsystem.model.Beneficiary;
+import com.netcompany.accountmanagementsystem.store.TransactionStore;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.zip.CRC32C;
+
+/**
+ * Writes the loaded data to a snapshot file, see {@link SnapshotFormat}. The
+ * file is written next to its final location and moved into place, so a
+ * reader never sees a partially written snapshot.
+ */
+public class SnapshotWriter {
+
+    private static final int BUFFER_BYTES = 1 << 20;
+
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+    private final CRC32C crc = new CRC32C();
+    private FileChannel channel;
+
+    public void write(Path path, long sourceChecksum, Collection<Beneficiary> beneficiaries,
+                      Collection<Account> accounts, TransactionStore transactions, BalanceLedger ledger)
+            throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+
+        try (FileChannel output = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            channel = output;
+            crc.reset();
+            buffer.clear();
+
+            buffer.putInt(SnapshotFormat.MAGIC);
+            buffer.putInt(SnapshotFormat.VERSION);
+            buffer.putLong(sourceChecksum);
+            flush(false);
+
+            writeBeneficiaries(beneficiaries);
+            writeAccounts(accounts);
+            writeTransactions(transactions);
+            writeBalances(transactions, ledger);
+            writePostings(transactions);
+            flush(true);
+
+            buffer.putLong(crc.getValue());
+            flush(false);
+            output.force(true);
+        } finally {
+            channel = null;
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void writeBeneficiaries(Collection<Beneficiary> beneficiaries) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(bytes);
+        data.writeInt(beneficiaries.size());
+        for (Beneficiary beneficiary : beneficiaries) {
+            data.writeLong(beneficiary.getBeneficiaryId());
+            writeString(data, beneficiary.getFirstName());
+            writeString(data, beneficiary.getLastName());
+        }
+        byte[] section = bytes.toByteArray();
+
+        putLong(section.length);
+        for (byte b : section) {
+            putByte(b);
+        }
+    }
+
+    private static void writeString(DataOutputStream data, String value) throws IOException {
+        byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+        data.writeInt(encoded.length);
+        data.write(encoded);
+    }
+
+    private void writeAccounts(Collection<Account> accounts) throws IOException {
+        putLong(Integer.BYTES + 2L * Long.BYTES * accounts.size());
+        putInt(accounts.size());
+        for (Account account : accounts) {
+            putLong(account.getAccountId());
+        }
+        for (Account account : accounts) {
+            putLong(account.getBeneficiaryId());
+        }
+    }
+
+    private void writeTransactions(TransactionStore transactions) throws IOException {
+        int size = transactions.size();
+        int accountCount = transactions.getAccountCount();
+
+        putLong(2L * Integer.BYTES + (long) Long.BYTES * accountCount);
+        putInt(size);
+        putInt(accountCount);
+        for (int ref = 0; ref < accountCount; ref++) {
+            putLong(transactions.getAccountIdOfRef(ref));
+        }
+
+        putLong((long) Long.BYTES * size);
+        for (int row = 0; row < size; row++) {
+            putLong(transactions.getTransactionId(row));
+        }
+        putLong((long) Integer.BYTES * size);
+        for (int row = 0; row < size; row++) {
+            putInt(transactions.getAccountRef(row));
+        }
+        putLong((long) Long.BYTES * size);
+        for (int row = 0; row < size; row++) {
+            putLong(transactions.getAmountCents(row));
+        }
+        putLong(size);
+        for (int row = 0; row < size; row++) {
+            putByte(transactions.getType(row));
+        }
+        putLong((long) Integer.BYTES * size);
+        for (int row = 0; row < size; row++) {
+            putInt(transactions.getEpochDay(row));
+        }
+    }
+
+    private void writeBalances(TransactionStore transactions, BalanceLedger ledger) throws IOException {
+        int accountCount = transactions.getAccountCount();
+        putLong((long) Long.BYTES * accountCount);
+        for (int ref = 0; ref < accountCount; ref++) {
+            putLong(ledger.getBalanceCents(ref));
+        }
+    }
+
+    /**
+     * Groups the rows by account reference with a counting sort, keeping each
+     * account's rows in ascending order.
+     */
+    private void writePostings(TransactionStore transactions) throws IOException {
+        int size = transactions.size();
+        int accountCount = transactions.getAccountCount();
+        int[] offsets = new int[accountCount + 1];
+        for (int row = 0; row < size; row++) {
+            offsets[transactions.getAccountRef(row) + 1]++;
+        }
+        for (int ref = 0; ref < accountCount; ref++) {
+            offsets[ref + 1] += offsets[ref];
+        }
+        int[] next = offsets.clone();
+        int[] rows = new int[size];
+        for (int row = 0; row < size; row++) {
+            rows[next[transactions.getAccountRef(row)]++] = row;
+        }
+
+        putLong((long) Integer.BYTES * offsets.length);
+        for (int offset : offsets) {
+            putInt(offset);
+        }
+        putLong((long) Integer.BYTES * rows.length);
+        for (int row : rows) {
+            putInt(row);
+        }
+    }
+
+    private void putByte(byte value) throws IOException {
+        if (!buffer.hasRemaining()) {
+            flush(true);
+        }
+        buffer.put(value);
+    }
+
+    private void putInt(int value) throws IOException {
+        if (buffer.remaining() < Integer.BYTES) {
+            flush(true);
+        }
+        buffer.putInt(value);
+    }
+
+    private void putLong(long value) throws IOException {
+        if (buffer.remaining() < Long.BYTES) {
+            flush(true);
+        }
+        buffer.putLong(value);
+    }
+
+    /**
+     * Writes out the buffered bytes, adding them to the payload checksum when
+     * {@code checksummed} is set.
+     */
+    private void flush(boolean checksummed) throws IOException {
+        buffer.flip();
+        if (checksummed) {
+            crc.update(buffer.duplicate());
+        }
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
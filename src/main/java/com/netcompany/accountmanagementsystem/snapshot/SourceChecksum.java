@@ -0,0 +1,35 @@
+package com.netcompany.accountmanagementsystem.snapshot;
+
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.CRC32C;
+
+/**
+ * Checksum over the contents of the CSV files a snapshot was built from.
+ * A snapshot whose recorded checksum differs is stale.
+ */
+public final class SourceChecksum {
+
+    private SourceChecksum() {
+    }
+
+    public static long of(Resource... resources) throws IOException {
+        CRC32C crc = new CRC32C();
+        byte[] buffer = new byte[1 << 16];
+        long totalBytes = 0;
+        for (Resource resource : resources) {
+            try (InputStream inputStream = resource.getInputStream()) {
+                int read;
+                while ((read = inputStream.read(buffer)) > 0) {
+                    crc.update(buffer, 0, read);
+                    totalBytes += read;
+                }
+            }
+            // Separate the files so moving a line from one to the next changes the checksum
+            crc.update(0);
+        }
+        return totalBytes << 32 | crc.getValue();
+    }
+}
@@ -0,0 +1,162 @@
+package com.netcompany.accountmanagementsystem.store;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Amounts of money as a whole number of cents in a {@code long}, the form
+ * they keep from the CSV parser through the store and every total. The
+ * conversions are exact: an amount with more than 2 decimals is rejected
+ * rather than rounded, and only {@link #toBigDecimal} allocates.
+ */
+public final class Money {
+
+    public static final int SCALE = 2;
+
+    private static final long CENTS_PER_UNIT = 100;
+    // Up to this many cents both operands of the division in toDouble are exact
+    private static final long MAX_EXACT_CENTS = 1L << 53;
+    // Up to this many cents a double is close enough to its amount to round back to the same cents
+    private static final long MAX_ROUND_TRIP_CENTS = 1L << 50;
+
+    private static final CharSource<CharSequence> TEXT = new CharSource<>() {
+        @Override
+        public int charAt(CharSequence source, int i) {
+            return source.charAt(i);
+        }
+
+        @Override
+        public String text(CharSequence source, int from, int to) {
+            return source.subSequence(from, to).toString();
+        }
+    };
+
+    private static final CharSource<ByteBuffer> BYTES = new CharSource<>() {
+        @Override
+        public int charAt(ByteBuffer source, int i) {
+            return source.get(i);
+        }
+
+        @Override
+        public String text(ByteBuffer source, int from, int to) {
+            byte[] text = new byte[to - from];
+            source.get(from, text);
+            return new String(text, StandardCharsets.UTF_8);
+        }
+    };
+
+    private Money() {
+    }
+
+    /**
+     * Parses a decimal amount such as {@code 41.2}, {@code -3.05} or
+     * {@code 500} to cents. Decimals past the second must be zeros.
+     *
+     * @throws NumberFormatException if the text is not a plain decimal number
+     * @throws ArithmeticException   if the amount has more than 2 decimals or
+     *                               does not fit in a long of cents
+     */
+    public static long parse(CharSequence text) {
+        return parse(text, TEXT, 0, text.length());
+    }
+
+    /**
+     * Parses the amount held by the bytes {@code [from, to)} of the buffer
+     * like {@link #parse(CharSequence)}, without creating a String unless it
+     * is invalid. The buffer's position is left alone.
+     */
+    public static long parse(ByteBuffer bytes, int from, int to) {
+        return parse(bytes, BYTES, from, to);
+    }
+
+    /**
+     * Reads the characters of a text or of a byte range, so both overloads of
+     * parse share the same rules without copying their input.
+     */
+    private interface CharSource<S> {
+        int charAt(S source, int i);
+
+        String text(S source, int from, int to);
+    }
+
+    private static <S> long parse(S source, CharSource<S> chars, int from, int to) {
+        int i = from;
+        boolean negative = false;
+        if (i < to && (chars.charAt(source, i) == '-' || chars.charAt(source, i) == '+')) {
+            negative = chars.charAt(source, i) == '-';
+            i++;
+        }
+        long units = 0;
+        int digits = 0;
+        for (; i < to && chars.charAt(source, i) != '.'; i++, digits++) {
+            units = Math.addExact(Math.multiplyExact(units, 10), digit(source, chars, from, to, i));
+        }
+        long cents = 0;
+        int decimals = 0;
+        if (i < to) {
+            for (i++; i < to; i++, decimals++) {
+                int digit = digit(source, chars, from, to, i);
+                if (decimals < SCALE) {
+                    cents = cents * 10 + digit;
+                } else if (digit != 0) {
+                    throw new ArithmeticException("Amount " + chars.text(source, from, to) + " has more than "
+                            + SCALE + " decimals");
+                }
+            }
+        }
+        if (digits + decimals == 0) {
+            throw new NumberFormatException("Invalid amount '" + chars.text(source, from, to) + "'");
+        }
+        for (; decimals < SCALE; decimals++) {
+            cents *= 10;
+        }
+        long total = Math.addExact(Math.multiplyExact(units, CENTS_PER_UNIT), cents);
+        return negative ? -total : total;
+    }
+
+    private static <S> int digit(S source, CharSource<S> chars, int from, int to, int i) {
+        int c = chars.charAt(source, i);
+        if (c < '0' || c > '9') {
+            throw new NumberFormatException("Invalid amount '" + chars.text(source, from, to) + "'");
+        }
+        return c - '0';
+    }
+
+    /**
+     * Converts an amount such as {@code 41.2} to cents, reading the double as
+     * the whole number of cents it is the closest double to.
+     *
+     * @throws ArithmeticException if the amount has more than 2 decimals
+     */
+    public static long ofDouble(double amount) {
+        if (!Double.isFinite(amount)) {
+            throw new ArithmeticException("Amount " + amount + " is not a number of cents");
+        }
+        long cents = Math.round(amount * CENTS_PER_UNIT);
+        if (Math.abs(cents) >= MAX_ROUND_TRIP_CENTS) {
+            // Too large to round back reliably, so go by the decimal digits
+            return BigDecimal.valueOf(amount).movePointRight(SCALE).longValueExact();
+        }
+        if (toDouble(cents) != amount) {
+            throw new ArithmeticException("Amount " + amount + " has more than " + SCALE + " decimals");
+        }
+        return cents;
+    }
+
+    /**
+     * Returns the double closest to the amount, the same as
+     * {@code toBigDecimal(cents).doubleValue()}.
+     */
+    public static double toDouble(long cents) {
+        if (Math.abs(cents) >= MAX_EXACT_CENTS) {
+            return toBigDecimal(cents).doubleValue();
+        }
+        // Both operands are exact and the division is correctly rounded
+        return cents / (double) CENTS_PER_UNIT;
+    }
+
+    public static BigDecimal toBigDecimal(long cents) {
+        return BigDecimal.valueOf(cents, SCALE);
+    }
+}
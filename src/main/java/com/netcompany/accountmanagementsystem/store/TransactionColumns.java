@@ -0,0 +1,46 @@
+package com.netcompany.accountmanagementsystem.store;
+
+/**
+ * Storage of the rows of a {@link TransactionStore}. The store has one writer
+ * that sets rows below {@link #capacity()} and readers that only read rows
+ * the writer has published, so implementations need no locking of their own.
+ */
+public interface TransactionColumns {
+
+    int capacity();
+
+    /**
+     * Returns columns holding at least {@code capacity} rows, with every row
+     * set so far. This may be the same instance.
+     */
+    TransactionColumns grow(int capacity);
+
+    /**
+     * Returns columns holding exactly the first {@code rows} rows, or the same
+     * instance if spare capacity costs nothing.
+     */
+    TransactionColumns trim(int rows);
+
+    void set(int row, long transactionId, long accountId, int accountRef, long amountCents, byte type, int epochDay);
+
+    /**
+     * Called before the first {@code rows} rows are published. Durable
+     * columns make them survive a crash before returning.
+     */
+    void commit(int rows);
+
+    long getTransactionId(int row);
+
+    int getAccountRef(int row);
+
+    long getAmountCents(int row);
+
+    byte getType(int row);
+
+    int getEpochDay(int row);
+
+    /**
+     * Approximate heap footprint, in bytes.
+     */
+    long getEstimatedBytes();
+}
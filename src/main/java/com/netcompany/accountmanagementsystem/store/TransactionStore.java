@@ -0,0 +1,387 @@
+package com.netcompany.accountmanagementsystem.store;
+
+import com.netcompany.accountmanagementsystem.model.Transaction;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Struct-of-arrays storage for transactions. Each row is spread over
+ * primitive columns: the transaction id, a reference into the account id
+ * dictionary, the amount in cents, a one byte type code and the date as an
+ * epoch day. {@link Transaction} objects are only created on request. The
+ * columns are heap arrays unless the store is created {@link #over} other
+ * {@link TransactionColumns}, such as a memory-mapped transaction log.
+ *
+ * <p>The store has a single writer and any number of lock-free readers.
+ * Appended rows stay invisible until {@link #publish()}; a reader that reads
+ * {@link #size()} once and only touches rows below it sees a consistent
+ * snapshot, however many rows are appended meanwhile. Growing a column copies
+ * it, so rows below a published size are present in every later copy.
+ */
+public class TransactionStore {
+
+    public static final byte DEPOSIT = 1;
+    public static final byte WITHDRAWAL = 2;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private volatile TransactionColumns columns = new Columns(INITIAL_CAPACITY);
+    private volatile int size;
+    private int appended;
+    private long maxTransactionId;
+
+    private volatile long[] accountIds = new long[INITIAL_CAPACITY];
+    private volatile int accountCount;
+    private final Map<Long, Integer> accountRefsById = new ConcurrentHashMap<>();
+
+    /**
+     * Receives the columns of one row during a {@link #scan}.
+     */
+    @FunctionalInterface
+    public interface RowVisitor {
+        void visit(int row, int accountRef, byte type, long amountCents, int epochDay);
+    }
+
+    private static final class Columns implements TransactionColumns {
+        private final long[] transactionIds;
+        private final int[] accountRefs;
+        private final long[] amounts;
+        private final byte[] types;
+        private final int[] epochDays;
+
+        private Columns(int capacity) {
+            this(new long[capacity], new int[capacity], new long[capacity], new byte[capacity], new int[capacity]);
+        }
+
+        private Columns(long[] transactionIds, int[] accountRefs, long[] amounts, byte[] types, int[] epochDays) {
+            this.transactionIds = transactionIds;
+            this.accountRefs = accountRefs;
+            this.amounts = amounts;
+            this.types = types;
+            this.epochDays = epochDays;
+        }
+
+        private Columns copy(int capacity) {
+            return new Columns(
+                    Arrays.copyOf(transactionIds, capacity),
+                    Arrays.copyOf(accountRefs, capacity),
+                    Arrays.copyOf(amounts, capacity),
+                    Arrays.copyOf(types, capacity),
+                    Arrays.copyOf(epochDays, capacity));
+        }
+
+        @Override
+        public int capacity() {
+            return transactionIds.length;
+        }
+
+        @Override
+        public TransactionColumns grow(int capacity) {
+            if (capacity <= transactionIds.length) {
+                return this;
+            }
+            // Doubling keeps appending one row at a time amortized constant
+            return copy(Math.max(capacity, Math.max(transactionIds.length * 2, INITIAL_CAPACITY)));
+        }
+
+        @Override
+        public TransactionColumns trim(int rows) {
+            return rows == transactionIds.length ? this : copy(rows);
+        }
+
+        @Override
+        public void set(int row, long transactionId, long accountId, int accountRef, long amountCents, byte type,
+                        int epochDay) {
+            transactionIds[row] = transactionId;
+            accountRefs[row] = accountRef;
+            amounts[row] = amountCents;
+            types[row] = type;
+            epochDays[row] = epochDay;
+        }
+
+        @Override
+        public void commit(int rows) {
+            // Heap columns are lost with the process anyway
+        }
+
+        @Override
+        public long getTransactionId(int row) {
+            return transactionIds[row];
+        }
+
+        @Override
+        public int getAccountRef(int row) {
+            return accountRefs[row];
+        }
+
+        @Override
+        public long getAmountCents(int row) {
+            return amounts[row];
+        }
+
+        @Override
+        public byte getType(int row) {
+            return types[row];
+        }
+
+        @Override
+        public int getEpochDay(int row) {
+            return epochDays[row];
+        }
+
+        @Override
+        public long getEstimatedBytes() {
+            long perRow = Long.BYTES + Integer.BYTES + Long.BYTES + Byte.BYTES + Integer.BYTES;
+            return perRow * transactionIds.length;
+        }
+    }
+
+    /**
+     * Creates a store over existing columns, for example ones read back from a
+     * snapshot. The arrays are used as they are, not copied, and all rows are
+     * published.
+     */
+    public static TransactionStore fromColumns(long[] transactionIds, int[] accountRefs, long[] amounts,
+                                               byte[] types, int[] epochDays, long[] accountIds) {
+        TransactionStore store = new TransactionStore();
+        store.columns = new Columns(transactionIds, accountRefs, amounts, types, epochDays);
+        store.appended = transactionIds.length;
+        for (long transactionId : transactionIds) {
+            store.maxTransactionId = Math.max(store.maxTransactionId, transactionId);
+        }
+        store.adoptAccountIds(accountIds);
+        store.publish();
+        return store;
+    }
+
+    /**
+     * Creates a store over columns that may already hold rows, such as a
+     * transaction log. The first {@code rows} rows are published and must
+     * only refer to accounts of the dictionary {@code accountIds}; further
+     * rows held by the columns are taken over with {@link #recover}.
+     */
+    public static TransactionStore over(TransactionColumns columns, int rows, long[] accountIds,
+                                        long maxTransactionId) {
+        TransactionStore store = new TransactionStore();
+        store.columns = columns;
+        store.appended = rows;
+        store.maxTransactionId = maxTransactionId;
+        store.adoptAccountIds(accountIds);
+        store.size = rows;
+        return store;
+    }
+
+    private void adoptAccountIds(long[] ids) {
+        accountIds = ids;
+        for (int ref = 0; ref < ids.length; ref++) {
+            accountRefsById.put(ids[ref], ref);
+        }
+        accountCount = ids.length;
+    }
+
+    /**
+     * Appends a row and returns its position. The row becomes visible to
+     * readers with the next {@link #publish()}.
+     *
+     * @param amountCents the amount in cents, always positive
+     * @param type        {@link #DEPOSIT} or {@link #WITHDRAWAL}
+     */
+    public int append(long transactionId, long accountId, long amountCents, byte type, int epochDay) {
+        TransactionColumns current = columns;
+        if (appended == current.capacity()) {
+            current = current.grow(appended + 1);
+            columns = current;
+        }
+        int row = appended;
+        current.set(row, transactionId, accountId, accountRef(accountId), amountCents, type, epochDay);
+        appended++;
+        maxTransactionId = Math.max(maxTransactionId, transactionId);
+        return row;
+    }
+
+    /**
+     * Takes over the next row, which the columns already hold, as when
+     * replaying a log. The account reference is assigned again in the same
+     * order as when the row was appended, so it must come out the same.
+     *
+     * @throws IllegalStateException if the row refers to another account
+     *                               reference than the one it was written with
+     */
+    public int recover(long accountId) {
+        TransactionColumns current = columns;
+        int row = appended;
+        int ref = accountRef(accountId);
+        if (ref != current.getAccountRef(row)) {
+            throw new IllegalStateException("Row " + row + " was written with account reference "
+                    + current.getAccountRef(row) + " but account " + accountId + " has reference " + ref);
+        }
+        appended++;
+        maxTransactionId = Math.max(maxTransactionId, current.getTransactionId(row));
+        return row;
+    }
+
+    /**
+     * Makes all appended rows visible to readers at once.
+     */
+    public void publish() {
+        columns.commit(appended);
+        size = appended;
+    }
+
+    private int accountRef(long accountId) {
+        Integer ref = accountRefsById.get(accountId);
+        if (ref == null) {
+            long[] ids = accountIds;
+            if (accountCount == ids.length) {
+                ids = Arrays.copyOf(ids, Math.max(accountCount * 2, INITIAL_CAPACITY));
+            }
+            ref = accountCount;
+            ids[ref] = accountId;
+            accountIds = ids;
+            accountCount = ref + 1;
+            accountRefsById.put(accountId, ref);
+        }
+        return ref;
+    }
+
+    /**
+     * Grows the columns up front when the number of rows to come is known.
+     */
+    public void ensureCapacity(int capacity) {
+        if (capacity > columns.capacity()) {
+            columns = columns.grow(capacity);
+        }
+    }
+
+    /**
+     * Releases the spare capacity left over from growing the columns.
+     */
+    public void trimToSize() {
+        columns = columns.trim(appended);
+    }
+
+    /**
+     * Number of published rows.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Highest transaction id appended so far, for the writer to assign new ids.
+     */
+    public long getMaxTransactionId() {
+        return maxTransactionId;
+    }
+
+    /**
+     * Counts an id held elsewhere towards {@link #getMaxTransactionId()}, so
+     * the writer does not assign it again.
+     */
+    public void reserveTransactionId(long transactionId) {
+        maxTransactionId = Math.max(maxTransactionId, transactionId);
+    }
+
+    public int getAccountCount() {
+        return accountCount;
+    }
+
+    /**
+     * Returns the dictionary reference of the account, or -1 if no
+     * transaction of the account has been stored.
+     */
+    public int findAccountRef(long accountId) {
+        Integer ref = accountRefsById.get(accountId);
+        return ref == null ? -1 : ref;
+    }
+
+    public long getAccountIdOfRef(int accountRef) {
+        return accountIds[accountRef];
+    }
+
+    public int getAccountRef(int row) {
+        return columns.getAccountRef(row);
+    }
+
+    public long getTransactionId(int row) {
+        return columns.getTransactionId(row);
+    }
+
+    public long getAccountId(int row) {
+        return accountIds[columns.getAccountRef(row)];
+    }
+
+    public long getAmountCents(int row) {
+        return columns.getAmountCents(row);
+    }
+
+    /**
+     * Returns the amount with the sign it has on the balance: positive for a
+     * deposit, negative for a withdrawal.
+     */
+    public long getSignedAmountCents(int row) {
+        TransactionColumns current = columns;
+        long amountCents = current.getAmountCents(row);
+        return current.getType(row) == DEPOSIT ? amountCents : -amountCents;
+    }
+
+    public byte getType(int row) {
+        return columns.getType(row);
+    }
+
+    public int getEpochDay(int row) {
+        return columns.getEpochDay(row);
+    }
+
+    /**
+     * Visits the rows in {@code [from, to)} in order. The columns are read
+     * once for the whole range, so this is the cheapest way through many rows.
+     */
+    public void scan(int from, int to, RowVisitor visitor) {
+        TransactionColumns current = columns;
+        for (int row = from; row < to; row++) {
+            visitor.visit(row, current.getAccountRef(row), current.getType(row), current.getAmountCents(row),
+                    current.getEpochDay(row));
+        }
+    }
+
+    /**
+     * Approximate heap footprint of the columns, in bytes.
+     */
+    public long getEstimatedBytes() {
+        return columns.getEstimatedBytes() + (long) Long.BYTES * accountIds.length;
+    }
+
+    public Transaction toTransaction(int row) {
+        TransactionColumns current = columns;
+        return new Transaction(
+                current.getTransactionId(row),
+                accountIds[current.getAccountRef(row)],
+                Money.toDouble(current.getAmountCents(row)),
+                typeName(current.getType(row)),
+                LocalDate.ofEpochDay(current.getEpochDay(row))
+        );
+    }
+
+    /**
+     * Returns the type code for {@code "deposit"} or {@code "withdrawal"}.
+     *
+     * @throws IllegalArgumentException for any other type
+     */
+    public static byte typeCode(String type) {
+        if ("deposit".equals(type)) {
+            return DEPOSIT;
+        }
+        if ("withdrawal".equals(type)) {
+            return WITHDRAWAL;
+        }
+        throw new IllegalArgumentException("Unknown transaction type: " + type);
+    }
+
+    public static String typeName(byte type) {
+        return type == DEPOSIT ? "deposit" : "withdrawal";
+    }
+}
@@ -0,0 +1,116 @@
+package com.netcompany.accountmanagementsystem.analytics;
+
+import com.netcompany.accountmanagementsystem.store.TransactionStore;
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionAnalyticsTest {
+
+    private static TransactionStore randomStore(int rows) {
+        TransactionStore store = new TransactionStore();
+        SplittableRandom random = new SplittableRandom(15);
+        for (int i = 0; i < rows; i++) {
+            store.append(i + 1, random.nextInt(300), 1 + random.nextInt(100_000),
+                    random.nextBoolean() ? TransactionStore.DEPOSIT : TransactionStore.WITHDRAWAL,
+                    19_000 + random.nextInt(-400, 400));
+        }
+        store.publish();
+        return store;
+    }
+
+    // Test for many small partitions merged against one sequential pass
+    @Test
+    void testPartitionedScanMatchesSequential() {
+        TransactionStore store = randomStore(20_000);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            GlobalAggregate partitioned = new TransactionAnalytics(pool, 100).scan(store, 15_000);
+            GlobalAggregate sequential = new GlobalAggregate(store.getAccountCount());
+            store.scan(0, 15_000, (row, accountRef, type, amountCents, epochDay) ->
+                    sequential.add(accountRef, type, amountCents, epochDay));
+
+            assertEquals(15_000, partitioned.getRows());
+            for (int ref = 0; ref < store.getAccountCount(); ref++) {
+                assertEquals(sequential.getBalanceCents(ref), partitioned.getBalanceCents(ref));
+            }
+            assertEquals(sequential.getFirstDay(), partitioned.getFirstDay());
+            assertEquals(sequential.getDayCount(), partitioned.getDayCount());
+            for (int day = 18_590; day < 19_410; day++) {
+                assertEquals(sequential.getDepositCents(day), partitioned.getDepositCents(day));
+                assertEquals(sequential.getDepositCount(day), partitioned.getDepositCount(day));
+                assertEquals(sequential.getWithdrawalCents(day), partitioned.getWithdrawalCents(day));
+                assertEquals(sequential.getWithdrawalCount(day), partitioned.getWithdrawalCount(day));
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    // Test for reusing the last aggregate until more rows are published
+    @Test
+    void testAggregateReusedForSameRows() {
+        TransactionStore store = randomStore(1000);
+        TransactionAnalytics analytics = new TransactionAnalytics();
+
+        GlobalAggregate first = analytics.aggregate(store, store.size());
+        assertSame(first, analytics.aggregate(store, store.size()));
+
+        store.append(1001, 5, 100, TransactionStore.DEPOSIT, 19_000);
+        store.publish();
+        GlobalAggregate second = analytics.aggregate(store, store.size());
+        assertNotSame(first, second);
+        assertEquals(1001, second.getRows());
+        assertEquals(first.getBalanceCents(store.findAccountRef(5)) + 100,
+                second.getBalanceCents(store.findAccountRef(5)));
+    }
+
+    // Test for aggregates extended with the rows of each new batch against a full scan
+    @Test
+    void testAggregateExtendedWithNewRows() {
+        TransactionStore store = randomStore(5000);
+        TransactionAnalytics analytics = new TransactionAnalytics(ForkJoinPool.commonPool(), 100);
+        SplittableRandom random = new SplittableRandom(16);
+        GlobalAggregate previous = analytics.aggregate(store, store.size());
+        long previousBalance = previous.getBalanceCents(0);
+
+        for (int batch = 0; batch < 20; batch++) {
+            for (int i = random.nextInt(1, 500); i > 0; i--) {
+                // New accounts and days outside the range seen so far
+                store.append(store.size() + 1, random.nextInt(400), 1 + random.nextInt(100_000),
+                        random.nextBoolean() ? TransactionStore.DEPOSIT : TransactionStore.WITHDRAWAL,
+                        19_000 + random.nextInt(-600, 600));
+            }
+            store.publish();
+            GlobalAggregate extended = analytics.aggregate(store, store.size());
+            GlobalAggregate scanned = analytics.scan(store, store.size());
+
+            assertEquals(scanned.getRows(), extended.getRows());
+            assertEquals(scanned.getAccountCount(), extended.getAccountCount());
+            for (int ref = 0; ref < store.getAccountCount(); ref++) {
+                assertEquals(scanned.getBalanceCents(ref), extended.getBalanceCents(ref));
+            }
+            assertEquals(scanned.getFirstDay(), extended.getFirstDay());
+            assertEquals(scanned.getDayCount(), extended.getDayCount());
+            for (int day = 18_390; day < 19_610; day++) {
+                assertEquals(scanned.getDepositCents(day), extended.getDepositCents(day));
+                assertEquals(scanned.getWithdrawalCount(day), extended.getWithdrawalCount(day));
+            }
+        }
+        // Aggregates handed out before are left as they were
+        assertEquals(previousBalance, previous.getBalanceCents(0));
+        assertEquals(5000, previous.getRows());
+    }
+
+    // Test for an empty store
+    @Test
+    void testEmptyStore() {
+        GlobalAggregate aggregate = new TransactionAnalytics().scan(new TransactionStore(), 0);
+        assertEquals(0, aggregate.getRows());
+        assertEquals(0, aggregate.getDayCount());
+        assertEquals(0, aggregate.getDepositCents(19_000));
+    }
+}
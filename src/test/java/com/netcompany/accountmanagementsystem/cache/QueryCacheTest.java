@@ -0,0 +1,139 @@
+package com.netcompany.accountmanagementsystem.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueryCacheTest {
+
+    // Test for hits at the same version and misses at a newer one
+    @Test
+    void testVersionedLookup() {
+        QueryCache<String, String> cache = new QueryCache<>(10, Duration.ofMinutes(1));
+
+        assertEquals("a0", cache.get("a", 0, () -> "a0"));
+        assertEquals("a0", cache.get("a", 0, () -> "other"));
+        assertEquals("a1", cache.get("a", 1, () -> "a1"));
+
+        CacheStats stats = cache.getStats();
+        assertEquals(1, stats.getHits());
+        assertEquals(2, stats.getMisses());
+        assertEquals(2, stats.getLoads());
+        assertEquals(1, stats.getSize());
+    }
+
+    // Test for evicting the least recently used result
+    @Test
+    void testSizeEviction() {
+        QueryCache<String, String> cache = new QueryCache<>(2, Duration.ofMinutes(1));
+        cache.get("a", 0, () -> "a");
+        cache.get("b", 0, () -> "b");
+        cache.get("a", 0, () -> "a");
+        cache.get("c", 0, () -> "c");
+
+        assertEquals("a", cache.get("a", 0, () -> "reloaded"));
+        assertEquals("reloaded", cache.get("b", 0, () -> "reloaded"));
+        assertEquals(2, cache.getStats().getEvictions());
+        assertEquals(2, cache.getStats().getSize());
+    }
+
+    // Test for a full cache evicting a batch of its least recently used results at once
+    @Test
+    void testBatchEviction() {
+        QueryCache<Integer, Integer> cache = new QueryCache<>(32, Duration.ofMinutes(1));
+        for (int key = 0; key < 32; key++) {
+            cache.get(key, 0, () -> 0);
+        }
+        cache.get(0, 0, () -> -1);
+        cache.get(32, 0, () -> 0);
+
+        // One over the maximum plus a sixteenth of it, the oldest first
+        assertEquals(3, cache.getStats().getEvictions());
+        assertEquals(30, cache.getStats().getSize());
+        assertEquals(0, cache.get(0, 0, () -> -1));
+        assertEquals(-1, cache.get(1, 0, () -> -1));
+    }
+
+    // Test for results that have expired
+    @Test
+    void testTimeToLive() {
+        QueryCache<String, String> cache = new QueryCache<>(10, Duration.ZERO);
+        cache.get("a", 0, () -> "first");
+
+        assertEquals("second", cache.get("a", 0, () -> "second"));
+        assertEquals(0, cache.getStats().getHits());
+    }
+
+    // Test for concurrent misses sharing one computation
+    @Test
+    void testSingleFlight() throws Exception {
+        QueryCache<String, String> cache = new QueryCache<>(10, Duration.ofMinutes(1));
+        AtomicInteger computations = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<String> first = executor.submit(() -> cache.get("a", 0, () -> {
+                computations.incrementAndGet();
+                started.countDown();
+                await(release);
+                return "a";
+            }));
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+
+            Future<String> second = executor.submit(() -> cache.get("a", 0, () -> {
+                computations.incrementAndGet();
+                return "again";
+            }));
+            // Give the second caller time to join the running computation
+            while (cache.getStats().getMisses() < 2) {
+                Thread.onSpinWait();
+            }
+            release.countDown();
+
+            assertEquals("a", first.get(10, TimeUnit.SECONDS));
+            assertEquals("a", second.get(10, TimeUnit.SECONDS));
+            assertEquals(1, computations.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // Test for a failed computation, which is not cached
+    @Test
+    void testLoaderFailure() {
+        QueryCache<String, String> cache = new QueryCache<>(10, Duration.ofMinutes(1));
+
+        assertThrows(IllegalStateException.class, () -> cache.get("a", 0, () -> {
+            throw new IllegalStateException("failed");
+        }));
+        assertEquals("a", cache.get("a", 0, () -> "a"));
+    }
+
+    // Test for a disabled cache
+    @Test
+    void testDisabled() {
+        QueryCache<String, String> cache = new QueryCache<>(0, Duration.ofMinutes(1));
+        cache.get("a", 0, () -> "first");
+
+        assertEquals("second", cache.get("a", 0, () -> "second"));
+        assertEquals(0, cache.getStats().getSize());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -1,26 +1,54 @@
 package com.netcompany.accountmanagementsystem.controller;
 
 import com.netcompany.accountmanagementsystem.model.Account;
+import com.netcompany.accountmanagementsystem.model.AccountBalance;
 import com.netcompany.accountmanagementsystem.model.Beneficiary;
+import com.netcompany.accountmanagementsystem.model.BeneficiaryBalance;
+import com.netcompany.accountmanagementsystem.model.BeneficiarySummary;
+import com.netcompany.accountmanagementsystem.model.LargestWithdrawalResult;
+import com.netcompany.accountmanagementsystem.model.StatementEntry;
+import com.netcompany.accountmanagementsystem.model.SummarySection;
+import com.netcompany.accountmanagementsystem.model.TotalBalanceResult;
 import com.netcompany.accountmanagementsystem.model.Transaction;
+import com.netcompany.accountmanagementsystem.model.TransactionFilter;
+import com.netcompany.accountmanagementsystem.model.TransactionPage;
+import com.netcompany.accountmanagementsystem.model.TransactionSearch;
+import com.netcompany.accountmanagementsystem.model.TransactionSearchResult;
+import com.netcompany.accountmanagementsystem.model.TransactionSort;
+import com.netcompany.accountmanagementsystem.model.VolumeEntry;
+import com.netcompany.accountmanagementsystem.model.VolumeGranularity;
 import com.netcompany.accountmanagementsystem.service.AccountManagementService;
+import com.netcompany.accountmanagementsystem.service.WarmUp;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
+import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
 
 import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 class AccountManagementControllerTest {
@@ -127,6 +155,69 @@ class AccountManagementControllerTest {
         verify(accountService, times(1)).getTransactionsForBeneficiary(305L);
     }
 
+    // Test for getTransactions - One page with a filter
+    @Test
+    void testGetTransactionsPage() throws Exception {
+        TransactionPage page = new TransactionPage(List.of(
+                new Transaction(2L, 2L, 50.0, "withdrawal", LocalDate.of(2023, 9, 2))), "next");
+        TransactionFilter filter = new TransactionFilter("withdrawal", null, null);
+        when(accountService.getTransactionsPage(305L, filter, null, 1)).thenReturn(page);
+
+        mockMvc.perform(get("/api/beneficiary/305/transactions?type=withdrawal&limit=1"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("{\"transactions\":[{\"transactionId\":2,\"accountId\":2,\"amount\":50.0," +
+                        "\"type\":\"withdrawal\",\"date\":\"2023-09-02\"}],\"nextCursor\":\"next\"}"));
+
+        verify(accountService, times(1)).getTransactionsPage(305L, filter, null, 1);
+        verify(accountService, never()).getTransactionsForBeneficiary(anyLong());
+    }
+
+    // Test for getTransactions - Page size out of range
+    @Test
+    void testGetTransactionsPageInvalidLimit() throws Exception {
+        mockMvc.perform(get("/api/beneficiary/305/transactions?limit=0"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().json("{\"error\":\"The limit must be between 1 and 1000\"}"));
+    }
+
+    // Test for getTransactions - Streamed as NDJSON
+    @Test
+    void testStreamTransactions() throws Exception {
+        when(accountService.streamTransactions(305L, new TransactionFilter(null, null, null))).thenReturn(Stream.of(
+                new Transaction(1L, 1L, 100.0, "deposit", LocalDate.of(2023, 9, 1)),
+                new Transaction(2L, 2L, 50.0, "withdrawal", LocalDate.of(2023, 9, 2))));
+
+        MvcResult result = mockMvc.perform(get("/api/beneficiary/305/transactions").accept("application/x-ndjson"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andExpect(content().string(
+                        "{\"transactionId\":1,\"accountId\":1,\"amount\":100.0,\"type\":\"deposit\",\"date\":\"2023-09-01\"}\n" +
+                        "{\"transactionId\":2,\"accountId\":2,\"amount\":50.0,\"type\":\"withdrawal\",\"date\":\"2023-09-02\"}\n"));
+    }
+
+    // Test for an invalid filter of the NDJSON stream answered with a JSON error
+    @Test
+    void testStreamTransactionsInvalid() throws Exception {
+        when(accountService.streamTransactions(305L, new TransactionFilter("transfer", null, null)))
+                .thenThrow(new IllegalArgumentException("Unknown transaction type: transfer"));
+
+        mockMvc.perform(get("/api/beneficiary/305/transactions").param("type", "transfer")
+                        .accept("application/x-ndjson"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(content().json("{\"error\":\"Unknown transaction type: transfer\"}"));
+
+        mockMvc.perform(get("/api/beneficiary/305/transactions").param("from", "2023-10-01").param("to", "2023-09-01")
+                        .accept("application/x-ndjson"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(content().json("{\"error\":\"The from date must not be after the to date\"}"));
+    }
+
     // Test for total balance across all accounts for a beneficiary
     @Test
     void testGetTotalBalanceForBeneficiary() throws Exception {
@@ -165,6 +256,65 @@ class AccountManagementControllerTest {
         verify(accountService, times(1)).getAccountsForBeneficiary(305L);
     }
 
+    // Test for total balance - Unchanged since the client's copy
+    @Test
+    void testGetTotalBalanceNotModified() throws Exception {
+        when(accountService.getETag(305L)).thenReturn("v1-7");
+
+        mockMvc.perform(get("/api/beneficiary/305/total-balance").header("If-None-Match", "\"v1-7\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", "\"v1-7\""));
+
+        verify(accountService, never()).getAccountsForBeneficiary(anyLong());
+        verify(accountService, never()).getTotalBalanceForBeneficiary(anyLong());
+    }
+
+    // Test for total balance - Changed since the client's copy
+    @Test
+    void testGetTotalBalanceModified() throws Exception {
+        when(accountService.getETag(305L)).thenReturn("v1-8");
+        when(accountService.getAccountsForBeneficiary(305L)).thenReturn(List.of(new Account(1L, 305L)));
+        when(accountService.getTotalBalanceForBeneficiary(305L)).thenReturn(1000.0);
+
+        mockMvc.perform(get("/api/beneficiary/305/total-balance").header("If-None-Match", "\"v1-7\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"v1-8\""))
+                .andExpect(content().json("{\"beneficiaryId\":\"305\",\"totalBalance\":1000.0}"));
+    }
+
+    // Test for per-account balances of a beneficiary
+    @Test
+    void testGetAccountBalancesForBeneficiary() throws Exception {
+        Map<Long, BigDecimal> balances = new LinkedHashMap<>();
+        balances.put(1L, new BigDecimal("100.50"));
+        balances.put(2L, new BigDecimal("-20.00"));
+        when(accountService.getAccountBalancesForBeneficiary(305L)).thenReturn(balances);
+
+        String expectedResponse = """
+            {
+                "beneficiaryId": "305",
+                "accountBalances": {"1": 100.50, "2": -20.00}
+            }""";
+
+        mockMvc.perform(get("/api/beneficiary/305/account-balances"))
+                .andExpect(status().isOk())
+                .andExpect(content().json(expectedResponse));
+
+        verify(accountService, times(1)).getAccountBalancesForBeneficiary(305L);
+    }
+
+    // Test for per-account balances - No accounts found for beneficiary
+    @Test
+    void testGetAccountBalancesForBeneficiaryNoAccounts() throws Exception {
+        when(accountService.getAccountBalancesForBeneficiary(305L)).thenReturn(Collections.emptyMap());
+
+        String expectedErrorMessage = "{\"error\":\"No accounts found for Beneficiary with ID 305\"}";
+
+        mockMvc.perform(get("/api/beneficiary/305/account-balances"))
+                .andExpect(status().isNotFound())
+                .andExpect(content().json(expectedErrorMessage));
+    }
+
     // Test for getLargestWithdrawal
     @Test
     void testGetLargestWithdrawal() throws Exception {
@@ -178,6 +328,42 @@ class AccountManagementControllerTest {
         verify(accountService, times(1)).getLargestWithdrawalLastMonth(305L);
     }
 
+    // Test for getLargestWithdrawal in a date window
+    @Test
+    void testGetLargestWithdrawalInWindow() throws Exception {
+        Transaction largestWithdrawal = new Transaction(2L, 2L, 200.0, "withdrawal", LocalDate.of(2023, 9, 10));
+        when(accountService.getLargestWithdrawal(305L, LocalDate.of(2023, 9, 1), LocalDate.of(2023, 9, 30)))
+                .thenReturn(Optional.of(largestWithdrawal));
+
+        mockMvc.perform(get("/api/beneficiary/305/largest-withdrawal?from=2023-09-01&to=2023-09-30"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("{\"transactionId\":2,\"accountId\":2,\"amount\":200.0,\"type\":\"withdrawal\",\"date\":\"2023-09-10\"}"));
+
+        verify(accountService, never()).getLargestWithdrawalLastMonth(305L);
+    }
+
+    // Test for getLargestWithdrawal - Window ends before it starts
+    @Test
+    void testGetLargestWithdrawalInvalidWindow() throws Exception {
+        mockMvc.perform(get("/api/beneficiary/305/largest-withdrawal?from=2023-09-30&to=2023-09-01"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(accountService);
+    }
+
+    // Test for getLargestWithdrawal - Window ending before the default start of one month ago
+    @Test
+    void testGetLargestWithdrawalEndBeforeDefaultStart() throws Exception {
+        mockMvc.perform(get("/api/beneficiary/305/largest-withdrawal?to=2020-01-01"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().json("{\"error\":\"The from date must not be after the to date\"}"));
+        mockMvc.perform(post("/api/beneficiaries/largest-withdrawal?to=2020-01-01")
+                        .contentType(MediaType.APPLICATION_JSON).content("[305]"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(accountService);
+    }
+
     // Test for getLargestWithdrawal - Not Found
     @Test
     void testGetLargestWithdrawalNotFound() throws Exception {
@@ -191,4 +377,274 @@ class AccountManagementControllerTest {
 
         verify(accountService, times(1)).getLargestWithdrawalLastMonth(305L);
     }
+
+    // Test for the summary of a beneficiary with selected sections
+    @Test
+    void testGetBeneficiarySummary() throws Exception {
+        BeneficiarySummary summary = new BeneficiarySummary(305L, null, List.of(new Account(1L, 305L)),
+                null, 1000.0, null, null);
+        when(accountService.getBeneficiarySummary(305L,
+                EnumSet.of(SummarySection.ACCOUNTS, SummarySection.TOTAL_BALANCE))).thenReturn(Optional.of(summary));
+
+        mockMvc.perform(get("/api/beneficiary/305/summary?sections=accounts,total-balance"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("{\"beneficiaryId\":305,\"accounts\":[{\"accountId\":1,\"beneficiaryId\":305}]," +
+                        "\"totalBalance\":1000.0}", true));
+    }
+
+    // Test for the summary - Beneficiary not found
+    @Test
+    void testGetBeneficiarySummaryNotFound() throws Exception {
+        when(accountService.getBeneficiarySummary(eq(999L), anySet())).thenReturn(Optional.empty());
+
+        mockMvc.perform(get("/api/beneficiary/999/summary"))
+                .andExpect(status().isNotFound())
+                .andExpect(content().json("{\"error\":\"Beneficiary with ID 999 not found\"}"));
+
+        verify(accountService, times(1)).getBeneficiarySummary(999L, EnumSet.allOf(SummarySection.class));
+    }
+
+    // Test for the summary - Unknown section
+    @Test
+    void testGetBeneficiarySummaryUnknownSection() throws Exception {
+        mockMvc.perform(get("/api/beneficiary/305/summary?sections=balance"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().json("{\"error\":\"Unknown summary section balance\"}"));
+
+        verify(accountService, never()).getBeneficiarySummary(anyLong(), anySet());
+    }
+
+    // Test for total balances of several beneficiaries, one of them unknown
+    @Test
+    void testGetTotalBalances() throws Exception {
+        when(accountService.getTotalBalances(List.of(305L, 99999L))).thenReturn(List.of(
+                new TotalBalanceResult(305L, 1000.0, null),
+                new TotalBalanceResult(99999L, null, "No accounts found for Beneficiary with ID 99999")));
+
+        mockMvc.perform(post("/api/beneficiaries/total-balance")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[305,99999]"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("[{\"beneficiaryId\":305,\"totalBalance\":1000.0}," +
+                        "{\"beneficiaryId\":99999,\"error\":\"No accounts found for Beneficiary with ID 99999\"}]", true));
+
+        verify(accountService, times(1)).getTotalBalances(List.of(305L, 99999L));
+    }
+
+    // Test for looking up accounts by id
+    @Test
+    void testGetAccountsById() throws Exception {
+        when(accountService.getAccounts(List.of(1L, 99999L))).thenReturn(List.of(new Account(1L, 79L)));
+
+        mockMvc.perform(post("/api/accounts")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[1,99999]"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("[{\"accountId\":1,\"beneficiaryId\":79}]", true));
+    }
+
+    // Test for largest withdrawals of several beneficiaries in a date window
+    @Test
+    void testGetLargestWithdrawals() throws Exception {
+        LocalDate from = LocalDate.of(2023, 1, 1);
+        LocalDate to = LocalDate.of(2023, 12, 31);
+        Transaction withdrawal = new Transaction(3L, 1L, 200.0, "withdrawal", LocalDate.of(2023, 9, 3));
+        when(accountService.getLargestWithdrawals(List.of(305L, 306L), from, to)).thenReturn(List.of(
+                new LargestWithdrawalResult(305L, withdrawal, null),
+                new LargestWithdrawalResult(306L, null, "No withdrawals found for Beneficiary with ID 306")));
+
+        mockMvc.perform(post("/api/beneficiaries/largest-withdrawal?from=2023-01-01&to=2023-12-31")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[305,306]"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("[{\"beneficiaryId\":305,\"largestWithdrawal\":{\"transactionId\":3," +
+                        "\"accountId\":1,\"amount\":200.0,\"type\":\"withdrawal\",\"date\":\"2023-09-03\"}}," +
+                        "{\"beneficiaryId\":306,\"error\":\"No withdrawals found for Beneficiary with ID 306\"}]"));
+
+        verify(accountService, times(1)).getLargestWithdrawals(List.of(305L, 306L), from, to);
+    }
+
+    // Test for batch queries - Too many ids
+    @Test
+    void testGetTotalBalancesBatchTooLarge() throws Exception {
+        String ids = LongStream.range(0, 10001).mapToObj(String::valueOf).collect(Collectors.joining(",", "[", "]"));
+
+        mockMvc.perform(post("/api/beneficiaries/total-balance")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(ids))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().json("{\"error\":\"A batch must not contain more than 10000 beneficiary ids\"}"));
+
+        verify(accountService, never()).getTotalBalances(anyList());
+    }
+
+    // Test for adding a transaction
+    @Test
+    void testAddTransaction() throws Exception {
+        Transaction stored = new Transaction(10001L, 1L, 41.2, "deposit", LocalDate.of(2024, 1, 2));
+        when(accountService.addTransactions(anyList())).thenReturn(List.of(stored));
+
+        mockMvc.perform(post("/api/transactions")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"accountId\":1,\"amount\":41.2,\"type\":\"deposit\",\"date\":\"2024-01-02\"}"))
+                .andExpect(status().isCreated())
+                .andExpect(content().json("{\"transactionId\":10001,\"accountId\":1,\"amount\":41.2,\"type\":\"deposit\",\"date\":\"2024-01-02\"}"));
+
+        verify(accountService, times(1)).addTransactions(
+                List.of(new Transaction(null, 1L, 41.2, "deposit", LocalDate.of(2024, 1, 2))));
+    }
+
+    // Test for adding transactions in bulk - Invalid transaction
+    @Test
+    void testAddTransactionsInvalid() throws Exception {
+        when(accountService.addTransactions(anyList()))
+                .thenThrow(new IllegalArgumentException("Account with ID 99999 not found"));
+
+        mockMvc.perform(post("/api/transactions/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"accountId\":99999,\"amount\":1.0,\"type\":\"deposit\",\"date\":\"2024-01-02\"}]"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().json("{\"error\":\"Account with ID 99999 not found\"}"));
+    }
+
+    // Test for the top beneficiaries by balance
+    @Test
+    void testGetTopBalances() throws Exception {
+        when(accountService.getTopBeneficiariesByBalance(2)).thenReturn(List.of(
+                new BeneficiaryBalance(17L, 9120.5), new BeneficiaryBalance(305L, 870.0)));
+
+        mockMvc.perform(get("/api/analytics/top-balances?limit=2"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("[{\"beneficiaryId\":17,\"totalBalance\":9120.5},"
+                        + "{\"beneficiaryId\":305,\"totalBalance\":870.0}]"));
+    }
+
+    // Test for the top beneficiaries by balance - Limit out of range
+    @Test
+    void testGetTopBalancesInvalidLimit() throws Exception {
+        mockMvc.perform(get("/api/analytics/top-balances?limit=0"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().json("{\"error\":\"The limit must be between 1 and 1000\"}"));
+
+        verify(accountService, never()).getTopBeneficiariesByBalance(anyInt());
+    }
+
+    // Test for the monthly volume report
+    @Test
+    void testGetVolume() throws Exception {
+        when(accountService.getVolume(VolumeGranularity.MONTH, LocalDate.of(2024, 1, 1), null)).thenReturn(List.of(
+                new VolumeEntry("2024-01", new BigDecimal("120.50"), 3, new BigDecimal("40.00"), 1)));
+
+        mockMvc.perform(get("/api/analytics/volume?granularity=month&from=2024-01-01"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("[{\"period\":\"2024-01\",\"deposits\":120.50,\"depositCount\":3,"
+                        + "\"withdrawals\":40.00,\"withdrawalCount\":1}]"));
+    }
+
+    // Test for the volume report - Unknown granularity
+    @Test
+    void testGetVolumeInvalidGranularity() throws Exception {
+        mockMvc.perform(get("/api/analytics/volume?granularity=week"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().json("{\"error\":\"Unknown granularity week\"}"));
+    }
+
+    // Test for the accounts with a negative balance
+    @Test
+    void testGetNegativeBalances() throws Exception {
+        when(accountService.getNegativeBalanceAccounts()).thenReturn(List.of(
+                new AccountBalance(42L, 7L, new BigDecimal("-310.25"))));
+
+        mockMvc.perform(get("/api/analytics/negative-balances"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("[{\"accountId\":42,\"beneficiaryId\":7,\"balance\":-310.25}]"));
+    }
+
+    // Test for the balance of an account at the end of a day
+    @Test
+    void testGetAccountBalanceAsOf() throws Exception {
+        when(accountService.getAccountBalanceAsOf(42L, LocalDate.of(2023, 6, 30)))
+                .thenReturn(Optional.of(new BigDecimal("310.25")));
+
+        mockMvc.perform(get("/api/account/42/balance?date=2023-06-30"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("{\"accountId\":\"42\",\"date\":\"2023-06-30\",\"balance\":310.25}"));
+    }
+
+    // Test for the balance of an account - Account not found
+    @Test
+    void testGetAccountBalanceAsOfNotFound() throws Exception {
+        when(accountService.getAccountBalanceAsOf(eq(999L), any())).thenReturn(Optional.empty());
+
+        mockMvc.perform(get("/api/account/999/balance?date=2023-06-30"))
+                .andExpect(status().isNotFound())
+                .andExpect(content().json("{\"error\":\"Account with ID 999 not found\"}"));
+    }
+
+    // Test for the monthly statements of an account
+    @Test
+    void testGetStatements() throws Exception {
+        when(accountService.getStatements(42L, VolumeGranularity.MONTH, LocalDate.of(2024, 1, 1), null))
+                .thenReturn(Optional.of(List.of(new StatementEntry("2024-01", new BigDecimal("100.00"),
+                        new BigDecimal("20.50"), 1, new BigDecimal("5.00"), 1, new BigDecimal("115.50")))));
+
+        mockMvc.perform(get("/api/account/42/statements?from=2024-01-01"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("[{\"period\":\"2024-01\",\"openingBalance\":100.00,\"deposits\":20.50,"
+                        + "\"depositCount\":1,\"withdrawals\":5.00,\"withdrawalCount\":1,\"closingBalance\":115.50}]"));
+    }
+
+    // Test for the statements of an account - From date after to date
+    @Test
+    void testGetStatementsInvalidRange() throws Exception {
+        mockMvc.perform(get("/api/account/42/statements?from=2024-02-01&to=2024-01-01"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().json("{\"error\":\"The from date must not be after the to date\"}"));
+        verify(accountService, never()).getStatements(any(), any(), any(), any());
+    }
+
+    // Test for a transaction search over several accounts
+    @Test
+    void testSearchTransactions() throws Exception {
+        TransactionSearch search = new TransactionSearch("withdrawal", new BigDecimal("500"), null,
+                LocalDate.of(2023, 10, 1), LocalDate.of(2023, 12, 31), List.of(3L, 4L), TransactionSort.AMOUNT, true, 20);
+        when(accountService.searchTransactions(search)).thenReturn(new TransactionSearchResult(7L, List.of(
+                new Transaction(11L, 3L, 612.5, "withdrawal", LocalDate.of(2023, 11, 2)))));
+
+        mockMvc.perform(get("/api/transactions/search?type=withdrawal&minAmount=500&from=2023-10-01&to=2023-12-31"
+                        + "&accountId=3&accountId=4&sort=amount&order=desc&limit=20"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("{\"total\":7,\"transactions\":[{\"transactionId\":11,\"accountId\":3,"
+                        + "\"amount\":612.5,\"type\":\"withdrawal\",\"date\":\"2023-11-02\"}]}"));
+    }
+
+    // Test for a transaction search - Invalid limit, order or sort
+    @Test
+    void testSearchTransactionsInvalid() throws Exception {
+        mockMvc.perform(get("/api/transactions/search?limit=1001"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().json("{\"error\":\"The limit must be between 1 and 1000\"}"));
+        mockMvc.perform(get("/api/transactions/search?order=up"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().json("{\"error\":\"The order must be asc or desc\"}"));
+        mockMvc.perform(get("/api/transactions/search?sort=size"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().json("{\"error\":\"Unknown sort size\"}"));
+        verify(accountService, never()).searchTransactions(any());
+    }
+
+    // Test for API requests being refused while the data is still loading
+    @Test
+    void testWarmUpInterceptor() throws Exception {
+        when(accountService.getWarmUp()).thenReturn(new WarmUp());
+        MockMvc warmingUp = MockMvcBuilders.standaloneSetup(accountController)
+                .addMappedInterceptors(new String[]{"/api/**"}, new WarmUpInterceptor(accountService))
+                .build();
+
+        warmingUp.perform(get("/api/beneficiary/305"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "1"))
+                .andExpect(content().json("{\"error\":\"The data is still loading, 0 of 0 transactions indexed\"}"));
+        verify(accountService, never()).getBeneficiaryDetails(any());
+    }
 }
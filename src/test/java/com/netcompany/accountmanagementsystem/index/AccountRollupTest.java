@@ -0,0 +1,95 @@
+package com.netcompany.accountmanagementsystem.index;
+
+import com.netcompany.accountmanagementsystem.store.TransactionStore;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AccountRollupTest {
+
+    private static long scan(TransactionStore transactions, RowPostings postings, int limit, int throughDay) {
+        long balance = 0;
+        for (int i = 0; i < postings.countBelow(limit); i++) {
+            int row = postings.get(i);
+            if (transactions.getEpochDay(row) <= throughDay) {
+                long amount = transactions.getAmountCents(row);
+                balance += transactions.getType(row) == TransactionStore.WITHDRAWAL ? -amount : amount;
+            }
+        }
+        return balance;
+    }
+
+    // Test for balances as of a day while rows keep arriving, with out of order dates
+    @Test
+    void testBalanceMatchesScan() {
+        TransactionStore transactions = new TransactionStore();
+        RowPostings postings = new RowPostings();
+        RollupIndex rollups = new RollupIndex();
+        SplittableRandom random = new SplittableRandom(5);
+
+        for (int step = 0; step < 2000; step++) {
+            byte type = random.nextBoolean() ? TransactionStore.WITHDRAWAL : TransactionStore.DEPOSIT;
+            postings.add(transactions.append(step, 1L, 1 + random.nextInt(10_000), type, 19_000 + random.nextInt(700)));
+            rollups.append(1L);
+            // The writer publishes rows in batches of varying size
+            if (random.nextInt(3) == 0) {
+                transactions.publish();
+                rollups.publish(accountId -> postings, transactions);
+            }
+
+            for (int query = 0; query < 5; query++) {
+                int day = 18_990 + random.nextInt(720);
+                // Readers may still be working with fewer published rows
+                int limit = random.nextInt(4) == 0 ? random.nextInt(transactions.size() + 1) : transactions.size();
+                long balance = 0;
+                for (AccountRollup rollup : rollups.get(1L, postings, transactions, limit)) {
+                    balance += rollup.balanceThrough(day);
+                }
+                assertEquals(scan(transactions, postings, limit, day), balance);
+            }
+        }
+        assertEquals(1, rollups.size());
+    }
+
+    // Test for daily and monthly buckets with their totals
+    @Test
+    void testBuckets() {
+        TransactionStore transactions = new TransactionStore();
+        RowPostings postings = new RowPostings();
+        int march5 = (int) LocalDate.of(2024, 3, 5).toEpochDay();
+        int march9 = (int) LocalDate.of(2024, 3, 9).toEpochDay();
+        int april1 = (int) LocalDate.of(2024, 4, 1).toEpochDay();
+        postings.add(transactions.append(1, 1L, 500, TransactionStore.DEPOSIT, april1));
+        postings.add(transactions.append(2, 1L, 1000, TransactionStore.DEPOSIT, march5));
+        postings.add(transactions.append(3, 1L, 250, TransactionStore.WITHDRAWAL, march9));
+        postings.add(transactions.append(4, 1L, 100, TransactionStore.WITHDRAWAL, march5));
+        transactions.publish();
+
+        AccountRollup rollup = AccountRollup.build(postings, 0, 4, transactions);
+        AccountRollup.Buckets days = rollup.getDays();
+        assertEquals(3, days.size());
+        assertEquals(march5, days.getKey(0));
+        assertEquals(1000, days.getDepositCents(0));
+        assertEquals(100, days.getWithdrawalCents(0));
+        assertEquals(1, days.getWithdrawalCount(0));
+        assertEquals(650, days.netBefore(2));
+
+        AccountRollup.Buckets months = rollup.getMonths();
+        assertEquals(List.of(AccountRollup.monthOf(march5), AccountRollup.monthOf(april1)),
+                List.of(months.getKey(0), months.getKey(1)));
+        assertEquals(2024 * 12 + 2, months.getKey(0));
+        assertEquals(350, months.getWithdrawalCents(0));
+        assertEquals(2, months.getWithdrawalCount(0));
+        assertEquals(1, months.lowerBound(months.getKey(0) + 1));
+
+        assertEquals(0, rollup.balanceThrough(march5 - 1));
+        assertEquals(900, rollup.balanceThrough(march5));
+        assertEquals(1150, rollup.balanceThrough(Integer.MAX_VALUE));
+        assertTrue(new RollupIndex().get(2L, null, transactions, 4).isEmpty());
+    }
+}
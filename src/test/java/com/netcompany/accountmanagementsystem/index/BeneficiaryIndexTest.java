@@ -0,0 +1,72 @@
+package com.netcompany.accountmanagementsystem.index;
+
+import com.netcompany.accountmanagementsystem.model.Account;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BeneficiaryIndexTest {
+
+    private BeneficiaryIndex index;
+
+    @BeforeEach
+    public void setup() {
+        index = new BeneficiaryIndex();
+        index.addAccount(new Account(1L, 305L));
+        index.addAccount(new Account(2L, 306L));
+        index.addAccount(new Account(3L, 305L));
+
+        // Rows are interleaved across accounts, as they are in transactions.csv
+        index.addTransaction(3L, 0);
+        index.addTransaction(1L, 1);
+        index.addTransaction(2L, 2);
+        index.addTransaction(3L, 3);
+        index.addTransaction(1L, 4);
+    }
+
+    // Test for accounts of a beneficiary
+    @Test
+    void testGetAccounts() {
+        assertEquals(List.of(new Account(1L, 305L), new Account(3L, 305L)), index.getAccounts(305L));
+        assertTrue(index.getAccounts(999L).isEmpty());
+    }
+
+    // Test for transaction rows of a beneficiary, merged back into load order
+    @Test
+    void testGetRowsForBeneficiary() {
+        assertArrayEquals(new int[]{0, 1, 3, 4}, index.getRowsForBeneficiary(305L, 5));
+        assertArrayEquals(new int[]{0, 1}, index.getRowsForBeneficiary(305L, 3));
+        assertArrayEquals(new int[]{2}, index.getRowsForBeneficiary(306L, 5));
+        assertArrayEquals(new int[0], index.getRowsForBeneficiary(999L, 5));
+    }
+
+    // Test for an account that is replaced by a later row with the same id
+    @Test
+    void testRemoveAccount() {
+        index.removeAccount(new Account(2L, 306L));
+        index.addAccount(new Account(2L, 305L));
+
+        assertTrue(index.getAccounts(306L).isEmpty());
+        assertArrayEquals(new int[]{0, 1, 2, 3, 4}, index.getRowsForBeneficiary(305L, 5));
+    }
+
+    // Test for a derived index that moves an account without changing the original
+    @Test
+    void testWithAccounts() {
+        BeneficiaryIndex moved = index.withAccounts(Map.of(
+                305L, List.of(new Account(1L, 305L)),
+                306L, List.of(new Account(2L, 306L), new Account(3L, 306L))));
+
+        assertEquals(List.of(new Account(1L, 305L)), moved.getAccounts(305L));
+        assertArrayEquals(new int[]{0, 2, 3}, moved.getRowsForBeneficiary(306L, 5));
+        assertArrayEquals(new int[]{0, 1, 3, 4}, index.getRowsForBeneficiary(305L, 5));
+
+        index.addTransaction(2L, 5);
+        assertArrayEquals(new int[]{0, 2, 3, 5}, moved.getRowsForBeneficiary(306L, 6));
+        assertTrue(index.withAccounts(Map.of(306L, List.of())).getAccounts(306L).isEmpty());
+    }
+}
@@ -0,0 +1,52 @@
+package com.netcompany.accountmanagementsystem.index;
+
+import com.netcompany.accountmanagementsystem.store.TransactionStore;
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PostingPartsTest {
+
+    // Test for the writer's parts covering every published posting in few consecutive ranges
+    @Test
+    void testPartsStayFewAndConsecutive() {
+        TransactionStore transactions = new TransactionStore();
+        RowPostings postings = new RowPostings();
+        PostingParts<int[]> parts = new PostingParts<>((rows, from, to, store) -> new int[]{from, to});
+        SplittableRandom random = new SplittableRandom(7);
+
+        assertEquals(0, parts.get(1L, postings, transactions, 0).size());
+        assertEquals(0, parts.size());
+        for (int row = 0; row < 10; row++) {
+            postings.add(transactions.append(row, 1L, 100, TransactionStore.DEPOSIT, 19_000));
+        }
+        transactions.publish();
+        PostingParts.Parts<int[]> first = parts.get(1L, postings, transactions, 10);
+        assertSame(first, parts.get(1L, postings, transactions, 10));
+
+        for (int batch = 0; batch < 2000; batch++) {
+            for (int i = random.nextInt(1, 20); i > 0; i--) {
+                postings.add(transactions.append(transactions.size(), 1L, 100, TransactionStore.DEPOSIT, 19_000));
+                parts.append(1L);
+            }
+            transactions.publish();
+            parts.publish(accountId -> postings, transactions);
+
+            PostingParts.Parts<int[]> current = parts.get(1L, postings, transactions, postings.size());
+            assertEquals(postings.size(), current.getEnd());
+            int start = 0;
+            for (int i = 0; i < current.size(); i++) {
+                assertEquals(start, current.getStart(i));
+                assertEquals(current.getStart(i), current.get(i)[0]);
+                assertEquals(current.getEnd(i), current.get(i)[1]);
+                start = current.getEnd(i);
+            }
+            assertTrue(current.size() <= 2 + 32 - Integer.numberOfLeadingZeros(postings.size()));
+        }
+        assertEquals(1, parts.size());
+    }
+}
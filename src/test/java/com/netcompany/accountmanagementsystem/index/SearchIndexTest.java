@@ -0,0 +1,165 @@
+package com.netcompany.accountmanagementsystem.index;
+
+import com.netcompany.accountmanagementsystem.store.TransactionStore;
+import org.junit.jupiter.api.Test;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SearchIndexTest {
+
+    private static RoaringBitmap scan(TransactionStore transactions, int rows, long minCents, long maxCents,
+                                      int fromDay, int toDay) {
+        RoaringBitmap matches = new RoaringBitmap();
+        for (int row = 0; row < rows; row++) {
+            long amountCents = transactions.getAmountCents(row);
+            int epochDay = transactions.getEpochDay(row);
+            if (amountCents >= minCents && amountCents <= maxCents && epochDay >= fromDay && epochDay <= toDay) {
+                matches.add(row);
+            }
+        }
+        return matches;
+    }
+
+    // Test for selections covering every match, and exactly the matches when reported exact
+    @Test
+    void testSelectionsMatchScan() {
+        TransactionStore transactions = new TransactionStore();
+        SplittableRandom random = new SplittableRandom(5);
+        int firstDay = (int) LocalDate.of(2023, 1, 1).toEpochDay();
+        for (int row = 0; row < 5000; row++) {
+            byte type = random.nextBoolean() ? TransactionStore.WITHDRAWAL : TransactionStore.DEPOSIT;
+            transactions.append(row, 1L, random.nextInt(100_000), type, firstDay + random.nextInt(800));
+        }
+        transactions.publish();
+        SearchIndex.Bitmaps bitmaps = new SearchIndex().get(transactions, transactions.size());
+
+        RoaringBitmap withdrawals = new RoaringBitmap();
+        for (int row = 0; row < transactions.size(); row++) {
+            if (transactions.getType(row) == TransactionStore.WITHDRAWAL) {
+                withdrawals.add(row);
+            }
+        }
+        assertEquals(withdrawals, bitmaps.ofType(TransactionStore.WITHDRAWAL));
+
+        for (int query = 0; query < 500; query++) {
+            long minCents = random.nextInt(3) == 0 ? 1L << random.nextInt(17) : random.nextInt(100_000);
+            long maxCents = random.nextInt(3) == 0 ? (1L << random.nextInt(17)) - 1 : random.nextInt(100_000);
+            SearchIndex.Selection amounts = bitmaps.ofAmounts(minCents, maxCents);
+            RoaringBitmap expected = scan(transactions, transactions.size(), minCents, maxCents,
+                    Integer.MIN_VALUE, Integer.MAX_VALUE);
+            assertTrue(amounts.rows().contains(expected));
+            if (amounts.exact()) {
+                assertEquals(expected, amounts.rows());
+            }
+
+            LocalDate from = LocalDate.ofEpochDay(firstDay - 10 + random.nextInt(820));
+            LocalDate to = random.nextBoolean() ? from.plusDays(random.nextInt(300))
+                    : from.plusMonths(random.nextInt(6)).withDayOfMonth(1).minusDays(1);
+            from = random.nextBoolean() ? from : from.withDayOfMonth(1);
+            SearchIndex.Selection days = bitmaps.ofDays((int) from.toEpochDay(), (int) to.toEpochDay());
+            expected = scan(transactions, transactions.size(), Long.MIN_VALUE, Long.MAX_VALUE,
+                    (int) from.toEpochDay(), (int) to.toEpochDay());
+            assertTrue(days.rows().contains(expected));
+            if (days.exact()) {
+                assertEquals(expected, days.rows());
+            }
+        }
+        assertTrue(bitmaps.ofDays(firstDay, firstDay + 800).exact());
+        assertTrue(bitmaps.ofAmounts(Long.MIN_VALUE, Long.MAX_VALUE).exact());
+        assertTrue(bitmaps.ofAmounts(1, Long.MAX_VALUE).exact());
+    }
+
+    // Test for the bitmaps being extended by the writer in few parts, with selections matching a scan
+    @Test
+    void testExtendedByWriter() {
+        TransactionStore transactions = new TransactionStore();
+        SearchIndex index = new SearchIndex();
+        SplittableRandom random = new SplittableRandom(7);
+        int firstDay = (int) LocalDate.of(2023, 1, 1).toEpochDay();
+        for (int row = 0; row < 1000; row++) {
+            transactions.append(row, 1L, random.nextInt(100_000), TransactionStore.DEPOSIT, firstDay + row / 10);
+        }
+        transactions.publish();
+        index.publish(transactions);
+        assertEquals(0, index.size());
+        SearchIndex.Bitmaps first = index.get(transactions, transactions.size());
+        assertEquals(1000, first.getRows());
+
+        for (int batch = 0; batch < 300; batch++) {
+            int rows = 1 + random.nextInt(50);
+            for (int i = 0; i < rows; i++) {
+                byte type = random.nextBoolean() ? TransactionStore.WITHDRAWAL : TransactionStore.DEPOSIT;
+                transactions.append(transactions.size() + i, 1L, random.nextInt(100_000), type,
+                        firstDay - 200 + random.nextInt(1000));
+            }
+            transactions.publish();
+            index.publish(transactions);
+
+            SearchIndex.Bitmaps bitmaps = index.get(transactions, transactions.size());
+            assertEquals(transactions.size(), bitmaps.getRows());
+            assertTrue(bitmaps.getPartCount() <= 2 * (32 - Integer.numberOfLeadingZeros(transactions.size())));
+            long minCents = random.nextInt(100_000);
+            long maxCents = minCents + random.nextInt(50_000);
+            SearchIndex.Selection amounts = bitmaps.ofAmounts(minCents, maxCents);
+            RoaringBitmap expected = scan(transactions, transactions.size(), minCents, maxCents,
+                    Integer.MIN_VALUE, Integer.MAX_VALUE);
+            assertTrue(amounts.rows().contains(expected));
+            if (amounts.exact()) {
+                assertEquals(expected, amounts.rows());
+            }
+            int fromDay = firstDay - 210 + random.nextInt(1020);
+            int toDay = fromDay + random.nextInt(200);
+            SearchIndex.Selection days = bitmaps.ofDays(fromDay, toDay);
+            expected = scan(transactions, transactions.size(), Long.MIN_VALUE, Long.MAX_VALUE, fromDay, toDay);
+            assertTrue(days.rows().contains(expected));
+            if (days.exact()) {
+                assertEquals(expected, days.rows());
+            }
+        }
+        assertEquals(transactions.size(), index.size());
+        // Readers still holding the first bitmaps see them unchanged
+        assertEquals(1000, first.ofAmounts(0, Long.MAX_VALUE).rows().getCardinality());
+    }
+
+    // Test for zero and negative amounts, which share bucket 0, never being selected as exact matches
+    @Test
+    void testNonPositiveAmounts() {
+        TransactionStore transactions = new TransactionStore();
+        long[] amounts = {-500, -1, 0, 1, 3, 4, 100};
+        for (int row = 0; row < amounts.length; row++) {
+            transactions.append(row, 1L, amounts[row], TransactionStore.DEPOSIT, 19_000);
+        }
+        transactions.publish();
+        SearchIndex.Bitmaps bitmaps = new SearchIndex().get(transactions, transactions.size());
+
+        long[][] ranges = {{0, 100}, {-1, 3}, {-1000, -1}, {Long.MIN_VALUE, 0}, {Long.MIN_VALUE, Long.MAX_VALUE},
+                {1, Long.MAX_VALUE}};
+        for (long[] range : ranges) {
+            SearchIndex.Selection selection = bitmaps.ofAmounts(range[0], range[1]);
+            RoaringBitmap expected = scan(transactions, transactions.size(), range[0], range[1],
+                    Integer.MIN_VALUE, Integer.MAX_VALUE);
+            assertTrue(selection.rows().contains(expected), range[0] + ".." + range[1]);
+            if (selection.exact()) {
+                assertEquals(expected, selection.rows(), range[0] + ".." + range[1]);
+            }
+        }
+        assertFalse(bitmaps.ofAmounts(0, 100).exact());
+        assertTrue(bitmaps.ofAmounts(Long.MIN_VALUE, Long.MAX_VALUE).exact());
+    }
+
+    // Test for account rows being limited to the visible rows
+    @Test
+    void testRowsOf() {
+        RowPostings first = new RowPostings(new int[]{1, 5, 9}, 0, 3);
+        RowPostings second = new RowPostings(new int[]{2, 12}, 0, 2);
+
+        assertEquals(RoaringBitmap.bitmapOf(1, 2, 5, 9), SearchIndex.rowsOf(List.of(first, second), 10));
+    }
+}
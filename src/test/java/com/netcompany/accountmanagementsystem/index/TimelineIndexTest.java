@@ -0,0 +1,58 @@
+package com.netcompany.accountmanagementsystem.index;
+
+import com.netcompany.accountmanagementsystem.store.TransactionStore;
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TimelineIndexTest {
+
+    private static int scan(TransactionStore transactions, RowPostings postings, int limit, int fromDay, int toDay) {
+        int best = -1;
+        for (int i = 0; i < postings.countBelow(limit); i++) {
+            int row = postings.get(i);
+            int epochDay = transactions.getEpochDay(row);
+            if (transactions.getType(row) == TransactionStore.WITHDRAWAL && epochDay >= fromDay && epochDay <= toDay) {
+                best = TimelineIndex.larger(transactions, best, row);
+            }
+        }
+        return best;
+    }
+
+    // Test for windowed queries while rows keep arriving, with out of order dates and tied amounts
+    @Test
+    void testLargestWithdrawalMatchesScan() {
+        TransactionStore transactions = new TransactionStore();
+        RowPostings postings = new RowPostings();
+        TimelineIndex timelines = new TimelineIndex();
+        SplittableRandom random = new SplittableRandom(3);
+
+        for (int step = 0; step < 2000; step++) {
+            byte type = random.nextBoolean() ? TransactionStore.WITHDRAWAL : TransactionStore.DEPOSIT;
+            int row = transactions.append(step, 1L, 100L * random.nextInt(20), type, 19_000 + random.nextInt(700));
+            postings.add(row);
+            timelines.append(1L);
+            // The writer publishes rows in batches of varying size
+            if (random.nextInt(3) == 0) {
+                transactions.publish();
+                timelines.publish(accountId -> postings, transactions);
+            }
+
+            for (int query = 0; query < 5; query++) {
+                int fromDay = 19_000 + random.nextInt(700);
+                int toDay = fromDay + random.nextInt(300);
+                // Readers may still be working with fewer published rows
+                int limit = random.nextInt(4) == 0 ? random.nextInt(transactions.size() + 1) : transactions.size();
+                assertEquals(scan(transactions, postings, limit, fromDay, toDay),
+                        timelines.largestWithdrawal(1L, postings, transactions, limit, fromDay, toDay));
+            }
+        }
+        transactions.publish();
+        timelines.publish(accountId -> postings, transactions);
+        assertEquals(scan(transactions, postings, transactions.size(), Integer.MIN_VALUE, Integer.MAX_VALUE),
+                timelines.largestWithdrawal(1L, postings, transactions, transactions.size(),
+                        Integer.MIN_VALUE, Integer.MAX_VALUE));
+    }
+}
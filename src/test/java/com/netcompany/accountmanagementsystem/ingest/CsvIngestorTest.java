@@ -0,0 +1,135 @@
+package com.netcompany.accountmanagementsystem.ingest;
+
+import com.netcompany.accountmanagementsystem.store.Money;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CsvIngestorTest {
+
+    // Test for loading the sample data
+    @Test
+    void testLoadSampleData() {
+        IngestResult result = new CsvIngestor().load(
+                new ClassPathResource("beneficiaries.csv"),
+                new ClassPathResource("accounts.csv"),
+                new ClassPathResource("transactions.csv"));
+
+        assertEquals(1000, result.getBeneficiaries().size());
+        assertEquals(1800, result.getAccounts().size());
+        assertEquals(10000, result.getTransactionCount());
+        assertTrue(result.getErrors().isEmpty());
+    }
+
+    // Test for splitting into many chunks giving the same rows and file line numbers
+    @Test
+    void testChunkedParsing() throws IOException {
+        byte[] bytes = new ClassPathResource("transactions.csv").getInputStream().readAllBytes();
+        String csv = new String(bytes, StandardCharsets.US_ASCII).replace("9999,", "9999x,");
+        List<ByteBuffer> chunks = CsvChunks.split(ByteBuffer.wrap(csv.getBytes(StandardCharsets.US_ASCII)), 8, 1024);
+        assertEquals(32, chunks.size());
+
+        TransactionCsvParser parser = new TransactionCsvParser("transactions.csv");
+        TransactionBatch whole = parser.parse(ByteBuffer.wrap(csv.getBytes(StandardCharsets.US_ASCII)), true);
+        long lines = 0;
+        int row = 0;
+        for (int i = 0; i < chunks.size(); i++) {
+            TransactionBatch batch = parser.parse(chunks.get(i), i == 0);
+            batch.shiftLines(lines);
+            lines += batch.getLineCount();
+            for (int j = 0; j < batch.size(); j++, row++) {
+                assertEquals(whole.getTransactionId(row), batch.getTransactionId(j));
+                assertEquals(whole.getAmountCents(row), batch.getAmountCents(j));
+            }
+            if (!batch.getErrors().isEmpty()) {
+                assertEquals(whole.getErrors(), batch.getErrors());
+            }
+        }
+        assertEquals(whole.size(), row);
+        assertEquals(9999, row);
+        assertEquals(10000L, whole.getErrors().get(0).getLine());
+    }
+
+    // Test for bad rows in the smaller files
+    @Test
+    void testMalformedAccounts() {
+        IngestResult result = new CsvIngestor(2).load(
+                new ByteArrayResource("beneficiaryId,firstName,lastName\n1,Elsie,Myrilla\n".getBytes()) {
+                    @Override
+                    public String getFilename() {
+                        return "beneficiaries.csv";
+                    }
+                },
+                new ByteArrayResource("accountId,beneficiaryId\n1,1\n2\n3,abc\n".getBytes()) {
+                    @Override
+                    public String getFilename() {
+                        return "accounts.csv";
+                    }
+                },
+                new ByteArrayResource("transactionId,accountId,amount,type,date\n".getBytes()) {
+                    @Override
+                    public String getFilename() {
+                        return "transactions.csv";
+                    }
+                });
+
+        assertEquals(1, result.getAccounts().size());
+        assertEquals(List.of(3L, 4L), result.getErrors().stream().map(IngestError::getLine).toList());
+        assertEquals("missing columns", result.getErrors().get(0).getMessage());
+    }
+
+    // Test for positive amounts loaded from the transactions file being read exactly as Money.parse reads them
+    @Test
+    void testAmountsMatchMoneyParse() {
+        List<String> amounts = List.of("41.2", "41.200", "+7", "-3.05", "0", ".5", "7.", "0.10", "1.005", "1e2", "", "+",
+                "12345678901234567.89", "92233720368547758.08");
+        StringBuilder csv = new StringBuilder("transactionId,accountId,amount,type,date\n");
+        for (int i = 0; i < amounts.size(); i++) {
+            csv.append(i + 1).append(",1,").append(amounts.get(i)).append(",deposit,10/24/23\n");
+        }
+        IngestResult result = new CsvIngestor().load(
+                new ByteArrayResource("beneficiaryId,firstName,lastName\n".getBytes()),
+                new ByteArrayResource("accountId,beneficiaryId\n".getBytes()),
+                new ByteArrayResource(csv.toString().getBytes(StandardCharsets.US_ASCII)) {
+                    @Override
+                    public String getFilename() {
+                        return "transactions.csv";
+                    }
+                });
+
+        Map<Long, Long> loaded = new HashMap<>();
+        for (TransactionBatch batch : result.getTransactionBatches()) {
+            for (int i = 0; i < batch.size(); i++) {
+                loaded.put(batch.getTransactionId(i), batch.getAmountCents(i));
+            }
+        }
+        Set<Long> rejected = new HashSet<>();
+        result.getErrors().forEach(error -> rejected.add(error.getLine() - 1));
+        for (int i = 0; i < amounts.size(); i++) {
+            long transactionId = i + 1;
+            Long expected;
+            try {
+                expected = Money.parse(amounts.get(i));
+            } catch (NumberFormatException | ArithmeticException e) {
+                expected = null;
+            }
+            if (expected != null && expected > 0) {
+                assertEquals(expected, loaded.get(transactionId), amounts.get(i));
+            } else {
+                assertTrue(rejected.contains(transactionId), amounts.get(i));
+                assertFalse(loaded.containsKey(transactionId), amounts.get(i));
+            }
+        }
+    }
+}
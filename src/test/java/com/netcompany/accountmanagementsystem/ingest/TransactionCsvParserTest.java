@@ -0,0 +1,96 @@
+package com.netcompany.accountmanagementsystem.ingest;
+
+import com.netcompany.accountmanagementsystem.store.TransactionStore;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionCsvParserTest {
+
+    private final TransactionCsvParser parser = new TransactionCsvParser("transactions.csv");
+
+    private TransactionBatch parse(String csv, boolean skipHeader) {
+        return parser.parse(ByteBuffer.wrap(csv.getBytes(StandardCharsets.US_ASCII)), skipHeader);
+    }
+
+    // Test for well formed rows, with and without a trailing newline
+    @Test
+    void testParseRows() {
+        TransactionBatch batch = parse("transactionId,accountId,amount,type,date\r\n"
+                + "1,1395,41.2,withdrawal,10/24/23\r\n"
+                + "2,164,59.85,deposit,02/29/24\n"
+                + "\n"
+                + "3,7,500,deposit,12/31/99", true);
+
+        assertEquals(3, batch.size());
+        assertEquals(5, batch.getLineCount());
+        assertTrue(batch.getErrors().isEmpty());
+
+        assertEquals(1L, batch.getTransactionId(0));
+        assertEquals(1395L, batch.getAccountId(0));
+        assertEquals(4120L, batch.getAmountCents(0));
+        assertEquals(TransactionStore.WITHDRAWAL, batch.getType(0));
+        assertEquals(LocalDate.of(2023, 10, 24).toEpochDay(), batch.getEpochDay(0));
+
+        assertEquals(5985L, batch.getAmountCents(1));
+        assertEquals(TransactionStore.DEPOSIT, batch.getType(1));
+        assertEquals(LocalDate.of(2024, 2, 29).toEpochDay(), batch.getEpochDay(1));
+
+        assertEquals(50000L, batch.getAmountCents(2));
+        assertEquals(LocalDate.of(2099, 12, 31).toEpochDay(), batch.getEpochDay(2));
+    }
+
+    // Test for malformed rows being skipped and reported with their line numbers
+    @Test
+    void testMalformedRows() {
+        TransactionBatch batch = parse("1,1,1.00,deposit,01/01/23\n"
+                + "2,x,1.00,deposit,01/01/23\n"
+                + "3,1,1.005,deposit,01/01/23\n"
+                + "4,1,1.00,refund,01/01/23\n"
+                + "5,1,1.00,deposit,02/30/23\n"
+                + "6,1,1.00\n"
+                + "7,1,1.00,deposit,01/01/23,extra\n"
+                + "8,1,2.50,withdrawal,01/02/23\n", false);
+
+        assertEquals(2, batch.size());
+        assertEquals(8L, batch.getTransactionId(1));
+        List<IngestError> errors = batch.getErrors();
+        assertEquals(List.of(2L, 3L, 4L, 5L, 6L, 7L), errors.stream().map(IngestError::getLine).toList());
+        assertEquals("invalid accountId 'x'", errors.get(0).getMessage());
+        assertEquals("invalid amount '1.005'", errors.get(1).getMessage());
+        assertEquals("invalid type 'refund'", errors.get(2).getMessage());
+        assertEquals("invalid date '02/30/23'", errors.get(3).getMessage());
+        assertEquals("missing columns", errors.get(4).getMessage());
+        assertEquals("unexpected extra columns", errors.get(5).getMessage());
+    }
+
+    // Test for amounts that are zero or negative being reported as malformed rows
+    @Test
+    void testNonPositiveAmounts() {
+        TransactionBatch batch = parse("1,1,-3.05,withdrawal,01/01/23\n"
+                + "2,1,0,deposit,01/01/23\n"
+                + "3,1,-0.00,deposit,01/01/23\n"
+                + "4,1,+7,deposit,01/01/23\n", false);
+
+        assertEquals(1, batch.size());
+        assertEquals(700L, batch.getAmountCents(0));
+        List<IngestError> errors = batch.getErrors();
+        assertEquals(List.of(1L, 2L, 3L), errors.stream().map(IngestError::getLine).toList());
+        assertEquals("amount '-3.05' is not positive", errors.get(0).getMessage());
+        assertEquals("amount '0' is not positive", errors.get(1).getMessage());
+    }
+
+    // Test for the epoch day calculation against java.time
+    @Test
+    void testEpochDay() {
+        for (LocalDate date = LocalDate.of(1999, 1, 1); date.isBefore(LocalDate.of(2101, 1, 1)); date = date.plusDays(1)) {
+            assertEquals(date.toEpochDay(),
+                    TransactionCsvParser.epochDay(date.getYear(), date.getMonthValue(), date.getDayOfMonth()));
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.netcompany.accountmanagementsystem.ingest;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TransactionTailTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static int rows(TransactionTail.Read read) {
+        return read.getBatches().stream().mapToInt(TransactionBatch::size).sum();
+    }
+
+    // Test for appends read alone and changes near either end of a large file read as a rewrite
+    @Test
+    void testAppendsAndRewrites() throws IOException {
+        Path file = tempDir.resolve("transactions.csv");
+        StringBuilder csv = new StringBuilder("transactionId,accountId,amount,type,date\n");
+        for (int id = 1; id <= 20_000; id++) {
+            csv.append(id).append(",7,41.20,deposit,10/24/23\n");
+        }
+        Files.writeString(file, csv);
+        TransactionTail tail = new TransactionTail(file, new CsvIngestor());
+
+        TransactionTail.Read first = tail.read();
+        assertFalse(first.isRewrite());
+        assertEquals(20_000, rows(first));
+
+        Files.writeString(file, "20001,7,1.00,withdrawal,10/25/23\n", StandardOpenOption.APPEND);
+        TransactionTail.Read appended = tail.read();
+        assertFalse(appended.isRewrite());
+        assertEquals(1, rows(appended));
+        assertTrue(tail.read().isEmpty());
+
+        // Same length, changed within the first and then the last rows read
+        Files.writeString(file, Files.readString(file).replaceFirst("\n1,7,41.20,", "\n1,7,41.21,"));
+        TransactionTail.Read head = tail.read();
+        assertTrue(head.isRewrite());
+        assertEquals(20_001, rows(head));
+
+        byte[] bytes = Files.readAllBytes(file);
+        String last = "20001,7,1.00,withdrawal,10/25/23\n";
+        System.arraycopy("20001,7,2.00,".getBytes(StandardCharsets.US_ASCII), 0, bytes, bytes.length - last.length(),
+                "20001,7,2.00,".length());
+        Files.write(file, bytes);
+        assertTrue(tail.read().isRewrite());
+    }
+}
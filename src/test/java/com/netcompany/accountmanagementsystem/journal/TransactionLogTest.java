@@ -0,0 +1,211 @@
+package com.netcompany.accountmanagementsystem.journal;
+
+import com.netcompany.accountmanagementsystem.config.CacheProperties;
+import com.netcompany.accountmanagementsystem.config.DataProperties;
+import com.netcompany.accountmanagementsystem.config.LogProperties;
+import com.netcompany.accountmanagementsystem.model.Transaction;
+import com.netcompany.accountmanagementsystem.service.AccountManagementService;
+import com.netcompany.accountmanagementsystem.store.TransactionStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionLogTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static void append(TransactionStore store, int count) {
+        for (int i = 0; i < count; i++) {
+            long id = store.getMaxTransactionId() + 1;
+            store.append(id, 100 + id % 7, 4120 + id, id % 3 == 0 ? TransactionStore.WITHDRAWAL : TransactionStore.DEPOSIT,
+                    19_000 + (int) id);
+        }
+    }
+
+    private static TransactionStore recover(TransactionLog log) {
+        TransactionStore store = TransactionStore.over(log, 0, new long[0], 0L);
+        for (int row = 0; row < log.getCommittedRows(); row++) {
+            store.recover(log.getAccountId(row));
+        }
+        store.publish();
+        return store;
+    }
+
+    // Test for committed rows surviving a reopen, across several segments
+    @Test
+    void testReopen() throws IOException {
+        TransactionLog log = TransactionLog.open(tempDir, 8, true, 42L);
+        TransactionStore store = TransactionStore.over(log, 0, new long[0], 0L);
+        append(store, 30);
+        store.publish();
+        append(store, 20);
+        store.publish();
+        log.close();
+
+        TransactionLog reopened = TransactionLog.open(tempDir, 1024, true, 0L);
+        assertEquals(50, reopened.getCommittedRows());
+        assertEquals(log.getLogId(), reopened.getLogId());
+        assertEquals(42L, reopened.getSeedChecksum());
+        TransactionStore recovered = recover(reopened);
+        for (int row = 0; row < 50; row++) {
+            assertEquals(store.toTransaction(row), recovered.toTransaction(row));
+            assertEquals(store.getAccountRef(row), recovered.getAccountRef(row));
+        }
+        assertEquals(50L, recovered.getMaxTransactionId());
+        reopened.close();
+    }
+
+    // Test for rows appended but never committed, as after a crash mid-batch
+    @Test
+    void testUncommittedRowsDropped() throws IOException {
+        TransactionLog log = TransactionLog.open(tempDir, 8, true, 0L);
+        TransactionStore store = TransactionStore.over(log, 0, new long[0], 0L);
+        append(store, 13);
+        store.publish();
+        append(store, 10);
+        log.close();
+
+        TransactionLog reopened = TransactionLog.open(tempDir, 8, true, 0L);
+        assertEquals(13, reopened.getCommittedRows());
+        TransactionStore recovered = recover(reopened);
+        append(recovered, 2);
+        recovered.publish();
+        reopened.close();
+
+        TransactionLog again = TransactionLog.open(tempDir, 8, true, 0L);
+        assertEquals(15, again.getCommittedRows());
+        assertEquals(15L, recover(again).getMaxTransactionId());
+        again.close();
+    }
+
+    // Test for a batch spanning segments being committed by the first header alone
+    @Test
+    void testCommitAcrossSegments() throws IOException {
+        TransactionLog log = TransactionLog.open(tempDir, 8, true, 0L);
+        TransactionStore store = TransactionStore.over(log, 0, new long[0], 0L);
+        append(store, 5);
+        store.publish();
+        append(store, 14);
+        store.publish();
+        log.close();
+
+        try (FileChannel channel = FileChannel.open(tempDir.resolve(LogFormat.segmentFileName(0)),
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(LogFormat.HEADER_BYTES);
+            channel.read(header, 0);
+            assertEquals(19, header.getInt(LogFormat.COMMITTED_OFFSET));
+
+            // As if the process died after forcing the rows of the second batch but before committing it
+            channel.write(ByteBuffer.allocate(Integer.BYTES).putInt(0, 5), LogFormat.COMMITTED_OFFSET);
+        }
+        TransactionLog reopened = TransactionLog.open(tempDir, 8, true, 0L);
+        assertEquals(5, reopened.getCommittedRows());
+        assertEquals(5L, recover(reopened).getMaxTransactionId());
+        reopened.close();
+
+        try (FileChannel channel = FileChannel.open(tempDir.resolve(LogFormat.segmentFileName(0)),
+                StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(Integer.BYTES).putInt(0, 1000), LogFormat.COMMITTED_OFFSET);
+        }
+        assertThrows(IOException.class, () -> TransactionLog.open(tempDir, 8, true, 0L));
+    }
+
+    // Test for a segment size that is not a power of two
+    @Test
+    void testInvalidSegmentRows() {
+        assertThrows(IllegalArgumentException.class, () -> TransactionLog.open(tempDir, 1000, true, 0L));
+    }
+
+    private AccountManagementService service(Path directory) {
+        LogProperties logProperties = new LogProperties();
+        logProperties.setDirectory(directory.toString());
+        logProperties.setSegmentRows(4096);
+        return new AccountManagementService(new DataProperties(), new CacheProperties(), logProperties,
+                new SimpleMeterRegistry());
+    }
+
+    private static void assertSameData(AccountManagementService expected, AccountManagementService actual) {
+        for (long beneficiaryId = 0; beneficiaryId <= 1001; beneficiaryId++) {
+            assertEquals(expected.getTransactionsForBeneficiary(beneficiaryId),
+                    actual.getTransactionsForBeneficiary(beneficiaryId));
+            assertEquals(expected.getAccountBalancesForBeneficiary(beneficiaryId),
+                    actual.getAccountBalancesForBeneficiary(beneficiaryId));
+            assertEquals(expected.getLargestWithdrawal(beneficiaryId, null, null),
+                    actual.getLargestWithdrawal(beneficiaryId, null, null));
+        }
+    }
+
+    private static final List<Transaction> ADDED = List.of(
+            new Transaction(null, 1L, 41.2, "deposit", LocalDate.of(2024, 6, 1)),
+            new Transaction(null, 1L, 900.0, "withdrawal", LocalDate.of(2024, 6, 2)),
+            new Transaction(null, 7L, 12.34, "deposit", LocalDate.of(2024, 6, 3)));
+
+    // Test for transactions added at runtime surviving a restart
+    @Test
+    void testRestartKeepsAddedTransactions() {
+        Path directory = tempDir.resolve("log");
+        AccountManagementService first = service(directory);
+        assertSameData(new AccountManagementService(), first);
+        first.addTransactions(ADDED);
+        first.close();
+
+        AccountManagementService restarted = service(directory);
+        assertSameData(first, restarted);
+        assertEquals(10004, restarted.addTransactions(List.of(
+                new Transaction(null, 2L, 1.0, "deposit", LocalDate.of(2024, 6, 4)))).get(0).getTransactionId());
+        restarted.close();
+    }
+
+    // Test for recovery by replay, from the seed checkpoint and without any checkpoint
+    @Test
+    void testRecoveryByReplay() throws IOException {
+        Path directory = tempDir.resolve("log");
+        AccountManagementService running = service(directory);
+        running.addTransactions(ADDED);
+
+        // The files as a crash would leave them: the checkpoint still covers the seed only
+        Path crashed = tempDir.resolve("crashed");
+        copyDirectory(directory, crashed);
+        running.close();
+
+        AccountManagementService fromCheckpoint = service(crashed);
+        assertSameData(running, fromCheckpoint);
+        fromCheckpoint.close();
+
+        Files.delete(crashed.resolve("checkpoint.bin"));
+        AccountManagementService fromLog = service(crashed);
+        assertSameData(running, fromLog);
+        fromLog.close();
+        assertTrue(Files.isRegularFile(crashed.resolve("checkpoint.bin")));
+    }
+
+    private static void copyDirectory(Path source, Path target) throws IOException {
+        Files.createDirectories(target);
+        try (var files = Files.list(source)) {
+            for (Path file : files.toList()) {
+                Files.copy(file, target.resolve(file.getFileName()));
+            }
+        }
+    }
+
+    // Test for a second process opening a log that is in use
+    @Test
+    void testLogInUse() throws IOException {
+        TransactionLog log = TransactionLog.open(tempDir, 8, true, 0L);
+        assertThrows(IOException.class, () -> TransactionLog.open(tempDir, 8, true, 0L));
+        log.close();
+        TransactionLog.open(tempDir, 8, true, 0L).close();
+    }
+}
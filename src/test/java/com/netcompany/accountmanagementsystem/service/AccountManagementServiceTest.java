@@ -0,0 +1,566 @@
+package com.netcompany.accountmanagementsystem.service;
+
+import com.netcompany.accountmanagementsystem.config.CacheProperties;
+import com.netcompany.accountmanagementsystem.config.DataProperties;
+import com.netcompany.accountmanagementsystem.model.Account;
+import com.netcompany.accountmanagementsystem.model.AccountBalance;
+import com.netcompany.accountmanagementsystem.model.BeneficiaryBalance;
+import com.netcompany.accountmanagementsystem.model.BeneficiarySummary;
+import com.netcompany.accountmanagementsystem.model.LargestWithdrawalResult;
+import com.netcompany.accountmanagementsystem.model.StatementEntry;
+import com.netcompany.accountmanagementsystem.model.SummarySection;
+import com.netcompany.accountmanagementsystem.model.TotalBalanceResult;
+import com.netcompany.accountmanagementsystem.model.Transaction;
+import com.netcompany.accountmanagementsystem.model.TransactionFilter;
+import com.netcompany.accountmanagementsystem.model.TransactionPage;
+import com.netcompany.accountmanagementsystem.model.TransactionSearch;
+import com.netcompany.accountmanagementsystem.model.TransactionSearchResult;
+import com.netcompany.accountmanagementsystem.model.TransactionSort;
+import com.netcompany.accountmanagementsystem.model.VolumeEntry;
+import com.netcompany.accountmanagementsystem.model.VolumeGranularity;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the indexed service against a plain full scan of the sample CSV files.
+ */
+class AccountManagementServiceTest {
+
+    private static AccountManagementService accountService;
+    private static final Map<Long, Account> accounts = new LinkedHashMap<>();
+    private static final List<Transaction> transactions = new ArrayList<>();
+
+    @BeforeAll
+    static void setup() throws IOException {
+        accountService = new AccountManagementService();
+
+        for (String[] line : readCsv("accounts.csv")) {
+            accounts.put(Long.parseLong(line[0]), new Account(Long.parseLong(line[0]), Long.parseLong(line[1])));
+        }
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MM/dd/yy");
+        for (String[] line : readCsv("transactions.csv")) {
+            transactions.add(new Transaction(Long.parseLong(line[0]), Long.parseLong(line[1]),
+                    Double.parseDouble(line[2]), line[3], LocalDate.parse(line[4], formatter)));
+        }
+    }
+
+    private static List<String[]> readCsv(String name) throws IOException {
+        List<String[]> rows = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new ClassPathResource(name).getInputStream()))) {
+            reader.readLine(); // Skip header
+            String line;
+            while ((line = reader.readLine()) != null) {
+                rows.add(line.split(","));
+            }
+        }
+        return rows;
+    }
+
+    private static List<Account> scanAccounts(Long beneficiaryId) {
+        return accounts.values().stream()
+                .filter(account -> account.getBeneficiaryId().equals(beneficiaryId))
+                .toList();
+    }
+
+    private static List<Transaction> scanTransactions(Long beneficiaryId) {
+        List<Long> accountIds = scanAccounts(beneficiaryId).stream().map(Account::getAccountId).toList();
+        return transactions.stream()
+                .filter(transaction -> accountIds.contains(transaction.getAccountId()))
+                .toList();
+    }
+
+    private static BigDecimal scanBalance(Long accountId) {
+        BigDecimal balance = BigDecimal.ZERO;
+        for (Transaction transaction : transactions) {
+            if (transaction.getAccountId().equals(accountId)) {
+                BigDecimal amount = BigDecimal.valueOf(transaction.getAmount());
+                balance = "deposit".equals(transaction.getType()) ? balance.add(amount) : balance.subtract(amount);
+            }
+        }
+        return balance.setScale(2, RoundingMode.HALF_UP);
+    }
+
+    // Test for accounts and transactions of every beneficiary, including unknown ids
+    @Test
+    void testIndexedLookupsMatchScan() {
+        for (long beneficiaryId = 0; beneficiaryId <= 1001; beneficiaryId++) {
+            assertEquals(scanAccounts(beneficiaryId), accountService.getAccountsForBeneficiary(beneficiaryId));
+            assertEquals(scanTransactions(beneficiaryId), accountService.getTransactionsForBeneficiary(beneficiaryId));
+        }
+    }
+
+    // Test for account balances and beneficiary totals
+    @Test
+    void testBalancesMatchScan() {
+        for (Account account : accounts.values()) {
+            assertEquals(scanBalance(account.getAccountId()),
+                    accountService.getAccountBalanceAsBigDecimal(account.getAccountId()));
+        }
+        for (long beneficiaryId = 0; beneficiaryId <= 1001; beneficiaryId++) {
+            Map<Long, BigDecimal> expected = new LinkedHashMap<>();
+            for (Account account : scanAccounts(beneficiaryId)) {
+                expected.put(account.getAccountId(), scanBalance(account.getAccountId()));
+            }
+            assertEquals(expected, accountService.getAccountBalancesForBeneficiary(beneficiaryId));
+        }
+        for (long beneficiaryId = 0; beneficiaryId <= 1001; beneficiaryId++) {
+            BigDecimal total = BigDecimal.ZERO;
+            for (Account account : scanAccounts(beneficiaryId)) {
+                total = total.add(scanBalance(account.getAccountId()));
+            }
+            assertEquals(total.setScale(2, RoundingMode.HALF_UP).doubleValue(),
+                    accountService.getTotalBalanceForBeneficiary(beneficiaryId));
+        }
+    }
+
+    // Test for the largest withdrawal in the last month
+    @Test
+    void testLargestWithdrawalMatchesScan() {
+        LocalDate oneMonthAgo = LocalDate.now().minusMonths(1);
+        for (long beneficiaryId = 0; beneficiaryId <= 1001; beneficiaryId++) {
+            Transaction expected = null;
+            for (Transaction transaction : scanTransactions(beneficiaryId)) {
+                if ("withdrawal".equals(transaction.getType()) && transaction.getDate().isAfter(oneMonthAgo)
+                        && (expected == null || transaction.getAmount() > expected.getAmount())) {
+                    expected = transaction;
+                }
+            }
+            assertEquals(Optional.ofNullable(expected), accountService.getLargestWithdrawalLastMonth(beneficiaryId));
+        }
+    }
+
+    // Test for the largest withdrawal in arbitrary date windows
+    @Test
+    void testLargestWithdrawalInWindowMatchesScan() {
+        SplittableRandom random = new SplittableRandom(7);
+        LocalDate start = LocalDate.of(2022, 12, 1);
+        for (int i = 0; i < 3000; i++) {
+            long beneficiaryId = 1 + random.nextInt(1000);
+            LocalDate from = start.plusDays(random.nextInt(600));
+            LocalDate to = from.plusDays(random.nextInt(400));
+
+            Transaction expected = null;
+            for (Transaction transaction : scanTransactions(beneficiaryId)) {
+                if ("withdrawal".equals(transaction.getType())
+                        && !transaction.getDate().isBefore(from) && !transaction.getDate().isAfter(to)
+                        && (expected == null || transaction.getAmount() > expected.getAmount())) {
+                    expected = transaction;
+                }
+            }
+            assertEquals(Optional.ofNullable(expected), accountService.getLargestWithdrawal(beneficiaryId, from, to));
+        }
+    }
+
+    // Test for paging and streaming filtered transactions of every beneficiary
+    @Test
+    void testTransactionPagesMatchScan() {
+        LocalDate from = LocalDate.of(2023, 6, 1);
+        LocalDate to = LocalDate.of(2024, 2, 29);
+        List<TransactionFilter> filters = List.of(
+                new TransactionFilter(null, null, null),
+                new TransactionFilter("withdrawal", null, null),
+                new TransactionFilter("deposit", from, to));
+
+        for (TransactionFilter filter : filters) {
+            for (long beneficiaryId = 0; beneficiaryId <= 1001; beneficiaryId += 7) {
+                List<Transaction> expected = scanTransactions(beneficiaryId).stream()
+                        .filter(t -> filter.getType() == null || t.getType().equals(filter.getType()))
+                        .filter(t -> filter.getFrom() == null || !t.getDate().isBefore(filter.getFrom()))
+                        .filter(t -> filter.getTo() == null || !t.getDate().isAfter(filter.getTo()))
+                        .toList();
+
+                List<Transaction> paged = new ArrayList<>();
+                String cursor = null;
+                do {
+                    TransactionPage page = accountService.getTransactionsPage(beneficiaryId, filter, cursor, 3);
+                    assertTrue(page.getTransactions().size() <= 3);
+                    paged.addAll(page.getTransactions());
+                    cursor = page.getNextCursor();
+                } while (cursor != null);
+
+                assertEquals(expected, paged, "pages of beneficiary " + beneficiaryId);
+                assertEquals(expected, accountService.streamTransactions(beneficiaryId, filter).toList(),
+                        "stream of beneficiary " + beneficiaryId);
+            }
+        }
+    }
+
+    // Test for cursors that do not point at a loaded transaction
+    @Test
+    void testInvalidCursor() {
+        assertThrows(IllegalArgumentException.class,
+                () -> accountService.getTransactionsPage(305L, null, "not-a-cursor", 10));
+        assertThrows(IllegalArgumentException.class,
+                () -> accountService.getTransactionsPage(305L, null, TransactionCursor.encode(0, -1L), 10));
+        assertThrows(IllegalArgumentException.class,
+                () -> accountService.getTransactionsPage(305L, new TransactionFilter("transfer", null, null), null, 10));
+    }
+
+    // Test for batch queries against the single-id queries, including unknown ids
+    @Test
+    void testBatchQueriesMatchSingleQueries() {
+        List<Long> beneficiaryIds = LongStream.rangeClosed(0, 1001).boxed().toList();
+        LocalDate from = LocalDate.of(2023, 6, 1);
+        LocalDate to = LocalDate.of(2024, 2, 29);
+
+        List<TotalBalanceResult> totals = accountService.getTotalBalances(beneficiaryIds);
+        List<LargestWithdrawalResult> withdrawals = accountService.getLargestWithdrawals(beneficiaryIds, from, to);
+
+        assertEquals(beneficiaryIds.size(), totals.size());
+        assertEquals(beneficiaryIds.size(), withdrawals.size());
+        for (int i = 0; i < beneficiaryIds.size(); i++) {
+            Long beneficiaryId = beneficiaryIds.get(i);
+            assertEquals(beneficiaryId, totals.get(i).getBeneficiaryId());
+            if (scanAccounts(beneficiaryId).isEmpty()) {
+                assertNull(totals.get(i).getTotalBalance());
+                assertNotNull(totals.get(i).getError());
+            } else {
+                assertEquals(accountService.getTotalBalanceForBeneficiary(beneficiaryId), totals.get(i).getTotalBalance());
+            }
+
+            assertEquals(beneficiaryId, withdrawals.get(i).getBeneficiaryId());
+            assertEquals(accountService.getLargestWithdrawal(beneficiaryId, from, to).orElse(null),
+                    withdrawals.get(i).getLargestWithdrawal());
+            assertEquals(withdrawals.get(i).getLargestWithdrawal() == null, withdrawals.get(i).getError() != null);
+        }
+    }
+
+    // Test for cached results after new transactions, which only affect their beneficiary
+    @Test
+    void testCacheInvalidatedPerBeneficiary() {
+        AccountManagementService service = new AccountManagementService();
+        Account account = scanAccounts(305L).get(0);
+        double total = service.getTotalBalanceForBeneficiary(305L);
+        int count = service.getTransactionsForBeneficiary(305L).size();
+        long otherVersion = service.getBeneficiaryVersion(306L);
+        String tag = service.getETag(305L);
+
+        service.addTransactions(List.of(new Transaction(null, account.getAccountId(), 12.5, "deposit",
+                LocalDate.of(2024, 1, 2))));
+
+        assertNotEquals(tag, service.getETag(305L));
+        assertEquals(otherVersion, service.getBeneficiaryVersion(306L));
+        assertEquals(BigDecimal.valueOf(total).add(new BigDecimal("12.5")).doubleValue(),
+                service.getTotalBalanceForBeneficiary(305L));
+        assertEquals(count + 1, service.getTransactionsForBeneficiary(305L).size());
+        assertTrue(service.getCacheStats().getMisses() >= 4);
+    }
+
+    // Test for client transaction ids that are taken, repeated or not positive rejecting the whole batch
+    @Test
+    void testClientTransactionIdsChecked() {
+        AccountManagementService service = new AccountManagementService();
+        Long accountId = transactions.get(0).getAccountId();
+        LocalDate date = LocalDate.of(2024, 1, 2);
+        long existing = transactions.get(transactions.size() / 2).getTransactionId();
+        int count = service.getTransactionsForBeneficiary(accounts.get(accountId).getBeneficiaryId()).size();
+
+        assertThrows(IllegalArgumentException.class, () -> service.addTransactions(List.of(
+                new Transaction(null, accountId, 1.0, "deposit", date),
+                new Transaction(existing, accountId, 1.0, "deposit", date))));
+        assertThrows(IllegalArgumentException.class, () -> service.addTransactions(List.of(
+                new Transaction(900_001L, accountId, 1.0, "deposit", date),
+                new Transaction(900_001L, accountId, 1.0, "deposit", date))));
+        assertThrows(IllegalArgumentException.class, () -> service.addTransactions(List.of(
+                new Transaction(0L, accountId, 1.0, "deposit", date))));
+        assertEquals(count, service.getTransactionsForBeneficiary(accounts.get(accountId).getBeneficiaryId()).size());
+
+        // Ids assigned to the rest of a batch stay clear of the ids it gives
+        List<Transaction> stored = service.addTransactions(List.of(
+                new Transaction(null, accountId, 1.0, "deposit", date),
+                new Transaction(900_001L, accountId, 1.0, "deposit", date)));
+        assertTrue(stored.get(0).getTransactionId() > 900_001L);
+        assertThrows(IllegalArgumentException.class, () -> service.addTransactions(List.of(
+                new Transaction(900_001L, accountId, 1.0, "deposit", date))));
+    }
+
+    // Test for the meters recorded while loading and querying
+    @Test
+    void testMetrics() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        AccountManagementService service = new AccountManagementService(new DataProperties(), new CacheProperties(),
+                registry);
+
+        service.getTotalBalanceForBeneficiary(305L);
+        service.getTotalBalanceForBeneficiary(305L);
+        service.getTransactionsPage(305L, null, null, 10);
+
+        assertEquals(1, registry.get("account.data.load").tag("source", "csv").timer().count());
+        assertEquals(10000, registry.get("account.data.rows").tag("file", "transactions").gauge().value());
+        assertEquals(1800, registry.get("account.data.rows").tag("file", "accounts").gauge().value());
+        assertTrue(registry.get("account.store.bytes").gauge().value() > 0);
+        assertEquals(2, registry.get("account.service.calls").tag("method", "getTotalBalanceForBeneficiary")
+                .timer().count());
+        assertEquals(1, registry.get("account.service.accounts").tag("method", "totalBalance").summary().count());
+        assertEquals(scanAccounts(305L).size(), registry.get("account.service.accounts").tag("method", "totalBalance")
+                .summary().totalAmount());
+        assertEquals(1, registry.get("account.service.rows").tag("method", "getTransactionsPage").summary().count());
+        assertEquals(1, registry.get("account.cache.requests").tag("result", "hit").functionCounter().count());
+        assertEquals(1, registry.get("account.cache.requests").tag("result", "miss").functionCounter().count());
+    }
+
+    // Test for the summary against the single queries it replaces
+    @Test
+    void testSummaryMatchesSingleQueries() {
+        for (long beneficiaryId = 0; beneficiaryId <= 1001; beneficiaryId += 3) {
+            Optional<BeneficiarySummary> summary = accountService.getBeneficiarySummary(beneficiaryId,
+                    EnumSet.allOf(SummarySection.class));
+            if (accountService.getBeneficiaryDetails(beneficiaryId).isEmpty() && scanAccounts(beneficiaryId).isEmpty()) {
+                assertTrue(summary.isEmpty());
+                continue;
+            }
+
+            BeneficiarySummary expected = new BeneficiarySummary(beneficiaryId,
+                    accountService.getBeneficiaryDetails(beneficiaryId).orElse(null),
+                    accountService.getAccountsForBeneficiary(beneficiaryId),
+                    accountService.getAccountBalancesForBeneficiary(beneficiaryId),
+                    accountService.getTotalBalanceForBeneficiary(beneficiaryId),
+                    accountService.getLargestWithdrawalLastMonth(beneficiaryId).orElse(null),
+                    accountService.getTransactionsForBeneficiary(beneficiaryId));
+            assertEquals(expected, summary.orElseThrow(), "summary of beneficiary " + beneficiaryId);
+        }
+
+        BeneficiarySummary partial = accountService.getBeneficiarySummary(305L,
+                EnumSet.of(SummarySection.TOTAL_BALANCE)).orElseThrow();
+        assertEquals(new BeneficiarySummary(305L, null, null, null,
+                accountService.getTotalBalanceForBeneficiary(305L), null, null), partial);
+    }
+
+    // Test for the global analytics against the per-beneficiary and per-account queries
+    @Test
+    void testAnalyticsMatchScan() {
+        List<BeneficiaryBalance> expectedTop = accounts.values().stream()
+                .map(Account::getBeneficiaryId)
+                .distinct()
+                .map(id -> new BeneficiaryBalance(id, accountService.getTotalBalanceForBeneficiary(id)))
+                .sorted(Comparator.comparing(BeneficiaryBalance::getTotalBalance).reversed()
+                        .thenComparing(BeneficiaryBalance::getBeneficiaryId))
+                .limit(25)
+                .toList();
+        assertEquals(expectedTop, accountService.getTopBeneficiariesByBalance(25));
+
+        List<AccountBalance> expectedNegative = accounts.values().stream()
+                .map(account -> new AccountBalance(account.getAccountId(), account.getBeneficiaryId(),
+                        scanBalance(account.getAccountId())))
+                .filter(balance -> balance.getBalance().signum() < 0)
+                .sorted(Comparator.comparing(AccountBalance::getBalance).thenComparing(AccountBalance::getAccountId))
+                .toList();
+        assertEquals(expectedNegative, accountService.getNegativeBalanceAccounts());
+
+        LocalDate from = LocalDate.of(2023, 3, 15);
+        LocalDate to = LocalDate.of(2023, 9, 10);
+        Map<String, VolumeEntry> expectedVolume = new TreeMap<>();
+        for (Transaction transaction : transactions) {
+            if (transaction.getDate().isBefore(from) || transaction.getDate().isAfter(to)) {
+                continue;
+            }
+            VolumeEntry entry = expectedVolume.computeIfAbsent(YearMonth.from(transaction.getDate()).toString(),
+                    period -> new VolumeEntry(period, new BigDecimal("0.00"), 0, new BigDecimal("0.00"), 0));
+            BigDecimal amount = BigDecimal.valueOf(transaction.getAmount()).setScale(2, RoundingMode.HALF_UP);
+            if ("deposit".equals(transaction.getType())) {
+                entry.setDeposits(entry.getDeposits().add(amount));
+                entry.setDepositCount(entry.getDepositCount() + 1);
+            } else {
+                entry.setWithdrawals(entry.getWithdrawals().add(amount));
+                entry.setWithdrawalCount(entry.getWithdrawalCount() + 1);
+            }
+        }
+        assertEquals(new ArrayList<>(expectedVolume.values()),
+                accountService.getVolume(VolumeGranularity.MONTH, from, to));
+
+        long days = accountService.getVolume(VolumeGranularity.DAY, null, null).stream()
+                .mapToLong(entry -> entry.getDepositCount() + entry.getWithdrawalCount())
+                .sum();
+        assertEquals(transactions.size(), days);
+    }
+
+    private static BigDecimal scanBalance(Long accountId, LocalDate fromDate, LocalDate toDate) {
+        BigDecimal balance = new BigDecimal("0.00");
+        for (Transaction transaction : transactions) {
+            if (transaction.getAccountId().equals(accountId) && !transaction.getDate().isBefore(fromDate)
+                    && !transaction.getDate().isAfter(toDate)) {
+                BigDecimal amount = BigDecimal.valueOf(transaction.getAmount()).setScale(2, RoundingMode.HALF_UP);
+                balance = "deposit".equals(transaction.getType()) ? balance.add(amount) : balance.subtract(amount);
+            }
+        }
+        return balance;
+    }
+
+    // Test for point-in-time balances and statements against a scan, also after transactions are added
+    @Test
+    void testRollupsMatchScan() {
+        LocalDate start = LocalDate.of(2000, 1, 1);
+        for (Account account : accounts.values()) {
+            Long accountId = account.getAccountId();
+            if (accountId % 11 != 0) {
+                continue;
+            }
+            for (LocalDate date : List.of(LocalDate.of(2022, 12, 31), LocalDate.of(2023, 6, 15),
+                    LocalDate.of(2024, 1, 31), LocalDate.of(2030, 1, 1))) {
+                assertEquals(scanBalance(accountId, start, date),
+                        accountService.getAccountBalanceAsOf(accountId, date).orElseThrow());
+            }
+
+            List<StatementEntry> statements = accountService.getStatements(accountId, VolumeGranularity.MONTH,
+                    LocalDate.of(2023, 5, 20), LocalDate.of(2023, 11, 3)).orElseThrow();
+            BigDecimal opening = scanBalance(accountId, start, LocalDate.of(2023, 4, 30));
+            for (StatementEntry entry : statements) {
+                YearMonth month = YearMonth.parse(entry.getPeriod());
+                assertEquals(opening, entry.getOpeningBalance());
+                assertEquals(scanBalance(accountId, month.atDay(1), month.atEndOfMonth()),
+                        entry.getDeposits().subtract(entry.getWithdrawals()));
+                assertEquals(scanBalance(accountId, start, month.atEndOfMonth()), entry.getClosingBalance());
+                opening = entry.getClosingBalance();
+            }
+            long count = transactions.stream().filter(transaction -> transaction.getAccountId().equals(accountId)).count();
+            assertEquals(count, accountService.getStatements(accountId, VolumeGranularity.DAY, null, null).orElseThrow()
+                    .stream().mapToLong(entry -> entry.getDepositCount() + entry.getWithdrawalCount()).sum());
+        }
+        assertTrue(accountService.getAccountBalanceAsOf(-1L, LocalDate.now()).isEmpty());
+        assertTrue(accountService.getStatements(-1L, VolumeGranularity.MONTH, null, null).isEmpty());
+
+        AccountManagementService service = new AccountManagementService();
+        Long accountId = accounts.keySet().iterator().next();
+        BigDecimal before = service.getAccountBalanceAsOf(accountId, LocalDate.of(2023, 6, 30)).orElseThrow();
+        service.addTransactions(List.of(new Transaction(null, accountId, 20.0, "deposit", LocalDate.of(2023, 6, 30)),
+                new Transaction(null, accountId, 5.0, "withdrawal", LocalDate.of(2023, 7, 1))));
+        assertEquals(before.add(new BigDecimal("20.00")),
+                service.getAccountBalanceAsOf(accountId, LocalDate.of(2023, 6, 30)).orElseThrow());
+        List<StatementEntry> july = service.getStatements(accountId, VolumeGranularity.MONTH,
+                LocalDate.of(2023, 7, 1), LocalDate.of(2023, 7, 1)).orElseThrow();
+        assertEquals(scanBalance(accountId, LocalDate.of(2023, 7, 1), LocalDate.of(2023, 7, 31))
+                        .subtract(new BigDecimal("5.00")),
+                july.get(0).getDeposits().subtract(july.get(0).getWithdrawals()));
+    }
+
+    private static TransactionSearchResult scanSearch(List<Transaction> transactions, TransactionSearch search) {
+        List<Transaction> found = transactions.stream()
+                .filter(transaction -> search.getType() == null || search.getType().equals(transaction.getType()))
+                .filter(transaction -> search.getMinAmount() == null
+                        || BigDecimal.valueOf(transaction.getAmount()).compareTo(search.getMinAmount()) >= 0)
+                .filter(transaction -> search.getMaxAmount() == null
+                        || BigDecimal.valueOf(transaction.getAmount()).compareTo(search.getMaxAmount()) <= 0)
+                .filter(transaction -> search.getFrom() == null || !transaction.getDate().isBefore(search.getFrom()))
+                .filter(transaction -> search.getTo() == null || !transaction.getDate().isAfter(search.getTo()))
+                .filter(transaction -> search.getAccountIds() == null
+                        || search.getAccountIds().contains(transaction.getAccountId()))
+                .toList();
+        List<Transaction> sorted = new ArrayList<>(found);
+        if (search.getSort() != null) {
+            sorted.sort(search.getSort().comparator(search.isDescending()));
+        }
+        return new TransactionSearchResult(found.size(), sorted.subList(0, Math.min(search.getLimit(), sorted.size())));
+    }
+
+    private static TransactionSearch randomSearch(SplittableRandom random) {
+        List<Long> accountIds = List.copyOf(accounts.keySet());
+        TransactionSearch search = new TransactionSearch();
+        search.setType(List.of("deposit", "withdrawal", "").get(random.nextInt(3)));
+        if (search.getType().isEmpty()) {
+            search.setType(null);
+        }
+        if (random.nextBoolean()) {
+            search.setMinAmount(BigDecimal.valueOf(random.nextInt(50_000), 2));
+        }
+        if (random.nextBoolean()) {
+            search.setMaxAmount(random.nextBoolean() ? new BigDecimal("255.99") : BigDecimal.valueOf(random.nextInt(50_000), 2));
+        }
+        if (random.nextBoolean()) {
+            // Either a month edge or any day
+            LocalDate from = LocalDate.of(2023, 1, 1).plusMonths(random.nextInt(18));
+            search.setFrom(random.nextBoolean() ? from : from.plusDays(random.nextInt(28)));
+        }
+        if (random.nextBoolean()) {
+            LocalDate to = LocalDate.of(2023, 1, 1).plusMonths(random.nextInt(18)).minusDays(1);
+            search.setTo(random.nextBoolean() ? to : to.minusDays(random.nextInt(28)));
+        }
+        if (random.nextInt(3) == 0) {
+            List<Long> some = new ArrayList<>(List.of(-1L));
+            for (int i = 0; i < 1 + random.nextInt(30); i++) {
+                some.add(accountIds.get(random.nextInt(accountIds.size())));
+            }
+            search.setAccountIds(some);
+        }
+        if (random.nextBoolean()) {
+            search.setSort(TransactionSort.values()[random.nextInt(TransactionSort.values().length)]);
+            search.setDescending(random.nextBoolean());
+        }
+        search.setLimit(random.nextBoolean() ? 1 + random.nextInt(50) : 1000);
+        return search;
+    }
+
+    // Test for bitmap searches against a scan, also with new rows not yet in the bitmaps
+    @Test
+    void testSearchMatchesScan() {
+        SplittableRandom random = new SplittableRandom(21);
+        for (int i = 0; i < 300; i++) {
+            TransactionSearch search = randomSearch(random);
+            assertEquals(scanSearch(transactions, search), accountService.searchTransactions(search), search.toString());
+        }
+        assertThrows(IllegalArgumentException.class,
+                () -> accountService.searchTransactions(new TransactionSearch("refund", null, null, null, null, null,
+                        null, false, 10)));
+
+        AccountManagementService service = new AccountManagementService();
+        List<Transaction> all = new ArrayList<>(transactions);
+        List<Long> accountIds = List.copyOf(accounts.keySet());
+        for (int batch = 0; batch < 4; batch++) {
+            List<Transaction> added = new ArrayList<>();
+            for (int i = 0; i < 800; i++) {
+                added.add(new Transaction(null, accountIds.get(random.nextInt(accountIds.size())),
+                        random.nextInt(1, 60_000) / 100.0, random.nextBoolean() ? "deposit" : "withdrawal",
+                        LocalDate.of(2023, 1, 1).plusDays(random.nextInt(600))));
+            }
+            all.addAll(service.addTransactions(added));
+            for (int i = 0; i < 50; i++) {
+                TransactionSearch search = randomSearch(random);
+                assertEquals(scanSearch(all, search), service.searchTransactions(search), search.toString());
+            }
+        }
+    }
+
+    // Test for loading in the background completing the warm-up with every transaction indexed
+    @Test
+    void testBackgroundWarmUp() throws Exception {
+        DataProperties dataProperties = new DataProperties();
+        dataProperties.setBackground(true);
+        AccountManagementService service = new AccountManagementService(dataProperties);
+
+        service.getWarmUp().getCompletion().get(30, TimeUnit.SECONDS);
+        assertTrue(service.getWarmUp().isReady());
+        assertEquals(transactions.size(), service.getWarmUp().getIndexedRows());
+        assertEquals(transactions.size(), service.getWarmUp().getTotalRows());
+        assertEquals(accountService.getTotalBalanceForBeneficiary(305L), service.getTotalBalanceForBeneficiary(305L));
+        assertTrue(accountService.getWarmUp().isReady());
+    }
+}
@@ -0,0 +1,137 @@
+package com.netcompany.accountmanagementsystem.service;
+
+import com.netcompany.accountmanagementsystem.model.Account;
+import com.netcompany.accountmanagementsystem.model.Transaction;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Many writers append transfers between the accounts of a beneficiary while
+ * many readers query the same beneficiaries. A transfer is one bulk request
+ * that leaves the beneficiary's total balance unchanged, so any reader that
+ * sees a different total has seen half of a batch.
+ */
+class ConcurrentIngestionTest {
+
+    private static final int WRITERS = 4;
+    private static final int READERS = 4;
+    private static final int BATCHES_PER_WRITER = 1000;
+    private static final int ROWS_PER_BATCH = 4;
+
+    @Test
+    void testReadersSeeConsistentSnapshots() throws InterruptedException {
+        AccountManagementService accountService = new AccountManagementService();
+
+        List<Long> beneficiaryIds = new ArrayList<>();
+        for (long beneficiaryId = 1; beneficiaryIds.size() < 8; beneficiaryId++) {
+            if (accountService.getAccountsForBeneficiary(beneficiaryId).size() >= 2) {
+                beneficiaryIds.add(beneficiaryId);
+            }
+        }
+
+        Map<Long, Double> initialTotals = new ConcurrentHashMap<>();
+        Map<Long, Integer> initialCounts = new ConcurrentHashMap<>();
+        Map<Long, AtomicLong> expectedBalances = new ConcurrentHashMap<>();
+        for (Long beneficiaryId : beneficiaryIds) {
+            initialTotals.put(beneficiaryId, accountService.getTotalBalanceForBeneficiary(beneficiaryId));
+            initialCounts.put(beneficiaryId, accountService.getTransactionsForBeneficiary(beneficiaryId).size());
+            for (Account account : accountService.getAccountsForBeneficiary(beneficiaryId)) {
+                BigDecimal balance = accountService.getAccountBalanceAsBigDecimal(account.getAccountId());
+                expectedBalances.put(account.getAccountId(), new AtomicLong(balance.movePointRight(2).longValueExact()));
+            }
+        }
+
+        Queue<String> failures = new ConcurrentLinkedQueue<>();
+        ExecutorService executor = Executors.newFixedThreadPool(WRITERS + READERS);
+        CountDownLatch writersDone = new CountDownLatch(WRITERS);
+        AtomicLong reads = new AtomicLong();
+
+        for (int w = 0; w < WRITERS; w++) {
+            SplittableRandom random = new SplittableRandom(w);
+            executor.execute(() -> {
+                try {
+                    for (int i = 0; i < BATCHES_PER_WRITER; i++) {
+                        Long beneficiaryId = beneficiaryIds.get(random.nextInt(beneficiaryIds.size()));
+                        List<Account> accounts = accountService.getAccountsForBeneficiary(beneficiaryId);
+                        Long from = accounts.get(0).getAccountId();
+                        Long to = accounts.get(1).getAccountId();
+                        long transferCents = 1 + random.nextInt(50_000);
+                        long roundTripCents = 1 + random.nextInt(50_000);
+                        LocalDate date = LocalDate.of(2024, 1, 1).plusDays(random.nextInt(365));
+
+                        accountService.addTransactions(List.of(
+                                new Transaction(null, from, transferCents / 100.0, "withdrawal", date),
+                                new Transaction(null, to, transferCents / 100.0, "deposit", date),
+                                new Transaction(null, from, roundTripCents / 100.0, "deposit", date),
+                                new Transaction(null, from, roundTripCents / 100.0, "withdrawal", date)));
+                        expectedBalances.get(from).addAndGet(-transferCents);
+                        expectedBalances.get(to).addAndGet(transferCents);
+                    }
+                } catch (RuntimeException e) {
+                    failures.add("Writer failed: " + e);
+                } finally {
+                    writersDone.countDown();
+                }
+            });
+        }
+
+        for (int r = 0; r < READERS; r++) {
+            SplittableRandom random = new SplittableRandom(100 + r);
+            executor.execute(() -> {
+                while (writersDone.getCount() > 0 && failures.size() < 10) {
+                    Long beneficiaryId = beneficiaryIds.get(random.nextInt(beneficiaryIds.size()));
+
+                    double total = accountService.getTotalBalanceForBeneficiary(beneficiaryId);
+                    if (total != initialTotals.get(beneficiaryId)) {
+                        failures.add("Total balance of " + beneficiaryId + " was " + total);
+                    }
+
+                    BigDecimal sum = accountService.getAccountBalancesForBeneficiary(beneficiaryId).values().stream()
+                            .reduce(BigDecimal.ZERO, BigDecimal::add);
+                    if (sum.doubleValue() != initialTotals.get(beneficiaryId)) {
+                        failures.add("Account balances of " + beneficiaryId + " summed to " + sum);
+                    }
+
+                    int added = accountService.getTransactionsForBeneficiary(beneficiaryId).size()
+                            - initialCounts.get(beneficiaryId);
+                    if (added % ROWS_PER_BATCH != 0) {
+                        failures.add("Saw " + added + " new transactions of " + beneficiaryId);
+                    }
+                    reads.incrementAndGet();
+                }
+            });
+        }
+
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(2, TimeUnit.MINUTES));
+        assertTrue(failures.isEmpty(), () -> String.join("\n", failures));
+        assertTrue(reads.get() > 0);
+
+        int totalAdded = 0;
+        for (Long beneficiaryId : beneficiaryIds) {
+            assertEquals(initialTotals.get(beneficiaryId), accountService.getTotalBalanceForBeneficiary(beneficiaryId));
+            totalAdded += accountService.getTransactionsForBeneficiary(beneficiaryId).size() - initialCounts.get(beneficiaryId);
+        }
+        assertEquals(WRITERS * BATCHES_PER_WRITER * ROWS_PER_BATCH, totalAdded);
+        for (Map.Entry<Long, AtomicLong> expected : expectedBalances.entrySet()) {
+            assertEquals(BigDecimal.valueOf(expected.getValue().get(), 2),
+                    accountService.getAccountBalanceAsBigDecimal(expected.getKey()));
+        }
+    }
+}
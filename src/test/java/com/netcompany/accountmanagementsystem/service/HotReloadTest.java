@@ -0,0 +1,145 @@
+package com.netcompany.accountmanagementsystem.service;
+
+import com.netcompany.accountmanagementsystem.config.DataProperties;
+import com.netcompany.accountmanagementsystem.model.Account;
+import com.netcompany.accountmanagementsystem.model.Transaction;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HotReloadTest {
+
+    @TempDir
+    Path dataDirectory;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        for (String file : List.of("beneficiaries.csv", "accounts.csv", "transactions.csv")) {
+            try (InputStream inputStream = new ClassPathResource(file).getInputStream()) {
+                Files.copy(inputStream, dataDirectory.resolve(file));
+            }
+        }
+    }
+
+    private AccountManagementService service(boolean watch) {
+        DataProperties dataProperties = new DataProperties();
+        dataProperties.setDirectory(dataDirectory.toString());
+        dataProperties.setWatch(watch);
+        dataProperties.setReloadDelay(Duration.ofMillis(100));
+        return new AccountManagementService(dataProperties);
+    }
+
+    private void append(String file, String text) throws IOException {
+        Files.writeString(dataDirectory.resolve(file), text, StandardOpenOption.APPEND);
+    }
+
+    private void replace(String file, String target, String replacement) throws IOException {
+        Path path = dataDirectory.resolve(file);
+        String content = Files.readString(path, StandardCharsets.UTF_8);
+        assertTrue(content.contains(target));
+        Files.writeString(path, content.replaceFirst(target, replacement));
+    }
+
+    // Test for loading from the directory giving the same data as the bundled files
+    @Test
+    void testLoadFromDirectory() {
+        AccountManagementService bundled = new AccountManagementService();
+        AccountManagementService fromDirectory = service(false);
+        for (long beneficiaryId = 1; beneficiaryId <= 1000; beneficiaryId += 37) {
+            assertEquals(bundled.getBeneficiaryDetails(beneficiaryId), fromDirectory.getBeneficiaryDetails(beneficiaryId));
+            assertEquals(bundled.getAccountsForBeneficiary(beneficiaryId),
+                    fromDirectory.getAccountsForBeneficiary(beneficiaryId));
+            assertEquals(bundled.getTransactionsForBeneficiary(beneficiaryId),
+                    fromDirectory.getTransactionsForBeneficiary(beneficiaryId));
+        }
+    }
+
+    // Test for appended rows being added, a partly written last row waiting for its line break
+    @Test
+    void testAppendedTransactions() throws IOException {
+        AccountManagementService service = service(false);
+        BigDecimal balance = service.getAccountBalanceAsBigDecimal(1L);
+        int transactionCount = service.getTransactionsForBeneficiary(79L).size();
+        String tag = service.getETag(79L);
+        String otherTag = service.getETag(183L);
+
+        append("transactions.csv", "10001,1,12.34,deposit,01/15/24\n10002,1,1.00,with");
+        service.reload();
+
+        assertEquals(balance.add(new BigDecimal("12.34")), service.getAccountBalanceAsBigDecimal(1L));
+        assertEquals(transactionCount + 1, service.getTransactionsForBeneficiary(79L).size());
+        assertNotEquals(tag, service.getETag(79L));
+        assertEquals(otherTag, service.getETag(183L));
+
+        append("transactions.csv", "drawal,01/16/24\n");
+        service.reload();
+        assertEquals(balance.add(new BigDecimal("11.34")), service.getAccountBalanceAsBigDecimal(1L));
+        assertEquals(10002L, service.getTransactionsForBeneficiary(79L).get(transactionCount + 1).getTransactionId());
+    }
+
+    // Test for an account moved to another beneficiary taking its transactions along
+    @Test
+    void testMovedAccount() throws IOException {
+        AccountManagementService service = service(false);
+        BigDecimal balance = service.getAccountBalanceAsBigDecimal(1L);
+        List<Account> previousAccounts = service.getAccountsForBeneficiary(79L);
+        assertTrue(previousAccounts.contains(new Account(1L, 79L)));
+
+        replace("accounts.csv", "\n1,79\n", "\n1,183\n");
+        service.reload();
+
+        assertFalse(service.getAccountsForBeneficiary(79L).contains(new Account(1L, 79L)));
+        assertEquals(previousAccounts.size() - 1, service.getAccountsForBeneficiary(79L).size());
+        assertTrue(service.getAccountsForBeneficiary(183L).contains(new Account(1L, 183L)));
+        assertEquals(balance, service.getAccountBalancesForBeneficiary(183L).get(1L));
+        assertTrue(service.getTransactionsForBeneficiary(183L).stream().anyMatch(t -> t.getAccountId() == 1L));
+    }
+
+    // Test for a changed row reloading all transactions while keeping those added through the API
+    @Test
+    void testRewrittenTransactions() throws IOException {
+        AccountManagementService service = service(false);
+        BigDecimal balance = service.getAccountBalanceAsBigDecimal(1395L);
+        List<Transaction> added = service.addTransactions(List.of(
+                new Transaction(null, 2L, 5.0, "deposit", LocalDate.of(2024, 2, 1))));
+
+        replace("transactions.csv", "\n1,1395,41.2,withdrawal,", "\n1,1395,141.2,withdrawal,");
+        service.reload();
+
+        assertEquals(balance.subtract(new BigDecimal("100.00")), service.getAccountBalanceAsBigDecimal(1395L));
+        assertTrue(service.getTransactionsForBeneficiary(183L).contains(added.get(0)));
+        assertEquals(10001L, added.get(0).getTransactionId());
+    }
+
+    // Test for a change in the watched directory being applied without calling reload
+    @Test
+    void testWatchedDirectory() throws IOException, InterruptedException {
+        AccountManagementService service = service(true);
+        try {
+            BigDecimal expected = service.getAccountBalanceAsBigDecimal(1L).add(new BigDecimal("7.00"));
+            append("transactions.csv", "10001,1,7,deposit,01/15/24\n");
+
+            long deadline = System.nanoTime() + Duration.ofSeconds(20).toNanos();
+            while (!expected.equals(service.getAccountBalanceAsBigDecimal(1L)) && System.nanoTime() < deadline) {
+                Thread.sleep(50);
+            }
+            assertEquals(expected, service.getAccountBalanceAsBigDecimal(1L));
+        } finally {
+            service.close();
+        }
+    }
+}
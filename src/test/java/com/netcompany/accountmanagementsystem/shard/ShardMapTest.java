@@ -0,0 +1,116 @@
+package com.netcompany.accountmanagementsystem.shard;
+
+import com.netcompany.accountmanagementsystem.config.CacheProperties;
+import com.netcompany.accountmanagementsystem.config.DataProperties;
+import com.netcompany.accountmanagementsystem.config.LogProperties;
+import com.netcompany.accountmanagementsystem.config.ShardProperties;
+import com.netcompany.accountmanagementsystem.model.Account;
+import com.netcompany.accountmanagementsystem.model.Transaction;
+import com.netcompany.accountmanagementsystem.service.AccountManagementService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardMapTest {
+
+    private static ShardProperties properties(ShardStrategy strategy, int count, int index, Long... boundaries) {
+        ShardProperties properties = new ShardProperties();
+        properties.setStrategy(strategy);
+        properties.setCount(count);
+        properties.setIndex(index);
+        properties.setBoundaries(List.of(boundaries));
+        return properties;
+    }
+
+    // Test for ranges starting at their boundary
+    @Test
+    void testRangeStrategy() {
+        ShardMap shards = new ShardMap(properties(ShardStrategy.RANGE, 3, 1, 100L, 200L));
+        assertEquals(0, shards.shardOf(1));
+        assertEquals(0, shards.shardOf(99));
+        assertEquals(1, shards.shardOf(100));
+        assertEquals(1, shards.shardOf(199));
+        assertEquals(2, shards.shardOf(200));
+        assertEquals(2, shards.shardOf(Long.MAX_VALUE));
+        assertTrue(shards.owns(150));
+        assertFalse(shards.owns(50));
+        assertTrue(shards.takesTransactionId(1, 7));
+        assertFalse(shards.takesTransactionId(2, 7));
+    }
+
+    // Test for hashing spreading consecutive ids evenly
+    @Test
+    void testHashStrategy() {
+        ShardMap shards = new ShardMap(properties(ShardStrategy.HASH, 4, 0));
+        int[] counts = new int[4];
+        for (long beneficiaryId = 1; beneficiaryId <= 10000; beneficiaryId++) {
+            counts[shards.shardOf(beneficiaryId)]++;
+        }
+        for (int count : counts) {
+            assertTrue(count > 2300 && count < 2700, "uneven shard of " + count);
+        }
+        assertTrue(new ShardMap(new ShardProperties()).owns(42));
+        assertNotEquals(shards.fingerprint(), new ShardMap(properties(ShardStrategy.HASH, 4, 1)).fingerprint());
+    }
+
+    // Test for settings that describe no valid assignment
+    @Test
+    void testInvalidSettings() {
+        assertThrows(IllegalArgumentException.class, () -> new ShardMap(properties(ShardStrategy.HASH, 2, 2)));
+        assertThrows(IllegalArgumentException.class, () -> new ShardMap(properties(ShardStrategy.RANGE, 3, 0, 100L)));
+        assertThrows(IllegalArgumentException.class,
+                () -> new ShardMap(properties(ShardStrategy.RANGE, 3, 0, 200L, 100L)));
+    }
+
+    // Test for shards together holding exactly the data of a single instance
+    @Test
+    void testShardsPartitionTheData() {
+        AccountManagementService whole = new AccountManagementService();
+        List<AccountManagementService> parts = new ArrayList<>();
+        for (int index = 0; index < 3; index++) {
+            parts.add(new AccountManagementService(new DataProperties(), new CacheProperties(), new LogProperties(),
+                    properties(ShardStrategy.HASH, 3, index), new SimpleMeterRegistry()));
+        }
+        ShardMap shards = new ShardMap(properties(ShardStrategy.HASH, 3, 0));
+
+        for (long beneficiaryId = 1; beneficiaryId <= 1000; beneficiaryId++) {
+            for (int index = 0; index < 3; index++) {
+                AccountManagementService part = parts.get(index);
+                if (index == shards.shardOf(beneficiaryId)) {
+                    assertEquals(whole.getBeneficiaryDetails(beneficiaryId), part.getBeneficiaryDetails(beneficiaryId));
+                    assertEquals(whole.getAccountsForBeneficiary(beneficiaryId),
+                            part.getAccountsForBeneficiary(beneficiaryId));
+                    assertEquals(whole.getTransactionsForBeneficiary(beneficiaryId),
+                            part.getTransactionsForBeneficiary(beneficiaryId));
+                } else {
+                    assertTrue(part.getBeneficiaryDetails(beneficiaryId).isEmpty());
+                    assertTrue(part.getAccountsForBeneficiary(beneficiaryId).isEmpty());
+                }
+            }
+        }
+        assertEquals(whole.getNegativeBalanceAccounts().size(),
+                parts.stream().mapToInt(part -> part.getNegativeBalanceAccounts().size()).sum());
+    }
+
+    // Test for shards assigning transaction ids that never collide
+    @Test
+    void testTransactionIdsPerShard() {
+        List<Long> ids = new ArrayList<>();
+        for (int index = 0; index < 2; index++) {
+            AccountManagementService part = new AccountManagementService(new DataProperties(), new CacheProperties(),
+                    new LogProperties(), properties(ShardStrategy.RANGE, 2, index, 500L), new SimpleMeterRegistry());
+            Account account = part.getAccountsForBeneficiary(index == 0 ? 79L : 600L).get(0);
+            for (int i = 0; i < 2; i++) {
+                List<Transaction> stored = part.addTransactions(List.of(
+                        new Transaction(null, account.getAccountId(), 1.0, "deposit", LocalDate.of(2024, 1, 1))));
+                ids.add(stored.get(0).getTransactionId());
+            }
+        }
+        assertEquals(List.of(10002L, 10004L, 10001L, 10003L), ids);
+    }
+}
@@ -0,0 +1,207 @@
+package com.netcompany.accountmanagementsystem.shard;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.netcompany.accountmanagementsystem.AccountManagementSystemApplication;
+import com.netcompany.accountmanagementsystem.model.AccountBalance;
+import com.netcompany.accountmanagementsystem.model.BeneficiaryBalance;
+import com.netcompany.accountmanagementsystem.model.TotalBalanceResult;
+import com.netcompany.accountmanagementsystem.model.Transaction;
+import com.netcompany.accountmanagementsystem.model.TransactionSearch;
+import com.netcompany.accountmanagementsystem.model.TransactionSearchResult;
+import com.netcompany.accountmanagementsystem.model.TransactionSort;
+import com.netcompany.accountmanagementsystem.model.VolumeEntry;
+import com.netcompany.accountmanagementsystem.model.VolumeGranularity;
+import com.netcompany.accountmanagementsystem.service.AccountManagementService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs two range shards and a router on localhost and checks the router's
+ * answers against a single instance holding all the data.
+ */
+class ShardRoutingTest {
+
+    private static final List<ConfigurableApplicationContext> contexts = new ArrayList<>();
+    private static final ObjectMapper mapper = new ObjectMapper().findAndRegisterModules();
+    private static final HttpClient client = HttpClient.newHttpClient();
+    private static AccountManagementService whole;
+    private static String router;
+
+    @BeforeAll
+    static void start() {
+        whole = new AccountManagementService();
+        List<String> nodes = new ArrayList<>();
+        for (int index = 0; index < 2; index++) {
+            ConfigurableApplicationContext shard = run("--account-management.shard.count=2",
+                    "--account-management.shard.index=" + index);
+            contexts.add(shard);
+            nodes.add("http://localhost:" + shard.getEnvironment().getProperty("local.server.port"));
+        }
+        ConfigurableApplicationContext routing = run("--account-management.shard.nodes=" + String.join(",", nodes));
+        contexts.add(routing);
+        router = "http://localhost:" + routing.getEnvironment().getProperty("local.server.port");
+    }
+
+    private static ConfigurableApplicationContext run(String... shardArgs) {
+        List<String> args = new ArrayList<>(List.of("--server.port=0", "--account-management.data.snapshot-path=",
+                "--account-management.data.background=false",
+                "--account-management.shard.strategy=range", "--account-management.shard.boundaries=500"));
+        args.addAll(List.of(shardArgs));
+        return SpringApplication.run(AccountManagementSystemApplication.class, args.toArray(String[]::new));
+    }
+
+    @AfterAll
+    static void stop() {
+        contexts.forEach(ConfigurableApplicationContext::close);
+    }
+
+    private static HttpResponse<String> get(String path) throws IOException, InterruptedException {
+        return client.send(HttpRequest.newBuilder(URI.create(router + path)).build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static HttpResponse<String> post(String path, Object body) throws IOException, InterruptedException {
+        return post(router, path, body);
+    }
+
+    private static HttpResponse<String> post(String base, String path, Object body)
+            throws IOException, InterruptedException {
+        return client.send(HttpRequest.newBuilder(URI.create(base + path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(mapper.writeValueAsString(body)))
+                .build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    // Test for requests about a beneficiary reaching the shard that holds them
+    @Test
+    void testBeneficiaryRouting() throws Exception {
+        for (long beneficiaryId : List.of(79L, 499L, 500L, 999L)) {
+            HttpResponse<String> response = get("/api/beneficiary/" + beneficiaryId + "/transactions");
+            assertEquals(200, response.statusCode());
+            assertTrue(response.headers().firstValue("ETag").isPresent());
+            assertEquals(whole.getTransactionsForBeneficiary(beneficiaryId),
+                    mapper.readValue(response.body(), new TypeReference<List<Transaction>>() {
+                    }));
+        }
+        assertEquals(404, get("/api/beneficiary/5000").statusCode());
+    }
+
+    // Test for a batch split over the shards coming back in the order asked
+    @Test
+    void testBatchSplit() throws Exception {
+        List<Long> beneficiaryIds = List.of(600L, 1L, 999L, 5000L, 2L);
+        HttpResponse<String> response = post("/api/beneficiaries/total-balance", beneficiaryIds);
+
+        assertEquals(200, response.statusCode());
+        assertEquals(whole.getTotalBalances(beneficiaryIds),
+                mapper.readValue(response.body(), new TypeReference<List<TotalBalanceResult>>() {
+                }));
+    }
+
+    // Test for global queries merged over the shards
+    @Test
+    void testScatterGather() throws Exception {
+        assertEquals(whole.getTopBeneficiariesByBalance(15),
+                mapper.readValue(get("/api/analytics/top-balances?limit=15").body(),
+                        new TypeReference<List<BeneficiaryBalance>>() {
+                        }));
+        assertEquals(whole.getVolume(VolumeGranularity.MONTH, null, null),
+                mapper.readValue(get("/api/analytics/volume?granularity=month").body(),
+                        new TypeReference<List<VolumeEntry>>() {
+                        }));
+        assertEquals(whole.getNegativeBalanceAccounts(),
+                mapper.readValue(get("/api/analytics/negative-balances").body(),
+                        new TypeReference<List<AccountBalance>>() {
+                        }));
+        assertEquals(400, get("/api/analytics/top-balances?limit=0").statusCode());
+    }
+
+    // Test for a sorted search merged over the shards
+    @Test
+    void testSearch() throws Exception {
+        TransactionSearch search = new TransactionSearch("withdrawal", new BigDecimal("250"), null,
+                LocalDate.of(2023, 10, 1), LocalDate.of(2023, 12, 31), null, TransactionSort.AMOUNT, true, 25);
+        HttpResponse<String> response = get("/api/transactions/search?type=withdrawal&minAmount=250"
+                + "&from=2023-10-01&to=2023-12-31&sort=amount&order=desc&limit=25");
+
+        assertEquals(200, response.statusCode());
+        assertEquals(whole.searchTransactions(search), mapper.readValue(response.body(), TransactionSearchResult.class));
+    }
+
+    // Test for an account found on whichever shard holds it
+    @Test
+    void testAccountRouting() throws Exception {
+        long accountId = whole.getAccountsForBeneficiary(690L).get(0).getAccountId();
+        HttpResponse<String> response = get("/api/account/" + accountId + "/balance?date=2030-01-01");
+
+        assertEquals(200, response.statusCode());
+        assertEquals(0, whole.getAccountBalanceAsBigDecimal(accountId)
+                .compareTo(mapper.readTree(response.body()).get("balance").decimalValue()));
+        assertEquals(404, get("/api/account/999999/balance").statusCode());
+    }
+
+    // Test for transactions of several shards stored by each of them
+    @Test
+    void testAddTransactions() throws Exception {
+        long first = whole.getAccountsForBeneficiary(100L).get(0).getAccountId();
+        long second = whole.getAccountsForBeneficiary(800L).get(0).getAccountId();
+        List<Transaction> transactions = List.of(
+                new Transaction(20001L, second, 5.0, "deposit", LocalDate.of(2024, 1, 2)),
+                new Transaction(20002L, first, 7.5, "deposit", LocalDate.of(2024, 1, 3)));
+        whole.addTransactions(transactions);
+
+        HttpResponse<String> response = post("/api/transactions/bulk", transactions);
+        assertEquals(201, response.statusCode());
+        assertEquals(transactions, mapper.readValue(response.body(), new TypeReference<List<Transaction>>() {
+        }));
+        assertEquals(whole.getTransactionsForBeneficiary(800L),
+                mapper.readValue(get("/api/beneficiary/800/transactions").body(),
+                        new TypeReference<List<Transaction>>() {
+                        }));
+
+        HttpResponse<String> rejected = post("/api/transactions",
+                new Transaction(null, 999999L, 1.0, "deposit", LocalDate.of(2024, 1, 2)));
+        assertEquals(400, rejected.statusCode());
+        assertEquals("Account with ID 999999 not found", mapper.readTree(rejected.body()).get("error").asText());
+    }
+
+    // Test for client transaction ids another shard may store, rejected before any shard stores its part
+    @Test
+    void testForeignTransactionIdsRejected() throws Exception {
+        long first = whole.getAccountsForBeneficiary(100L).get(0).getAccountId();
+        long second = whole.getAccountsForBeneficiary(800L).get(0).getAccountId();
+        int count = whole.getTransactionsForBeneficiary(100L).size();
+
+        HttpResponse<String> rejected = post("/api/transactions/bulk", List.of(
+                new Transaction(30002L, first, 1.0, "deposit", LocalDate.of(2024, 1, 2)),
+                new Transaction(30004L, second, 1.0, "deposit", LocalDate.of(2024, 1, 2))));
+        assertEquals(400, rejected.statusCode());
+        assertTrue(mapper.readTree(rejected.body()).get("error").asText().contains("belongs to another shard"));
+        assertEquals(count, mapper.readValue(get("/api/beneficiary/100/transactions").body(),
+                new TypeReference<List<Transaction>>() {
+                }).size());
+
+        // Ids of the data files may be rows of the other shard
+        String shard = "http://localhost:" + contexts.get(1).getEnvironment().getProperty("local.server.port");
+        HttpResponse<String> taken = post(shard, "/api/transactions",
+                new Transaction(9999L, second, 1.0, "deposit", LocalDate.of(2024, 1, 2)));
+        assertEquals(400, taken.statusCode());
+        assertTrue(mapper.readTree(taken.body()).get("error").asText().contains("may be taken on another shard"));
+    }
+}
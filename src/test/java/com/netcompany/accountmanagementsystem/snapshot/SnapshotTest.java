@@ -0,0 +1,95 @@
+package com.netcompany.accountmanagementsystem.snapshot;
+
+import com.netcompany.accountmanagementsystem.config.DataProperties;
+import com.netcompany.accountmanagementsystem.service.AccountManagementService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnapshotTest {
+
+    @TempDir
+    Path tempDir;
+
+    private DataProperties dataProperties(Path snapshotPath) {
+        DataProperties dataProperties = new DataProperties();
+        dataProperties.setSnapshotPath(snapshotPath.toString());
+        return dataProperties;
+    }
+
+    private static long sampleChecksum() throws IOException {
+        return SourceChecksum.of(new ClassPathResource("beneficiaries.csv"),
+                new ClassPathResource("accounts.csv"), new ClassPathResource("transactions.csv"));
+    }
+
+    private static void assertSameData(AccountManagementService expected, AccountManagementService actual) {
+        for (long beneficiaryId = 0; beneficiaryId <= 1001; beneficiaryId++) {
+            assertEquals(expected.getBeneficiaryDetails(beneficiaryId), actual.getBeneficiaryDetails(beneficiaryId));
+            assertEquals(expected.getAccountsForBeneficiary(beneficiaryId), actual.getAccountsForBeneficiary(beneficiaryId));
+            assertEquals(expected.getTransactionsForBeneficiary(beneficiaryId),
+                    actual.getTransactionsForBeneficiary(beneficiaryId));
+            assertEquals(expected.getAccountBalancesForBeneficiary(beneficiaryId),
+                    actual.getAccountBalancesForBeneficiary(beneficiaryId));
+            assertEquals(expected.getTotalBalanceForBeneficiary(beneficiaryId),
+                    actual.getTotalBalanceForBeneficiary(beneficiaryId));
+        }
+    }
+
+    // Test for a restart from the snapshot giving the same data as the CSV files
+    @Test
+    void testRestartFromSnapshot() throws IOException {
+        Path snapshotPath = tempDir.resolve("snapshot.bin");
+        AccountManagementService fromCsv = new AccountManagementService(dataProperties(snapshotPath));
+        assertTrue(Files.isRegularFile(snapshotPath));
+        assertTrue(new SnapshotReader().read(snapshotPath, sampleChecksum()).isPresent());
+
+        AccountManagementService fromSnapshot = new AccountManagementService(dataProperties(snapshotPath));
+        assertSameData(fromCsv, fromSnapshot);
+    }
+
+    // Test for a snapshot of other CSV files being ignored
+    @Test
+    void testStaleSnapshot() throws IOException {
+        Path snapshotPath = tempDir.resolve("snapshot.bin");
+        new AccountManagementService(dataProperties(snapshotPath));
+
+        assertTrue(new SnapshotReader().read(snapshotPath, sampleChecksum() + 1).isEmpty());
+    }
+
+    // Test for a damaged snapshot being ignored and rewritten
+    @Test
+    void testCorruptSnapshot() throws IOException {
+        Path snapshotPath = tempDir.resolve("snapshot.bin");
+        AccountManagementService fromCsv = new AccountManagementService(dataProperties(snapshotPath));
+        try (RandomAccessFile file = new RandomAccessFile(snapshotPath.toFile(), "rw")) {
+            file.seek(file.length() / 2);
+            int value = file.read();
+            file.seek(file.length() / 2);
+            file.write(value ^ 0xFF);
+        }
+        assertTrue(new SnapshotReader().read(snapshotPath, sampleChecksum()).isEmpty());
+
+        AccountManagementService reloaded = new AccountManagementService(dataProperties(snapshotPath));
+        assertSameData(fromCsv, reloaded);
+        assertTrue(new SnapshotReader().read(snapshotPath, sampleChecksum()).isPresent());
+    }
+
+    // Test for a truncated snapshot being ignored
+    @Test
+    void testTruncatedSnapshot() throws IOException {
+        Path snapshotPath = tempDir.resolve("snapshot.bin");
+        new AccountManagementService(dataProperties(snapshotPath));
+        try (RandomAccessFile file = new RandomAccessFile(snapshotPath.toFile(), "rw")) {
+            file.setLength(file.length() - 100);
+        }
+
+        assertTrue(new SnapshotReader().read(snapshotPath, sampleChecksum()).isEmpty());
+    }
+}
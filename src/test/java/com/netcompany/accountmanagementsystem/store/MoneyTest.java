@@ -0,0 +1,90 @@
+package com.netcompany.accountmanagementsystem.store;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Checks the fixed-point conversions against the BigDecimal ones they replace.
+ */
+class MoneyTest {
+
+    // Test for every sample amount and account total matching the BigDecimal results
+    @Test
+    void testSampleDataMatchesBigDecimal() throws IOException {
+        Map<String, Long> cents = new HashMap<>();
+        Map<String, BigDecimal> decimals = new HashMap<>();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new ClassPathResource("transactions.csv").getInputStream()))) {
+            reader.readLine(); // Skip header
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split(",");
+                BigDecimal amount = new BigDecimal(fields[2]);
+                long amountCents = Money.parse(fields[2]);
+                assertEquals(amount.movePointRight(2).longValueExact(), amountCents);
+                assertEquals(amountCents, Money.ofDouble(Double.parseDouble(fields[2])));
+                assertEquals(amount.doubleValue(), Money.toDouble(amountCents));
+
+                long signedCents = "withdrawal".equals(fields[3]) ? -amountCents : amountCents;
+                cents.merge(fields[1], signedCents, Long::sum);
+                decimals.merge(fields[1], "withdrawal".equals(fields[3]) ? amount.negate() : amount, BigDecimal::add);
+            }
+        }
+        for (Map.Entry<String, BigDecimal> total : decimals.entrySet()) {
+            long totalCents = cents.get(total.getKey());
+            assertEquals(0, total.getValue().compareTo(Money.toBigDecimal(totalCents)));
+            assertEquals(total.getValue().doubleValue(), Money.toDouble(totalCents));
+        }
+    }
+
+    // Test for doubles and sums over the whole range of cents converting like BigDecimal does
+    @Test
+    void testConversionsMatchBigDecimal() {
+        SplittableRandom random = new SplittableRandom(22);
+        for (int i = 0; i < 200_000; i++) {
+            long cents = switch (i % 3) {
+                case 0 -> random.nextLong(-100_000_00, 100_000_00);
+                case 1 -> random.nextLong(-(1L << 53), 1L << 53);
+                default -> random.nextLong();
+            };
+            double amount = BigDecimal.valueOf(cents, 2).doubleValue();
+            assertEquals(amount, Money.toDouble(cents));
+            assertEquals(cents, Money.parse(BigDecimal.valueOf(cents, 2).toPlainString()));
+            if (Math.abs(cents) < 1L << 50) {
+                assertEquals(cents, Money.ofDouble(amount));
+                assertEquals(BigDecimal.valueOf(amount).movePointRight(2).longValueExact(), Money.ofDouble(amount));
+            }
+        }
+    }
+
+    // Test for amounts that are not whole cents being rejected rather than rounded
+    @Test
+    void testInvalidAmounts() {
+        assertEquals(4120L, Money.parse("41.200"));
+        assertEquals(-305L, Money.parse("-3.05"));
+        assertEquals(50L, Money.parse(".5"));
+        assertEquals(700L, Money.parse("+7"));
+
+        for (String amount : List.of("41.205", "0.001", "92233720368547758.08")) {
+            assertThrows(ArithmeticException.class, () -> Money.parse(amount));
+        }
+        for (String amount : List.of("", "-", ".", "1.2.3", "12a", "1e2")) {
+            assertThrows(NumberFormatException.class, () -> Money.parse(amount));
+        }
+        for (double amount : new double[]{41.205, 0.001, Double.NaN, Double.POSITIVE_INFINITY, 1e300}) {
+            assertThrows(ArithmeticException.class, () -> Money.ofDouble(amount));
+        }
+    }
+}
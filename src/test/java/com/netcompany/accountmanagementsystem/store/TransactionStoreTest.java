@@ -0,0 +1,44 @@
+package com.netcompany.accountmanagementsystem.store;
+
+import com.netcompany.accountmanagementsystem.model.Transaction;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionStoreTest {
+
+    // Test for storing rows and turning them back into transactions
+    @Test
+    void testAppendAndMaterialize() {
+        TransactionStore store = new TransactionStore();
+        for (int i = 0; i < 3000; i++) {
+            store.append(i + 1, 7 + i % 3, 4120 + i, i % 2 == 0 ? TransactionStore.DEPOSIT : TransactionStore.WITHDRAWAL,
+                    (int) LocalDate.of(2023, 10, 24).toEpochDay());
+        }
+        store.trimToSize();
+        assertEquals(0, store.size());
+        store.publish();
+
+        assertEquals(3000, store.size());
+        assertEquals(3, store.getAccountCount());
+        assertEquals(new Transaction(1L, 7L, 41.2, "deposit", LocalDate.of(2023, 10, 24)), store.toTransaction(0));
+        assertEquals(new Transaction(3000L, 9L, 71.19, "withdrawal", LocalDate.of(2023, 10, 24)), store.toTransaction(2999));
+        assertEquals(store.getAccountRef(2), store.findAccountRef(9L));
+        assertEquals(-1, store.findAccountRef(10L));
+    }
+
+    // Test for amount and type conversions
+    @Test
+    void testConversions() {
+        assertEquals(4120L, Money.parse("41.2"));
+        assertEquals(50000L, Money.parse("500"));
+        assertEquals(41.2, Money.toDouble(4120L));
+        assertThrows(ArithmeticException.class, () -> Money.parse("41.205"));
+
+        assertEquals(TransactionStore.WITHDRAWAL, TransactionStore.typeCode("withdrawal"));
+        assertEquals("deposit", TransactionStore.typeName(TransactionStore.DEPOSIT));
+        assertThrows(IllegalArgumentException.class, () -> TransactionStore.typeCode("refund"));
+    }
+}